@@ -8,6 +8,7 @@ import byteplus.sdk.general.protocol.ByteplusGeneral;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface CommonClient {
     // GetOperation
@@ -31,5 +32,21 @@ public interface CommonClient {
     DoneResponse done(List<LocalDate> dateList, String topic,
                                       Option... opts) throws NetException, BizException;
 
+    // GetOperationAsync
+    //
+    // The async version of `getOperation`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<OperationResponse> getOperationAsync(GetOperationRequest request, Option... opts);
+
+    // ListOperationsAsync
+    //
+    // The async version of `listOperations`.
+    CompletableFuture<ListOperationsResponse> listOperationsAsync(ListOperationsRequest request, Option... opts);
+
+    // DoneAsync
+    //
+    // The async version of `done`.
+    CompletableFuture<DoneResponse> doneAsync(List<LocalDate> dateList, String topic, Option... opts);
+
     void release();
 }
@@ -3,21 +3,27 @@ package byteplus.sdk.common;
 import byteplus.sdk.common.protocol.ByteplusCommon.*;
 import byteplus.sdk.core.BizException;
 import byteplus.sdk.core.Context;
+import byteplus.sdk.core.HedgedCaller;
+import byteplus.sdk.core.HostURL;
 import byteplus.sdk.core.HostAvailabler;
 import byteplus.sdk.core.HTTPCaller;
 import byteplus.sdk.core.NetException;
 import byteplus.sdk.core.Option;
-import byteplus.sdk.core.URLCenter;
+import byteplus.sdk.core.Tenant;
+import byteplus.sdk.core.WriteSpool;
 import byteplus.sdk.core.metrics.MetricsCollector;
 import com.google.protobuf.Parser;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
-public abstract class CommonClientImpl implements CommonClient, URLCenter {
+public abstract class CommonClientImpl implements CommonClient {
 
     protected final Context context;
 
@@ -27,27 +33,75 @@ public abstract class CommonClientImpl implements CommonClient, URLCenter {
 
     private final HostAvailabler hostAvailabler;
 
+    // send the predict requests, which are hedged if Option.withHedging is set
+    protected final HedgedCaller hedgedCaller;
+
+    private WriteSpool writeSpool;
+
+    // The client replays the spooled requests with its own tenant, so the views can't spool
+    // their writes, and reject the writes which the client would spool.
+    protected final static String ERR_MSG_VIEW_SPOOL = "the writes of a tenant view can't be spooled, " +
+            "use a client of the tenant to write with spool";
+
+    // the client whose transport is shared by this tenant view, null if this is not a view
+    private final CommonClientImpl root;
+
     protected CommonClientImpl(Context.Param param) {
         this.context = new Context(param);
         this.httpCaller = new HTTPCaller(context);
         this.commonURL = new CommonURL(context);
-        this.hostAvailabler = new HostAvailabler(context, this);
+        this.hostAvailabler = new HostAvailabler(context);
+        this.httpCaller.setHostAvailabler(hostAvailabler);
+        this.hedgedCaller = new HedgedCaller(context, httpCaller, hostAvailabler);
+        this.root = null;
         MetricsCollector.Init(this.context.getMetricsCfg(), this.hostAvailabler);
     }
 
-    @Override
-    public final void refresh(String host) {
-        this.commonURL.refresh(host);
-        doRefresh(host);
+    // Construct a tenant view of the client, it shares the http client, host availabler
+    // and hedging latencies with the client, only the context and urls are its own.
+    // The urls are built for the current host of the shared host availabler.
+    protected CommonClientImpl(CommonClientImpl client, Tenant tenant) {
+        this.root = Objects.isNull(client.root) ? client : client.root;
+        this.context = root.context.forTenant(tenant);
+        this.httpCaller = root.httpCaller.forTenant(context);
+        this.commonURL = new CommonURL(context);
+        this.hostAvailabler = root.hostAvailabler;
+        this.hedgedCaller = root.hedgedCaller.forTenant(context, httpCaller);
     }
 
-    public abstract void doRefresh(String host);
-
+    // The shared transport is released by the client, the tenant views
+    // can't be used after that.
     public final void release() {
+        if (Objects.nonNull(root)) {
+            doRelease();
+            return;
+        }
         this.hostAvailabler.shutdown();
+        this.httpCaller.shutdown();
+        if (Objects.nonNull(writeSpool)) {
+            writeSpool.close();
+        }
         doRelease();
     }
 
+    // Open the write spool if it's configured, return null if not
+    protected final WriteSpool openWriteSpool(WriteSpool.Replayer replayer) {
+        if (Objects.isNull(context.getWriteSpoolConfig())) {
+            return null;
+        }
+        try {
+            this.writeSpool = new WriteSpool(context.getWriteSpoolConfig(), replayer);
+        } catch (IOException e) {
+            throw new RuntimeException("Open write spool fail, " + e.getMessage(), e);
+        }
+        return writeSpool;
+    }
+
+    // Whether this is a tenant view of a client with write spool
+    protected final boolean isViewOfSpooledClient() {
+        return Objects.nonNull(root) && Objects.nonNull(root.writeSpool);
+    }
+
     public void doRelease() {
 
     }
@@ -56,7 +110,7 @@ public abstract class CommonClientImpl implements CommonClient, URLCenter {
     public OperationResponse getOperation(
             GetOperationRequest request, Option... opts) throws NetException, BizException {
         Parser<OperationResponse> parser = OperationResponse.parser();
-        String url = commonURL.getGetOperationUrl();
+        HostURL url = commonURL.getOperationUrl();
         OperationResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][GetOperations] rsp:\n{}", response);
         return response;
@@ -66,7 +120,7 @@ public abstract class CommonClientImpl implements CommonClient, URLCenter {
     public ListOperationsResponse listOperations(
             ListOperationsRequest request, Option... opts) throws NetException, BizException {
         Parser<ListOperationsResponse> parser = ListOperationsResponse.parser();
-        String url = commonURL.getListOperationsUrl();
+        HostURL url = commonURL.listOperationsUrl();
         ListOperationsResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][ListOperations] rsp:\n{}", response);
         return response;
@@ -78,8 +132,7 @@ public abstract class CommonClientImpl implements CommonClient, URLCenter {
         for (LocalDate date : dateList) {
             addDoneDate(dates, date);
         }
-        String urlFormat = commonURL.getDoneUrlFormat();
-        String url = urlFormat.replace("{}", topic);
+        HostURL url = commonURL.doneUrl(topic);
         DoneRequest request = DoneRequest.newBuilder().addAllDataDates(dates).build();
         Parser<DoneResponse> parser =  DoneResponse.parser();
         DoneResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
@@ -87,6 +140,45 @@ public abstract class CommonClientImpl implements CommonClient, URLCenter {
         return response;
     }
 
+    @Override
+    public CompletableFuture<OperationResponse> getOperationAsync(GetOperationRequest request, Option... opts) {
+        Parser<OperationResponse> parser = OperationResponse.parser();
+        HostURL url = commonURL.getOperationUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][GetOperations] rsp:\n{}", response);
+                    return response;
+                });
+    }
+
+    @Override
+    public CompletableFuture<ListOperationsResponse> listOperationsAsync(
+            ListOperationsRequest request, Option... opts) {
+        Parser<ListOperationsResponse> parser = ListOperationsResponse.parser();
+        HostURL url = commonURL.listOperationsUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][ListOperations] rsp:\n{}", response);
+                    return response;
+                });
+    }
+
+    @Override
+    public CompletableFuture<DoneResponse> doneAsync(List<LocalDate> dateList, String topic, Option... opts) {
+        List<Date> dates = new ArrayList<>();
+        for (LocalDate date : dateList) {
+            addDoneDate(dates, date);
+        }
+        HostURL url = commonURL.doneUrl(topic);
+        DoneRequest request = DoneRequest.newBuilder().addAllDataDates(dates).build();
+        Parser<DoneResponse> parser = DoneResponse.parser();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][Done] rsp:\n{}", response);
+                    return response;
+                });
+    }
+
     private void addDoneDate(List<Date> dateMapList, LocalDate date) {
         dateMapList.add(buildDoneDate(date));
     }
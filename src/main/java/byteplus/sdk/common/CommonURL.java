@@ -1,45 +1,81 @@
 package byteplus.sdk.common;
 
 import byteplus.sdk.core.Context;
+import byteplus.sdk.core.HostURL;
 import byteplus.sdk.core.URLCenter;
 import lombok.Getter;
 
-@Getter
 public class CommonURL implements URLCenter {
-    // The URL format of operation information
+    // The path format of operation information
     // Example: https://tob.sgsnssdk.com/data/api/retail/retail_demo/operation?method=get
-    private final static String OPERATION_URL_FORMAT = "%s://%s/data/api/%s/operation?method=%s";
+    private final static String OPERATION_PATH_FORMAT = "/data/api/%s/operation?method=%s";
 
-    // The URL format of done information
+    // The path format of done information
     // Example: https://tob.sgsnssdk.com/data/api/retail/retail_demo/done?topic=user
-    private final static String DONE_URL_FORMAT = "%s://%s/data/api/%s/done?topic={}";
+    private final static String DONE_PATH_FORMAT = "/data/api/%s/done?topic={}";
 
     // The URL of getting operation information which is real-time
     // Example: https://tob.sgsnssdk.com/data/api/retail_demo/operation?method=get
-    private String getOperationUrl;
+    private final HostURL getOperationUrl;
 
     // The URL of query operations information which is non-real-time
     // Example: https://tob.sgsnssdk.com/data/api/retail_demo/operation?method=list
-    private String listOperationsUrl;
+    private final HostURL listOperationsUrl;
 
-    // The URL of mark certain days that data synchronization is complete
-    // Example: https://tob.sgsnssdk.com/data/api/retail_demo/done?topic=user
-    private String doneUrlFormat;
+    // The path of done information, which need fill with "topic" info when use
+    private final String donePathFormat;
+
+    @Getter
+    protected final String schema;
 
-    protected String schema;
+    @Getter
+    protected final String tenant;
 
-    protected String tenant;
+    // The host of the deprecated string urls, it's the first host until refreshed
+    protected volatile String host;
 
     protected CommonURL(Context context) {
         this.schema = context.getSchema();
         this.tenant = context.getTenant();
-        this.refresh(context.getHosts().get(0));
+        this.host = context.getHosts().get(0);
+        this.getOperationUrl = HostURL.of(schema, String.format(OPERATION_PATH_FORMAT, tenant, "get"));
+        this.listOperationsUrl = HostURL.of(schema, String.format(OPERATION_PATH_FORMAT, tenant, "list"));
+        this.donePathFormat = String.format(DONE_PATH_FORMAT, tenant);
     }
 
     @Override
     public void refresh(String host) {
-        getOperationUrl = String.format(OPERATION_URL_FORMAT, schema, host, tenant, "get");
-        listOperationsUrl = String.format(OPERATION_URL_FORMAT, schema, host, tenant, "list");
-        doneUrlFormat = String.format(DONE_URL_FORMAT, schema, host, tenant);
+        this.host = host;
+    }
+
+    public HostURL getOperationUrl() {
+        return getOperationUrl;
+    }
+
+    public HostURL listOperationsUrl() {
+        return listOperationsUrl;
+    }
+
+    // The URL of mark certain days that data synchronization is complete
+    // Example: https://tob.sgsnssdk.com/data/api/retail_demo/done?topic=user
+    public HostURL doneUrl(String topic) {
+        return HostURL.of(schema, donePathFormat.replace("{}", topic));
+    }
+
+    // The string urls below are built for the refreshed host, use the HostURLs instead
+
+    @Deprecated
+    public String getGetOperationUrl() {
+        return getOperationUrl.build(host);
+    }
+
+    @Deprecated
+    public String getListOperationsUrl() {
+        return listOperationsUrl.build(host);
+    }
+
+    @Deprecated
+    public String getDoneUrlFormat() {
+        return HostURL.of(schema, donePathFormat).build(host);
     }
 }
@@ -0,0 +1,209 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.core.metrics.Metrics;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static byteplus.sdk.core.Constant.METRICS_KEY_RATE_LIMIT_RATE;
+import static byteplus.sdk.core.Constant.METRICS_KEY_RATE_LIMIT_REJECTED;
+import static byteplus.sdk.core.Constant.METRICS_KEY_RATE_LIMIT_THROTTLED;
+
+// A client-side rate limiter which adapts to the throttling of server(AIMD).
+// It doesn't limit anything until the server throttles a request(STATUS_CODE_TOO_MANY_REQUEST
+// or http 429), then the rate is limited to `decreaseFactor` of the recently observed rate,
+// and increased additively every second without throttling, so it gets back to the rate
+// before throttling in `recoveryTime`. The limit is removed when it is far above the demand.
+// The limited requests are paced by a token bucket, a request which should wait
+// longer than `maxWait` is rejected.
+// It's opt-in, enabled by setting `rateLimiterConfig` of the client.
+// Limiters are held by the client, one for each tenant and endpoint class(predict api,
+// data api), the tenant views of the client share its limiters.
+// So they are released with the client.
+@Slf4j
+public final class AdaptiveRateLimiter {
+    private final static double DEFAULT_DECREASE_FACTOR = 0.5;
+
+    private final static Duration DEFAULT_RECOVERY_TIME = Duration.ofSeconds(30);
+
+    private final static double DEFAULT_MIN_RATE = 1;
+
+    private final static Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(5);
+
+    private final static long SAMPLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // the throttled responses of the requests sent before decreasing don't decrease again
+    private final static long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // the limit is removed when the demand is less than rate/RELEASE_RATIO
+    private final static double RELEASE_RATIO = 2;
+
+    private final Config config;
+
+    private final String[] metricsTags;
+
+    // permits per second, not limited if <= 0
+    private volatile double rate;
+
+    // the time when next permit is available, only used when rate is limited
+    private long nextFreeNanos;
+
+    // the increment of rate in each sample interval, decided when decreasing
+    private double increaseStep;
+
+    private long lastThrottleNanos;
+
+    private final LongAdder acquiredCount = new LongAdder();
+
+    private volatile long sampleStartNanos = System.nanoTime();
+
+    private long sampleAcquiredCount;
+
+    // permits per second of the last sample interval
+    private double observedRate;
+
+    private AdaptiveRateLimiter(Config config, String tenant, String endpointClass) {
+        this.config = config;
+        this.metricsTags = new String[]{"tenant:" + tenant, "req_type:" + endpointClass};
+    }
+
+    static AdaptiveRateLimiter create(Config config, String tenant, String endpointClass) {
+        return new AdaptiveRateLimiter(fillDefaultConfig(config), tenant, endpointClass);
+    }
+
+    private static Config fillDefaultConfig(Config config) {
+        if (Objects.isNull(config)) {
+            config = new Config();
+        }
+        config = config.toBuilder().build();
+        if (config.decreaseFactor <= 0 || config.decreaseFactor >= 1) {
+            config.decreaseFactor = DEFAULT_DECREASE_FACTOR;
+        }
+        if (Objects.isNull(config.recoveryTime) || config.recoveryTime.toMillis() < 1000) {
+            config.recoveryTime = DEFAULT_RECOVERY_TIME;
+        }
+        if (config.minRate <= 0) {
+            config.minRate = DEFAULT_MIN_RATE;
+        }
+        if (Objects.isNull(config.maxWait) || config.maxWait.isNegative()) {
+            config.maxWait = DEFAULT_MAX_WAIT;
+        }
+        return config;
+    }
+
+    // Reserve a permit, return the nanos to wait before sending the request,
+    // or -1 if the request is rejected.
+    long acquire() {
+        long now = System.nanoTime();
+        if (now - sampleStartNanos >= SAMPLE_INTERVAL_NANOS) {
+            sample(now);
+        }
+        if (rate <= 0) {
+            acquiredCount.increment();
+            return 0;
+        }
+        long wait = reserve(now);
+        if (wait < 0) {
+            Metrics.counter(METRICS_KEY_RATE_LIMIT_REJECTED, 1, metricsTags);
+            return -1;
+        }
+        acquiredCount.increment();
+        return wait;
+    }
+
+    private synchronized long reserve(long now) {
+        if (rate <= 0) {
+            return 0;
+        }
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        // allow a burst of the permits of 100ms when idle
+        long burstNanos = Math.max(intervalNanos, TimeUnit.MILLISECONDS.toNanos(100));
+        if (nextFreeNanos < now - burstNanos) {
+            nextFreeNanos = now - burstNanos;
+        }
+        long wait = Math.max(0, nextFreeNanos - now);
+        if (wait > config.maxWait.toNanos()) {
+            return -1;
+        }
+        nextFreeNanos += intervalNanos;
+        return wait;
+    }
+
+    private synchronized void sample(long now) {
+        long elapsed = now - sampleStartNanos;
+        if (elapsed < SAMPLE_INTERVAL_NANOS) {
+            return;
+        }
+        long acquired = acquiredCount.sum();
+        observedRate = (acquired - sampleAcquiredCount) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        sampleAcquiredCount = acquired;
+        sampleStartNanos = now;
+        if (rate <= 0 || now - lastThrottleNanos < SAMPLE_INTERVAL_NANOS) {
+            return;
+        }
+        if (now - lastThrottleNanos >= config.recoveryTime.toNanos() && rate >= observedRate * RELEASE_RATIO) {
+            log.info("[ByteplusSDK][RateLimiter] remove rate limit, tags:{}", String.join(",", metricsTags));
+            rate = 0;
+        } else {
+            rate += increaseStep * elapsed / SAMPLE_INTERVAL_NANOS;
+        }
+        Metrics.store(METRICS_KEY_RATE_LIMIT_RATE, (long) rate, metricsTags);
+    }
+
+    // The request is throttled by server
+    void onThrottled() {
+        Metrics.counter(METRICS_KEY_RATE_LIMIT_THROTTLED, 1, metricsTags);
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (lastThrottleNanos != 0 && now - lastThrottleNanos < DECREASE_COOLDOWN_NANOS) {
+                return;
+            }
+            lastThrottleNanos = now;
+            // the current sample interval is also counted, in case of throttled in the first interval
+            double elapsedSeconds = (double) (now - sampleStartNanos) / TimeUnit.SECONDS.toNanos(1);
+            double recentRate = observedRate;
+            if (elapsedSeconds >= 0.1) {
+                recentRate = Math.max(recentRate, (acquiredCount.sum() - sampleAcquiredCount) / elapsedSeconds);
+            }
+            double current = rate > 0 ? Math.min(rate, Math.max(recentRate, config.minRate)) : recentRate;
+            double decreased = Math.max(config.minRate, current * config.decreaseFactor);
+            increaseStep = Math.max(config.minRate, current - decreased) / config.recoveryTime.getSeconds();
+            rate = decreased;
+            nextFreeNanos = now;
+        }
+        log.warn("[ByteplusSDK][RateLimiter] request is throttled by server, limit rate to {}/s, tags:{}",
+                (long) rate, String.join(",", metricsTags));
+        Metrics.store(METRICS_KEY_RATE_LIMIT_RATE, (long) rate, metricsTags);
+    }
+
+    // The permits per second, 0 if not limited
+    public double getRate() {
+        return Math.max(rate, 0);
+    }
+
+    @Getter
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Config {
+        // The rate is multiplied by it when throttled, default is 0.5.
+        private double decreaseFactor;
+
+        // The time to get back to the rate before throttling, default is 30s.
+        private Duration recoveryTime;
+
+        // Min permits per second, default is 1.
+        private double minRate;
+
+        // Max time a request waits for permit, it's rejected with BizException
+        // if it should wait longer, default is 5s.
+        private Duration maxWait;
+    }
+}
@@ -0,0 +1,396 @@
+package byteplus.sdk.core;
+
+import com.google.protobuf.MessageLite;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import static byteplus.sdk.core.Constant.MAX_WRITE_ITEM_COUNT;
+
+// Collect single items into batches, and write the batches in background.
+// Items are buffered in a bounded lock-free queue, a batch is written when
+// `batchSize` items are buffered, or the oldest buffered item has waited for `linger`.
+// At most `workers` batches are written concurrently.
+// When the queue is full, `offer` blocks, drops the oldest item or rejects the
+// new item according to the BackpressureMode.
+// The pipelines of the clients(e.g. retail.EventPipeline) extend it with the item types.
+//
+// T: the item type, e.g. UserEvent
+// E: the item error type of the write result, e.g. UserEventError
+@Slf4j
+public class BatchPipeline<T extends MessageLite, E> implements AutoCloseable {
+    private final static Duration DEFAULT_LINGER = Duration.ofSeconds(1);
+
+    private final static int DEFAULT_QUEUE_CAPACITY = 100000;
+
+    private final static int DEFAULT_WORKERS = 2;
+
+    private final Config config;
+
+    private final BatchWriter<T, E> batchWriter;
+
+    private final Consumer<BulkWriteResult<E>> resultHandler;
+
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+
+    // the free slots of queue
+    private final Semaphore queuePermits;
+
+    // the idle workers
+    private final Semaphore workerPermits;
+
+    // `offer` holds the read lock, so `close` and `flush` see all the accepted items in the queue
+    private final ReadWriteLock offerLock = new ReentrantReadWriteLock();
+
+    private final AtomicInteger queuedCount = new AtomicInteger();
+
+    // the items accepted by `offer`
+    private final AtomicLong acceptedCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    // guard the removal of items from queue, and the batches in flight
+    private final Object stateLock = new Object();
+
+    // the items taken out of the queue by writing or dropping, the items are taken in
+    // the order they are accepted, so the n-th accepted item is the n-th taken item
+    private volatile long removedCount;
+
+    // the batches being written, keyed by the removed count before the batch is taken
+    private final TreeMap<Long, Integer> inFlightBatches = new TreeMap<>();
+
+    // the items removed before this count should be written without waiting for linger
+    private volatile long flushTarget;
+
+    private volatile boolean closed;
+
+    private final Thread dispatcher;
+
+    private final ExecutorService workerExecutor;
+
+    /**
+     * @param config        pipeline config, default config is used if null
+     * @param batchWriter   write one batch, e.g. by bulkWriteUserEvents
+     * @param resultHandler handle the write result of each batch, called in worker threads,
+     *                      the errors are only logged if null
+     */
+    public BatchPipeline(Config config, BatchWriter<T, E> batchWriter, Consumer<BulkWriteResult<E>> resultHandler) {
+        this.config = fillDefaultConfig(config);
+        this.batchWriter = batchWriter;
+        this.resultHandler = resultHandler;
+        this.queuePermits = new Semaphore(this.config.queueCapacity);
+        this.workerPermits = new Semaphore(this.config.workers);
+        this.workerExecutor = Executors.newFixedThreadPool(this.config.workers, runnable -> {
+            Thread thread = new Thread(runnable, "byteplus-batch-pipeline-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatch, "byteplus-batch-pipeline-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    private Config fillDefaultConfig(Config config) {
+        if (Objects.isNull(config)) {
+            config = new Config();
+        }
+        config = config.toBuilder().build();
+        if (config.batchSize <= 0 || config.batchSize > MAX_WRITE_ITEM_COUNT) {
+            config.batchSize = MAX_WRITE_ITEM_COUNT;
+        }
+        if (Objects.isNull(config.linger) || config.linger.isZero() || config.linger.isNegative()) {
+            config.linger = DEFAULT_LINGER;
+        }
+        if (config.queueCapacity <= 0) {
+            config.queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        }
+        if (config.workers <= 0) {
+            config.workers = DEFAULT_WORKERS;
+        }
+        if (Objects.isNull(config.backpressureMode)) {
+            config.backpressureMode = BackpressureMode.BLOCK;
+        }
+        return config;
+    }
+
+    // Add an item into the pipeline.
+    // Return false if the item is rejected, which happens when the pipeline is closed,
+    // or the queue is full in REJECT mode, or the thread is interrupted in BLOCK mode.
+    public boolean offer(T item) {
+        int queued;
+        offerLock.readLock().lock();
+        try {
+            if (closed || !acquireQueuePermit()) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            queue.add(item);
+            queued = queuedCount.incrementAndGet();
+            acceptedCount.incrementAndGet();
+        } finally {
+            offerLock.readLock().unlock();
+        }
+        if (queued == config.batchSize) {
+            LockSupport.unpark(dispatcher);
+        }
+        return true;
+    }
+
+    private boolean acquireQueuePermit() {
+        if (queuePermits.tryAcquire()) {
+            return true;
+        }
+        switch (config.backpressureMode) {
+            case REJECT:
+                return false;
+            case DROP_OLDEST:
+                if (dropOldest()) {
+                    return true;
+                }
+                // all the slots are taken by the offers in progress, which are
+                // added to the queue soon, wait for them to be written
+                return acquireQueuePermitInterruptibly();
+            default:
+                return acquireQueuePermitInterruptibly();
+        }
+    }
+
+    // Drop the oldest item, and take over its slot.
+    // Return false if there is neither free slot nor item in the queue.
+    private boolean dropOldest() {
+        synchronized (stateLock) {
+            if (queuePermits.tryAcquire()) {
+                return true;
+            }
+            T oldest = queue.poll();
+            if (Objects.isNull(oldest)) {
+                return false;
+            }
+            queuedCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+            removedCount++;
+            stateLock.notifyAll();
+            return true;
+        }
+    }
+
+    private boolean acquireQueuePermitInterruptibly() {
+        try {
+            queuePermits.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Write all the items accepted before calling, and wait until they are written.
+    // The items accepted after calling don't delay it.
+    public void flush() throws BizException {
+        long target;
+        offerLock.writeLock().lock();
+        try {
+            target = acceptedCount.get();
+        } finally {
+            offerLock.writeLock().unlock();
+        }
+        synchronized (stateLock) {
+            if (target > flushTarget) {
+                flushTarget = target;
+            }
+        }
+        LockSupport.unpark(dispatcher);
+        try {
+            synchronized (stateLock) {
+                while (completedWatermark() < target) {
+                    stateLock.wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException("flush pipeline is interrupted");
+        }
+    }
+
+    // The items removed before the watermark are all written or dropped, called with stateLock held
+    private long completedWatermark() {
+        if (inFlightBatches.isEmpty()) {
+            return removedCount;
+        }
+        return inFlightBatches.firstKey();
+    }
+
+    // Stop accepting new items, write all the buffered items and release the threads.
+    @Override
+    public void close() throws BizException {
+        offerLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            offerLock.writeLock().unlock();
+        }
+        flush();
+        LockSupport.unpark(dispatcher);
+        workerExecutor.shutdown();
+        try {
+            dispatcher.join();
+            workerExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException("close pipeline is interrupted");
+        }
+    }
+
+    private void dispatch() {
+        long lingerNanos = config.linger.toNanos();
+        // the time when the oldest buffered item is found, 0 if no buffered item
+        long lingerStart = 0;
+        // no item is added after closed, so the pipeline stops once the queue is empty
+        while (!closed || queuedCount.get() > 0) {
+            int queued = queuedCount.get();
+            if (queued <= 0) {
+                lingerStart = 0;
+                LockSupport.parkNanos(this, lingerNanos);
+                continue;
+            }
+            long now = System.nanoTime();
+            if (lingerStart == 0) {
+                lingerStart = now;
+            }
+            boolean urgent = closed || removedCount < flushTarget;
+            long waited = now - lingerStart;
+            if (queued < config.batchSize && !urgent && waited < lingerNanos) {
+                LockSupport.parkNanos(this, lingerNanos - waited);
+                continue;
+            }
+            try {
+                workerPermits.acquire();
+            } catch (InterruptedException e) {
+                // the dispatcher thread is not interrupted by pipeline, keep dispatching
+                continue;
+            }
+            long batchStart;
+            List<T> batch = new ArrayList<>(Math.min(queued, config.batchSize));
+            synchronized (stateLock) {
+                batchStart = removedCount;
+                drainBatch(batch);
+            }
+            if (batch.isEmpty()) {
+                workerPermits.release();
+                continue;
+            }
+            lingerStart = queuedCount.get() > 0 ? System.nanoTime() : 0;
+            workerExecutor.execute(() -> writeBatch(batchStart, batch));
+        }
+    }
+
+    // Take a batch out of the queue, called with stateLock held
+    private void drainBatch(List<T> batch) {
+        while (batch.size() < config.batchSize) {
+            T item = queue.poll();
+            if (Objects.isNull(item)) {
+                break;
+            }
+            batch.add(item);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        queuedCount.addAndGet(-batch.size());
+        inFlightBatches.put(removedCount, batch.size());
+        removedCount += batch.size();
+        queuePermits.release(batch.size());
+    }
+
+    private void writeBatch(long batchStart, List<T> batch) {
+        try {
+            BulkWriteResult<E> result = batchWriter.write(batch);
+            if (Objects.nonNull(resultHandler)) {
+                resultHandler.accept(result);
+            } else if (!result.isSuccess()) {
+                log.warn("[ByteplusSDK][BatchPipeline] write batch fail, items:{} errors:{}",
+                        batch.size(), result.getErrors().size());
+            }
+        } catch (Throwable e) {
+            log.error("[ByteplusSDK][BatchPipeline] write batch find err, items:{} err:{}",
+                    batch.size(), e.getMessage());
+        } finally {
+            workerPermits.release();
+            synchronized (stateLock) {
+                inFlightBatches.remove(batchStart);
+                stateLock.notifyAll();
+            }
+        }
+    }
+
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public interface BatchWriter<T, E> {
+        BulkWriteResult<E> write(List<T> batch) throws BizException;
+    }
+
+    public enum BackpressureMode {
+        // wait until the queue has free space
+        BLOCK,
+        // drop the oldest buffered item to make room for the new one
+        DROP_OLDEST,
+        // reject the new item
+        REJECT
+    }
+
+    @Getter
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Config {
+        // Max items in one batch, no more than MAX_WRITE_ITEM_COUNT, which is also the default.
+        private int batchSize;
+
+        // Max time the buffered items wait before written, default is 1s.
+        private Duration linger;
+
+        // Max buffered items, default is 100000.
+        private int queueCapacity;
+
+        // Max batches written concurrently, default is 2.
+        private int workers;
+
+        // What to do when the queue is full, default is BLOCK.
+        private BackpressureMode backpressureMode;
+    }
+}
@@ -0,0 +1,29 @@
+package byteplus.sdk.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+// The merged result of a bulk write
+@Getter
+@ToString
+@AllArgsConstructor
+public class BulkWriteResult<E> {
+    // The number of items passed to bulk write
+    private final long totalCount;
+
+    // The number of items written successfully
+    private final long successCount;
+
+    // The number of chunk requests sent
+    private final int chunkCount;
+
+    // The errors of the failed items, including the items of the chunks which failed as a whole
+    private final List<E> errors;
+
+    public boolean isSuccess() {
+        return errors.isEmpty() && successCount == totalCount;
+    }
+}
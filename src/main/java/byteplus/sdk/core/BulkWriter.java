@@ -0,0 +1,240 @@
+package byteplus.sdk.core;
+
+import com.google.protobuf.MessageLite;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import static byteplus.sdk.core.Constant.MAX_WRITE_ITEM_COUNT;
+import static byteplus.sdk.core.Constant.STATUS_CODE_SUCCESS;
+
+// Write any number of items by the Write* api.
+// The items are split into chunks which do not exceed the item limit of one
+// write request(and the byte budget if configured), and the chunks are written
+// concurrently. The items are pulled from the Iterable lazily, so only the
+// in-flight chunks are kept in memory.
+// The per-item errors of all chunks are merged into one BulkWriteResult, the items
+// of a chunk which failed as a whole(e.g. timeout) are also reported as item errors.
+// The items of a partially failed chunk are succeeded unless they are the failed
+// item of an error, which is the same item passed in the request.
+//
+// T: the item type, e.g. User
+// R: the response of Write* api, e.g. WriteUsersResponse
+// E: the item error type, e.g. UserError
+@Slf4j
+public final class BulkWriter<T extends MessageLite, R, E> {
+    private final static int DEFAULT_PARALLELISM = 4;
+
+    private final Config config;
+
+    private final Function<List<T>, CompletableFuture<R>> chunkWriter;
+
+    private final ToIntFunction<R> statusCodeGetter;
+
+    private final Function<R, String> statusMessageGetter;
+
+    private final Function<R, List<E>> errorsGetter;
+
+    private final Function<E, T> errorItemGetter;
+
+    private final BiFunction<T, String, E> errorBuilder;
+
+    /**
+     * @param config              bulk write config, default config is used if null
+     * @param chunkWriter         write one chunk by the async Write* api
+     * @param statusCodeGetter    get `status.code` of the response
+     * @param statusMessageGetter get `status.message` of the response
+     * @param errorsGetter        get the item errors of the response
+     * @param errorItemGetter     get the failed item of the item error
+     * @param errorBuilder        build the item error for the item of a failed chunk
+     */
+    public BulkWriter(Config config,
+                      Function<List<T>, CompletableFuture<R>> chunkWriter,
+                      ToIntFunction<R> statusCodeGetter,
+                      Function<R, String> statusMessageGetter,
+                      Function<R, List<E>> errorsGetter,
+                      Function<E, T> errorItemGetter,
+                      BiFunction<T, String, E> errorBuilder) {
+        this.config = fillDefaultConfig(config);
+        this.chunkWriter = chunkWriter;
+        this.statusCodeGetter = statusCodeGetter;
+        this.statusMessageGetter = statusMessageGetter;
+        this.errorsGetter = errorsGetter;
+        this.errorItemGetter = errorItemGetter;
+        this.errorBuilder = errorBuilder;
+    }
+
+    private Config fillDefaultConfig(Config config) {
+        if (Objects.isNull(config)) {
+            config = new Config();
+        }
+        config = config.toBuilder().build();
+        if (config.maxChunkItems <= 0 || config.maxChunkItems > MAX_WRITE_ITEM_COUNT) {
+            config.maxChunkItems = MAX_WRITE_ITEM_COUNT;
+        }
+        if (config.parallelism <= 0) {
+            config.parallelism = DEFAULT_PARALLELISM;
+        }
+        return config;
+    }
+
+    // The options used by each chunk request.
+    // The chunks are different requests, so the request id given by caller is dropped,
+    // otherwise the chunks after the first one would be rejected as duplicated requests.
+    public static Option[] chunkOptions(Option[] opts) {
+        if (Objects.isNull(opts)) {
+            opts = new Option[0];
+        }
+        Option[] chunkOpts = Arrays.copyOf(opts, opts.length + 1);
+        chunkOpts[opts.length] = Option.withRequestId(null);
+        return chunkOpts;
+    }
+
+    // Write all the items, and block until all chunks are finished.
+    // Throw BizException only when interrupted, the failures of chunks are in the result.
+    public BulkWriteResult<E> write(Iterable<? extends T> items) throws BizException {
+        Semaphore permits = new Semaphore(config.parallelism);
+        List<E> errors = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong successCount = new AtomicLong();
+        long totalCount = 0;
+        int chunkCount = 0;
+        List<T> chunk = new ArrayList<>();
+        long chunkBytes = 0;
+        try {
+            for (T item : items) {
+                totalCount++;
+                int itemBytes = config.maxChunkBytes > 0 ? item.getSerializedSize() : 0;
+                if (!chunk.isEmpty() && (chunk.size() >= config.maxChunkItems ||
+                        (config.maxChunkBytes > 0 && chunkBytes + itemBytes > config.maxChunkBytes))) {
+                    writeChunk(chunk, permits, errors, successCount);
+                    chunkCount++;
+                    chunk = new ArrayList<>();
+                    chunkBytes = 0;
+                }
+                chunk.add(item);
+                chunkBytes += itemBytes;
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(chunk, permits, errors, successCount);
+                chunkCount++;
+            }
+            // wait for all the in-flight chunks
+            permits.acquire(config.parallelism);
+            permits.release(config.parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException("bulk write is interrupted");
+        }
+        log.debug("[ByteplusSDK][BulkWrite] total:{} success:{} chunks:{}", totalCount, successCount.get(), chunkCount);
+        List<E> resultErrors;
+        synchronized (errors) {
+            resultErrors = new ArrayList<>(errors);
+        }
+        return new BulkWriteResult<>(totalCount, successCount.get(), chunkCount, resultErrors);
+    }
+
+    private void writeChunk(List<T> chunk,
+                            Semaphore permits,
+                            List<E> errors,
+                            AtomicLong successCount) throws InterruptedException {
+        permits.acquire();
+        CompletableFuture<R> future;
+        try {
+            future = chunkWriter.apply(chunk);
+        } catch (Throwable e) {
+            onChunkComplete(chunk, null, e, errors, successCount);
+            permits.release();
+            return;
+        }
+        future.whenComplete((response, e) -> {
+            try {
+                onChunkComplete(chunk, response, e, errors, successCount);
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private void onChunkComplete(List<T> chunk,
+                                 R response,
+                                 Throwable e,
+                                 List<E> errors,
+                                 AtomicLong successCount) {
+        if (Objects.nonNull(e)) {
+            if (e instanceof CompletionException && Objects.nonNull(e.getCause())) {
+                e = e.getCause();
+            }
+            log.warn("[ByteplusSDK][BulkWrite] write chunk fail, items:{} err:{}", chunk.size(), e.getMessage());
+            addChunkErrors(chunk, String.valueOf(e.getMessage()), errors);
+            return;
+        }
+        int code = statusCodeGetter.applyAsInt(response);
+        List<E> chunkErrors = errorsGetter.apply(response);
+        if (Helper.isPartialFailure(code, chunkErrors)) {
+            errors.addAll(chunkErrors);
+            successCount.addAndGet(countSucceededItems(chunk, chunkErrors));
+            return;
+        }
+        if (code == STATUS_CODE_SUCCESS) {
+            successCount.addAndGet(chunk.size());
+            return;
+        }
+        String message = statusMessageGetter.apply(response);
+        log.warn("[ByteplusSDK][BulkWrite] write chunk fail, items:{} code:{} msg:{}", chunk.size(), code, message);
+        addChunkErrors(chunk, String.format("code:%d, message:%s", code, message), errors);
+    }
+
+    // The items of the chunk which are not the failed item of any error
+    private long countSucceededItems(List<T> chunk, List<E> chunkErrors) {
+        Set<T> failedItems = new HashSet<>(chunkErrors.size());
+        for (E error : chunkErrors) {
+            T item = errorItemGetter.apply(error);
+            if (Objects.nonNull(item)) {
+                failedItems.add(item);
+            }
+        }
+        return chunk.stream().filter(item -> !failedItems.contains(item)).count();
+    }
+
+    private void addChunkErrors(List<T> chunk, String message, List<E> errors) {
+        List<E> chunkErrors = new ArrayList<>(chunk.size());
+        for (T item : chunk) {
+            chunkErrors.add(errorBuilder.apply(item, message));
+        }
+        errors.addAll(chunkErrors);
+    }
+
+    @Getter
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Config {
+        // Max items in one chunk, no more than MAX_WRITE_ITEM_COUNT, which is also the default.
+        private int maxChunkItems;
+
+        // Max serialized bytes of the items in one chunk, not limited if <= 0.
+        // A single item larger than the budget is still sent in its own chunk.
+        private long maxChunkBytes;
+
+        // Max concurrent chunk requests, default is 4.
+        // HTTPCaller.Config.maxRequestsPerHost also limits the concurrent requests.
+        private int parallelism;
+    }
+}
@@ -0,0 +1,210 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.core.metrics.Metrics;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static byteplus.sdk.core.Constant.METRICS_KEY_CIRCUIT_BREAKER_REJECTED;
+import static byteplus.sdk.core.Constant.METRICS_KEY_CIRCUIT_BREAKER_STATE;
+import static byteplus.sdk.core.Constant.METRICS_KEY_CIRCUIT_BREAKER_TRANSITION;
+
+// A circuit breaker of one host and endpoint(predict, write, import, callback).
+// CLOSED: requests pass, it opens when the failure rate of the latest `windowSize`
+// requests reaches `failureRateThreshold`, and there are at least `minRequests` requests.
+// OPEN: requests are rejected with CircuitOpenException immediately, until `openDuration` elapses.
+// HALF_OPEN: `halfOpenRequests` trial requests pass, it closes if all of them succeed,
+// and opens again if any of them fails.
+// A request fails if it times out, fails to connect or gets 5xx, the same as HostAvailabler.
+@Slf4j
+public final class CircuitBreaker {
+    private final static double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+
+    private final static int DEFAULT_MIN_REQUESTS = 20;
+
+    private final static int DEFAULT_WINDOW_SIZE = 100;
+
+    private final static Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(10);
+
+    private final static int DEFAULT_HALF_OPEN_REQUESTS = 3;
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Config config;
+
+    private final String[] metricsTags;
+
+    private volatile State state = State.CLOSED;
+
+    // outcomes of the latest requests in CLOSED state, true means failure
+    private final boolean[] window;
+
+    private int windowCount;
+
+    private int windowNext;
+
+    private int windowFailures;
+
+    private long openedAtNanos;
+
+    // the trial requests allowed and succeeded in HALF_OPEN state
+    private int halfOpenAllowed;
+
+    private int halfOpenSucceeded;
+
+    CircuitBreaker(Config config, String tenant, String host, String endpoint) {
+        this.config = fillDefaultConfig(config);
+        this.window = new boolean[this.config.windowSize];
+        this.metricsTags = new String[]{"tenant:" + tenant,
+                "host:" + Helper.escapeMetricsTagValue(host), "endpoint:" + endpoint};
+    }
+
+    private static Config fillDefaultConfig(Config config) {
+        config = config.toBuilder().build();
+        if (config.failureRateThreshold <= 0 || config.failureRateThreshold > 1) {
+            config.failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+        }
+        if (config.minRequests <= 0) {
+            config.minRequests = DEFAULT_MIN_REQUESTS;
+        }
+        if (config.windowSize <= 0) {
+            config.windowSize = DEFAULT_WINDOW_SIZE;
+        }
+        if (Objects.isNull(config.openDuration) || config.openDuration.isZero() || config.openDuration.isNegative()) {
+            config.openDuration = DEFAULT_OPEN_DURATION;
+        }
+        if (config.halfOpenRequests <= 0) {
+            config.halfOpenRequests = DEFAULT_HALF_OPEN_REQUESTS;
+        }
+        return config;
+    }
+
+    // Throw CircuitOpenException if the request is not allowed
+    void acquire() throws CircuitOpenException {
+        if (state == State.CLOSED || tryAcquire()) {
+            return;
+        }
+        Metrics.counter(METRICS_KEY_CIRCUIT_BREAKER_REJECTED, 1, metricsTags);
+        throw new CircuitOpenException(String.format("circuit breaker is open, %s", String.join(",", metricsTags)));
+    }
+
+    private synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        if (state == State.OPEN) {
+            if (now - openedAtNanos < config.openDuration.toNanos()) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN, now);
+        }
+        if (state == State.HALF_OPEN) {
+            // the outcomes of trial requests may be lost(e.g. cancelled), allow new trials after a while
+            if (halfOpenAllowed >= config.halfOpenRequests &&
+                    now - openedAtNanos >= config.openDuration.toNanos() * 2) {
+                halfOpenAllowed = halfOpenSucceeded;
+                openedAtNanos = now - config.openDuration.toNanos();
+            }
+            if (halfOpenAllowed >= config.halfOpenRequests) {
+                return false;
+            }
+            halfOpenAllowed++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSucceeded >= config.halfOpenRequests) {
+                transitionTo(State.CLOSED, System.nanoTime());
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN, System.nanoTime());
+            return;
+        }
+        if (state != State.CLOSED) {
+            return;
+        }
+        record(true);
+        if (windowCount >= config.minRequests &&
+                windowFailures >= config.failureRateThreshold * windowCount) {
+            transitionTo(State.OPEN, System.nanoTime());
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowNext]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowNext = (windowNext + 1) % window.length;
+    }
+
+    private void transitionTo(State newState, long now) {
+        State oldState = state;
+        state = newState;
+        if (newState == State.OPEN) {
+            openedAtNanos = now;
+        }
+        if (newState == State.HALF_OPEN) {
+            halfOpenAllowed = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (newState == State.CLOSED) {
+            windowCount = 0;
+            windowNext = 0;
+            windowFailures = 0;
+        }
+        log.warn("[ByteplusSDK][CircuitBreaker] {} -> {}, {}", oldState, newState, String.join(",", metricsTags));
+        String[] tags = new String[metricsTags.length + 1];
+        System.arraycopy(metricsTags, 0, tags, 0, metricsTags.length);
+        tags[metricsTags.length] = "state:" + newState.name().toLowerCase();
+        Metrics.counter(METRICS_KEY_CIRCUIT_BREAKER_TRANSITION, 1, tags);
+        Metrics.store(METRICS_KEY_CIRCUIT_BREAKER_STATE, newState.ordinal(), metricsTags);
+    }
+
+    State getState() {
+        return state;
+    }
+
+    @Getter
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Config {
+        // Open the breaker when the failure rate reaches it, default is 0.5.
+        private double failureRateThreshold;
+
+        // Min requests in window before the failure rate is checked, default is 20.
+        private int minRequests;
+
+        // The number of latest requests the failure rate is calculated from, default is 100.
+        private int windowSize;
+
+        // The time requests are rejected after opening, default is 10s.
+        private Duration openDuration;
+
+        // The trial requests in half-open state, default is 3.
+        private int halfOpenRequests;
+    }
+}
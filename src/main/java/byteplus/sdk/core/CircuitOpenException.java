@@ -0,0 +1,8 @@
+package byteplus.sdk.core;
+
+// throw when the request is rejected by an open circuit breaker, without being sent
+public class CircuitOpenException extends BizException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
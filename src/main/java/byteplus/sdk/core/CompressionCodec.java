@@ -0,0 +1,22 @@
+package byteplus.sdk.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Codec used to compress the http request body.
+// Besides the built-in "gzip", "deflate" and "none", other codecs such as "zstd"
+// can be provided through java SPI: implement this interface and register the
+// implementation in `META-INF/services/byteplus.sdk.core.CompressionCodec`,
+// then select it by name in CompressionPolicy.
+public interface CompressionCodec {
+    // The name used to select the codec in CompressionPolicy,
+    // it's also used as the value of "Content-Encoding" header
+    String name();
+
+    /**
+     * @param out   the compressed bytes should be written to out,
+     *              and out should be closed when the returned stream is closed
+     * @param level compression level, -1 means the default level of the codec
+     */
+    OutputStream compress(OutputStream out, int level) throws IOException;
+}
@@ -0,0 +1,92 @@
+package byteplus.sdk.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Slf4j
+final class CompressionCodecs {
+    private final static int BUFFER_SIZE = 4096;
+
+    final static CompressionCodec NONE = new CompressionCodec() {
+        @Override
+        public String name() {
+            return CompressionPolicy.CODEC_NONE;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out, int level) {
+            return out;
+        }
+    };
+
+    final static CompressionCodec GZIP = new CompressionCodec() {
+        @Override
+        public String name() {
+            return CompressionPolicy.CODEC_GZIP;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out, int level) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+    };
+
+    final static CompressionCodec DEFLATE = new CompressionCodec() {
+        @Override
+        public String name() {
+            return CompressionPolicy.CODEC_DEFLATE;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out, int level) {
+            Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // the deflater passed by caller won't be released by DeflaterOutputStream
+                        deflater.end();
+                    }
+                }
+            };
+        }
+    };
+
+    private final static Map<String, CompressionCodec> codecs = loadCodecs();
+
+    private CompressionCodecs() {
+    }
+
+    private static Map<String, CompressionCodec> loadCodecs() {
+        Map<String, CompressionCodec> codecs = new HashMap<>();
+        for (CompressionCodec codec : ServiceLoader.load(CompressionCodec.class)) {
+            log.info("[ByteplusSDK] load compression codec '{}' from {}", codec.name(), codec.getClass().getName());
+            codecs.put(codec.name(), codec);
+        }
+        // built-in codecs can't be overwritten
+        codecs.put(NONE.name(), NONE);
+        codecs.put(GZIP.name(), GZIP);
+        codecs.put(DEFLATE.name(), DEFLATE);
+        return Collections.unmodifiableMap(codecs);
+    }
+
+    // return null if no codec found
+    static CompressionCodec get(String name) {
+        return codecs.get(name);
+    }
+}
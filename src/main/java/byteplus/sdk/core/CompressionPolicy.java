@@ -0,0 +1,42 @@
+package byteplus.sdk.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// Decide how the http request body is compressed.
+// It can be set for all requests of a client through Context.Param, for the requests
+// of an endpoint through `endpointCompressionPolicies` of Context.Param, e.g. turn off
+// compression for predict and use high level for import, or for a single request
+// through `Option.withCompression`, the more specific one takes precedence.
+@Getter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompressionPolicy {
+    public final static String CODEC_GZIP = "gzip";
+
+    public final static String CODEC_DEFLATE = "deflate";
+
+    // Send the body without compression
+    public final static String CODEC_NONE = "none";
+
+    public final static int DEFAULT_LEVEL = -1;
+
+    // Name of the codec, "gzip", "deflate", "none" or the name of a codec
+    // registered through CompressionCodec SPI, default is "gzip"
+    private String codec;
+
+    // Compression level, 1(fastest) ~ 9(best compression), default is the codec's default level
+    private Integer level;
+
+    // The body whose size is less than minSize(bytes) will be sent without compression,
+    // since compressing small body costs more cpu and latency than it saves, default is 0
+    private int minSize;
+
+    // Always compress with gzip in default level, the same as the previous sdk versions
+    static CompressionPolicy defaultPolicy() {
+        return new CompressionPolicy(CODEC_GZIP, DEFAULT_LEVEL, 0);
+    }
+}
@@ -26,6 +26,9 @@ public final class Constant {
      */
     // The request was executed successfully without any exception
     public final static int STATUS_CODE_SUCCESS = 0;
+    // Some items of the write request failed, and the errors of the items are in the response,
+    // as documented by the Write*Response of byteplus_retail/retailv2/media/general.proto
+    public final static int STATUS_CODE_PARTIAL_FAILURE = 1001;
     // A Request with the same "Request-ID" was already received. This Request was rejected
     public final static int STATUS_CODE_IDEMPOTENT = 409;
     // Operation information is missing due to an unknown exception
@@ -35,8 +38,26 @@ public final class Constant {
 
     public final static String VOLC_AUTH_SERVICE = "air";
 
+    // The endpoints of requests, which are used to set policies for each of them
+    public final static String ENDPOINT_PREDICT = "predict";
+    public final static String ENDPOINT_CALLBACK = "callback";
+    public final static String ENDPOINT_WRITE = "write";
+    public final static String ENDPOINT_IMPORT = "import";
+    public final static String ENDPOINT_OTHER = "other";
+
     // Metrics Key
     public final static String METRICS_KEY_COMMON_ERROR = "common.err";
     public final static String METRICS_KEY_REQUEST_TOTAL_COST = "request.total.cost";
     public final static String METRICS_KEY_REQUEST_COST = "request.cost";
+    public final static String METRICS_KEY_RATE_LIMIT_RATE = "ratelimit.rate";
+    public final static String METRICS_KEY_RATE_LIMIT_THROTTLED = "ratelimit.throttled";
+    public final static String METRICS_KEY_RATE_LIMIT_REJECTED = "ratelimit.rejected";
+    public final static String METRICS_KEY_HEDGE_SENT = "hedge.sent";
+    public final static String METRICS_KEY_HEDGE_WON = "hedge.won";
+    public final static String METRICS_KEY_CIRCUIT_BREAKER_STATE = "circuitbreaker.state";
+    public final static String METRICS_KEY_CIRCUIT_BREAKER_TRANSITION = "circuitbreaker.transition";
+    public final static String METRICS_KEY_CIRCUIT_BREAKER_REJECTED = "circuitbreaker.rejected";
+    public final static String METRICS_KEY_PREDICT_CACHE_HIT = "predictcache.hit";
+    public final static String METRICS_KEY_PREDICT_CACHE_MISS = "predictcache.miss";
+    public final static String METRICS_KEY_PREDICT_CACHE_EVICTION = "predictcache.eviction";
 }
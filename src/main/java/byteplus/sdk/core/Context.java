@@ -43,12 +43,40 @@ public class Context {
     // Customer-defined http headers, all requests will include these headers
     private Map<String, String> customerHeaders = Collections.emptyMap();
 
+    // The headers of the tenant of a tenant view, which are included in the requests of the view
+    private Map<String, String> tenantHeaders = Collections.emptyMap();
+
     // Metrics cfg.
     private MetricsCfg metricsCfg;
 
     // HostAvailablerConfig
     private HostAvailabler.Config hostAvailablerConfig;
 
+    // HTTPCallerConfig, connection pool, dispatcher and timeouts of the http client
+    private HTTPCaller.Config httpCallerConfig;
+
+    // How to compress the request body, can be overwritten by `Option.withCompression`
+    private CompressionPolicy compressionPolicy;
+
+    // Endpoint(Constant.ENDPOINT_XXX) -> compression policy of its requests, which
+    // overwrites compressionPolicy, and can be overwritten by `Option.withCompression`
+    private Map<String, CompressionPolicy> endpointCompressionPolicies = Collections.emptyMap();
+
+    // Spool the write requests on disk and replay them when failed with NetException, disabled if null
+    private WriteSpool.Config writeSpoolConfig;
+
+    // Client-side rate limiter which adapts to the throttling of server, disabled if null
+    private AdaptiveRateLimiter.Config rateLimiterConfig;
+
+    // Retry the requests failed with timeout or retryable http codes, not retry if null
+    private RetryPolicy retryPolicy;
+
+    // Reject the requests to the failing host and endpoint immediately, disabled if null
+    private CircuitBreaker.Config circuitBreakerConfig;
+
+    // Cache the predict responses in process, disabled if null
+    private PredictCache.Config predictCacheConfig;
+
     @Slf4j
     @Accessors(chain = true)
     @Setter
@@ -78,6 +106,31 @@ public class Context {
 
         // HostAvailablerConfig
         private HostAvailabler.Config hostAvailablerConfig;
+
+        // HTTPCallerConfig
+        private HTTPCaller.Config httpCallerConfig;
+
+        // Compression policy of request body, default is gzip
+        private CompressionPolicy compressionPolicy;
+
+        // Compression policies of endpoints(Constant.ENDPOINT_XXX), e.g. no compression
+        // for predict and high level for import, compressionPolicy is used if not set
+        private Map<String, CompressionPolicy> endpointCompressionPolicies;
+
+        // Write-ahead spool of writeUserEvents, disabled if null
+        private WriteSpool.Config writeSpoolConfig;
+
+        // Adaptive rate limiter, disabled if null, the defaults are used for the unset fields
+        private AdaptiveRateLimiter.Config rateLimiterConfig;
+
+        // Default retry policy of requests, not retry if null
+        private RetryPolicy retryPolicy;
+
+        // Circuit breaker of each host and endpoint, disabled if null
+        private CircuitBreaker.Config circuitBreakerConfig;
+
+        // Predict response cache, disabled if null
+        private PredictCache.Config predictCacheConfig;
     }
 
     public Context(Param param) {
@@ -87,6 +140,13 @@ public class Context {
         this.token = param.token;
         this.metricsCfg = param.metricsCfg;
         this.hostAvailablerConfig = param.hostAvailablerConfig;
+        this.httpCallerConfig = param.httpCallerConfig;
+        this.writeSpoolConfig = param.writeSpoolConfig;
+        this.rateLimiterConfig = param.rateLimiterConfig;
+        this.retryPolicy = param.retryPolicy;
+        this.circuitBreakerConfig = param.circuitBreakerConfig;
+        this.predictCacheConfig = param.predictCacheConfig;
+        fillCompressionPolicy(param);
         fillHosts(param);
         fillVolcCredential(param);
 
@@ -99,6 +159,68 @@ public class Context {
         this.useAirAuth = param.useAirAuth;
     }
 
+    // A context of another tenant, which shares the other settings of this context.
+    // The write spool is not shared, since its files belong to one client.
+    public Context forTenant(Tenant tenant) {
+        return new Context(this, tenant);
+    }
+
+    private Context(Context base, Tenant tenant) {
+        if (Objects.isNull(tenant.getTenant())) {
+            throw new RuntimeException("Tenant is null");
+        }
+        if (Objects.isNull(tenant.getTenantId())) {
+            throw new RuntimeException("Tenant id is null");
+        }
+        // the view is signed in the same way as the client, with the credential of the tenant
+        if (base.useAirAuth && Objects.isNull(tenant.getToken())) {
+            throw new RuntimeException("token cannot be null");
+        }
+        if (!base.useAirAuth && Objects.isNull(tenant.getVolcCredential())) {
+            throw new RuntimeException("volc credential cannot be null");
+        }
+        this.tenant = tenant.getTenant();
+        this.tenantId = tenant.getTenantId();
+        this.token = tenant.getToken();
+        this.useAirAuth = base.useAirAuth;
+        this.volcCredential = tenant.getVolcCredential();
+        this.schema = base.schema;
+        this.hosts = base.hosts;
+        this.customerHeaders = base.customerHeaders;
+        if (Objects.nonNull(tenant.getHeaders())) {
+            this.tenantHeaders = tenant.getHeaders();
+        }
+        this.metricsCfg = base.metricsCfg;
+        this.hostAvailablerConfig = base.hostAvailablerConfig;
+        this.httpCallerConfig = base.httpCallerConfig;
+        this.compressionPolicy = base.compressionPolicy;
+        this.endpointCompressionPolicies = base.endpointCompressionPolicies;
+        this.rateLimiterConfig = base.rateLimiterConfig;
+        this.retryPolicy = base.retryPolicy;
+        this.circuitBreakerConfig = base.circuitBreakerConfig;
+        this.predictCacheConfig = base.predictCacheConfig;
+    }
+
+    private void fillCompressionPolicy(Param param) {
+        if (Objects.nonNull(param.endpointCompressionPolicies)) {
+            param.endpointCompressionPolicies.values().forEach(this::checkCompressionCodec);
+            this.endpointCompressionPolicies = param.endpointCompressionPolicies;
+        }
+        if (Objects.isNull(param.compressionPolicy)) {
+            this.compressionPolicy = CompressionPolicy.defaultPolicy();
+            return;
+        }
+        checkCompressionCodec(param.compressionPolicy);
+        this.compressionPolicy = param.compressionPolicy;
+    }
+
+    private void checkCompressionCodec(CompressionPolicy policy) {
+        String codec = policy.getCodec();
+        if (Objects.nonNull(codec) && Objects.isNull(CompressionCodecs.get(codec))) {
+            throw new RuntimeException("Unknown compression codec: " + codec);
+        }
+    }
+
     private void checkRequiredField(Param param) {
         if (Objects.isNull(param.tenant)) {
             throw new RuntimeException("Tenant is null");
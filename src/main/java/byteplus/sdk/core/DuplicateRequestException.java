@@ -0,0 +1,18 @@
+package byteplus.sdk.core;
+
+// throw when a retry or failover of the request is rejected with STATUS_CODE_IDEMPOTENT(409),
+// it means an earlier attempt with the same Request-Id has reached the server and been handled,
+// so the write can be treated as success, but its response(e.g. the item errors) is lost.
+public class DuplicateRequestException extends BizException {
+    private final String requestId;
+
+    public DuplicateRequestException(String requestId, String message) {
+        super(message);
+        this.requestId = requestId;
+    }
+
+    // The Request-Id shared by the handled attempt and the rejected one
+    public String getRequestId() {
+        return requestId;
+    }
+}
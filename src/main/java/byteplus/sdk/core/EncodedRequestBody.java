@@ -0,0 +1,176 @@
+package byteplus.sdk.core;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+// The compressed http request body.
+// The request is serialized and compressed in a streaming way, the compressed bytes
+// are hashed on the way through and stored in an okio Buffer, whose segments are
+// borrowed from okio's segment pool, so the uncompressed body never exists as a whole
+// byte array on the heap.
+// The body hash is needed by the auth headers, which are sent before the body,
+// so the compressed bytes have to be kept until the request is sent.
+final class EncodedRequestBody extends RequestBody {
+    private final Buffer buffer;
+
+    private final MessageDigest digest;
+
+    // null if the body is not compressed
+    private final String contentEncoding;
+
+    private EncodedRequestBody(Buffer buffer, MessageDigest digest, String contentEncoding) {
+        this.buffer = buffer;
+        this.digest = digest;
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * @param writer serialize the request into the given stream
+     * @param codec  codec to compress the body
+     * @param level  compression level, passed to codec
+     * @param minSize the body is not compressed if its size is less than minSize
+     * @param digest the encoded bytes will be updated into the digest,
+     *               it may already contain some prefix data, e.g. the token of air auth
+     */
+    static EncodedRequestBody encode(Writer writer,
+                                     CompressionCodec codec,
+                                     int level,
+                                     int minSize,
+                                     MessageDigest digest) throws IOException {
+        Buffer buffer = new Buffer();
+        OutputStream digestOut = new DigestOutputStream(buffer.outputStream(), digest);
+        if (codec == CompressionCodecs.NONE) {
+            try (OutputStream out = digestOut) {
+                writer.writeTo(out);
+            }
+            return new EncodedRequestBody(buffer, digest, null);
+        }
+        ThresholdOutputStream thresholdOut = new ThresholdOutputStream(digestOut, codec, level, minSize);
+        try (OutputStream out = thresholdOut) {
+            writer.writeTo(out);
+        }
+        String contentEncoding = thresholdOut.compressed ? codec.name() : null;
+        return new EncodedRequestBody(buffer, digest, contentEncoding);
+    }
+
+    // Return a copy of the digest which has been updated with all the body bytes,
+    // caller can continue to update the copy or finish it, without affecting this body.
+    MessageDigest digest() {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            // SHA-256 digest of jdk always supports clone
+            throw new IllegalStateException(e);
+        }
+    }
+
+    String contentEncoding() {
+        return contentEncoding;
+    }
+
+    @Override
+    public MediaType contentType() {
+        // Content-Type is set in the request headers
+        return null;
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.size();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        // copyTo shares the segments with the sink instead of copying the bytes,
+        // and keeps the buffer readable, so okhttp can write the body again when retrying
+        buffer.copyTo(sink.getBuffer(), 0, buffer.size());
+        sink.emitCompleteSegments();
+    }
+
+    interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    // Hold the head of the body until minSize bytes are written, then start compressing.
+    // If the body ends before that, the head is written out without compression.
+    private static class ThresholdOutputStream extends OutputStream {
+        private final OutputStream rawOut;
+
+        private final CompressionCodec codec;
+
+        private final int level;
+
+        private final int minSize;
+
+        private final Buffer head = new Buffer();
+
+        private OutputStream out;
+
+        private boolean compressed;
+
+        private ThresholdOutputStream(OutputStream rawOut, CompressionCodec codec, int level, int minSize) {
+            this.rawOut = rawOut;
+            this.codec = codec;
+            this.level = level;
+            this.minSize = minSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (Objects.nonNull(out)) {
+                out.write(b);
+                return;
+            }
+            head.writeByte(b);
+            startCompressIfNeeded();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (Objects.nonNull(out)) {
+                out.write(b, off, len);
+                return;
+            }
+            head.write(b, off, len);
+            startCompressIfNeeded();
+        }
+
+        private void startCompressIfNeeded() throws IOException {
+            if (head.size() < minSize) {
+                return;
+            }
+            out = codec.compress(rawOut, level);
+            compressed = true;
+            head.writeTo(out);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (Objects.nonNull(out)) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (Objects.isNull(out)) {
+                if (minSize <= 0) {
+                    // empty body with compression always enabled
+                    startCompressIfNeeded();
+                } else {
+                    out = rawOut;
+                    head.writeTo(out);
+                }
+            }
+            out.close();
+        }
+    }
+}
@@ -2,32 +2,48 @@ package byteplus.sdk.core;
 
 import byteplus.sdk.core.metrics.Metrics;
 import byteplus.sdk.core.metrics.MetricsLog;
-import byteplus.sdk.core.volcAuth.VoclAuth;
+import byteplus.sdk.core.volcAuth.VolcSigner;
 import com.alibaba.fastjson.JSON;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 import com.google.protobuf.Parser;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.Headers;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
-import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import static byteplus.sdk.core.Constant.METRICS_KEY_COMMON_ERROR;
 import static byteplus.sdk.core.Constant.METRICS_KEY_REQUEST_TOTAL_COST;
@@ -37,16 +53,139 @@ public class HTTPCaller {
     // The http request was executed successfully without any net exception
     private final static int SUCCESS_HTTP_CODE = 200;
 
+    private final static int TOO_MANY_REQUESTS_HTTP_CODE = 429;
+
+    private final static String ERR_MSG_RATE_LIMITED = "request is rejected by client rate limiter";
+
+    private final static int GZIP_BUFFER_SIZE = 4096;
+
+    private final static String HTTP_RESPONSE_METRICS_LOG_FORMAT = "[ByteplusSDK][HTTPCaller] tenant:%s, sent:%d, " +
+            "received:%d, cost:%d, start:%d, end:%d, start->sent: %d, connection count:%d, header:%s";
+
+    // Same as the okhttp default values
+    private final static int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+
+    private final static Duration DEFAULT_KEEP_ALIVE_DURATION = Duration.ofMinutes(5);
+
+    private final static int DEFAULT_MAX_REQUESTS = 64;
+
+    private final static int DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+
+    // Shared by all the HTTPCallers which not specify Config
     private final static OkHttpClient defaultHttpCli = new OkHttpClient.Builder().build();
 
-    private volatile static Map<Duration, OkHttpClient> timeoutHttpCliMap = new HashMap<>();
+    // All the http clients in map are derived from httpCli through `newBuilder()`,
+    // so they share the same connection pool and dispatcher with httpCli
+    private volatile Map<Duration, OkHttpClient> timeoutHttpCliMap = new HashMap<>();
 
     private final Context context;
 
-    private final ThreadLocal<String> requestID = new ThreadLocal<>();
+    private final OkHttpClient httpCli;
+
+    // Whether httpCli is created by this HTTPCaller, if true, it should be closed in shutdown
+    private final boolean ownHttpCli;
+
+    private final VolcSigner volcSigner;
+
+    private final ThreadLocal<String> requestID;
+
+    // the HTTPCaller whose http clients are used, it's this one unless it's a tenant view
+    private final HTTPCaller transport;
+
+    // tenant|endpoint class -> rate limiter, only used if rate limiter is configured,
+    // the limiters of transport are used, so the tenant views share them
+    private final Map<String, AdaptiveRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    // host|endpoint -> circuit breaker, only used if circuit breaker is configured,
+    // the breakers of transport are used, so the tenant views share them
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    // receive the outcomes of requests to check the health of hosts, null if not set
+    private volatile HostAvailabler hostAvailabler;
 
     public HTTPCaller(Context context) {
         this.context = context;
+        this.volcSigner = new VolcSigner(context.getVolcCredential());
+        this.requestID = new ThreadLocal<>();
+        this.transport = this;
+        Config config = context.getHttpCallerConfig();
+        if (Objects.isNull(config)) {
+            this.httpCli = defaultHttpCli;
+            this.ownHttpCli = false;
+            return;
+        }
+        this.httpCli = buildHttpClient(fillDefaultConfig(config));
+        this.ownHttpCli = true;
+    }
+
+    private HTTPCaller(Context context, HTTPCaller transport) {
+        this.context = context;
+        this.volcSigner = new VolcSigner(context.getVolcCredential());
+        this.requestID = transport.requestID;
+        this.transport = transport;
+        this.httpCli = transport.httpCli;
+        this.ownHttpCli = false;
+        this.hostAvailabler = transport.hostAvailabler;
+    }
+
+    // Create a HTTPCaller of another tenant, which shares the http clients and
+    // host availabler of this one, it needn't be shutdown
+    public HTTPCaller forTenant(Context tenantContext) {
+        return new HTTPCaller(tenantContext, transport);
+    }
+
+    private Config fillDefaultConfig(Config config) {
+        config = config.toBuilder().build();
+        if (config.maxIdleConnections <= 0) {
+            config.maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+        }
+        if (Objects.isNull(config.keepAliveDuration) || config.keepAliveDuration.isZero()) {
+            config.keepAliveDuration = DEFAULT_KEEP_ALIVE_DURATION;
+        }
+        if (config.maxRequests <= 0) {
+            config.maxRequests = DEFAULT_MAX_REQUESTS;
+        }
+        if (config.maxRequestsPerHost <= 0) {
+            config.maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+        }
+        return config;
+    }
+
+    private OkHttpClient buildHttpClient(Config config) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.maxRequests);
+        dispatcher.setMaxRequestsPerHost(config.maxRequestsPerHost);
+        ConnectionPool connectionPool = new ConnectionPool(config.maxIdleConnections,
+                config.keepAliveDuration.toMillis(), TimeUnit.MILLISECONDS);
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool);
+        // zero timeout means no timeout in okhttp, so only positive values are applied,
+        // otherwise keep the okhttp default values
+        if (Objects.nonNull(config.connectTimeout) && !config.connectTimeout.isZero()) {
+            builder.connectTimeout(config.connectTimeout);
+        }
+        if (Objects.nonNull(config.readTimeout) && !config.readTimeout.isZero()) {
+            builder.readTimeout(config.readTimeout);
+        }
+        if (Objects.nonNull(config.writeTimeout) && !config.writeTimeout.isZero()) {
+            builder.writeTimeout(config.writeTimeout);
+        }
+        return builder.build();
+    }
+
+    // Report the outcomes of requests to hostAvailabler, so it can eject the failing host
+    // and select host by real-request latency
+    public void setHostAvailabler(HostAvailabler hostAvailabler) {
+        this.hostAvailabler = hostAvailabler;
+    }
+
+    public void shutdown() {
+        if (!ownHttpCli) {
+            return;
+        }
+        httpCli.dispatcher().executorService().shutdown();
+        httpCli.connectionPool().evictAll();
     }
 
     private String getReqID() {
@@ -54,71 +193,495 @@ public class HTTPCaller {
     }
 
     public <Rsp extends Message, Req extends Message> Rsp doPBRequest(
-            String url,
+            HostURL url,
             Req request,
             Parser<Rsp> rspParser,
             Options options) throws NetException, BizException {
-        byte[] reqBytes = request.toByteArray();
         String contentType = "application/x-protobuf";
-        return doRequest(url, reqBytes, rspParser, contentType, options);
+        return doRequest(url, pbWriter(request), rspParser, contentType, options);
     }
 
     public <Rsp extends Message> Rsp doJSONRequest(
-            String url,
+            HostURL url,
             Object request,
             Parser<Rsp> rspParser,
             Options options) throws NetException, BizException {
-        byte[] reqBytes = JSON.toJSONBytes(request);
         String contentType = "application/json";
-        return doRequest(url, reqBytes, rspParser, contentType, options);
+        return doRequest(url, jsonWriter(request), rspParser, contentType, options);
+    }
+
+    public <Rsp extends Message, Req extends Message> CompletableFuture<Rsp> doPBRequestAsync(
+            HostURL url,
+            Req request,
+            Parser<Rsp> rspParser,
+            Options options) {
+        String contentType = "application/x-protobuf";
+        return doRequestAsync(url, null, pbWriter(request), rspParser, contentType, options);
     }
 
-    private <Rsp extends Message> Rsp doRequest(String url,
-                                                byte[] reqBytes,
+    // Send the request to the host rather than current host, e.g. the duplicates of hedging,
+    // it doesn't fail over to other hosts
+    <Rsp extends Message, Req extends Message> CompletableFuture<Rsp> doPBRequestAsync(
+            HostURL url,
+            String host,
+            Req request,
+            Parser<Rsp> rspParser,
+            Options options) {
+        String contentType = "application/x-protobuf";
+        return doRequestAsync(url, host, pbWriter(request), rspParser, contentType, options);
+    }
+
+    public <Rsp extends Message> CompletableFuture<Rsp> doJSONRequestAsync(
+            HostURL url,
+            Object request,
+            Parser<Rsp> rspParser,
+            Options options) {
+        String contentType = "application/json";
+        return doRequestAsync(url, null, jsonWriter(request), rspParser, contentType, options);
+    }
+
+    // The requests of the deprecated string urls are sent to the current host, the same as HostURL
+
+    @Deprecated
+    public <Rsp extends Message, Req extends Message> Rsp doPBRequest(
+            String url,
+            Req request,
+            Parser<Rsp> rspParser,
+            Options options) throws NetException, BizException {
+        return doPBRequest(HostURL.parse(url), request, rspParser, options);
+    }
+
+    @Deprecated
+    public <Rsp extends Message> Rsp doJSONRequest(
+            String url,
+            Object request,
+            Parser<Rsp> rspParser,
+            Options options) throws NetException, BizException {
+        return doJSONRequest(HostURL.parse(url), request, rspParser, options);
+    }
+
+    @Deprecated
+    public <Rsp extends Message, Req extends Message> CompletableFuture<Rsp> doPBRequestAsync(
+            String url,
+            Req request,
+            Parser<Rsp> rspParser,
+            Options options) {
+        return doPBRequestAsync(HostURL.parse(url), request, rspParser, options);
+    }
+
+    @Deprecated
+    public <Rsp extends Message> CompletableFuture<Rsp> doJSONRequestAsync(
+            String url,
+            Object request,
+            Parser<Rsp> rspParser,
+            Options options) {
+        return doJSONRequestAsync(HostURL.parse(url), request, rspParser, options);
+    }
+
+    // Serialize the message through CodedOutputStream directly into the compressing stream,
+    // avoid creating the whole serialized byte array
+    private EncodedRequestBody.Writer pbWriter(Message request) {
+        return out -> {
+            int bufferSize = Math.min(request.getSerializedSize(), CodedOutputStream.DEFAULT_BUFFER_SIZE);
+            CodedOutputStream codedOut = CodedOutputStream.newInstance(out, bufferSize);
+            request.writeTo(codedOut);
+            codedOut.flush();
+        };
+    }
+
+    private EncodedRequestBody.Writer jsonWriter(Object request) {
+        return out -> JSON.writeJSONString(out, request);
+    }
+
+    private <Rsp extends Message> Rsp doRequest(HostURL hostUrl,
+                                                EncodedRequestBody.Writer reqWriter,
                                                 Parser<Rsp> rspParser,
                                                 String contentType,
                                                 Options options) throws NetException, BizException {
-        reqBytes = gzipCompress(reqBytes);
+        HostURL requestUrl = host -> buildUrlWithQueries(options, hostUrl.build(host));
+        EncodedRequestBody reqBody = encodeRequestBody(hostUrl.build(currentHost()), reqWriter, options);
         Headers headers = buildHeaders(options, contentType);
-        url = buildUrlWithQueries(options, url);
-        byte[] rspBytes = doHttpRequest(url, headers, reqBytes, options.getTimeout());
+        RetryPolicy retryPolicy = retryPolicy(options);
+        long deadline = retryPolicy.deadlineNanos(System.nanoTime());
+        // all the attempts share the same headers, so they have the same Request-Id,
+        // each attempt is sent to the current host at that time
+        for (int attempt = 1; ; attempt++) {
+            String host = currentHost();
+            String url = requestUrl.build(host);
+            try {
+                waitForPermit(url);
+                return doHttpRequest(url, host, requestUrl, headers, reqBody, rspParser, options.getTimeout());
+            } catch (NetException | BizException e) {
+                if (attempt > 1 && isIdempotentConflict(e)) {
+                    throw duplicateRequest(headers, e);
+                }
+                long backoff = retryPolicy.backoffNanos(attempt, e, deadline);
+                if (backoff < 0) {
+                    throw e;
+                }
+                log.warn("[ByteplusSDK] retry request, url:{} attempt:{} err:{}", url, attempt, e.getMessage());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoff);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // The host which the requests are sent to, it's selected by hostAvailabler if set
+    private String currentHost() {
+        HostAvailabler availabler = hostAvailabler;
+        if (Objects.isNull(availabler)) {
+            return context.getHosts().get(0);
+        }
+        return availabler.getHost();
+    }
+
+    private RetryPolicy retryPolicy(Options options) {
+        if (Objects.nonNull(options.getRetryPolicy())) {
+            return options.getRetryPolicy().withDefaults();
+        }
+        if (Objects.nonNull(context.getRetryPolicy())) {
+            return context.getRetryPolicy().withDefaults();
+        }
+        return RetryPolicy.NO_RETRY;
+    }
 
+    // The rate limiter of the endpoint class, null if the rate limiter is not configured
+    private AdaptiveRateLimiter rateLimiter(String url) {
+        if (Objects.isNull(context.getRateLimiterConfig())) {
+            return null;
+        }
+        String endpointClass = Helper.parseReqType(url);
+        return transport.rateLimiters.computeIfAbsent(context.getTenant() + "|" + endpointClass, key ->
+                AdaptiveRateLimiter.create(context.getRateLimiterConfig(), context.getTenant(), endpointClass));
+    }
+
+    // Return the nanos to wait before sending the request, or -1 if it's rejected
+    private long acquirePermit(String url) {
+        AdaptiveRateLimiter rateLimiter = rateLimiter(url);
+        if (Objects.isNull(rateLimiter)) {
+            return 0;
+        }
+        return rateLimiter.acquire();
+    }
+
+    private void onThrottled(String url) {
+        AdaptiveRateLimiter rateLimiter = rateLimiter(url);
+        if (Objects.nonNull(rateLimiter)) {
+            rateLimiter.onThrottled();
+        }
+    }
+
+    private void waitForPermit(String url) throws BizException {
+        long waitNanos = acquirePermit(url);
+        if (waitNanos < 0) {
+            throw new BizException(ERR_MSG_RATE_LIMITED);
+        }
+        if (waitNanos == 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException("waiting for rate limiter is interrupted");
+        }
+    }
+
+    // The async version of doRequest, the request is sent through `Call.enqueue`,
+    // so no caller thread is blocked while waiting for the response or backoff.
+    // The returned future is completed exceptionally with the same NetException/BizException
+    // that doRequest would throw, and cancelling the future cancels the underlying http call.
+    // The request is sent to the current host if `host` is null, or only to the host.
+    private <Rsp extends Message> CompletableFuture<Rsp> doRequestAsync(HostURL hostUrl,
+                                                                        String host,
+                                                                        EncodedRequestBody.Writer reqWriter,
+                                                                        Parser<Rsp> rspParser,
+                                                                        String contentType,
+                                                                        Options options) {
+        CompletableFuture<Rsp> future = new CompletableFuture<>();
+        Headers headers = buildHeaders(options, contentType);
+        String reqID = getReqID();
+        HostURL requestUrl = attemptHost -> buildUrlWithQueries(options, hostUrl.build(attemptHost));
+        EncodedRequestBody reqBody;
         try {
-            return rspParser.parseFrom(rspBytes);
+            reqBody = encodeRequestBody(hostUrl.build(Objects.isNull(host) ? currentHost() : host), reqWriter, options);
+        } catch (BizException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        RetryPolicy retryPolicy = retryPolicy(options);
+        AsyncAttempt<Rsp> attempt = new AsyncAttempt<>(future, requestUrl, host, headers, reqBody, rspParser,
+                options.getTimeout(), reqID, retryPolicy, retryPolicy.deadlineNanos(System.nanoTime()));
+        attempt.send();
+        future.whenComplete((rsp, e) -> {
+            if (future.isCancelled()) {
+                attempt.cancel();
+            }
+        });
+        return future;
+    }
+
+    // The attempts of an async request
+    private class AsyncAttempt<Rsp extends Message> {
+        private final CompletableFuture<Rsp> future;
+
+        private final HostURL requestUrl;
+
+        // the host which all the attempts are sent to, null if they are sent to current host
+        private final String pinnedHost;
+
+        private final Headers headers;
+
+        private final EncodedRequestBody reqBody;
+
+        private final Parser<Rsp> rspParser;
+
+        private final Duration timeout;
+
+        private final String reqID;
+
+        private final RetryPolicy retryPolicy;
+
+        private final long deadline;
+
+        private int count;
+
+        // the url of latest attempt
+        private volatile String url;
+
+        private volatile boolean failedOver;
+
+        private volatile Call call;
+
+        private AsyncAttempt(CompletableFuture<Rsp> future,
+                             HostURL requestUrl,
+                             String pinnedHost,
+                             Headers headers,
+                             EncodedRequestBody reqBody,
+                             Parser<Rsp> rspParser,
+                             Duration timeout,
+                             String reqID,
+                             RetryPolicy retryPolicy,
+                             long deadline) {
+            this.future = future;
+            this.requestUrl = requestUrl;
+            this.pinnedHost = pinnedHost;
+            this.headers = headers;
+            this.reqBody = reqBody;
+            this.rspParser = rspParser;
+            this.timeout = timeout;
+            this.reqID = reqID;
+            this.retryPolicy = retryPolicy;
+            this.deadline = deadline;
+        }
+
+        private void send() {
+            if (future.isDone()) {
+                return;
+            }
+            count++;
+            String host = Objects.isNull(pinnedHost) ? currentHost() : pinnedHost;
+            String attemptUrl = requestUrl.build(host);
+            url = attemptUrl;
+            long waitNanos = acquirePermit(attemptUrl);
+            if (waitNanos < 0) {
+                future.completeExceptionally(new BizException(ERR_MSG_RATE_LIMITED));
+                return;
+            }
+            boolean failover = Objects.isNull(pinnedHost);
+            // the limited request is delayed by timer rather than blocking caller thread
+            if (waitNanos > 0) {
+                Helper.delay(() -> sendTo(attemptUrl, host, failover), waitNanos, TimeUnit.NANOSECONDS);
+            } else {
+                sendTo(attemptUrl, host, failover);
+            }
+        }
+
+        // The request is sent to the next available host once if it fails to connect
+        // to its host, when `failover` is true
+        private void sendTo(String attemptUrl, String host, boolean failover) {
+            if (future.isDone()) {
+                return;
+            }
+            Request request;
+            try {
+                // build request for each attempt, so the auth headers are signed with current time
+                request = buildHttpRequest(attemptUrl, headers, reqBody);
+                acquireCircuit(request);
+            } catch (BizException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            long start = System.currentTimeMillis();
+            Call call = selectHttpClient(timeout).newCall(request);
+            this.call = call;
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    try {
+                        reportFailure(call);
+                        String failoverHost = failover ? failoverHost(call, e, host) : null;
+                        if (Objects.nonNull(failoverHost)) {
+                            log.warn("[ByteplusSDK] connect to host fail, failover to {}, err:{}",
+                                    failoverHost, e.toString());
+                            failedOver = true;
+                            url = requestUrl.build(failoverHost);
+                            sendTo(url, failoverHost, false);
+                            return;
+                        }
+                        onComplete(null, convertRequestException(attemptUrl, e, start, reqID));
+                    } finally {
+                        reportRequestTotalCost(attemptUrl, start, reqID);
+                    }
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    // handleResponse has reported the outcome, even if it throws IOException
+                    try (Response rsp = response) {
+                        onComplete(handleResponse(attemptUrl, rsp, rspParser, start, timeout, reqID), null);
+                    } catch (IOException e) {
+                        onComplete(null, convertRequestException(attemptUrl, e, start, reqID));
+                    } catch (Throwable e) {
+                        onComplete(null, e);
+                    } finally {
+                        reportRequestTotalCost(attemptUrl, start, reqID);
+                    }
+                }
+            });
+            // the future may be cancelled before the call is set
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        }
+
+        private void onComplete(Rsp rsp, Throwable e) {
+            // the request may have reached server before retry or failover
+            boolean resent = count > 1 || failedOver;
+            if (Objects.isNull(e)) {
+                future.complete(rsp);
+                return;
+            }
+            if (resent && isIdempotentConflict(e)) {
+                future.completeExceptionally(duplicateRequest(headers, e));
+                return;
+            }
+            long backoff = retryPolicy.backoffNanos(count, e, deadline);
+            if (backoff < 0 || future.isDone()) {
+                future.completeExceptionally(e);
+                return;
+            }
+            log.warn("[ByteplusSDK] retry request, url:{} attempt:{} err:{}", url, count, e.getMessage());
+            Helper.delay(this::send, backoff, TimeUnit.NANOSECONDS);
+        }
+
+        private void cancel() {
+            Call call = this.call;
+            if (Objects.nonNull(call)) {
+                call.cancel();
+            }
+        }
+    }
+
+    // A request which is handled by an earlier attempt is rejected with STATUS_CODE_IDEMPOTENT
+    private static boolean isIdempotentConflict(Throwable e) {
+        return e instanceof HttpCodeException && ((HttpCodeException) e).getCode() == Constant.STATUS_CODE_IDEMPOTENT;
+    }
+
+    // The rejected retry is reported as DuplicateRequestException rather than a made-up
+    // success response, the response whose `status.code` is STATUS_CODE_IDEMPOTENT is
+    // returned as it is, so the caller can tell the duplicate from a real success
+    private static DuplicateRequestException duplicateRequest(Headers headers, Throwable e) {
+        String requestId = headers.get("Request-Id");
+        log.warn("[ByteplusSDK] request has been handled by an earlier attempt, request_id:{}", requestId);
+        return new DuplicateRequestException(requestId, e.getMessage());
+    }
+
+    // Parse the response directly from the body stream, the body(and its gzip decompressed data)
+    // is never materialized into a byte array
+    private <Rsp extends Message> Rsp parseResponse(String url,
+                                                    Response response,
+                                                    Parser<Rsp> rspParser,
+                                                    String reqID) throws IOException, BizException {
+        ResponseBody rspBody = response.body();
+        if (Objects.isNull(rspBody)) {
+            return null;
+        }
+        InputStream rspStream = rspBody.byteStream();
+        String rspEncoding = response.header("Content-Encoding");
+        if (Objects.nonNull(rspEncoding) && rspEncoding.contains("gzip")) {
+            rspStream = new GZIPInputStream(rspStream, GZIP_BUFFER_SIZE);
+        }
+        try (InputStream in = rspStream) {
+            return rspParser.parseFrom(CodedInputStream.newInstance(in));
         } catch (InvalidProtocolBufferException e) {
+            // the body fails to be read(e.g. connection reset or timeout), rather than parsed
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
             String[] metricsTags = new String[]{
                     "type:parse_response_fail",
                     "tenant:" + context.getTenant(),
             };
             Metrics.counter(Constant.METRICS_KEY_COMMON_ERROR, 1, metricsTags);
-            MetricsLog.error(getReqID(),"[ByteplusSDK]parse response fail, tenant:%s, url:%s err:%s ",
+            MetricsLog.error(reqID, "[ByteplusSDK]parse response fail, tenant:%s, url:%s err:%s ",
                     context.getTenant(), url, e.getMessage());
             log.error("[ByteplusSDK]parse response fail, url:{} err:{} ", url, e.getMessage());
             throw new BizException("parse response fail");
         }
     }
 
-    private byte[] gzipCompress(byte[] bodyBytes) {
-        if (bodyBytes == null || bodyBytes.length == 0) {
-            return new byte[0];
+
+    private EncodedRequestBody encodeRequestBody(String url,
+                                                 EncodedRequestBody.Writer reqWriter,
+                                                 Options options) throws BizException {
+        CompressionPolicy policy = compressionPolicy(url, options);
+        String codecName = Objects.isNull(policy.getCodec()) ? CompressionPolicy.CODEC_GZIP : policy.getCodec();
+        CompressionCodec codec = CompressionCodecs.get(codecName);
+        if (Objects.isNull(codec)) {
+            throw new BizException("unknown compression codec: " + codecName);
+        }
+        int level = Objects.isNull(policy.getLevel()) ? CompressionPolicy.DEFAULT_LEVEL : policy.getLevel();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new BizException(e.getMessage());
+        }
+        if (context.isUseAirAuth()) {
+            // The air auth signature begins with "token", see calSignature
+            digest.update(context.getToken().getBytes(StandardCharsets.UTF_8));
         }
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        GZIPOutputStream gzip;
         try {
-            gzip = new GZIPOutputStream(out);
-            gzip.write(bodyBytes);
-            gzip.finish();
-            gzip.close();
+            return EncodedRequestBody.encode(reqWriter, codec, level, policy.getMinSize(), digest);
         } catch (IOException e) {
-            log.error("[ByteplusSDK] gzip compress http request bytes error {}", e.getMessage());
-            return bodyBytes;
+            log.error("[ByteplusSDK] encode http request error {}", e.getMessage());
+            throw new BizException("encode request fail");
         }
-        return out.toByteArray();
+    }
+
+    // The policy of the call, then the policy of the endpoint, then the policy of the client
+    private CompressionPolicy compressionPolicy(String url, Options options) {
+        if (Objects.nonNull(options.getCompressionPolicy())) {
+            return options.getCompressionPolicy();
+        }
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (Objects.nonNull(httpUrl)) {
+            CompressionPolicy policy = context.getEndpointCompressionPolicies().get(Helper.endpointOf(httpUrl));
+            if (Objects.nonNull(policy)) {
+                return policy;
+            }
+        }
+        return context.getCompressionPolicy();
     }
 
     private Headers buildHeaders(Options options, String contentType) {
         Headers.Builder builder = new Headers.Builder();
-        builder.set("Content-Encoding", "gzip");
+        context.getTenantHeaders().forEach(builder::set);
         builder.set("Accept-Encoding", "gzip");
         builder.set("Content-Type", contentType);
         builder.set("Accept", "application/x-protobuf"); //response parser only accept pb format
@@ -155,8 +718,8 @@ public class HTTPCaller {
         }
         String requestId = options.getRequestId();
         if (Objects.isNull(requestId) || requestId.isEmpty()) {
-            requestId = UUID.randomUUID().toString();
-            log.info("[ByteplusSDK] use requestId generated by sdk: '{}' ", requestId);
+            requestId = Helper.randomRequestId();
+            log.debug("[ByteplusSDK] use requestId generated by sdk: '{}' ", requestId);
         }
         builder.set("Request-Id", requestId);
         if (Objects.nonNull(options.getDataDate())) {
@@ -171,128 +734,285 @@ public class HTTPCaller {
         this.requestID.set(requestId);
     }
 
-    private String calSignature(byte[] httpBody, String ts, String nonce) {
-        MessageDigest digest;
-        try {
-            digest = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException ignored) {
-            return "";
-        }
+    // The bodyDigest has been updated with "token" and "HttpBody" in encodeRequestBody
+    private String calSignature(MessageDigest bodyDigest, String ts, String nonce) {
         // Splice in the order of "token", "HttpBody", "tenant_id", "ts", and "nonce".
         // The order must not be mistaken.
         // String need to be encoded as byte arrays by UTF-8
-        digest.update(context.getToken().getBytes(StandardCharsets.UTF_8));
-        digest.update(httpBody);
-        digest.update(context.getTenantId().getBytes(StandardCharsets.UTF_8));
-        digest.update(ts.getBytes(StandardCharsets.UTF_8));
-        digest.update(nonce.getBytes(StandardCharsets.UTF_8));
+        bodyDigest.update(context.getTenantId().getBytes(StandardCharsets.UTF_8));
+        bodyDigest.update(ts.getBytes(StandardCharsets.UTF_8));
+        bodyDigest.update(nonce.getBytes(StandardCharsets.UTF_8));
 
-        return Helper.bytes2Hex(digest.digest());
+        return Helper.bytes2Hex(bodyDigest.digest());
     }
 
 
-    private byte[] doHttpRequest(String url,
-                                 Headers headers,
-                                 byte[] bodyBytes,
-                                 Duration timeout) throws NetException, BizException {
+    // The request is sent to the next available host once if it fails to connect
+    // to its host, when `failoverUrl` is not null
+    private <Rsp extends Message> Rsp doHttpRequest(String url,
+                                                    String host,
+                                                    HostURL failoverUrl,
+                                                    Headers headers,
+                                                    EncodedRequestBody reqBody,
+                                                    Parser<Rsp> rspParser,
+                                                    Duration timeout) throws NetException, BizException {
         long start = System.currentTimeMillis();
+        Request request = buildHttpRequest(url, headers, reqBody);
+        acquireCircuit(request);
+        Call call = selectHttpClient(timeout).newCall(request);
+        Response response = null;
+        try {
+            response = call.execute();
+            return handleResponse(url, response, rspParser, start, timeout, getReqID());
+        } catch (IOException e) {
+            // handleResponse has reported the outcome if the response is received
+            if (Objects.isNull(response)) {
+                reportFailure(call);
+                String failoverHost = Objects.nonNull(failoverUrl) ? failoverHost(call, e, host) : null;
+                if (Objects.nonNull(failoverHost)) {
+                    log.warn("[ByteplusSDK] connect to host fail, failover to {}, err:{}", failoverHost, e.toString());
+                    return doFailoverRequest(failoverUrl.build(failoverHost), failoverHost, headers, reqBody,
+                            rspParser, timeout);
+                }
+            }
+            Exception exception = convertRequestException(url, e, start, getReqID());
+            if (exception instanceof NetException) {
+                throw (NetException) exception;
+            }
+            throw (BizException) exception;
+        } finally {
+            if (Objects.nonNull(response)) {
+                response.close();
+            }
+            reportRequestTotalCost(url, start, getReqID());
+        }
+    }
+
+    // The failover request has the same Request-Id, if the failed one has reached the
+    // server(e.g. connection reset), the failover one is rejected as STATUS_CODE_IDEMPOTENT
+    private <Rsp extends Message> Rsp doFailoverRequest(String url,
+                                                        String host,
+                                                        Headers headers,
+                                                        EncodedRequestBody reqBody,
+                                                        Parser<Rsp> rspParser,
+                                                        Duration timeout) throws NetException, BizException {
+        try {
+            return doHttpRequest(url, host, null, headers, reqBody, rspParser, timeout);
+        } catch (BizException e) {
+            if (isIdempotentConflict(e)) {
+                throw duplicateRequest(headers, e);
+            }
+            throw e;
+        }
+    }
+
+    // Return the next available host if the request fails to connect to its host,
+    // or null if it should not fail over
+    private String failoverHost(Call call, IOException e, String failedHost) {
+        HostAvailabler availabler = hostAvailabler;
+        if (Objects.isNull(availabler) || call.isCanceled() || !isConnectFailure(e)) {
+            return null;
+        }
+        for (String host : availabler.getAvailableHosts()) {
+            if (!host.equals(failedHost)) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+    // The request fails before it's handled by server, or the connection is reset
+    private static boolean isConnectFailure(IOException e) {
+        if (e instanceof ConnectException || e instanceof NoRouteToHostException || e instanceof UnknownHostException) {
+            return true;
+        }
+        String errMsg = e.getMessage();
+        return e instanceof SocketException && Objects.nonNull(errMsg) && errMsg.toLowerCase().contains("reset");
+    }
+
+    private Request buildHttpRequest(String url, Headers headers, EncodedRequestBody reqBody) throws BizException {
+        if (Objects.nonNull(reqBody.contentEncoding())) {
+            headers = headers.newBuilder().set("Content-Encoding", reqBody.contentEncoding()).build();
+        }
         Request request = new Request.Builder()
                 .url(url)
                 .headers(headers)
-                .post(RequestBody.create(bodyBytes))
+                .post(reqBody)
                 .build();
         // append auth headers
-        headers = withAuthHeaders(request, bodyBytes);
+        headers = withAuthHeaders(request, reqBody);
         request = request.newBuilder().headers(headers).build();
         log.debug("[ByteplusSDK][HTTPCaller] URL:{} Request Headers:\n{}", url, request.headers());
-        Call call = selectHttpClient(timeout).newCall(request);
-        LocalDateTime startTime = LocalDateTime.now();
+        return request;
+    }
+
+    private <Rsp extends Message> Rsp handleResponse(String url,
+                                                    Response response,
+                                                    Parser<Rsp> rspParser,
+                                                    long start,
+                                                    Duration timeout,
+                                                    String reqID) throws IOException, BizException {
+        long cost = response.receivedResponseAtMillis() - response.sentRequestAtMillis();
+        String[] metricsTags = new String[]{
+                "url:" + Helper.escapeMetricsTagValue(url),
+                "tenant:" + context.getTenant()
+        };
+        Metrics.timer(Constant.METRICS_KEY_REQUEST_COST, cost, metricsTags);
+        MetricsLog.info(reqID, () -> String.format(HTTP_RESPONSE_METRICS_LOG_FORMAT,
+                context.getTenant(),
+                response.sentRequestAtMillis(), response.receivedResponseAtMillis(),
+                response.receivedResponseAtMillis() - response.sentRequestAtMillis(),
+                start,
+                System.currentTimeMillis(),
+                response.sentRequestAtMillis() - start,
+                selectHttpClient(timeout).connectionPool().connectionCount(),
+                response.headers()
+        ));
+        if (response.code() == TOO_MANY_REQUESTS_HTTP_CODE) {
+            onThrottled(url);
+        }
+        // the outcome of each attempt with response is reported here exactly once,
+        // a body failing to be read(e.g. connection reset) is a failure too
+        if (response.code() != SUCCESS_HTTP_CODE) {
+            reportResult(response.request().url(), response.code() < 500, cost);
+            logHttpResponse(url, response, reqID);
+            throw new HttpCodeException(response.code(), response.message());
+        }
+        Rsp rsp;
+        boolean bodyRead = false;
         try {
-            Response response = call.execute();
-            long cost = response.receivedResponseAtMillis() - response.sentRequestAtMillis();
-            String[] metricsTags = new String[]{
-                    "url:" + Helper.escapeMetricsTagValue(url),
-                    "tenant:" + context.getTenant()
-            };
-            Metrics.timer(Constant.METRICS_KEY_REQUEST_COST, cost, metricsTags);
-            String metricsLogFormat = "[ByteplusSDK][HTTPCaller] tenant:%s, sent:%d, received:%d, cost:%d, start:%d, end:%d," +
-                    " start->sent: %d, connection count:%d, header:%s";
-            MetricsLog.info(getReqID(), metricsLogFormat,
-                    context.getTenant(),
-                    response.sentRequestAtMillis(), response.receivedResponseAtMillis(),
-                    response.receivedResponseAtMillis() - response.sentRequestAtMillis(),
-                    start,
-                    System.currentTimeMillis(),
-                    response.sentRequestAtMillis() - start,
-                    selectHttpClient(timeout).connectionPool().connectionCount(),
-                    response.headers()
-            );
-            ResponseBody rspBody = response.body();
-            if (response.code() != SUCCESS_HTTP_CODE) {
-                logHttpResponse(url, response);
-                throw new BizException(response.message());
-            }
-            if (Objects.isNull(rspBody)) {
-                return null;
-            }
-            String rspEncoding = response.header("Content-Encoding");
-            if (Objects.isNull(rspEncoding) || !rspEncoding.contains("gzip")) {
-                return rspBody.bytes();
-            }
-            return gzipDecompress(rspBody.bytes(), url);
-        } catch (IOException e) {
-            long cost = Duration.between(startTime, LocalDateTime.now()).toMillis();
-            if (e.getMessage().toLowerCase().contains("timeout")) {
-                String[] metricsTags = new String[]{
-                        "type:request_timeout",
-                        "url:" + Helper.escapeMetricsTagValue(url),
-                        "tenant:" + context.getTenant(),
-                };
-                Metrics.counter(Constant.METRICS_KEY_COMMON_ERROR, 1, metricsTags);
-                String metricsLogFormat = "[ByteplusSDK] do http request timeout, tenant:%s, cost:%dms, msg:%s, url:%s";
-                MetricsLog.error(getReqID(), metricsLogFormat, context.getTenant(), cost, e.getMessage(), url);
-                log.error("[ByteplusSDK] do http request timeout, cost:{} msg:{} url:{}", cost, e, url);
-                throw new NetException(e.toString());
-            }
+            rsp = parseResponse(url, response, rspParser, reqID);
+            bodyRead = true;
+        } catch (BizException e) {
+            // the body is read but can't be parsed, it's not a failure of host
+            bodyRead = true;
+            throw e;
+        } finally {
+            reportResult(response.request().url(), bodyRead, cost);
+        }
+        if (Objects.nonNull(rsp) && statusCode(rsp) == Constant.STATUS_CODE_TOO_MANY_REQUEST) {
+            onThrottled(url);
+        }
+        return rsp;
+    }
+
+    // Get `status.code` of the response, -1 if the response has no status
+    private static int statusCode(Message rsp) {
+        Descriptors.FieldDescriptor statusField = rsp.getDescriptorForType().findFieldByName("status");
+        if (Objects.isNull(statusField) || statusField.getJavaType() != Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+            return -1;
+        }
+        Message status = (Message) rsp.getField(statusField);
+        Descriptors.FieldDescriptor codeField = status.getDescriptorForType().findFieldByName("code");
+        if (Objects.isNull(codeField) || codeField.getJavaType() != Descriptors.FieldDescriptor.JavaType.INT) {
+            return -1;
+        }
+        return (Integer) status.getField(codeField);
+    }
+
+    // The cancelled calls(e.g. losers of hedging) are not failures of host
+    private void reportFailure(Call call) {
+        if (!call.isCanceled()) {
+            reportResult(call.request().url(), false, 0);
+        }
+    }
+
+    // Report the outcome of request to hostAvailabler and circuit breaker,
+    // the request fails if it times out, fails to connect or gets 5xx
+    private void reportResult(HttpUrl url, boolean success, long costMillis) {
+        HostAvailabler availabler = hostAvailabler;
+        if (Objects.nonNull(availabler)) {
+            availabler.recordRequestResult(url, success, costMillis);
+        }
+        CircuitBreaker breaker = circuitBreaker(url);
+        if (Objects.isNull(breaker)) {
+            return;
+        }
+        if (success) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+
+    // The circuit breaker of the host and endpoint of url, null if disabled. The health of
+    // host is the same for all the tenants, so the breakers are shared through the transport
+    private CircuitBreaker circuitBreaker(HttpUrl url) {
+        CircuitBreaker.Config config = transport.context.getCircuitBreakerConfig();
+        if (Objects.isNull(config)) {
+            return null;
+        }
+        String host = url.host() + ":" + url.port();
+        String endpoint = Helper.endpointOf(url);
+        return transport.circuitBreakers.computeIfAbsent(host + "|" + endpoint,
+                key -> new CircuitBreaker(config, transport.context.getTenant(), host, endpoint));
+    }
+
+    // Throw CircuitOpenException if the circuit breaker rejects the request
+    private void acquireCircuit(Request request) throws CircuitOpenException {
+        CircuitBreaker breaker = circuitBreaker(request.url());
+        if (Objects.nonNull(breaker)) {
+            breaker.acquire();
+        }
+    }
+
+    // Convert the IOException thrown by okhttp to NetException(timeout) or BizException(others),
+    // sync and async requests share this to keep the same metrics and error mapping
+    private Exception convertRequestException(String url, IOException e, long start, String reqID) {
+        long cost = System.currentTimeMillis() - start;
+        String errMsg = Objects.isNull(e.getMessage()) ? "" : e.getMessage();
+        if (errMsg.toLowerCase().contains("timeout")) {
             String[] metricsTags = new String[]{
-                    "type:request_occur_exception",
+                    "type:request_timeout",
                     "url:" + Helper.escapeMetricsTagValue(url),
                     "tenant:" + context.getTenant(),
             };
             Metrics.counter(Constant.METRICS_KEY_COMMON_ERROR, 1, metricsTags);
-            String metricsLogFormat = "[ByteplusSDK] do http request occur exception, tenant:%s, msg:%s, url:%s";
-            MetricsLog.error(getReqID(), metricsLogFormat, context.getTenant(), e.getMessage(), url);
-            log.error("[ByteplusSDK] do http request occur exception, msg:{} url:{}", e, url);
-            throw new BizException(e.toString());
-        } finally {
-            long cost = Duration.between(startTime, LocalDateTime.now()).toMillis();
-            String[] metricsTags = new String[]{
-                    "tenant:" + context.getTenant(),
-                    "url:" + Helper.escapeMetricsTagValue(url)
-            };
-            Metrics.timer(Constant.METRICS_KEY_REQUEST_TOTAL_COST, cost, metricsTags);
-            MetricsLog.info(getReqID(), "[ByteplusSDK] http request, tenant:%s, http url:%s, cost:%dms",
-                    context.getTenant(), url, cost);
-            log.debug("[ByteplusSDK] http url:{}, cost:{}ms",
-                    url, Duration.between(startTime, LocalDateTime.now()).toMillis());
+            String metricsLogFormat = "[ByteplusSDK] do http request timeout, tenant:%s, cost:%dms, msg:%s, url:%s";
+            MetricsLog.error(reqID, metricsLogFormat, context.getTenant(), cost, e.getMessage(), url);
+            log.error("[ByteplusSDK] do http request timeout, cost:{} msg:{} url:{}", cost, e, url);
+            return new NetException(e.toString());
         }
+        String[] metricsTags = new String[]{
+                "type:request_occur_exception",
+                "url:" + Helper.escapeMetricsTagValue(url),
+                "tenant:" + context.getTenant(),
+        };
+        Metrics.counter(Constant.METRICS_KEY_COMMON_ERROR, 1, metricsTags);
+        String metricsLogFormat = "[ByteplusSDK] do http request occur exception, tenant:%s, msg:%s, url:%s";
+        MetricsLog.error(reqID, metricsLogFormat, context.getTenant(), e.getMessage(), url);
+        log.error("[ByteplusSDK] do http request occur exception, msg:{} url:{}", e, url);
+        return new BizException(e.toString());
+    }
+
+    private void reportRequestTotalCost(String url, long start, String reqID) {
+        long cost = System.currentTimeMillis() - start;
+        String[] metricsTags = new String[]{
+                "tenant:" + context.getTenant(),
+                "url:" + Helper.escapeMetricsTagValue(url)
+        };
+        Metrics.timer(Constant.METRICS_KEY_REQUEST_TOTAL_COST, cost, metricsTags);
+        MetricsLog.info(reqID, () -> String.format("[ByteplusSDK] http request, tenant:%s, http url:%s, cost:%dms",
+                context.getTenant(), url, cost));
+        log.debug("[ByteplusSDK] http url:{}, cost:{}ms", url, cost);
     }
 
-    private Headers withAuthHeaders(Request request, byte[] bodyBytes) throws BizException {
+    private Headers withAuthHeaders(Request request, EncodedRequestBody reqBody) throws BizException {
         //air_auth
         if (context.isUseAirAuth()) {
             Headers originHeaders = request.headers();
-            return withAirAuthHeaders(originHeaders, bodyBytes);
+            return withAirAuthHeaders(originHeaders, reqBody.digest());
         }
         //volc_auth
         try {
-            return VoclAuth.sign(request, bodyBytes, context.getVolcCredential());
+            String bodyHash = Helper.bytes2Hex(reqBody.digest().digest());
+            return volcSigner.signWithBodyHash(request, bodyHash);
         } catch (Exception e) {
             throw new BizException(e.getMessage());
         }
     }
 
-    private Headers withAirAuthHeaders(Headers originHeaders, byte[] reqBytes) {
+    private Headers withAirAuthHeaders(Headers originHeaders, MessageDigest bodyDigest) {
         // Gets the second-level timestamp of the current time.
         // The server only supports the second-level timestamp.
         // The 'ts' must be the current time.
@@ -303,7 +1023,7 @@ public class HTTPCaller {
         // You can also use 'ts' as' nonce'
         String nonce = UUID.randomUUID().toString().substring(0, 8);
         // calculate the authentication signature
-        String signature = calSignature(reqBytes, ts, nonce);
+        String signature = calSignature(bodyDigest, ts, nonce);
 
         return originHeaders.newBuilder()
                 .set("Tenant-Id", context.getTenantId())
@@ -315,19 +1035,23 @@ public class HTTPCaller {
 
     private OkHttpClient selectHttpClient(Duration timeout) {
         if (Objects.isNull(timeout) || timeout.isZero()) {
-            return defaultHttpCli;
+            return httpCli;
+        }
+        if (transport != this) {
+            return transport.selectHttpClient(timeout);
         }
         OkHttpClient httpClient = timeoutHttpCliMap.get(timeout);
         if (Objects.nonNull(httpClient)) {
             return httpClient;
         }
-        synchronized (HTTPCaller.class) {
+        synchronized (this) {
             // 二次检查，防止并发导致重复进入
             httpClient = timeoutHttpCliMap.get(timeout);
             if (Objects.nonNull(httpClient)) {
                 return httpClient;
             }
-            httpClient = new OkHttpClient.Builder()
+            // derived from httpCli, share the connection pool and dispatcher
+            httpClient = httpCli.newBuilder()
                     .callTimeout(timeout)
                     .build();
             // 使用ab替换，减少加锁操作
@@ -339,7 +1063,7 @@ public class HTTPCaller {
         }
     }
 
-    private void logHttpResponse(String url, Response response) throws IOException {
+    private void logHttpResponse(String url, Response response, String reqID) throws IOException {
         String[] metricsTags = new String[]{
                 "type:rsp_status_not_ok",
                 "url:" + Helper.escapeMetricsTagValue(url),
@@ -350,7 +1074,7 @@ public class HTTPCaller {
         ResponseBody rspBody = response.body();
         if (Objects.nonNull(rspBody)) {
             String logFormat = "[ByteplusSDK] http status not 200, tenant:%s, url:%s, code:%d, msg:%s, headers:\\n%s";
-            MetricsLog.error(getReqID(), logFormat,
+            MetricsLog.error(reqID, logFormat,
                     context.getTenant(), url, response.code(), response.message(), response.headers());
             log.error("[ByteplusSDK] http status not 200, url:{} code:{} msg:{} headers:\n{} body:\n{}",
                     url, response.code(), response.message(), response.headers(), rspBody.string());
@@ -365,7 +1089,7 @@ public class HTTPCaller {
         }
         String bodyStr = new String(rspBodyBytes, StandardCharsets.UTF_8);
         String logFormat = "[ByteplusSDK] http status not 200, tenant:%s, url:%s, code:%d, msg:%s, headers:\\n%s, body:\n%s";
-        MetricsLog.error(getReqID(), logFormat,
+        MetricsLog.error(reqID, logFormat,
                 context.getTenant(), url, response.code(), response.message(), response.headers(), bodyStr);
         log.error("[ByteplusSDK] http status not 200, url:{} code:{} msg:{} headers:\n{} body:\n{}",
                 url, response.code(), response.message(),
@@ -391,4 +1115,45 @@ public class HTTPCaller {
         }
         return out.toByteArray();
     }
+
+    @Getter
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Config {
+        // Max idle connections kept in the connection pool, default is 5
+        private int maxIdleConnections;
+
+        // Time to keep the idle connection alive, default is 5 minutes
+        private Duration keepAliveDuration;
+
+        // Max requests executed concurrently, default is 64
+        private int maxRequests;
+
+        // Max requests executed concurrently for each host, default is 5
+        private int maxRequestsPerHost;
+
+        // Use okhttp default value(10s) if not set
+        private Duration connectTimeout;
+
+        // Use okhttp default value(10s) if not set
+        private Duration readTimeout;
+
+        // Use okhttp default value(10s) if not set
+        private Duration writeTimeout;
+    }
+
+    // Thrown when the http code of response is not 200, so the http code can be checked by retry
+    static class HttpCodeException extends BizException {
+        private final int code;
+
+        private HttpCodeException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+
+        int getCode() {
+            return code;
+        }
+    }
 }
@@ -0,0 +1,362 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.core.metrics.Metrics;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static byteplus.sdk.core.Constant.METRICS_KEY_HEDGE_SENT;
+import static byteplus.sdk.core.Constant.METRICS_KEY_HEDGE_WON;
+
+// Send read-only requests(e.g. predict) with hedging.
+// If the request has no response after a delay, which is a percentile of the recent
+// latencies, a duplicate request is sent to the next available host, the first
+// successful response wins and the other requests are cancelled. A failed request
+// also triggers the next duplicate immediately.
+// The duplicate requests have their own Request-Id, so they are not rejected as
+// STATUS_CODE_IDEMPOTENT by server.
+// Requests without Option.withHedging are sent directly, only their latencies are recorded.
+@Slf4j
+public final class HedgedCaller {
+    private final static double DEFAULT_PERCENTILE = 95;
+
+    private final static Duration DEFAULT_INITIAL_DELAY = Duration.ofMillis(100);
+
+    private final static Duration DEFAULT_MIN_DELAY = Duration.ofMillis(5);
+
+    private final static int DEFAULT_MAX_HEDGES = 1;
+
+    // the latencies of the latest requests are kept to calculate the percentile
+    private final static int LATENCY_SAMPLE_SIZE = 1024;
+
+    // use initial delay before there are enough samples
+    private final static int MIN_LATENCY_SAMPLES = 32;
+
+    private final static long PERCENTILE_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final HTTPCaller httpCaller;
+
+    private final HostAvailabler hostAvailabler;
+
+    private final String[] metricsTags;
+
+    // shared by the tenant views, since the latency mostly depends on the hosts
+    private final Latencies latencies;
+
+    public HedgedCaller(Context context, HTTPCaller httpCaller, HostAvailabler hostAvailabler) {
+        this(context, httpCaller, hostAvailabler, new Latencies());
+    }
+
+    private HedgedCaller(Context context, HTTPCaller httpCaller, HostAvailabler hostAvailabler, Latencies latencies) {
+        this.httpCaller = httpCaller;
+        this.hostAvailabler = hostAvailabler;
+        this.metricsTags = new String[]{"tenant:" + context.getTenant()};
+        this.latencies = latencies;
+    }
+
+    // Create a HedgedCaller of another tenant, which shares the hosts and latencies of this one
+    public HedgedCaller forTenant(Context tenantContext, HTTPCaller tenantHttpCaller) {
+        return new HedgedCaller(tenantContext, tenantHttpCaller, hostAvailabler, latencies);
+    }
+
+    public <Rsp extends Message, Req extends Message> Rsp doPBRequest(
+            HostURL url,
+            Req request,
+            Parser<Rsp> rspParser,
+            Option[] opts) throws NetException, BizException {
+        Options options = Option.conv2Options(opts);
+        if (Objects.isNull(options.getHedgeConfig())) {
+            long start = System.nanoTime();
+            Rsp response = httpCaller.doPBRequest(url, request, rspParser, options);
+            recordLatency(System.nanoTime() - start);
+            return response;
+        }
+        try {
+            return doPBRequestAsync(url, request, rspParser, opts).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException("hedged request is interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NetException) {
+                throw (NetException) cause;
+            }
+            if (cause instanceof BizException) {
+                throw (BizException) cause;
+            }
+            throw new BizException(String.valueOf(cause));
+        }
+    }
+
+    public <Rsp extends Message, Req extends Message> CompletableFuture<Rsp> doPBRequestAsync(
+            HostURL url,
+            Req request,
+            Parser<Rsp> rspParser,
+            Option[] opts) {
+        Options options = Option.conv2Options(opts);
+        if (Objects.isNull(options.getHedgeConfig())) {
+            long start = System.nanoTime();
+            return httpCaller.doPBRequestAsync(url, request, rspParser, options).whenComplete((rsp, e) -> {
+                if (Objects.isNull(e)) {
+                    recordLatency(System.nanoTime() - start);
+                }
+            });
+        }
+        Hedge<Rsp, Req> hedge = new Hedge<>(url, request, rspParser, opts, options);
+        hedge.start();
+        return hedge.result;
+    }
+
+    private void recordLatency(long nanos) {
+        latencies.record(nanos);
+    }
+
+    private long hedgeDelayNanos(Config config) {
+        long delay;
+        if (latencies.count.get() < MIN_LATENCY_SAMPLES) {
+            delay = config.initialDelay.toNanos();
+        } else {
+            delay = latencies.percentile(config.percentile);
+        }
+        return Math.max(delay, config.minDelay.toNanos());
+    }
+
+    // The latencies of the latest requests
+    private static class Latencies {
+        private final AtomicLongArray samples = new AtomicLongArray(LATENCY_SAMPLE_SIZE);
+
+        private final AtomicLong count = new AtomicLong();
+
+        private volatile Percentile cachedPercentile;
+
+        private void record(long nanos) {
+            long index = count.getAndIncrement() % LATENCY_SAMPLE_SIZE;
+            samples.set((int) index, nanos);
+        }
+
+        // The percentile is cached for a while, since sorting the samples for each request is wasteful
+        private long percentile(double percentile) {
+            long now = System.nanoTime();
+            Percentile cached = cachedPercentile;
+            if (Objects.nonNull(cached) && cached.percentile == percentile &&
+                    now - cached.calculatedAt < PERCENTILE_REFRESH_NANOS) {
+                return cached.value;
+            }
+            int size = (int) Math.min(count.get(), LATENCY_SAMPLE_SIZE);
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * size) - 1;
+            long value = sorted[Math.max(0, Math.min(size - 1, index))];
+            cachedPercentile = new Percentile(percentile, value, now);
+            return value;
+        }
+    }
+
+    // The attempts of a hedged request
+    private class Hedge<Rsp extends Message, Req extends Message> {
+        private final CompletableFuture<Rsp> result = new CompletableFuture<>();
+
+        private final List<CompletableFuture<Rsp>> attempts = new CopyOnWriteArrayList<>();
+
+        private final HostURL url;
+
+        private final Req request;
+
+        private final Parser<Rsp> rspParser;
+
+        private final Option[] opts;
+
+        private final Options options;
+
+        private final Config config;
+
+        private final List<String> hosts;
+
+        // each duplicate is sent to another host, so there is no hedge if there is only one host
+        private final int maxHedges;
+
+        private int sentCount;
+
+        private int failedCount;
+
+        private Hedge(HostURL url, Req request, Parser<Rsp> rspParser, Option[] opts, Options options) {
+            this.url = url;
+            this.request = request;
+            this.rspParser = rspParser;
+            this.opts = opts;
+            this.options = options;
+            this.config = fillDefaultConfig(options.getHedgeConfig());
+            List<String> availableHosts = hostAvailabler.getAvailableHosts();
+            this.hosts = Objects.isNull(availableHosts) ? Collections.emptyList() : availableHosts;
+            this.maxHedges = Math.max(0, Math.min(config.maxHedges, hosts.size() - 1));
+        }
+
+        private void start() {
+            result.whenComplete((rsp, e) -> {
+                if (result.isCancelled()) {
+                    attempts.forEach(attempt -> attempt.cancel(true));
+                }
+            });
+            if (sendNext()) {
+                scheduleHedge();
+            }
+        }
+
+        private void scheduleHedge() {
+            Helper.delay(() -> {
+                if (sendNext()) {
+                    scheduleHedge();
+                }
+            }, hedgeDelayNanos(config), TimeUnit.NANOSECONDS);
+        }
+
+        // Return false if no more request can be sent
+        private boolean sendNext() {
+            int index;
+            synchronized (this) {
+                if (result.isDone() || sentCount > maxHedges) {
+                    return false;
+                }
+                index = sentCount++;
+            }
+            long start = System.nanoTime();
+            CompletableFuture<Rsp> attempt;
+            try {
+                attempt = sendAttempt(index);
+            } catch (Throwable e) {
+                // the failed attempt is counted like the others, so the result is always completed
+                attempt = Helper.failedFuture(e);
+            }
+            attempts.add(attempt);
+            CompletableFuture<Rsp> sent = attempt;
+            attempt.whenComplete((rsp, e) -> onAttemptComplete(index, sent, rsp, e, start));
+            return index < maxHedges;
+        }
+
+        private CompletableFuture<Rsp> sendAttempt(int index) {
+            if (index == 0) {
+                return httpCaller.doPBRequestAsync(url, request, rspParser, options);
+            }
+            // the first request is sent to current host, and the hosts list starts with it,
+            // so the duplicates are sent to the other hosts, and they don't fail over
+            Metrics.counter(METRICS_KEY_HEDGE_SENT, 1, metricsTags);
+            return httpCaller.doPBRequestAsync(url, hosts.get(index), request, rspParser, hedgeOptions(index));
+        }
+
+        private Options hedgeOptions(int index) {
+            String requestId = options.getRequestId();
+            String hedgeRequestId = Objects.isNull(requestId) || requestId.isEmpty() ?
+                    null : requestId + "-hedge-" + index;
+            Option[] hedgeOpts = Arrays.copyOf(opts, opts.length + 1);
+            hedgeOpts[opts.length] = Option.withRequestId(hedgeRequestId);
+            return Option.conv2Options(hedgeOpts);
+        }
+
+        private void onAttemptComplete(int index, CompletableFuture<Rsp> attempt, Rsp rsp, Throwable e, long start) {
+            if (Objects.isNull(e)) {
+                recordLatency(System.nanoTime() - start);
+                if (!result.complete(rsp)) {
+                    return;
+                }
+                if (index > 0) {
+                    Metrics.counter(METRICS_KEY_HEDGE_WON, 1, metricsTags);
+                }
+                // cancel the losers
+                for (CompletableFuture<Rsp> other : attempts) {
+                    if (other != attempt) {
+                        other.cancel(true);
+                    }
+                }
+                return;
+            }
+            if (result.isDone()) {
+                return;
+            }
+            boolean allFailed;
+            synchronized (this) {
+                failedCount++;
+                allFailed = failedCount == sentCount && sentCount > maxHedges;
+            }
+            if (allFailed) {
+                if (e instanceof CompletionException && Objects.nonNull(e.getCause())) {
+                    e = e.getCause();
+                }
+                result.completeExceptionally(e);
+                return;
+            }
+            log.debug("[ByteplusSDK][Hedge] request fail, send next one, err:{}", e.getMessage());
+            sendNext();
+        }
+    }
+
+    private static Config fillDefaultConfig(Config config) {
+        config = config.toBuilder().build();
+        if (config.percentile <= 0 || config.percentile > 100) {
+            config.percentile = DEFAULT_PERCENTILE;
+        }
+        if (Objects.isNull(config.initialDelay) || config.initialDelay.isZero() || config.initialDelay.isNegative()) {
+            config.initialDelay = DEFAULT_INITIAL_DELAY;
+        }
+        if (Objects.isNull(config.minDelay) || config.minDelay.isNegative()) {
+            config.minDelay = DEFAULT_MIN_DELAY;
+        }
+        if (config.maxHedges <= 0) {
+            config.maxHedges = DEFAULT_MAX_HEDGES;
+        }
+        return config;
+    }
+
+    private static class Percentile {
+        private final double percentile;
+
+        private final long value;
+
+        private final long calculatedAt;
+
+        private Percentile(double percentile, long value, long calculatedAt) {
+            this.percentile = percentile;
+            this.value = value;
+            this.calculatedAt = calculatedAt;
+        }
+    }
+
+    @Getter
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Config {
+        // The duplicate request is sent if no response after this percentile of
+        // recent latencies, default is 95.
+        private double percentile;
+
+        // The delay before there are enough latency samples, default is 100ms.
+        private Duration initialDelay;
+
+        // Min delay before sending the duplicate request, default is 5ms.
+        private Duration minDelay;
+
+        // Max duplicate requests of one request, default is 1. Each duplicate is sent to
+        // another available host, so there are at most (hosts - 1) duplicates.
+        private int maxHedges;
+    }
+}
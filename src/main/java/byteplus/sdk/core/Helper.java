@@ -1,20 +1,35 @@
 package byteplus.sdk.core;
 
+import okhttp3.HttpUrl;
+
+import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 
 public final class Helper {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // Shared by the delayed tasks of sdk, e.g. the backoff of retries, the tasks should be short
+    private static final ScheduledExecutorService DELAY_TIMER = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "byteplus-delay-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     public static String bytes2Hex(byte[] bts) {
-        StringBuilder sb = new StringBuilder();
-        String hex;
-        for (byte bt : bts) {
-            hex = (Integer.toHexString(bt & 0xff));
-            if (hex.length() == 1) {
-                sb.append("0");
-            }
-            sb.append(hex);
+        char[] hex = new char[bts.length * 2];
+        for (int i = 0; i < bts.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bts[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bts[i] & 0xf];
         }
-        return sb.toString();
+        return new String(hex);
     }
 
 
@@ -45,7 +60,7 @@ public final class Helper {
     }
 
 
-    private static String parseReqType(String url) {
+    static String parseReqType(String url) {
         if (url.contains("ping")) {
             return "ping";
         }
@@ -58,6 +73,49 @@ public final class Helper {
         return "unknown";
     }
 
+    // The endpoint of url: predict, callback, write, import or other
+    static String endpointOf(HttpUrl url) {
+        if (url.encodedPath().startsWith("/predict/api/")) {
+            List<String> segments = url.pathSegments();
+            String last = segments.get(segments.size() - 1);
+            if ("callback".equals(last) || "ack_server_impressions".equals(last)) {
+                return Constant.ENDPOINT_CALLBACK;
+            }
+            return Constant.ENDPOINT_PREDICT;
+        }
+        String method = url.queryParameter("method");
+        if (Constant.ENDPOINT_WRITE.equals(method) || Constant.ENDPOINT_IMPORT.equals(method)) {
+            return method;
+        }
+        return Constant.ENDPOINT_OTHER;
+    }
+
+    // CompletableFuture.failedFuture is only available since java 9
+    public static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    static void delay(Runnable task, long delay, TimeUnit unit) {
+        DELAY_TIMER.schedule(task, delay, unit);
+    }
+
+    // The Write* response is partial failure if it carries item errors, or its code is
+    // STATUS_CODE_PARTIAL_FAILURE, no matter whether the server sets the code for item errors.
+    static boolean isPartialFailure(int code, List<?> errors) {
+        return !errors.isEmpty() || code == Constant.STATUS_CODE_PARTIAL_FAILURE;
+    }
+
+    // A random(version 4) UUID, which is generated by ThreadLocalRandom rather than
+    // SecureRandom, since the request id is not used for security purpose
+    static String randomRequestId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & ~0xf000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & ~(0xcL << 60)) | (0x8L << 60);
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
     public static String buildCountKey(String metricsPrefix) {
         return metricsPrefix + "." + "count";
     }
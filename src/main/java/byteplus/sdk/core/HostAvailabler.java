@@ -1,28 +1,58 @@
 package byteplus.sdk.core;
 
-import byteplus.sdk.core.metrics.MetricsLog;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.Call;
-import okhttp3.Headers;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
+import okhttp3.HttpUrl;
 
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import static byteplus.sdk.core.Constant.METRICS_KEY_COMMON_ERROR;
 
+// Select the best host as current host by the health of hosts, which is probed by
+// HostHealthRegistry and shared by the clients in JVM. The requests build their urls
+// for the current host when they are sent, so a switch applies to the next request.
+// The outcomes of real requests are also reported by HTTPCaller: a host is ejected for a
+// while after consecutive request failures, and the host with live traffic is pinged less
+// frequently, the outcomes of its requests are counted as the ping results instead.
+// The hosts whose failure rate is higher than the threshold are unavailable, and
+// the available hosts are ordered by latency, which is the ping RTT, or the real-request
+// latency when all of them have recent requests(e.g. sent by hedging), weighted by the
+// failure rate. The current host is only replaced by a faster one if it's faster enough
+// and the current host has been used for a while, so the hosts with similar latency
+// don't flap, but an unavailable current host is replaced immediately.
 @Slf4j
 public class HostAvailabler {
     private static final float FAILURE_RATE_THRESHOLD = (float) 0.1;
 
+    // the latency score is multiplied by (1 + failureRate * FAILURE_RATE_WEIGHT)
+    private static final double FAILURE_RATE_WEIGHT = 10;
+
+    // the latencies are not compared until each host has enough samples,
+    // so a slow first ping(e.g. connecting) doesn't decide the selection
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    private static final int REQUEST_LATENCY_SAMPLE_SIZE = 256;
+
+    private static final double LATENCY_EWMA_ALPHA = 0.2;
+
+    private static final double DEFAULT_SWITCH_THRESHOLD = 0.2;
+
+    private static final Duration DEFAULT_MIN_LATENCY_GAIN = Duration.ofMillis(2);
+
+    private static final Duration DEFAULT_MIN_SWITCH_INTERVAL = Duration.ofSeconds(30);
+
+    private static final int DEFAULT_CONSECUTIVE_FAILURES = 5;
+
+    private static final Duration DEFAULT_EJECTION_TIME = Duration.ofSeconds(10);
+
+    private static final Duration DEFAULT_PASSIVE_PING_INTERVAL = Duration.ofSeconds(10);
+
     private static final int DEFAULT_WINDOW_SIZE = 60;
 
     private static final String DEFAULT_PING_URL_FORMAT = "{}://%s/predict/api/ping";
@@ -31,44 +61,53 @@ public class HostAvailabler {
 
     private static final Duration DEFAULT_PING_INTERVAL = Duration.ofSeconds(1);
 
-    private final OkHttpClient httpCli;
+    // immutable after construction, it's read by request threads, null if there is only one host
+    private final Map<String, HostState> hostStateMap;
 
-    private Map<String, Window> hostWindowMap;
+    private volatile String currentHost;
 
-    private String currentHost;
-
-    private List<String> availableHosts;
+    // replaced as a whole after sorted, so readers always see a complete list
+    private volatile List<String> availableHosts;
 
     private final Config config;
 
+    private final Context context;
+
+    // refreshed when the host is switched, only set by the deprecated constructor
     private final URLCenter urlCenter;
 
-    private final Context context;
+    // notified by the probes of hosts
+    private final Runnable probeSubscriber = this::reselectHost;
+
+    private boolean shutdown;
 
-    private final String REAL_PING_URL_FORMAT;
+    // the time of last switch, guarded by this
+    private long lastSwitchNanos;
 
-    private ScheduledExecutorService executor;
+    public HostAvailabler(Context context) {
+        this(context, (URLCenter) null);
+    }
 
+    // The urlCenter is refreshed with the current host for its deprecated string urls,
+    // the HostURLs don't need it, use HostAvailabler(Context) instead
+    @Deprecated
     public HostAvailabler(Context context, URLCenter urlCenter) {
-        this.urlCenter = urlCenter;
         this.context = context;
+        this.urlCenter = urlCenter;
         this.config = fillDefaultConfig(context.getHostAvailablerConfig());
-        this.REAL_PING_URL_FORMAT = config.getPingURLFormat().replace("{}", context.getSchema());
-        this.httpCli = new OkHttpClient()
-                .newBuilder()
-                .callTimeout(config.getPingTimeout())
-                .build();
         currentHost = context.getHosts().get(0);
         if (context.getHosts().size() <= 1) {
+            hostStateMap = null;
             return;
         }
         availableHosts = context.getHosts();
-        hostWindowMap = new HashMap<>(context.getHosts().size());
+        Map<String, HostState> states = new HashMap<>(context.getHosts().size());
         for (String host : context.getHosts()) {
-            hostWindowMap.put(host, new Window(config.getWindowSize()));
+            states.put(host, new HostState(HostHealthRegistry.acquire(context, config, host)));
         }
-        executor = Executors.newSingleThreadScheduledExecutor();
-        executor.scheduleAtFixedRate(this::checkHost, 0, config.pingInterval.toMillis(), TimeUnit.MILLISECONDS);
+        hostStateMap = Collections.unmodifiableMap(states);
+        // the host is selected after the next round of probes
+        hostStateMap.values().forEach(state -> state.probe.subscribe(probeSubscriber));
     }
 
     private Config fillDefaultConfig(Config config) {
@@ -88,40 +127,84 @@ public class HostAvailabler {
         if (Objects.isNull(config.pingInterval) || config.pingInterval.isZero()) {
             config.pingInterval = DEFAULT_PING_INTERVAL;
         }
+        if (config.switchThreshold <= 0 || config.switchThreshold >= 1) {
+            config.switchThreshold = DEFAULT_SWITCH_THRESHOLD;
+        }
+        if (Objects.isNull(config.minLatencyGain) || config.minLatencyGain.isNegative()) {
+            config.minLatencyGain = DEFAULT_MIN_LATENCY_GAIN;
+        }
+        if (Objects.isNull(config.minSwitchInterval) || config.minSwitchInterval.isNegative()) {
+            config.minSwitchInterval = DEFAULT_MIN_SWITCH_INTERVAL;
+        }
+        if (config.consecutiveFailures <= 0) {
+            config.consecutiveFailures = DEFAULT_CONSECUTIVE_FAILURES;
+        }
+        if (Objects.isNull(config.ejectionTime) || config.ejectionTime.isZero() || config.ejectionTime.isNegative()) {
+            config.ejectionTime = DEFAULT_EJECTION_TIME;
+        }
+        if (Objects.isNull(config.passivePingInterval) || config.passivePingInterval.isNegative()) {
+            config.passivePingInterval = DEFAULT_PASSIVE_PING_INTERVAL;
+        }
         return config;
     }
 
-    public void shutdown() {
-        if (Objects.isNull(executor)) {
+    public synchronized void shutdown() {
+        if (Objects.isNull(hostStateMap) || shutdown) {
             return;
         }
-        executor.shutdown();
+        shutdown = true;
+        for (HostState state : hostStateMap.values()) {
+            state.probe.unsubscribe(probeSubscriber);
+            HostHealthRegistry.release(state.probe);
+        }
     }
 
-    private void checkHost() {
+    // Select host again, after the probe of a host finishes a round,
+    // or a host is ejected by request failures
+    private synchronized void reselectHost() {
+        if (shutdown) {
+            return;
+        }
         try {
-            doCheckHost();
-            switchHost();
+            switchHost(sortHosts());
         } catch (Throwable e) {
-            log.error("[ByteplusSDK] ping find unexpected err, {}", e.getMessage());
+            log.error("[ByteplusSDK] select host find unexpected err, {}", e.getMessage());
         }
     }
 
-    private void doCheckHost() {
-        availableHosts = new ArrayList<>(context.getHosts().size());
+    // Sort the available hosts, return the latency scores of them,
+    // or null if they are sorted by failure rate only
+    private Map<String, Double> sortHosts() {
+        long now = System.nanoTime();
+        List<String> healthyHosts = new ArrayList<>(context.getHosts().size());
+        List<String> availableHosts = new ArrayList<>(context.getHosts().size());
         for (String host : context.getHosts()) {
-            Window window = hostWindowMap.get(host);
-            window.put(doPing(host));
-            if (window.failureRate() < FAILURE_RATE_THRESHOLD) {
+            HostState state = hostStateMap.get(host);
+            if (state.probe.failureRate() >= FAILURE_RATE_THRESHOLD) {
+                continue;
+            }
+            healthyHosts.add(host);
+            if (!state.isEjected(now)) {
                 availableHosts.add(host);
             }
         }
+        // ignore the ejections if all the healthy hosts are ejected
+        if (availableHosts.isEmpty()) {
+            availableHosts = healthyHosts;
+        }
         if (availableHosts.size() <= 1) {
-            return;
+            this.availableHosts = availableHosts;
+            return null;
+        }
+        Map<String, Double> latencyScores = latencyScores(availableHosts);
+        if (Objects.nonNull(latencyScores)) {
+            availableHosts.sort(Comparator.comparingDouble(latencyScores::get));
+            this.availableHosts = availableHosts;
+            return latencyScores;
         }
         availableHosts.sort((host1, host2) -> {
-            float host1FailureRate = hostWindowMap.get(host1).failureRate();
-            float host2FailureRate = hostWindowMap.get(host2).failureRate();
+            float host1FailureRate = hostStateMap.get(host1).probe.failureRate();
+            float host2FailureRate = hostStateMap.get(host2).probe.failureRate();
             float delta = host1FailureRate - host2FailureRate;
             if (delta > 0.0001) {
                 return 1;
@@ -130,72 +213,136 @@ public class HostAvailabler {
             }
             return 0;
         });
+        this.availableHosts = availableHosts;
+        return null;
     }
 
-    private boolean doPing(String host) {
-        String url = String.format(REAL_PING_URL_FORMAT, host);
-        String reqID = "ping_" + UUID.randomUUID().toString();
-        Headers headers = customerHeaders().newBuilder()
-                .set("Request-Id", reqID)
-                .set("Tenant", context.getTenant())
-                .build();
-        Request httpReq = new Request.Builder()
-                .url(url)
-                .headers(headers)
-                .get()
-                .build();
-        Call httpCall = httpCli.newCall(httpReq);
-        long start = System.currentTimeMillis();
-        try (Response httpRsp = httpCall.execute()) {
-            long cost = System.currentTimeMillis() - start;
-            if (httpRsp.code() != 200) {
-                MetricsLog.warn(reqID, "[ByteplusSDK] ping fail, tenant:%s, host:%s, cost:%dms, status:%d",
-                        context.getTenant() ,Helper.escapeMetricsTagValue(host), cost, httpRsp.code());
-            } else {
-                MetricsLog.info(reqID, "[ByteplusSDK] ping success, tenant:%s, host:%s, cost:%dms",
-                        context.getTenant(), Helper.escapeMetricsTagValue(host), cost);
+    // Score the hosts by latency in millis, lower is better, return null if the
+    // latencies are not comparable yet. The real-request latencies are only used when
+    // all the hosts have recent samples, since the current host serves most requests,
+    // and its request latency includes the server processing time.
+    private Map<String, Double> latencyScores(List<String> hosts) {
+        if (config.ignoreLatency) {
+            return null;
+        }
+        long now = System.nanoTime();
+        long freshNanos = config.pingInterval.toNanos() * config.windowSize;
+        boolean useRequestLatency = true;
+        for (String host : hosts) {
+            HostState state = hostStateMap.get(host);
+            if (!state.probe.getPingLatency().isReliable(now, freshNanos)) {
+                return null;
             }
-            return httpRsp.code() == 200;
-        } catch (Throwable e) {
-            MetricsLog.warn(reqID, "[ByteplusSDK] ping find err, tenant:%s, host:%s, err:%s",
-                    context.getTenant(), Helper.escapeMetricsTagValue(host), e.getMessage());
-            log.warn("[ByteplusSDK] ping find err, host:{} err:{}", host, e.getMessage());
-            return false;
-        } finally {
-            long cost = System.currentTimeMillis() - start;
-            log.debug("[ByteplusSDK] ping host:'{}' cost:'{}ms'", host, cost);
+            useRequestLatency = useRequestLatency && state.requestLatency.isReliable(now, freshNanos);
         }
+        Map<String, Double> scores = new HashMap<>(hosts.size());
+        for (String host : hosts) {
+            HostState state = hostStateMap.get(host);
+            LatencyStats stats = useRequestLatency ? state.requestLatency : state.probe.getPingLatency();
+            scores.put(host, stats.score() * (1 + state.probe.failureRate() * FAILURE_RATE_WEIGHT));
+        }
+        return scores;
     }
 
-    private Headers customerHeaders() {
-        Headers.Builder builder = new Headers.Builder();
-        context.getCustomerHeaders().forEach(builder::set);
-        return builder.build();
+    // Record the outcome of a real request, it's called by HTTPCaller. The request fails
+    // if it times out, fails to connect or gets 5xx, costMillis is only used for success.
+    void recordRequestResult(HttpUrl url, boolean success, long costMillis) {
+        Map<String, HostState> states = hostStateMap;
+        if (Objects.isNull(states)) {
+            return;
+        }
+        // the host may be configured with or without port
+        String host = url.host() + ":" + url.port();
+        HostState state = states.get(host);
+        if (Objects.isNull(state)) {
+            host = url.host();
+            state = states.get(host);
+        }
+        if (Objects.isNull(state)) {
+            return;
+        }
+        state.probe.onRequestResult(success);
+        if (success) {
+            state.requestLatency.add(costMillis);
+            state.consecutiveFailures.set(0);
+            return;
+        }
+        if (!state.onRequestFailure(config.consecutiveFailures, config.ejectionTime.toNanos())) {
+            return;
+        }
+        log.warn("[ByteplusSDK] eject host {} for {}, after {} consecutive request failures",
+                host, config.ejectionTime, config.consecutiveFailures);
+        // the host is selected on the select thread, rather than the request thread
+        HostHealthRegistry.execute(probeSubscriber);
     }
 
-    private void switchHost() {
+    private void switchHost(Map<String, Double> latencyScores) {
         String newHost;
         if (availableHosts.isEmpty()) {
             newHost = context.getHosts().get(0);
         } else {
             newHost = availableHosts.get(0);
         }
-        if (!currentHost.equals(newHost)) {
+        if (currentHost.equals(newHost)) {
+            return;
+        }
+        if (Objects.nonNull(latencyScores) && latencyScores.containsKey(currentHost)) {
+            if (!isFasterEnough(latencyScores, newHost)) {
+                return;
+            }
+            log.warn("[ByteplusSDK] switch host to faster {}, origin is {}, latency score:{} -> {}",
+                    newHost, currentHost, latencyScores.get(currentHost), latencyScores.get(newHost));
+        } else {
             log.warn("[ByteplusSDK] switch host to {}, origin is {}", newHost, currentHost);
-            currentHost = newHost;
-            urlCenter.refresh(currentHost);
         }
+        lastSwitchNanos = System.nanoTime();
+        currentHost = newHost;
+        if (Objects.nonNull(urlCenter)) {
+            urlCenter.refresh(newHost);
+        }
+    }
+
+    // The current host is still available, switch to the faster host only if it's faster
+    // by both ratio and absolute value, and the current host has been kept for a while
+    private boolean isFasterEnough(Map<String, Double> latencyScores, String newHost) {
+        if (lastSwitchNanos != 0 && System.nanoTime() - lastSwitchNanos < config.minSwitchInterval.toNanos()) {
+            return false;
+        }
+        double currentScore = latencyScores.get(currentHost);
+        double newScore = latencyScores.get(newHost);
+        return currentScore - newScore >= config.minLatencyGain.toMillis() &&
+                newScore <= currentScore * (1 - config.switchThreshold);
     }
 
     public String getHost() {
         return currentHost;
     }
 
+    // The available hosts in order of preference, the current host is the first one
+    public List<String> getAvailableHosts() {
+        String current = currentHost;
+        List<String> hosts = availableHosts;
+        if (Objects.isNull(hosts) || hosts.isEmpty()) {
+            return Collections.singletonList(current);
+        }
+        List<String> result = new ArrayList<>(hosts.size() + 1);
+        result.add(current);
+        for (String host : hosts) {
+            if (!host.equals(current)) {
+                result.add(host);
+            }
+        }
+        return result;
+    }
+
     @Getter
     @Builder(toBuilder = true)
     @NoArgsConstructor
     @AllArgsConstructor
     public static class Config {
+        // The hosts are pinged by probes shared in JVM, the clients share a probe only if
+        // they have the same ping settings(pingURLFormat, pingTimeout, pingInterval,
+        // windowSize, passivePingInterval) and customer headers.
         private String pingURLFormat;
 
         private Duration pingTimeout;
@@ -203,37 +350,103 @@ public class HostAvailabler {
         private Duration pingInterval;
 
         private int windowSize;
+
+        // Select host by ping failure rate only, latency is ignored.
+        private boolean ignoreLatency;
+
+        // Switch to a faster host only if its latency is lower by this ratio, default is 0.2.
+        private double switchThreshold;
+
+        // Switch to a faster host only if its latency is lower by this value, default is 2ms.
+        private Duration minLatencyGain;
+
+        // Min interval between two switches for latency, default is 30s.
+        // An unavailable host is always switched immediately.
+        private Duration minSwitchInterval;
+
+        // Eject the host after this many consecutive failures of real requests, default is 5.
+        private int consecutiveFailures;
+
+        // The time an ejected host is not selected, default is 10s.
+        private Duration ejectionTime;
+
+        // The ping interval of the host which has live traffic, default is 10s.
+        private Duration passivePingInterval;
     }
 
-    private static class Window {
-        private final int size;
-        private final boolean[] items;
-        private int head;
-        private int tail = 0;
-        private float failureCount = 0;
+    // The state of a host seen by this client, the health probed by pings is shared
+    private static class HostState {
+        private final HostHealthRegistry.Probe probe;
+        // the latency of real requests, written by request threads
+        private final LatencyStats requestLatency = new LatencyStats(REQUEST_LATENCY_SAMPLE_SIZE);
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long ejectedUntilNanos;
 
-        private Window(int size) {
-            this.size = size;
-            this.head = size - 1;
-            items = new boolean[size];
-            Arrays.fill(items, true);
+        private HostState(HostHealthRegistry.Probe probe) {
+            this.probe = probe;
         }
 
-        void put(boolean success) {
-            if (!success) {
-                failureCount++;
+        // Return true if the host is ejected by this failure
+        boolean onRequestFailure(int maxConsecutiveFailures, long ejectionNanos) {
+            if (consecutiveFailures.incrementAndGet() < maxConsecutiveFailures) {
+                return false;
             }
-            head = (head + 1) % size;
-            items[head] = success;
-            tail = (tail + 1) % size;
-            boolean removingItem = items[tail];
-            if (!removingItem) {
-                failureCount--;
+            long now = System.nanoTime();
+            if (isEjected(now)) {
+                return false;
             }
+            consecutiveFailures.set(0);
+            ejectedUntilNanos = now + ejectionNanos;
+            return true;
         }
 
-        float failureRate() {
-            return failureCount / (float) size;
+        boolean isEjected(long now) {
+            long until = ejectedUntilNanos;
+            return until != 0 && now - until < 0;
+        }
+    }
+
+    // The EWMA and p95 of the recent latencies.
+    // It's lock-free, since it's updated by every request. A writer which loses the race
+    // to update the EWMA skips its value, the EWMA is sampled under contention.
+    static final class LatencyStats {
+        private final AtomicLongArray samples;
+        private final AtomicLong added = new AtomicLong();
+        private final AtomicLong ewmaBits = new AtomicLong();
+        private volatile long lastUpdateNanos;
+
+        LatencyStats(int size) {
+            samples = new AtomicLongArray(size);
+        }
+
+        void add(long millis) {
+            long index = added.getAndIncrement();
+            samples.set((int) (index % samples.length()), millis);
+            long bits = ewmaBits.get();
+            double ewma = index == 0 ? millis : Double.longBitsToDouble(bits) + LATENCY_EWMA_ALPHA *
+                    (millis - Double.longBitsToDouble(bits));
+            ewmaBits.compareAndSet(bits, Double.doubleToRawLongBits(ewma));
+            lastUpdateNanos = System.nanoTime();
+        }
+
+        private int count() {
+            return (int) Math.min(added.get(), samples.length());
+        }
+
+        boolean isReliable(long now, long freshNanos) {
+            return count() >= Math.min(MIN_LATENCY_SAMPLES, samples.length()) && now - lastUpdateNanos < freshNanos;
+        }
+
+        // The average of EWMA and p95, so both the typical and tail latency count
+        double score() {
+            int count = count();
+            long[] sorted = new long[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            long p95 = sorted[Math.max(0, (int) Math.ceil(count * 0.95) - 1)];
+            return (Double.longBitsToDouble(ewmaBits.get()) + p95) / 2;
         }
     }
 }
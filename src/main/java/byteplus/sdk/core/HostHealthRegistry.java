@@ -0,0 +1,372 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.core.metrics.MetricsLog;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The health of hosts shared by all the clients in JVM, one probe for each (schema, host,
+// ping settings, customer headers), so the clients with different ping settings or headers
+// don't share the probe. The pings are the same for all the tenants, the Tenant header of
+// the first client is sent with them.
+// A probe is created by the first HostAvailabler which uses it, and stopped after the last
+// one releases it. The probes with the same pingInterval and pingTimeout are checked in one
+// round: all of them are pinged concurrently, the pings not finished before the deadline
+// (round start + pingTimeout) fail, and then the subscribers of the round are notified.
+// The subscribers select their hosts by the shared ping results on another thread, so the
+// timer and http threads are not blocked, the outcomes of their own requests are kept by themselves.
+@Slf4j
+final class HostHealthRegistry {
+    private static final float FAILURE_RATE_THRESHOLD = (float) 0.1;
+
+    private static final ScheduledExecutorService PROBE_TIMER = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "byteplus-host-probe");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private static final ExecutorService SELECT_EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "byteplus-host-select");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // the probes derive their clients from it, so the connections and threads are shared
+    private static final OkHttpClient PING_CLIENT = new OkHttpClient();
+
+    // probe key -> probe, guarded by the class
+    private static final Map<String, Probe> probes = new HashMap<>();
+
+    // pingInterval|pingTimeout -> round, guarded by the class
+    private static final Map<String, Round> rounds = new HashMap<>();
+
+    private HostHealthRegistry() {
+    }
+
+    // Get the probe of the host and add a reference to it, the probe is started if it's new
+    static synchronized Probe acquire(Context context, HostAvailabler.Config config, String host) {
+        String key = probeKey(context, config, host);
+        Probe probe = probes.get(key);
+        if (probe == null) {
+            String roundKey = config.getPingInterval().toMillis() + "|" + config.getPingTimeout().toMillis();
+            Round round = rounds.get(roundKey);
+            if (round == null) {
+                round = new Round(roundKey, config);
+                rounds.put(roundKey, round);
+                round.start();
+            }
+            probe = new Probe(key, round, context, config, host);
+            probes.put(key, probe);
+            round.probes.add(probe);
+        }
+        probe.refCount++;
+        return probe;
+    }
+
+    // Remove a reference of the probe, it's stopped when there is no reference
+    static synchronized void release(Probe probe) {
+        if (--probe.refCount > 0) {
+            return;
+        }
+        probes.remove(probe.key);
+        Round round = probe.round;
+        round.probes.remove(probe);
+        if (round.probes.isEmpty()) {
+            round.stop();
+            rounds.remove(round.key);
+        }
+    }
+
+    private static String probeKey(Context context, HostAvailabler.Config config, String host) {
+        Map<String, String> headers = new TreeMap<>(context.getCustomerHeaders());
+        return String.join("|", context.getSchema() + "://" + host,
+                config.getPingURLFormat(),
+                String.valueOf(config.getPingInterval().toMillis()),
+                String.valueOf(config.getPingTimeout().toMillis()),
+                String.valueOf(config.getWindowSize()),
+                String.valueOf(config.getPassivePingInterval().toMillis()),
+                headers.toString());
+    }
+
+    // Run the subscriber on the select thread rather than the timer or http threads
+    static void execute(Runnable subscriber) {
+        SELECT_EXECUTOR.execute(() -> {
+            try {
+                subscriber.run();
+            } catch (Throwable e) {
+                log.error("[ByteplusSDK] select host find unexpected err, {}", e.getMessage());
+            }
+        });
+    }
+
+    // The probes which are checked together every pingInterval, with a single deadline
+    private static final class Round {
+        private final String key;
+
+        private final long intervalMillis;
+
+        private final long timeoutNanos;
+
+        private final List<Probe> probes = new CopyOnWriteArrayList<>();
+
+        // the pings of last round are not finished, only accessed by the probe timer
+        // and the thread finishing the round
+        private volatile boolean running;
+
+        private ScheduledFuture<?> task;
+
+        private Round(String key, HostAvailabler.Config config) {
+            this.key = key;
+            this.intervalMillis = config.getPingInterval().toMillis();
+            this.timeoutNanos = config.getPingTimeout().toNanos();
+        }
+
+        private void start() {
+            task = PROBE_TIMER.scheduleAtFixedRate(this::check, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void stop() {
+            task.cancel(false);
+        }
+
+        // Put the result of this round into the window of each probe. The host which has
+        // live traffic in this round is only pinged every passivePingInterval, and the
+        // outcomes of its requests are used as the result.
+        private void check() {
+            // the round lasts at most pingTimeout, skip this tick if it's longer than pingInterval
+            if (running) {
+                return;
+            }
+            try {
+                long now = System.nanoTime();
+                Set<Runnable> subscribers = new LinkedHashSet<>();
+                Map<Probe, CompletableFuture<Long>> pings = new LinkedHashMap<>();
+                for (Probe probe : probes) {
+                    if (probe.checkRequests(now)) {
+                        subscribers.addAll(probe.subscribers);
+                        continue;
+                    }
+                    pings.put(probe, probe.doPing());
+                }
+                if (pings.isEmpty()) {
+                    notifySubscribers(subscribers);
+                    return;
+                }
+                running = true;
+                ScheduledFuture<?> deadline = PROBE_TIMER.schedule(
+                        () -> pings.values().forEach(ping -> ping.cancel(false)),
+                        timeoutNanos - (System.nanoTime() - now), TimeUnit.NANOSECONDS);
+                CompletableFuture.allOf(pings.values().toArray(new CompletableFuture<?>[0]))
+                        .whenComplete((result, e) -> {
+                            deadline.cancel(false);
+                            pings.forEach((probe, ping) -> {
+                                probe.onPingComplete(ping.isCompletedExceptionally() ? -1 : ping.join());
+                                subscribers.addAll(probe.subscribers);
+                            });
+                            running = false;
+                            notifySubscribers(subscribers);
+                        });
+            } catch (Throwable e) {
+                running = false;
+                log.error("[ByteplusSDK] ping find unexpected err, {}", e.getMessage());
+            }
+        }
+
+        // Each subscriber is notified once a round, even if it subscribes several probes of it
+        private void notifySubscribers(Set<Runnable> subscribers) {
+            subscribers.forEach(HostHealthRegistry::execute);
+        }
+    }
+
+    static final class Probe {
+        private final String key;
+
+        private final Round round;
+
+        private final String host;
+
+        private final String pingUrl;
+
+        private final String tenant;
+
+        private final Headers headers;
+
+        private final HostAvailabler.Config config;
+
+        private final OkHttpClient httpCli;
+
+        private final List<Runnable> subscribers = new CopyOnWriteArrayList<>();
+
+        // the ping results, guarded by the probe itself
+        private final boolean[] items;
+        private int head;
+        private int tail = 0;
+        private float failureCount = 0;
+
+        // the rtt of successful pings
+        private final HostAvailabler.LatencyStats pingLatency;
+
+        // the outcomes of real requests of all the subscribers in current round
+        private final AtomicInteger requestSuccessCount = new AtomicInteger();
+        private final AtomicInteger requestFailureCount = new AtomicInteger();
+
+        // only accessed by the probe timer
+        private long lastPingNanos;
+
+        // guarded by HostHealthRegistry
+        private int refCount;
+
+        private Probe(String key, Round round, Context context, HostAvailabler.Config config, String host) {
+            this.key = key;
+            this.round = round;
+            this.host = host;
+            this.config = config;
+            this.tenant = context.getTenant();
+            this.pingUrl = String.format(config.getPingURLFormat().replace("{}", context.getSchema()), host);
+            Headers.Builder builder = new Headers.Builder();
+            context.getCustomerHeaders().forEach(builder::set);
+            this.headers = builder.set("Tenant", tenant).build();
+            this.httpCli = PING_CLIENT.newBuilder()
+                    .callTimeout(config.getPingTimeout())
+                    .build();
+            this.pingLatency = new HostAvailabler.LatencyStats(config.getWindowSize());
+            int size = config.getWindowSize();
+            this.head = size - 1;
+            this.items = new boolean[size];
+            Arrays.fill(items, true);
+        }
+
+        void subscribe(Runnable subscriber) {
+            subscribers.add(subscriber);
+        }
+
+        void unsubscribe(Runnable subscriber) {
+            subscribers.remove(subscriber);
+        }
+
+        // Put the outcomes of requests as the result of this round, return false
+        // if the host should be pinged instead
+        private boolean checkRequests(long now) {
+            int successCount = requestSuccessCount.getAndSet(0);
+            int failureCount = requestFailureCount.getAndSet(0);
+            int requestCount = successCount + failureCount;
+            if (requestCount > 0 && now - lastPingNanos < config.getPassivePingInterval().toNanos()) {
+                put((float) failureCount / requestCount < FAILURE_RATE_THRESHOLD);
+                return true;
+            }
+            lastPingNanos = now;
+            return false;
+        }
+
+        private void onPingComplete(long cost) {
+            put(cost >= 0);
+            if (cost >= 0) {
+                pingLatency.add(cost);
+            }
+        }
+
+        // Send the ping asynchronously, the future is completed with the cost in millis,
+        // or -1 if the ping fails, cancelling the future cancels the ping
+        private CompletableFuture<Long> doPing() {
+            String reqID = "ping_" + UUID.randomUUID().toString();
+            Request httpReq = new Request.Builder()
+                    .url(pingUrl)
+                    .headers(headers.newBuilder().set("Request-Id", reqID).build())
+                    .get()
+                    .build();
+            Call httpCall = httpCli.newCall(httpReq);
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            future.whenComplete((cost, e) -> {
+                if (future.isCancelled()) {
+                    log.warn("[ByteplusSDK] ping timeout, host:{}", host);
+                    httpCall.cancel();
+                }
+            });
+            long start = System.currentTimeMillis();
+            httpCall.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    if (!call.isCanceled()) {
+                        MetricsLog.warn(reqID, "[ByteplusSDK] ping find err, tenant:%s, host:%s, err:%s",
+                                tenant, Helper.escapeMetricsTagValue(host), e.getMessage());
+                        log.warn("[ByteplusSDK] ping find err, host:{} err:{}", host, e.getMessage());
+                    }
+                    log.debug("[ByteplusSDK] ping host:'{}' cost:'{}ms'", host, System.currentTimeMillis() - start);
+                    future.complete(-1L);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    long cost = System.currentTimeMillis() - start;
+                    try (Response httpRsp = response) {
+                        if (httpRsp.code() != 200) {
+                            MetricsLog.warn(reqID, "[ByteplusSDK] ping fail, tenant:%s, host:%s, cost:%dms, status:%d",
+                                    tenant, Helper.escapeMetricsTagValue(host), cost, httpRsp.code());
+                        } else {
+                            MetricsLog.info(reqID, () -> String.format("[ByteplusSDK] ping success, tenant:%s, host:%s, cost:%dms",
+                                    tenant, Helper.escapeMetricsTagValue(host), cost));
+                        }
+                        log.debug("[ByteplusSDK] ping host:'{}' cost:'{}ms'", host, cost);
+                        future.complete(httpRsp.code() == 200 ? cost : -1L);
+                    }
+                }
+            });
+            return future;
+        }
+
+        private synchronized void put(boolean success) {
+            if (!success) {
+                failureCount++;
+            }
+            head = (head + 1) % items.length;
+            items[head] = success;
+            tail = (tail + 1) % items.length;
+            boolean removingItem = items[tail];
+            if (!removingItem) {
+                failureCount--;
+            }
+        }
+
+        synchronized float failureRate() {
+            return failureCount / (float) items.length;
+        }
+
+        HostAvailabler.LatencyStats getPingLatency() {
+            return pingLatency;
+        }
+
+        // Count the outcome of a real request of any subscriber
+        void onRequestResult(boolean success) {
+            if (success) {
+                requestSuccessCount.incrementAndGet();
+            } else {
+                requestFailureCount.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package byteplus.sdk.core;
+
+import okhttp3.HttpUrl;
+
+import java.util.Objects;
+
+// The url of an endpoint, which is built for the host a request is sent to.
+// The requests build their urls for the current host when they are sent, so a switch
+// of host applies to the next request immediately, and a single request can be sent
+// to another host(e.g. failover, hedging) by building its url for that host.
+@FunctionalInterface
+public interface HostURL {
+    String build(String host);
+
+    // The url in format of schema://host/path?query
+    // Example: HostURL.of("https", "/data/api/retail/retail_demo/user?method=write")
+    static HostURL of(String schema, String pathAndQuery) {
+        String prefix = schema + "://";
+        return host -> prefix + host + pathAndQuery;
+    }
+
+    // The url of a built url string, e.g. the deprecated string urls, it's built for
+    // another host by replacing the host, the url is kept as it is if it can't be parsed
+    static HostURL parse(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (Objects.isNull(httpUrl)) {
+            return host -> url;
+        }
+        String query = httpUrl.encodedQuery();
+        String pathAndQuery = Objects.isNull(query) ? httpUrl.encodedPath() : httpUrl.encodedPath() + "?" + query;
+        return of(httpUrl.scheme(), pathAndQuery);
+    }
+}
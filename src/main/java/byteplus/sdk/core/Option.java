@@ -61,4 +61,35 @@ public interface Option {
     static Option withScene(String scene) {
         return options -> options.setScene(scene);
     }
+
+    // Overwrite the CompressionPolicy of client for this request,
+    // e.g. turn off compression for predict request
+    static Option withCompression(CompressionPolicy policy) {
+        return options -> options.setCompressionPolicy(policy);
+    }
+
+    // Configure the chunking and parallelism of the bulkWrite* api
+    static Option withBulkWriteConfig(BulkWriter.Config config) {
+        return options -> options.setBulkWriteConfig(config);
+    }
+
+    // Overwrite the RetryPolicy of client for this request,
+    // e.g. RetryPolicy.builder().maxAttempts(1).build() to turn off retry
+    static Option withRetryPolicy(RetryPolicy retryPolicy) {
+        return options -> options.setRetryPolicy(retryPolicy);
+    }
+
+    // Retry the failed items of the Write* api, only the retryable failed items are written again.
+    // Default config is used if null.
+    static Option withPartialRetry(PartialRetrier.Config config) {
+        return options -> options.setPartialRetryConfig(
+                Objects.isNull(config) ? new PartialRetrier.Config() : config);
+    }
+
+    // Hedge the predict request, a duplicate request is sent to another host if
+    // no response after a percentile of recent latencies. Default config is used if null.
+    static Option withHedging(HedgedCaller.Config config) {
+        return options -> options.setHedgeConfig(
+                Objects.isNull(config) ? new HedgedCaller.Config() : config);
+    }
 }
@@ -25,4 +25,14 @@ public class Options {
     private String stage;
 
     private String scene;
+
+    private CompressionPolicy compressionPolicy;
+
+    private BulkWriter.Config bulkWriteConfig;
+
+    private PartialRetrier.Config partialRetryConfig;
+
+    private RetryPolicy retryPolicy;
+
+    private HedgedCaller.Config hedgeConfig;
 }
@@ -0,0 +1,262 @@
+package byteplus.sdk.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import static byteplus.sdk.core.Constant.STATUS_CODE_PARTIAL_FAILURE;
+import static byteplus.sdk.core.Constant.STATUS_CODE_SUCCESS;
+import static byteplus.sdk.core.Constant.STATUS_CODE_TOO_MANY_REQUEST;
+
+// Retry the failed items of a Write* request.
+// When the response is partial failure(it carries item errors, or its code is
+// STATUS_CODE_PARTIAL_FAILURE), only the failed items which are retryable are
+// written again, and when the request is throttled(STATUS_CODE_TOO_MANY_REQUEST), all the
+// items are written again. The retries wait with exponential backoff and jitter.
+// The returned response carries the errors of the items which still fail after all
+// attempts, its status is partial failure if there are such items.
+// The request failed with exception is not retried, the exception is thrown to caller.
+//
+// T: the item type, e.g. User
+// R: the response of Write* api, e.g. WriteUsersResponse
+// E: the item error type, e.g. UserError
+@Slf4j
+public final class PartialRetrier<T, R, E> {
+    private final static int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private final static Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(200);
+
+    private final static Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(5);
+
+    private final Config config;
+
+    private final ToIntFunction<R> statusCodeGetter;
+
+    private final Function<R, List<E>> errorsGetter;
+
+    private final Function<E, T> errorItemGetter;
+
+    private final Function<E, String> errorMessageGetter;
+
+    private final ResponseBuilder<R, E> responseBuilder;
+
+    /**
+     * @param config             retry config, default config is used if null
+     * @param statusCodeGetter   get `status.code` of the response
+     * @param errorsGetter       get the item errors of the response
+     * @param errorItemGetter    get the failed item of the item error
+     * @param errorMessageGetter get the message of the item error
+     * @param responseBuilder    build the returned response from the last response
+     */
+    public PartialRetrier(Config config,
+                          ToIntFunction<R> statusCodeGetter,
+                          Function<R, List<E>> errorsGetter,
+                          Function<E, T> errorItemGetter,
+                          Function<E, String> errorMessageGetter,
+                          ResponseBuilder<R, E> responseBuilder) {
+        this.config = fillDefaultConfig(config);
+        this.statusCodeGetter = statusCodeGetter;
+        this.errorsGetter = errorsGetter;
+        this.errorItemGetter = errorItemGetter;
+        this.errorMessageGetter = errorMessageGetter;
+        this.responseBuilder = responseBuilder;
+    }
+
+    private Config fillDefaultConfig(Config config) {
+        if (Objects.isNull(config)) {
+            config = new Config();
+        }
+        config = config.toBuilder().build();
+        if (config.maxAttempts <= 0) {
+            config.maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        }
+        if (Objects.isNull(config.initialBackoff) || config.initialBackoff.isNegative()) {
+            config.initialBackoff = DEFAULT_INITIAL_BACKOFF;
+        }
+        if (Objects.isNull(config.maxBackoff) || config.maxBackoff.compareTo(config.initialBackoff) < 0) {
+            config.maxBackoff = DEFAULT_MAX_BACKOFF.compareTo(config.initialBackoff) < 0 ?
+                    config.initialBackoff : DEFAULT_MAX_BACKOFF;
+        }
+        if (Objects.isNull(config.retryableErrorPredicate)) {
+            config.retryableErrorPredicate = message -> true;
+        }
+        return config;
+    }
+
+    // The retry requests are different from the original one, so they use
+    // their own request ids rather than the one specified by caller.
+    static Option[] retryOptions(Option[] opts) {
+        return BulkWriter.chunkOptions(opts);
+    }
+
+    public R write(List<T> items, Option[] opts, Writer<T, R> writer) throws NetException, BizException {
+        Attempt attempt = new Attempt(items);
+        R response = writer.write(items, opts);
+        Option[] retryOpts = retryOptions(opts);
+        while (attempt.next(response)) {
+            try {
+                Thread.sleep(attempt.backoffMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BizException("partial retry is interrupted");
+            }
+            response = writer.write(attempt.items, retryOpts);
+        }
+        return attempt.buildResponse(response);
+    }
+
+    public CompletableFuture<R> writeAsync(List<T> items,
+                                           Option[] opts,
+                                           BiFunction<List<T>, Option[], CompletableFuture<R>> writer) {
+        Attempt attempt = new Attempt(items);
+        Option[] retryOpts = retryOptions(opts);
+        return writer.apply(items, opts).thenCompose(response -> retryAsync(attempt, response, retryOpts, writer));
+    }
+
+    private CompletableFuture<R> retryAsync(Attempt attempt,
+                                            R response,
+                                            Option[] retryOpts,
+                                            BiFunction<List<T>, Option[], CompletableFuture<R>> writer) {
+        if (!attempt.next(response)) {
+            return CompletableFuture.completedFuture(attempt.buildResponse(response));
+        }
+        CompletableFuture<R> future = new CompletableFuture<>();
+        Helper.delay(() -> {
+            writer.apply(attempt.items, retryOpts)
+                    .thenCompose(retryResponse -> retryAsync(attempt, retryResponse, retryOpts, writer))
+                    .whenComplete((result, e) -> {
+                        if (Objects.nonNull(e)) {
+                            if (e instanceof CompletionException && Objects.nonNull(e.getCause())) {
+                                e = e.getCause();
+                            }
+                            future.completeExceptionally(e);
+                            return;
+                        }
+                        future.complete(result);
+                    });
+        }, attempt.backoffMillis(), TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    // The state of retrying one request
+    private class Attempt {
+        private List<T> items;
+
+        private int count = 1;
+
+        // errors of the items which are not retried
+        private final List<E> finalErrors = new ArrayList<>();
+
+        private Attempt(List<T> items) {
+            this.items = items;
+        }
+
+        // Check the response of current attempt, return true if there are items to retry
+        private boolean next(R response) {
+            int code = statusCodeGetter.applyAsInt(response);
+            boolean exhausted = count >= config.maxAttempts;
+            if (code == STATUS_CODE_TOO_MANY_REQUEST) {
+                if (!exhausted) {
+                    log.debug("[ByteplusSDK][PartialRetry] request is throttled, retry {} items", items.size());
+                }
+                return advance(exhausted);
+            }
+            List<E> errors = errorsGetter.apply(response);
+            if (!Helper.isPartialFailure(code, errors)) {
+                return false;
+            }
+            List<T> retryItems = new ArrayList<>();
+            for (E error : errors) {
+                T item = errorItemGetter.apply(error);
+                if (exhausted || Objects.isNull(item) ||
+                        !config.retryableErrorPredicate.test(errorMessageGetter.apply(error))) {
+                    finalErrors.add(error);
+                    continue;
+                }
+                retryItems.add(item);
+            }
+            if (retryItems.isEmpty()) {
+                // the errors of last response are already added to final errors
+                items = Collections.emptyList();
+                return false;
+            }
+            log.debug("[ByteplusSDK][PartialRetry] retry {} of {} failed items", retryItems.size(), errors.size());
+            items = retryItems;
+            return advance(false);
+        }
+
+        private boolean advance(boolean exhausted) {
+            if (exhausted) {
+                return false;
+            }
+            count++;
+            return true;
+        }
+
+        // Equal jitter, wait for a random time in [backoff/2, backoff]
+        private long backoffMillis() {
+            long backoff = config.initialBackoff.toMillis() << Math.min(count - 2, 30);
+            backoff = Math.min(backoff, config.maxBackoff.toMillis());
+            if (backoff <= 1) {
+                return backoff;
+            }
+            return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        }
+
+        private R buildResponse(R lastResponse) {
+            if (count == 1 && finalErrors.isEmpty()) {
+                return lastResponse;
+            }
+            // the errors of last response are already moved to final errors
+            int code = statusCodeGetter.applyAsInt(lastResponse);
+            if (code == STATUS_CODE_SUCCESS && !finalErrors.isEmpty()) {
+                code = STATUS_CODE_PARTIAL_FAILURE;
+            }
+            return responseBuilder.build(lastResponse, code, finalErrors);
+        }
+    }
+
+    public interface Writer<T, R> {
+        R write(List<T> items, Option[] opts) throws NetException, BizException;
+    }
+
+    public interface ResponseBuilder<R, E> {
+        // Build response with the status code and the item errors
+        R build(R lastResponse, int code, List<E> errors);
+    }
+
+    @Getter
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Config {
+        // Max attempts of one request, including the first one, default is 3.
+        private int maxAttempts;
+
+        // The backoff before the first retry, doubled for each retry, default is 200ms.
+        private Duration initialBackoff;
+
+        // Max backoff between retries, default is 5s.
+        private Duration maxBackoff;
+
+        // Decide whether the failed item should be retried by the error message,
+        // all the failed items are retried by default.
+        private Predicate<String> retryableErrorPredicate;
+    }
+}
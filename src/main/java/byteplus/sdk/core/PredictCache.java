@@ -0,0 +1,503 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.core.metrics.Metrics;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static byteplus.sdk.core.Constant.METRICS_KEY_PREDICT_CACHE_EVICTION;
+import static byteplus.sdk.core.Constant.METRICS_KEY_PREDICT_CACHE_HIT;
+import static byteplus.sdk.core.Constant.METRICS_KEY_PREDICT_CACHE_MISS;
+
+// An in-process cache of predict responses, shared by a client and its tenant views.
+// The key is the tenant, scene and the hash of request, which is serialized
+// deterministically after only `keyFields` are kept, so the requests which differ
+// in the other fields share the response.
+// The entries expire after the ttl of scene, and are evicted by segmented LRU when
+// the entries or bytes exceed the bounds: a new entry enters the probation segment,
+// and is promoted to the protected segment when it's hit, the entries overflowing the
+// protected segment are demoted to probation, so the one-off requests(e.g. of the
+// logged-in users) don't flush the popular ones(e.g. of the anonymous users).
+// Only the successful responses are cached, the options of request are not part of the key.
+// The request_id of the cached responses is cleared, since it identifies the request which
+// loaded it, and the responses may be personalized, so the user id is always part of the key,
+// unless the scene is one of `sharedScenes`, whose responses are shared by all the users.
+// The concurrent misses of a key are loaded once, the others share the loaded response.
+public final class PredictCache {
+    private final static int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final static Duration DEFAULT_TTL = Duration.ofSeconds(10);
+
+    // the protected segment takes at most this ratio of the bounds
+    private final static double PROTECTED_RATIO = 0.8;
+
+    // the memory of key and entry besides the response
+    private final static int ENTRY_OVERHEAD_BYTES = 256;
+
+    // the cache is split into shards to reduce the lock contention,
+    // but the small cache isn't split, since the LRU of a shard is less accurate
+    private final static int MAX_SHARDS = 8;
+
+    private final static int MIN_ENTRIES_PER_SHARD = 1024;
+
+    // the key fields of user id, "user_id" of retail and media, "user.uid" of general,
+    // they are added to `keyFields`, the unknown one of the request is ignored
+    private final static List<String> USER_ID_FIELDS = Arrays.asList("user_id", "user.uid");
+
+    // the fields of user, which are not part of the key of shared scenes
+    private final static List<String> USER_FIELDS = Arrays.asList("user_id", "user");
+
+    private final Config config;
+
+    // field name -> the selected sub fields, null if all the fields are selected
+    private final Map<String, Object> keyFieldTree;
+
+    private final Shard[] shards;
+
+    // key -> the response being loaded, it's shared by the concurrent misses of the key
+    private final Map<String, CompletableFuture<Message>> loading = new ConcurrentHashMap<>();
+
+    private PredictCache(Config config) {
+        this.config = config;
+        this.keyFieldTree = buildKeyFieldTree(config.keyFields);
+        int shardCount = Math.max(1, Math.min(MAX_SHARDS, config.maxEntries / MIN_ENTRIES_PER_SHARD));
+        long maxBytes = config.maxBytes > 0 ? config.maxBytes : Long.MAX_VALUE;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(Math.max(1, config.maxEntries / shardCount), maxBytes / shardCount);
+        }
+    }
+
+    // Create the cache if it's configured, return null if not
+    public static PredictCache create(Config config) {
+        if (Objects.isNull(config)) {
+            return null;
+        }
+        return new PredictCache(fillDefaultConfig(config));
+    }
+
+    private static Config fillDefaultConfig(Config config) {
+        config = config.toBuilder().build();
+        if (config.maxEntries <= 0) {
+            config.maxEntries = DEFAULT_MAX_ENTRIES;
+        }
+        if (Objects.isNull(config.ttl) || config.ttl.isNegative()) {
+            config.ttl = DEFAULT_TTL;
+        }
+        if (Objects.isNull(config.sceneTtls)) {
+            config.sceneTtls = Collections.emptyMap();
+        }
+        if (Objects.isNull(config.sharedScenes)) {
+            config.sharedScenes = Collections.emptySet();
+        }
+        if (Objects.nonNull(config.keyFields) && !config.keyFields.isEmpty()) {
+            List<String> keyFields = new ArrayList<>(config.keyFields);
+            keyFields.addAll(USER_ID_FIELDS);
+            config.keyFields = keyFields;
+        }
+        return config;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> buildKeyFieldTree(List<String> keyFields) {
+        if (Objects.isNull(keyFields) || keyFields.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> tree = new LinkedHashMap<>();
+        for (String path : keyFields) {
+            Map<String, Object> node = tree;
+            String[] names = path.split("\\.");
+            for (int i = 0; i < names.length; i++) {
+                boolean last = i == names.length - 1;
+                Object child = node.get(names[i]);
+                // an empty map means the whole field is selected
+                if (child instanceof Map && ((Map<String, Object>) child).isEmpty()) {
+                    break;
+                }
+                if (last) {
+                    node.put(names[i], Collections.emptyMap());
+                    break;
+                }
+                if (Objects.isNull(child)) {
+                    child = new LinkedHashMap<String, Object>();
+                    node.put(names[i], child);
+                }
+                node = (Map<String, Object>) child;
+            }
+        }
+        return tree;
+    }
+
+    public interface Loader<Rsp> {
+        Rsp load() throws NetException, BizException;
+    }
+
+    // Return the cached response, or load it by loader and cache it if it's cacheable.
+    // Only the caller which loads the response gets its request_id.
+    @SuppressWarnings("unchecked")
+    public <Rsp extends Message> Rsp load(String tenant, String scene, Message request,
+                                          Predicate<Rsp> cacheable, Loader<Rsp> loader)
+            throws NetException, BizException {
+        long ttlNanos = ttlNanos(scene);
+        if (ttlNanos <= 0) {
+            return loader.load();
+        }
+        String key = buildKey(tenant, scene, request);
+        Rsp cached = get(key, tenant, scene);
+        if (Objects.nonNull(cached)) {
+            return cached;
+        }
+        CompletableFuture<Message> flight = new CompletableFuture<>();
+        CompletableFuture<Message> leader = loading.putIfAbsent(key, flight);
+        if (Objects.nonNull(leader)) {
+            return (Rsp) await(leader);
+        }
+        try {
+            Rsp response = loader.load();
+            onLoaded(key, flight, response, null, cacheable, ttlNanos);
+            return response;
+        } catch (Throwable e) {
+            onLoaded(key, flight, null, e, cacheable, ttlNanos);
+            throw e;
+        }
+    }
+
+    // The async version of `load`
+    @SuppressWarnings("unchecked")
+    public <Rsp extends Message> CompletableFuture<Rsp> loadAsync(String tenant, String scene, Message request,
+                                                                  Predicate<Rsp> cacheable,
+                                                                  Supplier<CompletableFuture<Rsp>> loader) {
+        long ttlNanos = ttlNanos(scene);
+        if (ttlNanos <= 0) {
+            return loader.get();
+        }
+        String key = buildKey(tenant, scene, request);
+        Rsp cached = get(key, tenant, scene);
+        if (Objects.nonNull(cached)) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<Message> flight = new CompletableFuture<>();
+        CompletableFuture<Message> leader = loading.putIfAbsent(key, flight);
+        if (Objects.nonNull(leader)) {
+            return leader.thenApply(response -> (Rsp) response);
+        }
+        CompletableFuture<Rsp> future;
+        try {
+            future = loader.get();
+        } catch (Throwable e) {
+            onLoaded(key, flight, null, e, cacheable, ttlNanos);
+            throw e;
+        }
+        return future.whenComplete((response, e) -> onLoaded(key, flight, response, e, cacheable, ttlNanos));
+    }
+
+    // Cache the loaded response if it's cacheable, and share it with the concurrent misses
+    // of the key, the response shared and cached has no request_id
+    private <Rsp extends Message> void onLoaded(String key, CompletableFuture<Message> flight, Rsp response,
+                                                Throwable e, Predicate<Rsp> cacheable, long ttlNanos) {
+        Message shared = null;
+        try {
+            if (Objects.isNull(e)) {
+                shared = withoutRequestId(response);
+                if (cacheable.test(response)) {
+                    put(key, shared, ttlNanos);
+                }
+            }
+        } catch (Throwable t) {
+            e = t;
+        } finally {
+            // removed before completed, so the later misses load again rather than get a stale flight
+            loading.remove(key, flight);
+        }
+        if (Objects.isNull(e)) {
+            flight.complete(shared);
+            return;
+        }
+        flight.completeExceptionally(e instanceof CompletionException && Objects.nonNull(e.getCause()) ?
+                e.getCause() : e);
+    }
+
+    // Wait for the response loaded by another caller, and throw its exception if it fails
+    private static Message await(CompletableFuture<Message> flight) throws NetException, BizException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException("waiting for predict response is interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NetException) {
+                throw (NetException) cause;
+            }
+            if (cause instanceof BizException) {
+                throw (BizException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new BizException(String.valueOf(cause.getMessage()));
+        }
+    }
+
+    private static Message withoutRequestId(Message response) {
+        FieldDescriptor field = response.getDescriptorForType().findFieldByName("request_id");
+        if (Objects.isNull(field) || !response.hasField(field)) {
+            return response;
+        }
+        return response.toBuilder().clearField(field).build();
+    }
+
+    // Clear the user fields of the selected request, so the users share the key
+    private static Message withoutUserFields(Message request) {
+        Message.Builder builder = null;
+        for (String name : USER_FIELDS) {
+            FieldDescriptor field = request.getDescriptorForType().findFieldByName(name);
+            if (Objects.isNull(field) || !request.hasField(field)) {
+                continue;
+            }
+            if (Objects.isNull(builder)) {
+                builder = request.toBuilder();
+            }
+            builder.clearField(field);
+        }
+        return Objects.isNull(builder) ? request : builder.build();
+    }
+
+    private long ttlNanos(String scene) {
+        Duration ttl = config.sceneTtls.getOrDefault(scene, config.ttl);
+        return Objects.isNull(ttl) ? 0 : ttl.toNanos();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <Rsp extends Message> Rsp get(String key, String tenant, String scene) {
+        Message cached = shardOf(key).get(key, System.nanoTime());
+        if (Objects.isNull(cached)) {
+            Metrics.counter(METRICS_KEY_PREDICT_CACHE_MISS, 1, "tenant:" + tenant, "scene:" + scene);
+            return null;
+        }
+        Metrics.counter(METRICS_KEY_PREDICT_CACHE_HIT, 1, "tenant:" + tenant, "scene:" + scene);
+        return (Rsp) cached;
+    }
+
+    private void put(String key, Message response, long ttlNanos) {
+        long weight = response.getSerializedSize() + key.length() * 2L + ENTRY_OVERHEAD_BYTES;
+        int evicted = shardOf(key).put(key, new Entry(response, weight, System.nanoTime() + ttlNanos));
+        if (evicted > 0) {
+            Metrics.counter(METRICS_KEY_PREDICT_CACHE_EVICTION, evicted);
+        }
+    }
+
+    private Shard shardOf(String key) {
+        return shards[(key.hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    private String buildKey(String tenant, String scene, Message request) {
+        Message selected = Objects.isNull(keyFieldTree) ? request : select(request, keyFieldTree);
+        if (config.sharedScenes.contains(scene)) {
+            selected = withoutUserFields(selected);
+        }
+        try {
+            byte[] bytes = new byte[selected.getSerializedSize()];
+            CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+            // the entries of map fields are written in order of key
+            output.useDeterministicSerialization();
+            selected.writeTo(output);
+            output.checkNoSpaceLeft();
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return tenant + "|" + scene + "|" + Helper.bytes2Hex(hash);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("build predict cache key fail, " + e.getMessage(), e);
+        }
+    }
+
+    // Keep only the selected fields of message, the unknown field names are ignored,
+    // and the sub fields of repeated fields can't be selected
+    @SuppressWarnings("unchecked")
+    private static Message select(Message message, Map<String, Object> tree) {
+        Message.Builder builder = message.newBuilderForType();
+        tree.forEach((name, subTree) -> {
+            FieldDescriptor field = message.getDescriptorForType().findFieldByName(name);
+            if (Objects.isNull(field)) {
+                return;
+            }
+            boolean isMessage = !field.isRepeated() && field.getJavaType() == FieldDescriptor.JavaType.MESSAGE;
+            if (isMessage && !message.hasField(field)) {
+                return;
+            }
+            Map<String, Object> subFields = (Map<String, Object>) subTree;
+            if (isMessage && !subFields.isEmpty()) {
+                builder.setField(field, select((Message) message.getField(field), subFields));
+                return;
+            }
+            builder.setField(field, message.getField(field));
+        });
+        return builder.build();
+    }
+
+    private static class Entry {
+        private final Message value;
+
+        private final long weight;
+
+        private final long expiresAtNanos;
+
+        private Entry(Message value, long weight, long expiresAtNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+
+    // A segmented LRU, both segments are in access order, the eldest entry is the LRU one
+    private static class Shard {
+        private final int maxEntries;
+
+        private final long maxBytes;
+
+        private final int maxProtectedEntries;
+
+        private final long maxProtectedBytes;
+
+        private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long probationBytes;
+
+        private long protectedBytes;
+
+        private Shard(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+            this.maxProtectedEntries = (int) (maxEntries * PROTECTED_RATIO);
+            this.maxProtectedBytes = (long) (maxBytes * PROTECTED_RATIO);
+        }
+
+        synchronized Message get(String key, long now) {
+            Entry entry = protectedSegment.get(key);
+            if (Objects.nonNull(entry)) {
+                if (!entry.isExpired(now)) {
+                    return entry.value;
+                }
+                protectedSegment.remove(key);
+                protectedBytes -= entry.weight;
+                return null;
+            }
+            entry = probation.remove(key);
+            if (Objects.isNull(entry)) {
+                return null;
+            }
+            probationBytes -= entry.weight;
+            if (entry.isExpired(now)) {
+                return null;
+            }
+            // promote the entry which is hit, and demote the overflowing protected entries
+            protectedSegment.put(key, entry);
+            protectedBytes += entry.weight;
+            while (protectedSegment.size() > maxProtectedEntries || protectedBytes > maxProtectedBytes) {
+                Map.Entry<String, Entry> eldest = removeEldest(protectedSegment);
+                protectedBytes -= eldest.getValue().weight;
+                probation.put(eldest.getKey(), eldest.getValue());
+                probationBytes += eldest.getValue().weight;
+            }
+            return entry.value;
+        }
+
+        // Return the number of evicted entries
+        synchronized int put(String key, Entry entry) {
+            Entry old = protectedSegment.remove(key);
+            if (Objects.nonNull(old)) {
+                protectedBytes -= old.weight;
+            }
+            old = probation.remove(key);
+            if (Objects.nonNull(old)) {
+                probationBytes -= old.weight;
+            }
+            if (entry.weight > maxBytes) {
+                return 0;
+            }
+            probation.put(key, entry);
+            probationBytes += entry.weight;
+            int evicted = 0;
+            while (probation.size() + protectedSegment.size() > maxEntries ||
+                    probationBytes + protectedBytes > maxBytes) {
+                if (!probation.isEmpty()) {
+                    probationBytes -= removeEldest(probation).getValue().weight;
+                } else {
+                    protectedBytes -= removeEldest(protectedSegment).getValue().weight;
+                }
+                evicted++;
+            }
+            return evicted;
+        }
+
+        private static Map.Entry<String, Entry> removeEldest(LinkedHashMap<String, Entry> segment) {
+            Iterator<Map.Entry<String, Entry>> iterator = segment.entrySet().iterator();
+            Map.Entry<String, Entry> eldest = iterator.next();
+            iterator.remove();
+            return eldest;
+        }
+    }
+
+    @Getter
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Config {
+        // Max entries of the cache, default is 10000.
+        private int maxEntries;
+
+        // Max bytes of the cached responses, estimated by the serialized size,
+        // not bounded by bytes if <= 0.
+        private long maxBytes;
+
+        // The ttl of the scenes which are not in sceneTtls, default is 10s,
+        // zero means only the scenes in sceneTtls are cached.
+        private Duration ttl;
+
+        // The ttl of each scene, the responses of a scene whose ttl is zero are not cached.
+        private Map<String, Duration> sceneTtls;
+
+        // The fields of request which are part of the key, in the field names of proto,
+        // the sub fields of message field are selected by "field.sub_field",
+        // e.g. "context.root_product". All the fields are part of the key if empty.
+        // The responses may be personalized, so the user id is always part of the key,
+        // "user_id" of retail and media, "user.uid" of general, except for sharedScenes.
+        private List<String> keyFields;
+
+        // The scenes which are not personalized(e.g. hot items), their responses are shared
+        // by all the users, the user fields("user_id", "user") are not part of their key.
+        private Set<String> sharedScenes;
+    }
+}
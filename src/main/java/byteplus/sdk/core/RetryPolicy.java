@@ -0,0 +1,108 @@
+package byteplus.sdk.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Retry the requests which fail with NetException(timeout) or the retryable http codes.
+// All the attempts of a request use the same Request-Id, so the server rejects the
+// request which has been handled by an earlier attempt with STATUS_CODE_IDEMPOTENT(409).
+// The rejected retry fails with DuplicateRequestException, or returns the response whose
+// `status.code` is STATUS_CODE_IDEMPOTENT, the caller can treat both as handled.
+@Getter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetryPolicy {
+    private final static int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private final static Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(100);
+
+    private final static Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(2);
+
+    private final static Set<Integer> DEFAULT_RETRYABLE_HTTP_CODES =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList(500, 502, 503, 504)));
+
+    static final RetryPolicy NO_RETRY = RetryPolicy.builder().maxAttempts(1).build().withDefaults();
+
+    // Max attempts of a request, including the first one, default is 3.
+    private int maxAttempts;
+
+    // The overall time limit of all attempts and backoffs, not limited if null or zero.
+    private Duration deadline;
+
+    // The backoff before the first retry, doubled for each retry, default is 100ms.
+    private Duration initialBackoff;
+
+    // Max backoff between retries, default is 2s.
+    private Duration maxBackoff;
+
+    // Whether the NetException(timeout) is retried, default is true.
+    private Boolean retryNetException;
+
+    // The http codes of response which are retried, default is 500, 502, 503 and 504.
+    private Set<Integer> retryableHttpCodes;
+
+    RetryPolicy withDefaults() {
+        RetryPolicy policy = toBuilder().build();
+        if (policy.maxAttempts <= 0) {
+            policy.maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        }
+        if (Objects.isNull(policy.initialBackoff) || policy.initialBackoff.isNegative()) {
+            policy.initialBackoff = DEFAULT_INITIAL_BACKOFF;
+        }
+        if (Objects.isNull(policy.maxBackoff) || policy.maxBackoff.compareTo(policy.initialBackoff) < 0) {
+            policy.maxBackoff = DEFAULT_MAX_BACKOFF.compareTo(policy.initialBackoff) < 0 ?
+                    policy.initialBackoff : DEFAULT_MAX_BACKOFF;
+        }
+        if (Objects.isNull(policy.retryNetException)) {
+            policy.retryNetException = true;
+        }
+        if (Objects.isNull(policy.retryableHttpCodes)) {
+            policy.retryableHttpCodes = DEFAULT_RETRYABLE_HTTP_CODES;
+        }
+        return policy;
+    }
+
+    long deadlineNanos(long now) {
+        if (Objects.isNull(deadline) || deadline.isZero() || deadline.isNegative()) {
+            return Long.MAX_VALUE;
+        }
+        return now + deadline.toNanos();
+    }
+
+    // Return the nanos to wait before next attempt, or -1 if the failed attempt should not be retried
+    long backoffNanos(int attempt, Throwable e, long deadlineNanos) {
+        if (attempt >= maxAttempts || !isRetryable(e)) {
+            return -1;
+        }
+        long backoff = Math.min(initialBackoff.toNanos() << Math.min(attempt - 1, 30), maxBackoff.toNanos());
+        // equal jitter, wait for a random time in [backoff/2, backoff]
+        if (backoff > 1) {
+            backoff = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        }
+        if (deadlineNanos - System.nanoTime() < backoff) {
+            return -1;
+        }
+        return backoff;
+    }
+
+    private boolean isRetryable(Throwable e) {
+        if (e instanceof NetException) {
+            return retryNetException;
+        }
+        if (e instanceof HTTPCaller.HttpCodeException) {
+            return retryableHttpCodes.contains(((HTTPCaller.HttpCodeException) e).getCode());
+        }
+        return false;
+    }
+}
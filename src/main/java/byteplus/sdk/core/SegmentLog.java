@@ -0,0 +1,291 @@
+package byteplus.sdk.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+// An append-only log of records, stored in fixed size segment files which are memory-mapped.
+// Every record is identified by its position in the log, positions only increase,
+// and the segment files are named by the position of their first byte.
+// Record layout: | length(4 bytes) | crc32 of data(4 bytes) | data |
+// The length is written after the data, so a record torn by crash is seen as the end of log.
+// A consumed record is marked by replacing its crc32 with the complement, so the records
+// consumed after the checkpoint are not recovered.
+// The checkpoint is the position before which all records are consumed, the
+// segments before checkpoint are deleted.
+@Slf4j
+final class SegmentLog implements Closeable {
+    private final static String SEGMENT_FILE_FORMAT = "%020d.seg";
+
+    private final static Pattern SEGMENT_FILE_PATTERN = Pattern.compile("^(\\d{20})\\.seg$");
+
+    private final static String CHECKPOINT_FILE = "checkpoint";
+
+    private final static int RECORD_HEADER_SIZE = 8;
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final boolean syncOnAppend;
+
+    // segment start position -> segment
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    private final FileChannel checkpointChannel;
+
+    private Segment activeSegment;
+
+    private long checkpoint;
+
+    SegmentLog(File directory, int segmentSize, int maxSegments, boolean syncOnAppend) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("create spool directory fail, " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.syncOnAppend = syncOnAppend;
+        this.checkpointChannel = FileChannel.open(new File(directory, CHECKPOINT_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpoint = readCheckpoint();
+        loadSegments();
+    }
+
+    private long readCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        checkpointChannel.read(buffer, 0);
+        if (buffer.position() < 16) {
+            return 0;
+        }
+        long position = buffer.getLong(0);
+        // the second long is the complement of the first one, to detect torn write
+        if (buffer.getLong(8) != ~position) {
+            log.warn("[ByteplusSDK][Spool] invalid checkpoint, replay from the beginning");
+            return 0;
+        }
+        return position;
+    }
+
+    private void loadSegments() throws IOException {
+        File[] files = directory.listFiles();
+        if (Objects.isNull(files)) {
+            return;
+        }
+        for (File file : files) {
+            Matcher matcher = SEGMENT_FILE_PATTERN.matcher(file.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            long start = Long.parseLong(matcher.group(1));
+            if (start + segmentSize <= checkpoint) {
+                deleteFile(file);
+                continue;
+            }
+            Segment segment = mapSegment(file, start);
+            segment.writeOffset = scanEnd(segment);
+            segments.put(start, segment);
+        }
+    }
+
+    // Return the offset after the last valid record
+    private int scanEnd(Segment segment) {
+        int offset = 0;
+        while (offset + RECORD_HEADER_SIZE <= segmentSize) {
+            int length = segment.buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > segmentSize) {
+                break;
+            }
+            int crc = crc(readData(segment, offset, length));
+            int storedCrc = segment.buffer.getInt(offset + 4);
+            if (crc != storedCrc && ~crc != storedCrc) {
+                break;
+            }
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    // Positions of the records at or after checkpoint which exist when the log is opened
+    synchronized List<Long> recoveredPositions() {
+        List<Long> positions = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            if (segment == activeSegment) {
+                continue;
+            }
+            int offset = 0;
+            while (offset < segment.writeOffset) {
+                long position = segment.start + offset;
+                int length = segment.buffer.getInt(offset);
+                boolean consumed = segment.buffer.getInt(offset + 4) != crc(readData(segment, offset, length));
+                if (position >= checkpoint && !consumed) {
+                    positions.add(position);
+                }
+                offset += RECORD_HEADER_SIZE + length;
+            }
+        }
+        return positions;
+    }
+
+    // Append a record, return its position, or -1 if the log is full or the record is too large.
+    synchronized long append(byte[] data) throws IOException {
+        int recordSize = RECORD_HEADER_SIZE + data.length;
+        if (recordSize > segmentSize) {
+            return -1;
+        }
+        if (Objects.isNull(activeSegment) || activeSegment.writeOffset + recordSize > segmentSize) {
+            if (segments.size() >= maxSegments) {
+                return -1;
+            }
+            // the recovered segments are never appended, new records always go to new segments
+            long start = segments.isEmpty() ? checkpoint : segments.lastKey() + segmentSize;
+            File file = new File(directory, String.format(SEGMENT_FILE_FORMAT, start));
+            activeSegment = mapSegment(file, start);
+            segments.put(start, activeSegment);
+        }
+        Segment segment = activeSegment;
+        int offset = segment.writeOffset;
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset + RECORD_HEADER_SIZE);
+        buffer.put(data);
+        segment.buffer.putInt(offset + 4, crc(data));
+        segment.buffer.putInt(offset, data.length);
+        if (syncOnAppend) {
+            segment.buffer.force();
+        }
+        segment.writeOffset = offset + recordSize;
+        return segment.start + offset;
+    }
+
+    synchronized byte[] read(long position) throws IOException {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(position);
+        if (Objects.isNull(entry)) {
+            throw new IOException("spool record not found, position:" + position);
+        }
+        Segment segment = entry.getValue();
+        int offset = (int) (position - segment.start);
+        if (offset >= segment.writeOffset) {
+            throw new IOException("spool record not found, position:" + position);
+        }
+        return readData(segment, offset, segment.buffer.getInt(offset));
+    }
+
+    // Mark the record as consumed, it's ignored if the segment is deleted
+    synchronized void markConsumed(long position) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(position);
+        if (Objects.isNull(entry)) {
+            return;
+        }
+        Segment segment = entry.getValue();
+        int offset = (int) (position - segment.start);
+        if (offset >= segment.writeOffset) {
+            return;
+        }
+        segment.buffer.putInt(offset + 4, ~segment.buffer.getInt(offset + 4));
+    }
+
+    // The position of the next appended record
+    synchronized long endPosition() {
+        if (Objects.isNull(activeSegment)) {
+            return segments.isEmpty() ? checkpoint : segments.lastKey() + segmentSize;
+        }
+        return activeSegment.start + activeSegment.writeOffset;
+    }
+
+    // Persist the checkpoint, and delete the segments before it
+    synchronized void checkpoint(long position) throws IOException {
+        if (position <= checkpoint) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(0, position);
+        buffer.putLong(8, ~position);
+        checkpointChannel.write(buffer, 0);
+        checkpointChannel.force(false);
+        checkpoint = position;
+        while (!segments.isEmpty()) {
+            Segment first = segments.firstEntry().getValue();
+            if (first == activeSegment || first.start + segmentSize > checkpoint) {
+                break;
+            }
+            segments.pollFirstEntry();
+            deleteFile(first.file);
+        }
+    }
+
+    synchronized long diskUsage() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+        checkpointChannel.close();
+    }
+
+    private Segment mapSegment(File file, long start) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < segmentSize) {
+                raf.setLength(segmentSize);
+            }
+            // the mapping is still valid after the channel is closed
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            return new Segment(start, file, buffer);
+        }
+    }
+
+    private static byte[] readData(Segment segment, int offset, int length) {
+        byte[] data = new byte[length];
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset + RECORD_HEADER_SIZE);
+        buffer.get(data);
+        return data;
+    }
+
+    private static int crc(byte[] data) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, data.length);
+        return (int) crc32.getValue();
+    }
+
+    private static void deleteFile(File file) {
+        if (!file.delete()) {
+            log.warn("[ByteplusSDK][Spool] delete segment fail, {}", file);
+        }
+    }
+
+    private static class Segment {
+        private final long start;
+
+        private final File file;
+
+        private final MappedByteBuffer buffer;
+
+        private int writeOffset;
+
+        private Segment(long start, File file, MappedByteBuffer buffer) {
+            this.start = start;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
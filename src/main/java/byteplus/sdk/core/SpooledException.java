@@ -0,0 +1,18 @@
+package byteplus.sdk.core;
+
+// throw when the write request failed with NetException or CircuitOpenException, and it's
+// kept in the write spool, it will be replayed in background with the same Request-Id,
+// so the caller should not send it again.
+public class SpooledException extends BizException {
+    private final String requestId;
+
+    public SpooledException(String requestId, String message) {
+        super(message);
+        this.requestId = requestId;
+    }
+
+    // The Request-Id used by the request and its replays
+    public String getRequestId() {
+        return requestId;
+    }
+}
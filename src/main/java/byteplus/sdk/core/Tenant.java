@@ -0,0 +1,34 @@
+package byteplus.sdk.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import byteplus.sdk.core.volcAuth.Credential;
+
+import java.util.Map;
+
+// The identity of a tenant, which is used to create a tenant view of a client
+// through `forTenant`, the view shares the transport of the client.
+@Getter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class Tenant {
+    // A unique identity assigned by Bytedance, which is need to fill in URL.
+    private String tenant;
+
+    private String tenantId;
+
+    // A unique token assigned by bytedance, which is used to
+    // generate an authenticated signature when building a request.
+    // Required if the client uses air auth.
+    private String token;
+
+    // The credential of volcengine auth of this tenant, required if the client doesn't use air auth
+    private Credential volcCredential;
+
+    // Customer-defined http headers of this tenant, which are included in the requests of the view
+    private Map<String, String> headers;
+}
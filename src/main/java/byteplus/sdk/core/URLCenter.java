@@ -1,5 +1,8 @@
 package byteplus.sdk.core;
 
+// The holder of the urls of a client, which is refreshed when the current host is switched.
+// The requests build their HostURLs for the current host when they are sent, so the host
+// only applies to the deprecated string urls, which are built for the refreshed host.
 public interface URLCenter {
     void refresh(String host);
 }
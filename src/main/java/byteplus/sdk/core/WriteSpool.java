@@ -0,0 +1,373 @@
+package byteplus.sdk.core;
+
+import com.google.protobuf.MessageLite;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+// A durable write-ahead spool for write requests.
+// The serialized request is appended to the spool before it's sent, and acked after the
+// server has handled it. When sending fails with NetException or is rejected by circuit
+// breaker, the request is kept in the spool and replayed in background until it's delivered,
+// the requests which are not acked before the process exits are also replayed after restarting.
+// The spooled requests are kept on disk(memory-mapped segment files) rather than heap,
+// and the disk usage is limited by `maxBytes`, requests are sent without spooling when full.
+// The delivery is at-least-once, a request may be replayed again after restarting
+// if the process crashes before its ack is written to the segment file.
+// The Request-Id of the request is spooled with it and reused by the replays, so the
+// server can reject the duplicates, the other options of the request are not kept.
+// When the request is spooled for replay, SpooledException is thrown instead of the
+// NetException, so the callers which retry on NetException don't send it twice.
+// Record layout: | version(1 byte) | length of Request-Id(2 bytes) | Request-Id | request |
+@Slf4j
+public final class WriteSpool implements AutoCloseable {
+    private final static int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    private final static long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+
+    private final static Duration DEFAULT_CHECKPOINT_INTERVAL = Duration.ofSeconds(1);
+
+    private final static Duration DEFAULT_MIN_REPLAY_BACKOFF = Duration.ofSeconds(1);
+
+    private final static Duration DEFAULT_MAX_REPLAY_BACKOFF = Duration.ofMinutes(1);
+
+    private final static byte RECORD_VERSION = 1;
+
+    private final static int RECORD_HEADER_SIZE = 3;
+
+    private final Config config;
+
+    private final SegmentLog segmentLog;
+
+    private final Replayer replayer;
+
+    // positions of the records which are appended and not acked
+    private final NavigableSet<Long> unacked = new ConcurrentSkipListSet<>();
+
+    // positions of the records which should be replayed
+    private final NavigableSet<Long> pendingReplay = new ConcurrentSkipListSet<>();
+
+    private final Thread replayThread;
+
+    private volatile boolean closed;
+
+    public WriteSpool(Config config, Replayer replayer) throws IOException {
+        this.config = fillDefaultConfig(config);
+        this.replayer = replayer;
+        int maxSegments = (int) Math.max(1, this.config.maxBytes / this.config.segmentBytes);
+        this.segmentLog = new SegmentLog(new File(this.config.directory), this.config.segmentBytes,
+                maxSegments, this.config.syncOnAppend);
+        List<Long> recovered = segmentLog.recoveredPositions();
+        unacked.addAll(recovered);
+        pendingReplay.addAll(recovered);
+        if (!recovered.isEmpty()) {
+            log.info("[ByteplusSDK][Spool] recover {} undelivered requests from {}",
+                    recovered.size(), this.config.directory);
+        }
+        this.replayThread = new Thread(this::replayLoop, "byteplus-write-spool-replayer");
+        this.replayThread.setDaemon(true);
+        this.replayThread.start();
+    }
+
+    private Config fillDefaultConfig(Config config) {
+        if (Objects.isNull(config) || Objects.isNull(config.directory) || config.directory.isEmpty()) {
+            throw new IllegalArgumentException("directory of write spool is required");
+        }
+        config = config.toBuilder().build();
+        if (config.segmentBytes <= 0) {
+            config.segmentBytes = DEFAULT_SEGMENT_BYTES;
+        }
+        if (config.maxBytes <= 0) {
+            config.maxBytes = DEFAULT_MAX_BYTES;
+        }
+        if (Objects.isNull(config.checkpointInterval) || config.checkpointInterval.isZero()) {
+            config.checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+        }
+        return config;
+    }
+
+    // Append the serialized request and its Request-Id before sending it, return the
+    // position of the record, or -1 if it's not spooled, e.g. the spool is full.
+    public long append(String requestId, byte[] request) {
+        if (closed) {
+            return -1;
+        }
+        try {
+            byte[] record = encodeRecord(requestId, request);
+            // add to unacked before the record is visible to checkpoint
+            synchronized (this) {
+                long position = segmentLog.append(record);
+                if (position >= 0) {
+                    unacked.add(position);
+                    return position;
+                }
+            }
+            log.warn("[ByteplusSDK][Spool] spool is full, the request is sent without spooling, size:{}",
+                    request.length);
+        } catch (IOException e) {
+            log.error("[ByteplusSDK][Spool] append request find err, {}", e.getMessage());
+        }
+        return -1;
+    }
+
+    // The request is handled by server, either succeeded or failed for non-network reason
+    public void ack(long position) {
+        if (position < 0) {
+            return;
+        }
+        pendingReplay.remove(position);
+        if (unacked.remove(position)) {
+            segmentLog.markConsumed(position);
+        }
+    }
+
+    // The request failed with NetException, replay it in background
+    public void replayLater(long position) {
+        if (position < 0 || !unacked.contains(position)) {
+            return;
+        }
+        pendingReplay.add(position);
+        LockSupport.unpark(replayThread);
+    }
+
+    // Spool the request and send it by sender with the options to use, which carry the
+    // Request-Id of the request(generated if it's not given).
+    // If sender throws NetException or CircuitOpenException, the request is replayed later
+    // and SpooledException is thrown, the NetException is only thrown if it's not spooled.
+    public <R> R write(MessageLite request, Option[] opts, Sender<R> sender) throws NetException, BizException {
+        String requestId = requestIdOf(opts);
+        long position = append(requestId, request.toByteArray());
+        try {
+            R response = sender.send(withRequestId(opts, requestId));
+            ack(position);
+            return response;
+        } catch (NetException | CircuitOpenException e) {
+            if (position < 0) {
+                throw e;
+            }
+            replayLater(position);
+            throw spooledException(requestId, e);
+        } catch (BizException | RuntimeException e) {
+            ack(position);
+            throw e;
+        }
+    }
+
+    // The async version of `write`, the returned future is completed exceptionally
+    // with SpooledException if the request is spooled for replay.
+    public <R> CompletableFuture<R> writeAsync(MessageLite request,
+                                               Option[] opts,
+                                               Function<Option[], CompletableFuture<R>> sender) {
+        String requestId = requestIdOf(opts);
+        long position = append(requestId, request.toByteArray());
+        CompletableFuture<R> future;
+        try {
+            future = sender.apply(withRequestId(opts, requestId));
+        } catch (Throwable e) {
+            // the record must be acked or replayed, otherwise it pins the checkpoint
+            future = Helper.failedFuture(e);
+        }
+        CompletableFuture<R> result = new CompletableFuture<>();
+        future.whenComplete((response, e) -> {
+            if (Objects.isNull(e)) {
+                ack(position);
+                result.complete(response);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && Objects.nonNull(e.getCause()) ? e.getCause() : e;
+            if (position >= 0 && (cause instanceof NetException || cause instanceof CircuitOpenException)) {
+                replayLater(position);
+                result.completeExceptionally(spooledException(requestId, cause));
+                return;
+            }
+            ack(position);
+            result.completeExceptionally(cause);
+        });
+        return result;
+    }
+
+    private static String requestIdOf(Option[] opts) {
+        String requestId = Option.conv2Options(opts).getRequestId();
+        if (Objects.isNull(requestId) || requestId.isEmpty()) {
+            return Helper.randomRequestId();
+        }
+        return requestId;
+    }
+
+    private static Option[] withRequestId(Option[] opts, String requestId) {
+        if (Objects.isNull(opts)) {
+            opts = new Option[0];
+        }
+        Option[] spoolOpts = Arrays.copyOf(opts, opts.length + 1);
+        spoolOpts[opts.length] = Option.withRequestId(requestId);
+        return spoolOpts;
+    }
+
+    private static SpooledException spooledException(String requestId, Throwable cause) {
+        log.warn("[ByteplusSDK][Spool] request fail and is spooled for replay, requestId:{} err:{}",
+                requestId, cause.getMessage());
+        return new SpooledException(requestId,
+                "request is spooled and will be replayed, requestId:" + requestId + ", err:" + cause.getMessage());
+    }
+
+    private static byte[] encodeRecord(String requestId, byte[] request) throws IOException {
+        byte[] requestIdBytes = requestId.getBytes(StandardCharsets.UTF_8);
+        if (requestIdBytes.length > 0xFFFF) {
+            throw new IOException("request id is too long");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + requestIdBytes.length + request.length);
+        buffer.put(RECORD_VERSION);
+        buffer.putShort((short) requestIdBytes.length);
+        buffer.put(requestIdBytes);
+        buffer.put(request);
+        return buffer.array();
+    }
+
+    // The number of spooled requests which are not delivered
+    public int getUndeliveredCount() {
+        return unacked.size();
+    }
+
+    private void replayLoop() {
+        long backoffNanos = DEFAULT_MIN_REPLAY_BACKOFF.toNanos();
+        long lastCheckpoint = System.nanoTime();
+        long checkpointIntervalNanos = config.checkpointInterval.toNanos();
+        while (!closed) {
+            if (System.nanoTime() - lastCheckpoint >= checkpointIntervalNanos) {
+                checkpoint();
+                lastCheckpoint = System.nanoTime();
+            }
+            Long position = pendingReplay.pollFirst();
+            if (Objects.isNull(position)) {
+                LockSupport.parkNanos(this, checkpointIntervalNanos);
+                continue;
+            }
+            if (replay(position)) {
+                backoffNanos = DEFAULT_MIN_REPLAY_BACKOFF.toNanos();
+                continue;
+            }
+            // the server is still unreachable, wait before replaying again
+            pendingReplay.add(position);
+            LockSupport.parkNanos(this, backoffNanos);
+            backoffNanos = Math.min(backoffNanos * 2, DEFAULT_MAX_REPLAY_BACKOFF.toNanos());
+        }
+    }
+
+    // Return false if the request should be replayed again
+    private boolean replay(long position) {
+        byte[] request;
+        String requestId;
+        try {
+            ByteBuffer record = ByteBuffer.wrap(segmentLog.read(position));
+            if (record.remaining() < RECORD_HEADER_SIZE || record.get() != RECORD_VERSION) {
+                throw new IOException("unknown record version");
+            }
+            byte[] requestIdBytes = new byte[record.getShort() & 0xFFFF];
+            record.get(requestIdBytes);
+            requestId = new String(requestIdBytes, StandardCharsets.UTF_8);
+            request = new byte[record.remaining()];
+            record.get(request);
+        } catch (IOException | RuntimeException e) {
+            log.error("[ByteplusSDK][Spool] read spooled request find err, drop it, {}", e.getMessage());
+            ack(position);
+            return true;
+        }
+        try {
+            replayer.replay(request, new Option[]{Option.withRequestId(requestId)});
+            ack(position);
+            log.debug("[ByteplusSDK][Spool] replay request success, position:{}", position);
+            return true;
+        } catch (NetException | CircuitOpenException e) {
+            log.warn("[ByteplusSDK][Spool] replay request fail, will retry, err:{}", e.getMessage());
+            return false;
+        } catch (Throwable e) {
+            log.error("[ByteplusSDK][Spool] replay request find err, drop it, err:{}", e.getMessage());
+            ack(position);
+            return true;
+        }
+    }
+
+    private void checkpoint() {
+        try {
+            long position;
+            synchronized (this) {
+                position = unacked.isEmpty() ? segmentLog.endPosition() : unacked.first();
+            }
+            segmentLog.checkpoint(position);
+        } catch (IOException e) {
+            log.error("[ByteplusSDK][Spool] checkpoint find err, {}", e.getMessage());
+        }
+    }
+
+    // Stop replaying and persist the checkpoint, the undelivered requests
+    // are kept on disk and replayed after reopening.
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(replayThread);
+        try {
+            replayThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+        try {
+            segmentLog.close();
+        } catch (IOException e) {
+            log.error("[ByteplusSDK][Spool] close spool find err, {}", e.getMessage());
+        }
+    }
+
+    public interface Sender<R> {
+        // Send the request with opts, which carry the spooled Request-Id
+        R send(Option[] opts) throws NetException, BizException;
+    }
+
+    public interface Replayer {
+        // Send the spooled request again with opts, which carry the Request-Id of the original
+        // request, throw NetException or CircuitOpenException if it should be retried later
+        void replay(byte[] request, Option[] opts) throws NetException, BizException;
+    }
+
+    @Getter
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Config {
+        // Required, the directory of segment files, one directory can only be used by one spool.
+        private String directory;
+
+        // Max disk usage, default is 1GB.
+        private long maxBytes;
+
+        // Size of each segment file, default is 64MB, a request larger than it is not spooled.
+        private int segmentBytes;
+
+        // Force the appended request to storage device, so it survives OS crash, default is false.
+        private boolean syncOnAppend;
+
+        // The interval of persisting checkpoint, default is 1s.
+        private Duration checkpointInterval;
+    }
+}
@@ -24,10 +24,9 @@ public class Constant {
 
     public final static int MAX_TRY_TIMES = 3;
 
-    public final static int MAX_SPIN_TIMES = 5;
-
     public final static int SUCCESS_HTTP_CODE = 200;
 
+    // max number of metrics series, metrics of the same name, type and tags are aggregated into one series
     public final static int MAX_METRICS_SIZE = 10000;
 
     public final static int MAX_METRICS_LOG_SIZE = 5000;
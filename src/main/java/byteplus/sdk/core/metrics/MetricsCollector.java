@@ -12,10 +12,13 @@ import lombok.extern.slf4j.Slf4j;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static byteplus.sdk.core.metrics.Constant.*;
 
@@ -24,14 +27,19 @@ import static byteplus.sdk.core.metrics.Constant.*;
 public class MetricsCollector {
     private static MetricsCfg metricsCfg;
     private static MetricsReporter metricsReporter;
-    private static Queue<Metric> metricsCollector;
-    private static Queue<MetricLog> metricsLogCollector;
-    private static volatile boolean cleaningMetricsCollector;
-    private static volatile boolean cleaningMetricsLogCollector;
+    // metrics are pre-aggregated in registry, and flushed when reporting
+    private static MetricsRegistry metricsRegistry;
+    // metrics logs are written into the active buffer, which is swapped out when reporting,
+    // so writers never wait for the reporting
+    private static AtomicReference<MetricsLogBuffer> metricsLogCollector;
+    // the buffer swapped out by last report, some writers may still append to it after swapping
+    private static MetricsLogBuffer retiredMetricsLogBuffer;
     // init func can only exec once
     private static final AtomicBoolean initialed = new AtomicBoolean(false);
     private static ScheduledExecutorService reportExecutor;
     private static volatile HostAvailabler hostAvailabler;
+    // exporters added before initialized are started when initializing
+    private static final List<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
 
     public static void Init(MetricsCfg metricsConfig, HostAvailabler hostAvailabler) {
         if (initialed.get()) {
@@ -85,8 +93,16 @@ public class MetricsCollector {
         // initialize metrics reporter
         metricsReporter = new MetricsReporter(metricsCfg);
         // initialize metrics collector
-        metricsCollector = new ConcurrentLinkedQueue<>();
-        metricsLogCollector = new ConcurrentLinkedQueue<>();
+        metricsRegistry = new MetricsRegistry(metricsCfg.getPrefix(), MAX_METRICS_SIZE,
+                metricsCfg.isRawTimers());
+        metricsLogCollector = new AtomicReference<>(new MetricsLogBuffer());
+        retiredMetricsLogBuffer = new MetricsLogBuffer();
+        if (Objects.nonNull(metricsCfg.getExporters())) {
+            metricsCfg.getExporters().stream()
+                    .filter(exporter -> Objects.nonNull(exporter) && !exporters.contains(exporter))
+                    .forEach(exporters::add);
+        }
+        exporters.forEach(MetricsCollector::startExporter);
 
         if (!isEnableMetrics() && !isEnableMetricsLog()) {
             initialed.set(true);
@@ -98,6 +114,34 @@ public class MetricsCollector {
         initialed.set(true);
     }
 
+    // Add an exporter to expose the metrics, if MetricsCollector is not initialized,
+    // the exporter is started when initializing.
+    public static synchronized void addExporter(MetricsExporter exporter) {
+        if (Objects.isNull(exporter) || exporters.contains(exporter)) {
+            return;
+        }
+        exporters.add(exporter);
+        if (initialed.get()) {
+            startExporter(exporter);
+        }
+    }
+
+    public static synchronized void removeExporter(MetricsExporter exporter) {
+        if (!exporters.remove(exporter)) {
+            return;
+        }
+        exporter.close();
+    }
+
+    private static void startExporter(MetricsExporter exporter) {
+        try {
+            exporter.start(metricsRegistry::snapshot);
+        } catch (Throwable e) {
+            log.error("[BytePlusSDK][Metrics] start metrics exporter exception, exporter:{}, msg:{}",
+                    exporter.getClass().getName(), e.getMessage());
+        }
+    }
+
     public static boolean isEnableMetrics() {
         if (Objects.isNull(metricsCfg)) {
             return false;
@@ -113,38 +157,11 @@ public class MetricsCollector {
     }
 
     public static void emitMetric(String type, String name, long value, String... tagKvs) {
-        if (!isEnableMetrics()) {
+        // metrics are also collected for exporters when reporting is disabled
+        if (!initialed.get() || (!isEnableMetrics() && exporters.isEmpty())) {
             return;
         }
-        // spin when cleaning collector
-        int tryTimes = 0;
-        while (cleaningMetricsCollector) {
-            try {
-                if (tryTimes >= MAX_SPIN_TIMES) {
-                    return;
-                }
-                Thread.sleep(5);
-                tryTimes += 1;
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
-        if (metricsCollector.size() > MAX_METRICS_SIZE) {
-            log.debug("[MetricsCollector]: The number of metrics exceeds the limit, the metrics write is rejected");
-            return;
-        }
-        String metricName = name;
-        if (metricsCfg.getPrefix().length() > 0) {
-            metricName = metricsCfg.getPrefix() + "." + metricName;
-        }
-        Metric metric = Metric.newBuilder()
-                .setType(type)
-                .setName(metricName)
-                .setValue(value)
-                .setTimestamp(System.currentTimeMillis())
-                .putAllTags(recoverTags(tagKvs))
-                .build();
-        metricsCollector.add(metric);
+        metricsRegistry.record(type, name, value, tagKvs);
     }
 
     // recover tagString to origin Tags map
@@ -164,20 +181,8 @@ public class MetricsCollector {
         if (!isEnableMetricsLog()) {
             return;
         }
-        // spin when cleaning collector
-        int tryTimes = 0;
-        while (cleaningMetricsLogCollector) {
-            try {
-                if (tryTimes >= MAX_SPIN_TIMES) {
-                    return;
-                }
-                Thread.sleep(5);
-                tryTimes += 1;
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
-        if (metricsLogCollector.size() > MAX_METRICS_LOG_SIZE) {
+        MetricsLogBuffer buffer = metricsLogCollector.get();
+        if (!buffer.tryReserve()) {
             log.debug("[MetricsCollector]: The number of metrics logs exceeds the limit, the metrics log write is rejected");
             return;
         }
@@ -187,7 +192,7 @@ public class MetricsCollector {
                 .setLevel(logLevel)
                 .setTimestamp(timestamp)
                 .build();
-        metricsLogCollector.add(metricLog);
+        buffer.logs.add(metricLog);
     }
 
     private static void report() {
@@ -200,19 +205,10 @@ public class MetricsCollector {
     }
 
     private static void reportMetrics() {
-        if (metricsCollector.size() == 0) {
+        List<Metric> metrics = metricsRegistry.flush();
+        if (metrics.isEmpty()) {
             return;
         }
-        List<Metric> metrics = new ArrayList<>();
-        cleaningMetricsCollector = true;
-        while (true) {
-            Metric metric = metricsCollector.poll();
-            if (Objects.isNull(metric)) {
-                break;
-            }
-            metrics.add(metric);
-        }
-        cleaningMetricsCollector = false;
         doReportMetrics(metrics);
     }
 
@@ -238,22 +234,25 @@ public class MetricsCollector {
 
 
     private static void reportMetricsLog() {
-        if (metricsLogCollector.size() == 0) {
+        List<MetricLog> metricLogs = drainMetricsLogs();
+        if (metricLogs.isEmpty()) {
             return;
         }
-        List<MetricLog> metricLogs = new ArrayList<>();
-        cleaningMetricsLogCollector = true;
-        while (true) {
-            MetricLog metricLog = metricsLogCollector.poll();
-            if (Objects.isNull(metricLog)) {
-                break;
-            }
-            metricLogs.add(metricLog);
-        }
-        cleaningMetricsLogCollector = false;
         doReportMetricsLogs(metricLogs);
     }
 
+    // Swap the log buffer and collect the logs emitted since last drain, the emitters
+    // are never blocked. It's only called by the report thread(and the benchmark).
+    static List<MetricLog> drainMetricsLogs() {
+        MetricsLogBuffer buffer = metricsLogCollector.getAndSet(new MetricsLogBuffer());
+        List<MetricLog> metricLogs = new ArrayList<>();
+        // logs appended to the retired buffer after last report are reported this time
+        retiredMetricsLogBuffer.drainTo(metricLogs);
+        buffer.drainTo(metricLogs);
+        retiredMetricsLogBuffer = buffer;
+        return metricLogs;
+    }
+
     private static void doReportMetricsLogs(List<MetricLog> metricsLogs) {
         String url = String.format(METRICS_LOG_URL_FORMAT, metricsCfg.getHttpSchema(), getDomain());
         MetricLogMessage metricLogMessage = MetricLogMessage.
@@ -267,6 +266,31 @@ public class MetricsCollector {
         }
     }
 
+    private static class MetricsLogBuffer {
+        private final Queue<MetricLog> logs = new ConcurrentLinkedQueue<>();
+
+        // ConcurrentLinkedQueue.size() traverses the whole queue, so count the logs separately
+        private final AtomicInteger size = new AtomicInteger();
+
+        boolean tryReserve() {
+            if (size.incrementAndGet() > MAX_METRICS_LOG_SIZE) {
+                size.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        void drainTo(List<MetricLog> metricLogs) {
+            while (true) {
+                MetricLog metricLog = logs.poll();
+                if (Objects.isNull(metricLog)) {
+                    break;
+                }
+                metricLogs.add(metricLog);
+            }
+        }
+    }
+
     @Getter
     @Setter
     @Builder(toBuilder = true)
@@ -282,10 +306,16 @@ public class MetricsCollector {
         private String prefix;
         // Use this httpSchema to report metrics to byteplus server, default is https.
         private String httpSchema;
-        // The reporting interval, the default is 15s, if the QPS is high, the reporting interval can be reduced to prevent data loss.
+        // The reporting interval, the default is 15s, metrics are aggregated in each interval before reporting.
         private Duration reportInterval;
         // Timeout for request reporting.
         private Duration httpTimeout;
+        // Expose the metrics to other monitoring systems, e.g. OpenMetricsExporter for prometheus.
+        private List<MetricsExporter> exporters;
+        // Report one timer metric per value, at most MAX_METRICS_SIZE values in each interval,
+        // the default is false, which reports the timers as the aggregated `.count`, `.avg`,
+        // `.p50`, `.p90`, `.p99` and `.max` series of each interval.
+        private boolean rawTimers;
 
         // build default metricsCfg
         public MetricsCfg() {
@@ -0,0 +1,17 @@
+package byteplus.sdk.core.metrics;
+
+import java.io.IOException;
+
+// Expose the metrics collected by sdk to other monitoring systems, e.g. prometheus.
+// Exporters are registered through MetricsCfg/MetricsOption.withExporter or
+// MetricsCollector.addExporter, and work no matter the metrics are reported
+// to byteplus server or not.
+public interface MetricsExporter {
+    // Called once when the exporter is registered, the exporter can read the
+    // current metrics from source at any time, e.g. when it is scraped.
+    void start(MetricsSource source) throws IOException;
+
+    // Called when the exporter is removed from MetricsCollector,
+    // the resources held by exporter should be released.
+    void close();
+}
@@ -1,38 +1,83 @@
 package byteplus.sdk.core.metrics;
 
+import java.util.function.Supplier;
+
+// The message is only formatted when metrics log is enabled.
+// On hot paths prefer the Supplier versions, the message (and the arguments)
+// won't be built at all when metrics log is disabled.
 public class MetricsLog {
+    public static boolean isEnabled() {
+        return MetricsCollector.isEnableMetricsLog();
+    }
+
     public static void trace(String logID, String format, Object... args) {
-        String message = String.format(format, args);
-        MetricsCollector.emitLog(logID, message, Constant.LOG_LEVEL_TRACE, System.currentTimeMillis());
+        emit(logID, Constant.LOG_LEVEL_TRACE, format, args);
+    }
+
+    public static void trace(String logID, Supplier<String> message) {
+        emit(logID, Constant.LOG_LEVEL_TRACE, message);
     }
 
     public static void debug(String logID, String format, Object... args) {
-        String message = String.format(format, args);
-        MetricsCollector.emitLog(logID, message, Constant.LOG_LEVEL_DEBUG, System.currentTimeMillis());
+        emit(logID, Constant.LOG_LEVEL_DEBUG, format, args);
+    }
+
+    public static void debug(String logID, Supplier<String> message) {
+        emit(logID, Constant.LOG_LEVEL_DEBUG, message);
     }
 
     public static void info(String logID, String format, Object... args) {
-        String message = String.format(format, args);
-        MetricsCollector.emitLog(logID, message, Constant.LOG_LEVEL_INFO, System.currentTimeMillis());
+        emit(logID, Constant.LOG_LEVEL_INFO, format, args);
+    }
+
+    public static void info(String logID, Supplier<String> message) {
+        emit(logID, Constant.LOG_LEVEL_INFO, message);
     }
 
     public static void notice(String logID, String format, Object... args) {
-        String message = String.format(format, args);
-        MetricsCollector.emitLog(logID, message, Constant.LOG_LEVEL_NOTICE, System.currentTimeMillis());
+        emit(logID, Constant.LOG_LEVEL_NOTICE, format, args);
+    }
+
+    public static void notice(String logID, Supplier<String> message) {
+        emit(logID, Constant.LOG_LEVEL_NOTICE, message);
     }
 
     public static void warn(String logID, String format, Object... args) {
-        String message = String.format(format, args);
-        MetricsCollector.emitLog(logID, message, Constant.LOG_LEVEL_WARN, System.currentTimeMillis());
+        emit(logID, Constant.LOG_LEVEL_WARN, format, args);
+    }
+
+    public static void warn(String logID, Supplier<String> message) {
+        emit(logID, Constant.LOG_LEVEL_WARN, message);
     }
 
     public static void error(String logID, String format, Object... args) {
-        String message = String.format(format, args);
-        MetricsCollector.emitLog(logID, message, Constant.LOG_LEVEL_ERROR, System.currentTimeMillis());
+        emit(logID, Constant.LOG_LEVEL_ERROR, format, args);
+    }
+
+    public static void error(String logID, Supplier<String> message) {
+        emit(logID, Constant.LOG_LEVEL_ERROR, message);
     }
 
     public static void fatal(String logID, String format, Object... args) {
+        emit(logID, Constant.LOG_LEVEL_FATAL, format, args);
+    }
+
+    public static void fatal(String logID, Supplier<String> message) {
+        emit(logID, Constant.LOG_LEVEL_FATAL, message);
+    }
+
+    private static void emit(String logID, String logLevel, String format, Object... args) {
+        if (!isEnabled()) {
+            return;
+        }
         String message = String.format(format, args);
-        MetricsCollector.emitLog(logID, message, Constant.LOG_LEVEL_FATAL, System.currentTimeMillis());
+        MetricsCollector.emitLog(logID, message, logLevel, System.currentTimeMillis());
+    }
+
+    private static void emit(String logID, String logLevel, Supplier<String> message) {
+        if (!isEnabled()) {
+            return;
+        }
+        MetricsCollector.emitLog(logID, message.get(), logLevel, System.currentTimeMillis());
     }
 }
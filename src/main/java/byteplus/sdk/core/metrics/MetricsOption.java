@@ -1,6 +1,7 @@
 package byteplus.sdk.core.metrics;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Objects;
 
 public interface MetricsOption {
@@ -51,9 +52,30 @@ public interface MetricsOption {
         };
     }
 
+    // report one timer metric per value instead of the `.count`, `.avg`, `.p50`, `.p90`, `.p99`
+    // and `.max` series of each interval, only use it when the dashboards expect the values.
+    static MetricsOption withRawTimers() {
+        return options -> {
+            options.setRawTimers(true);
+        };
+    }
+
     static MetricsOption withMetricsTimeout(Duration timeout) {
         return options -> {
             options.setHttpTimeout(timeout);
         };
     }
+
+    // expose the metrics by the exporter, can be used multiple times
+    static MetricsOption withExporter(MetricsExporter exporter) {
+        return options -> {
+            if (Objects.isNull(exporter)) {
+                return;
+            }
+            if (Objects.isNull(options.getExporters())) {
+                options.setExporters(new ArrayList<>());
+            }
+            options.getExporters().add(exporter);
+        };
+    }
 }
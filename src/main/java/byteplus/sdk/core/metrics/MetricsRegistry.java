@@ -0,0 +1,605 @@
+package byteplus.sdk.core.metrics;
+
+import byteplus.sdk.core.metrics.protocol.SdkMetrics.Metric;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static byteplus.sdk.core.metrics.Constant.*;
+
+// Pre-aggregate the metrics in process, instead of keeping one Metric for each emit.
+// Metrics are aggregated into series keyed by (type, name, tags), and each series is
+// flushed as one aggregated Metric per report interval:
+//  - counter, rate_counter and meter report the sum of values in the interval
+//  - store reports the last value set in the interval
+//  - timer keeps a lock-free histogram, and reports `name.count`, `name.avg`, `name.p50`,
+//    `name.p90`, `name.p99` and `name.max` of the interval.
+//    If `rawTimers` is set, it reports one timer metric for each recorded value instead,
+//    at most `maxSeriesCount` values are kept between two flushes, the values beyond
+//    the limit are folded into the aggregated series of the timer rather than dropped.
+// Recording is lock-free, and no aggregated metric is dropped when report is slow.
+// The series which are not recorded in `MAX_IDLE_FLUSHES` flushes are evicted, so the
+// series of old tags(e.g. a host no longer used) don't occupy the limit forever,
+// the cumulative values of an evicted series start from zero if it's recorded again.
+// An evicted series is marked, so the writers which still hold it register a new one.
+// The cumulative values of the series are kept at the same time for the exporters.
+@Slf4j
+final class MetricsRegistry {
+    private final static int MAX_IDLE_FLUSHES = 3;
+
+    private final String prefix;
+
+    private final int maxSeriesCount;
+
+    private final boolean rawTimers;
+
+    // values of the timers kept for next flush, only used by raw timers
+    private final AtomicInteger pendingTimerValues = new AtomicInteger();
+
+    // the series evicted by last flush, the values recorded into them by the writers
+    // which got them before eviction are reported by next flush, a series is kept
+    // here until no writer is recording into it
+    private List<Series> evictedSeries = Collections.emptyList();
+
+    // Lookup with the tags in the order given by caller, it's the fast path
+    private final Map<SeriesKey, Series> seriesMap = new ConcurrentHashMap<>();
+
+    // Lookup with the sorted tags, so the same tags in different order share one series
+    private final Map<String, Series> canonicalSeriesMap = new ConcurrentHashMap<>();
+
+    MetricsRegistry(String prefix, int maxSeriesCount, boolean rawTimers) {
+        this.prefix = prefix;
+        this.maxSeriesCount = maxSeriesCount;
+        this.rawTimers = rawTimers;
+    }
+
+    void record(String type, String name, long value, String... tagKvs) {
+        SeriesKey key = new SeriesKey(type, name, tagKvs);
+        Series series = seriesMap.get(key);
+        while (true) {
+            if (Objects.isNull(series) || series.evicted) {
+                series = registerSeries(key);
+                if (Objects.isNull(series)) {
+                    return;
+                }
+            }
+            if (series.tryRecord(value)) {
+                return;
+            }
+        }
+    }
+
+    private Series registerSeries(SeriesKey key) {
+        Map<String, String> tags = new TreeMap<>(MetricsCollector.recoverTags(key.tagKvs));
+        String canonicalKey = key.type + "|" + key.name + "|" + tags;
+        String metricName = prefix.length() > 0 ? prefix + "." + key.name : key.name;
+        while (true) {
+            Series series = canonicalSeriesMap.get(canonicalKey);
+            if (Objects.nonNull(series) && series.evicted) {
+                canonicalSeriesMap.remove(canonicalKey, series);
+                continue;
+            }
+            if (Objects.isNull(series)) {
+                if (canonicalSeriesMap.size() >= maxSeriesCount) {
+                    log.debug("[MetricsCollector]: The number of metrics series exceeds the limit, " +
+                            "the metrics write is rejected");
+                    return null;
+                }
+                series = canonicalSeriesMap.computeIfAbsent(canonicalKey,
+                        k -> newSeries(key.type, metricName, Collections.unmodifiableMap(tags)));
+            }
+            Series canonical = series;
+            Series registered = seriesMap.compute(key,
+                    (k, old) -> Objects.isNull(old) || old.evicted ? canonical : old);
+            // the series may be evicted by a concurrent flush after it's got, register again
+            if (!registered.evicted) {
+                return registered;
+            }
+        }
+    }
+
+    private Series newSeries(String type, String name, Map<String, String> tags) {
+        switch (type) {
+            case METRICS_TYPE_STORE:
+                return new StoreSeries(type, name, tags);
+            case METRICS_TYPE_TIMER:
+                if (rawTimers) {
+                    return new RawTimerSeries(type, name, tags, pendingTimerValues, maxSeriesCount);
+                }
+                return new TimerSeries(type, name, tags);
+            default:
+                // counter, rate_counter and meter are all aggregated by sum
+                return new SumSeries(type, name, tags);
+        }
+    }
+
+    // Collect the aggregated metrics since last flush, and evict the idle series.
+    // It's only called by the report thread.
+    List<Metric> flush() {
+        long timestamp = System.currentTimeMillis();
+        List<Metric> metrics = new ArrayList<>(canonicalSeriesMap.size());
+        List<Series> writingSeries = new ArrayList<>();
+        for (Series series : evictedSeries) {
+            // checked before flush, the writers which start later find the series evicted
+            boolean writing = series.writers.get() > 0;
+            series.flush(timestamp, metrics);
+            if (writing) {
+                writingSeries.add(series);
+            }
+        }
+        List<Series> idleSeries = new ArrayList<>();
+        for (Series series : canonicalSeriesMap.values()) {
+            if (series.flush(timestamp, metrics)) {
+                series.idleFlushes = 0;
+            } else if (++series.idleFlushes >= MAX_IDLE_FLUSHES) {
+                idleSeries.add(series);
+            }
+        }
+        if (!idleSeries.isEmpty()) {
+            evict(idleSeries);
+        }
+        idleSeries.addAll(writingSeries);
+        evictedSeries = idleSeries;
+        return metrics;
+    }
+
+    private void evict(List<Series> idleSeries) {
+        Set<Series> evicting = Collections.newSetFromMap(new IdentityHashMap<>());
+        evicting.addAll(idleSeries);
+        // marked before removed, so a writer registering it concurrently sees it's evicted
+        idleSeries.forEach(series -> series.evicted = true);
+        canonicalSeriesMap.values().removeIf(evicting::contains);
+        seriesMap.values().removeIf(evicting::contains);
+        log.debug("[MetricsCollector]: evict {} idle metrics series", idleSeries.size());
+    }
+
+    // Collect the cumulative values of all series, it's independent of flush
+    List<MetricsSnapshot> snapshot() {
+        List<MetricsSnapshot> snapshots = new ArrayList<>(canonicalSeriesMap.size());
+        for (Series series : canonicalSeriesMap.values()) {
+            snapshots.add(series.snapshot());
+        }
+        return snapshots;
+    }
+
+    private static final class SeriesKey {
+        private final String type;
+
+        private final String name;
+
+        private final String[] tagKvs;
+
+        private final int hash;
+
+        private SeriesKey(String type, String name, String[] tagKvs) {
+            this.type = type;
+            this.name = name;
+            this.tagKvs = tagKvs;
+            this.hash = 31 * (31 * type.hashCode() + name.hashCode()) + Arrays.hashCode(tagKvs);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SeriesKey)) {
+                return false;
+            }
+            SeriesKey other = (SeriesKey) o;
+            return hash == other.hash && type.equals(other.type) &&
+                    name.equals(other.name) && Arrays.equals(tagKvs, other.tagKvs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    abstract static class Series {
+        final String type;
+
+        // name with the prefix of metrics config
+        final String name;
+
+        final Map<String, String> tags;
+
+        // the number of consecutive flushes which find nothing recorded, only accessed by flush
+        int idleFlushes;
+
+        // set when the series is evicted, the writers register a new series then
+        volatile boolean evicted;
+
+        // the number of writers recording into the series
+        final AtomicInteger writers = new AtomicInteger();
+
+        Series(String type, String name, Map<String, String> tags) {
+            this.type = type;
+            this.name = name;
+            this.tags = tags;
+        }
+
+        abstract void record(long value);
+
+        // Record the value unless the series is evicted, return false if it's evicted
+        boolean tryRecord(long value) {
+            writers.incrementAndGet();
+            try {
+                if (evicted) {
+                    return false;
+                }
+                record(value);
+                return true;
+            } finally {
+                writers.decrementAndGet();
+            }
+        }
+
+        // Add the metrics recorded since last flush to out, return false if nothing is recorded
+        abstract boolean flush(long timestamp, List<Metric> out);
+
+        abstract MetricsSnapshot snapshot();
+
+        Metric buildMetric(String type, String name, double value, long timestamp) {
+            return Metric.newBuilder()
+                    .setType(type)
+                    .setName(name)
+                    .setValue(value)
+                    .setTimestamp(timestamp)
+                    .putAllTags(tags)
+                    .build();
+        }
+
+        // Report the histogram of the interval as `.count`, `.avg`, `.p50`, `.p90`, `.p99` and `.max`
+        void addHistogramMetrics(Histogram.Snapshot snapshot, long timestamp, List<Metric> out) {
+            out.add(buildMetric(METRICS_TYPE_COUNTER, name + ".count", snapshot.count(), timestamp));
+            out.add(buildMetric(METRICS_TYPE_STORE, name + ".avg", snapshot.mean(), timestamp));
+            out.add(buildMetric(METRICS_TYPE_STORE, name + ".p50", snapshot.percentile(0.5), timestamp));
+            out.add(buildMetric(METRICS_TYPE_STORE, name + ".p90", snapshot.percentile(0.9), timestamp));
+            out.add(buildMetric(METRICS_TYPE_STORE, name + ".p99", snapshot.percentile(0.99), timestamp));
+            out.add(buildMetric(METRICS_TYPE_STORE, name + ".max", snapshot.max(), timestamp));
+        }
+    }
+
+    static final class SumSeries extends Series {
+        private final LongAdder total = new LongAdder();
+
+        private final LongAdder updates = new LongAdder();
+
+        // only accessed by flush thread
+        private long reportedTotal;
+
+        private long reportedUpdates;
+
+        SumSeries(String type, String name, Map<String, String> tags) {
+            super(type, name, tags);
+        }
+
+        @Override
+        void record(long value) {
+            total.add(value);
+            updates.increment();
+        }
+
+        @Override
+        boolean flush(long timestamp, List<Metric> out) {
+            // the adders are never reset, report the delta since last flush,
+            // so the values recorded concurrently with flush are not lost
+            long currentUpdates = updates.sum();
+            if (currentUpdates == reportedUpdates) {
+                return false;
+            }
+            long currentTotal = total.sum();
+            out.add(buildMetric(type, name, currentTotal - reportedTotal, timestamp));
+            reportedTotal = currentTotal;
+            reportedUpdates = currentUpdates;
+            return true;
+        }
+
+        @Override
+        MetricsSnapshot snapshot() {
+            return new MetricsSnapshot(type, name, tags, total.sum(), null, null, updates.sum());
+        }
+    }
+
+    static final class StoreSeries extends Series {
+        private final AtomicLong value = new AtomicLong();
+
+        private final AtomicBoolean updated = new AtomicBoolean();
+
+        StoreSeries(String type, String name, Map<String, String> tags) {
+            super(type, name, tags);
+        }
+
+        @Override
+        void record(long value) {
+            this.value.set(value);
+            updated.set(true);
+        }
+
+        @Override
+        boolean flush(long timestamp, List<Metric> out) {
+            if (!updated.getAndSet(false)) {
+                return false;
+            }
+            out.add(buildMetric(type, name, value.get(), timestamp));
+            return true;
+        }
+
+        @Override
+        MetricsSnapshot snapshot() {
+            return new MetricsSnapshot(type, name, tags, value.get(), null, null, 0);
+        }
+    }
+
+    static final class TimerSeries extends Series {
+        // histogram of the current report interval, reset when flushing
+        private final Histogram intervalHistogram = new Histogram();
+
+        // histogram since the series is created, for the exporters
+        private final CumulativeHistogram cumulativeHistogram = new CumulativeHistogram();
+
+        TimerSeries(String type, String name, Map<String, String> tags) {
+            super(type, name, tags);
+        }
+
+        @Override
+        void record(long value) {
+            intervalHistogram.record(value);
+            cumulativeHistogram.record(value);
+        }
+
+        @Override
+        MetricsSnapshot snapshot() {
+            return cumulativeHistogram.snapshot(type, name, tags);
+        }
+
+        @Override
+        boolean flush(long timestamp, List<Metric> out) {
+            Histogram.Snapshot snapshot = intervalHistogram.snapshotAndReset();
+            if (snapshot.count() == 0) {
+                return false;
+            }
+            addHistogramMetrics(snapshot, timestamp, out);
+            return true;
+        }
+    }
+
+    // Report each recorded value as a timer metric with the time it's recorded, the values
+    // beyond the limit are reported as the aggregated series of the interval
+    static final class RawTimerSeries extends Series {
+        private final Queue<long[]> values = new ConcurrentLinkedQueue<>();
+
+        // the values which exceed the limit in current interval
+        private final Histogram overflowHistogram = new Histogram();
+
+        // shared by all the timers, limit the values kept between two flushes
+        private final AtomicInteger pendingValues;
+
+        private final int maxPendingValues;
+
+        private final CumulativeHistogram cumulativeHistogram = new CumulativeHistogram();
+
+        RawTimerSeries(String type, String name, Map<String, String> tags,
+                       AtomicInteger pendingValues, int maxPendingValues) {
+            super(type, name, tags);
+            this.pendingValues = pendingValues;
+            this.maxPendingValues = maxPendingValues;
+        }
+
+        @Override
+        void record(long value) {
+            cumulativeHistogram.record(value);
+            if (pendingValues.incrementAndGet() > maxPendingValues) {
+                pendingValues.decrementAndGet();
+                overflowHistogram.record(value);
+                return;
+            }
+            values.add(new long[]{value, System.currentTimeMillis()});
+        }
+
+        @Override
+        MetricsSnapshot snapshot() {
+            return cumulativeHistogram.snapshot(type, name, tags);
+        }
+
+        @Override
+        boolean flush(long timestamp, List<Metric> out) {
+            boolean recorded = false;
+            while (true) {
+                long[] value = values.poll();
+                if (Objects.isNull(value)) {
+                    break;
+                }
+                pendingValues.decrementAndGet();
+                out.add(buildMetric(type, name, value[0], value[1]));
+                recorded = true;
+            }
+            Histogram.Snapshot overflow = overflowHistogram.snapshotAndReset();
+            if (overflow.count() == 0) {
+                return recorded;
+            }
+            log.warn("[MetricsCollector]: {} values of timer {} exceed the limit of timer values, " +
+                    "they are reported as the aggregated series", overflow.count(), name);
+            addHistogramMetrics(overflow, timestamp, out);
+            return true;
+        }
+    }
+
+    // A lock-free histogram with fixed bucket bounds, which is never reset,
+    // the bounds are suitable for the latency of requests in milliseconds.
+    static final class CumulativeHistogram {
+        private final static long[] BUCKET_BOUNDS =
+                {1, 2, 5, 10, 20, 50, 100, 200, 300, 500, 800, 1000, 2000, 5000, 10000};
+
+        // the last bucket is for the values larger than all the bounds
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+
+        private final LongAdder sum = new LongAdder();
+
+        CumulativeHistogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long value) {
+            int index = 0;
+            while (index < BUCKET_BOUNDS.length && value > BUCKET_BOUNDS[index]) {
+                index++;
+            }
+            buckets[index].increment();
+            sum.add(value);
+        }
+
+        MetricsSnapshot snapshot(String type, String name, Map<String, String> tags) {
+            long[] bucketCounts = new long[BUCKET_BOUNDS.length];
+            long count = 0;
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                count += buckets[i].sum();
+                bucketCounts[i] = count;
+            }
+            count += buckets[BUCKET_BOUNDS.length].sum();
+            return new MetricsSnapshot(type, name, tags, sum.sum(),
+                    BUCKET_BOUNDS.clone(), bucketCounts, count);
+        }
+    }
+
+    // A lock-free log-linear histogram of non-negative long values.
+    // Values less than 16 have their own bucket, larger values are put into
+    // 16 sub-buckets for each power of two, so the relative error is less than 6.25%.
+    static final class Histogram {
+        private final static int SUB_BUCKET_BITS = 4;
+
+        private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+        // values larger than 2^36(about 19 hours in milliseconds) are put into the last bucket
+        private final static int MAX_EXPONENT = 36;
+
+        private final static long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+        final static int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+        private final LongAdder sum = new LongAdder();
+
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(bucketIndex(value));
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        // Move the recorded values out of the histogram,
+        // each bucket is swapped atomically, so no value is lost
+        Snapshot snapshotAndReset() {
+            long[] counts = new long[BUCKET_COUNT];
+            long count = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long bucketCount = buckets.get(i);
+                if (bucketCount != 0) {
+                    bucketCount = buckets.getAndAdd(i, -bucketCount);
+                }
+                counts[i] = bucketCount;
+                count += bucketCount;
+            }
+            return new Snapshot(counts, count, sum.sumThenReset(), max.getThenReset());
+        }
+
+        static int bucketIndex(long value) {
+            if (value < SUB_BUCKET_COUNT) {
+                return (int) value;
+            }
+            value = Math.min(value, MAX_VALUE);
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+        }
+
+        // The largest value which is put into the bucket
+        static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKET_COUNT) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+            long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+            return ((subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+
+        static final class Snapshot {
+            private final long[] counts;
+
+            private final long count;
+
+            private final long sum;
+
+            private final long max;
+
+            private Snapshot(long[] counts, long count, long sum, long max) {
+                this.counts = counts;
+                this.count = count;
+                this.sum = sum;
+                this.max = max;
+            }
+
+            long count() {
+                return count;
+            }
+
+            long sum() {
+                return sum;
+            }
+
+            long max() {
+                return max;
+            }
+
+            long[] counts() {
+                return counts;
+            }
+
+            double mean() {
+                return count == 0 ? 0 : (double) sum / count;
+            }
+
+            long percentile(double percentile) {
+                if (count == 0) {
+                    return 0;
+                }
+                long rank = (long) Math.ceil(percentile * count);
+                long seen = 0;
+                for (int i = 0; i < counts.length; i++) {
+                    seen += counts[i];
+                    if (seen >= rank) {
+                        // never exceed the real max value
+                        return Math.min(bucketUpperBound(i), max);
+                    }
+                }
+                return max;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package byteplus.sdk.core.metrics;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+// The cumulative values of one metrics series
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class MetricsSnapshot {
+    // counter, store, timer, rate_counter or meter, see Constant.METRICS_TYPE_XXX
+    private final String type;
+
+    // name with the prefix of MetricsCfg
+    private final String name;
+
+    private final Map<String, String> tags;
+
+    // total of counter, rate_counter and meter, last value of store,
+    // sum of the recorded values of timer
+    private final long value;
+
+    // Only for timer, null for other types, the bounds are milliseconds.
+    // bucketCounts[i] is the count of the values less than or equal to bucketBounds[i].
+    private final long[] bucketBounds;
+
+    private final long[] bucketCounts;
+
+    // the number of recorded values, it's not tracked for store
+    private final long count;
+}
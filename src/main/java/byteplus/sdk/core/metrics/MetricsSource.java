@@ -0,0 +1,9 @@
+package byteplus.sdk.core.metrics;
+
+import java.util.List;
+
+public interface MetricsSource {
+    // Return the snapshot of all metrics series, the values are cumulative since
+    // the series is created, and are not affected by reporting to byteplus server.
+    List<MetricsSnapshot> collect();
+}
@@ -0,0 +1,248 @@
+package byteplus.sdk.core.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import static byteplus.sdk.core.metrics.Constant.*;
+
+// Expose the sdk metrics in OpenMetrics text format, which can be scraped by prometheus.
+//  - counter, rate_counter and meter are exposed as counter `name_total`
+//  - store is exposed as gauge
+//  - timer is exposed as histogram `name_seconds`, e.g. request.cost and request.total.cost
+// Names and tag keys are converted to valid OpenMetrics names, e.g. '.' is replaced with '_'.
+//
+// The metrics can be written into any Writer by `write`, or served over http
+// at "/metrics" when the exporter is created with a port or address.
+// The http server is stopped by MetricsCollector.removeExporter.
+@Slf4j
+public class OpenMetricsExporter implements MetricsExporter {
+    public final static String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private final static String METRICS_PATH = "/metrics";
+
+    private final static double MILLIS_PER_SECOND = 1000.0;
+
+    // null if not serve over http
+    private final InetSocketAddress address;
+
+    private volatile MetricsSource source;
+
+    private HttpServer server;
+
+    // Only expose the metrics by `write`
+    public OpenMetricsExporter() {
+        this(null);
+    }
+
+    // Serve the metrics at http://0.0.0.0:{port}/metrics
+    public OpenMetricsExporter(int port) {
+        this(new InetSocketAddress(port));
+    }
+
+    public OpenMetricsExporter(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    @Override
+    public synchronized void start(MetricsSource source) throws IOException {
+        this.source = source;
+        if (Objects.isNull(address) || Objects.nonNull(server)) {
+            return;
+        }
+        server = HttpServer.create(address, 0);
+        server.createContext(METRICS_PATH, this::handleScrape);
+        server.start();
+        log.info("[ByteplusSDK] serve OpenMetrics at {}{}", server.getAddress(), METRICS_PATH);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (Objects.isNull(server)) {
+            return;
+        }
+        server.stop(0);
+        server = null;
+    }
+
+    // The port listened by the http server, -1 if the server is not started.
+    public synchronized int getPort() {
+        if (Objects.isNull(server)) {
+            return -1;
+        }
+        return server.getAddress().getPort();
+    }
+
+    private void handleScrape(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringWriter writer = new StringWriter();
+            write(writer);
+            byte[] body = writer.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (Throwable e) {
+            log.error("[ByteplusSDK] serve OpenMetrics find err, {}", e.getMessage());
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Write the current metrics in OpenMetrics text format, ends with "# EOF".
+    public void write(Writer writer) throws IOException {
+        Map<String, List<MetricsSnapshot>> families = new TreeMap<>();
+        if (Objects.nonNull(source)) {
+            for (MetricsSnapshot snapshot : source.collect()) {
+                families.computeIfAbsent(familyName(snapshot), k -> new ArrayList<>()).add(snapshot);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, List<MetricsSnapshot>> family : families.entrySet()) {
+            writeFamily(sb, family.getKey(), family.getValue());
+        }
+        sb.append("# EOF\n");
+        writer.write(sb.toString());
+        writer.flush();
+    }
+
+    private void writeFamily(StringBuilder sb, String familyName, List<MetricsSnapshot> snapshots) {
+        String metricsType = snapshots.get(0).getType();
+        String openMetricsType = openMetricsType(metricsType);
+        sb.append("# TYPE ").append(familyName).append(' ').append(openMetricsType).append('\n');
+        if (METRICS_TYPE_TIMER.equals(metricsType)) {
+            sb.append("# UNIT ").append(familyName).append(" seconds\n");
+        }
+        for (MetricsSnapshot snapshot : snapshots) {
+            // the names of different types may be the same after converting
+            if (!openMetricsType.equals(openMetricsType(snapshot.getType()))) {
+                log.debug("[ByteplusSDK] OpenMetrics family '{}' has different types, skip the '{}' series",
+                        familyName, snapshot.getType());
+                continue;
+            }
+            switch (openMetricsType) {
+                case "counter":
+                    writeSample(sb, familyName + "_total", snapshot.getTags(), null,
+                            Long.toString(snapshot.getValue()));
+                    break;
+                case "gauge":
+                    writeSample(sb, familyName, snapshot.getTags(), null,
+                            Long.toString(snapshot.getValue()));
+                    break;
+                default:
+                    writeHistogram(sb, familyName, snapshot);
+            }
+        }
+    }
+
+    private void writeHistogram(StringBuilder sb, String familyName, MetricsSnapshot snapshot) {
+        long[] bucketBounds = snapshot.getBucketBounds();
+        long[] bucketCounts = snapshot.getBucketCounts();
+        for (int i = 0; i < bucketBounds.length; i++) {
+            writeSample(sb, familyName + "_bucket", snapshot.getTags(),
+                    Double.toString(bucketBounds[i] / MILLIS_PER_SECOND), Long.toString(bucketCounts[i]));
+        }
+        String count = Long.toString(snapshot.getCount());
+        writeSample(sb, familyName + "_bucket", snapshot.getTags(), "+Inf", count);
+        writeSample(sb, familyName + "_count", snapshot.getTags(), null, count);
+        writeSample(sb, familyName + "_sum", snapshot.getTags(), null,
+                Double.toString(snapshot.getValue() / MILLIS_PER_SECOND));
+    }
+
+    private void writeSample(StringBuilder sb, String name, Map<String, String> tags, String le, String value) {
+        sb.append(name);
+        if (!tags.isEmpty() || Objects.nonNull(le)) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                sb.append(sanitizeName(tag.getKey(), false)).append("=\"");
+                appendEscapedLabelValue(sb, tag.getValue());
+                sb.append('"');
+            }
+            if (Objects.nonNull(le)) {
+                if (!first) {
+                    sb.append(',');
+                }
+                sb.append("le=\"").append(le).append('"');
+            }
+            sb.append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static String familyName(MetricsSnapshot snapshot) {
+        String name = sanitizeName(snapshot.getName(), true);
+        if (METRICS_TYPE_TIMER.equals(snapshot.getType())) {
+            return name + "_seconds";
+        }
+        return name;
+    }
+
+    private static String openMetricsType(String metricsType) {
+        switch (metricsType) {
+            case METRICS_TYPE_STORE:
+                return "gauge";
+            case METRICS_TYPE_TIMER:
+                return "histogram";
+            default:
+                return "counter";
+        }
+    }
+
+    // Metric names match [a-zA-Z_:][a-zA-Z0-9_:]*, label names match [a-zA-Z_][a-zA-Z0-9_]*
+    private static String sanitizeName(String name, boolean allowColon) {
+        StringBuilder sb = new StringBuilder(name.length() + 1);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' ||
+                    (allowColon && c == ':') || (i > 0 && c >= '0' && c <= '9');
+            if (i == 0 && c >= '0' && c <= '9') {
+                sb.append('_');
+                valid = true;
+            }
+            sb.append(valid ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    private static void appendEscapedLabelValue(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+}
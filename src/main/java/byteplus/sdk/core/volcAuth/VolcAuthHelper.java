@@ -4,26 +4,51 @@ import byteplus.sdk.core.Helper;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 public class VolcAuthHelper {
+    // MessageDigest and Mac are not thread safe, and getInstance is expensive,
+    // so each thread keeps its own instances
+    private static final ThreadLocal<MessageDigest> SHA256_DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    });
 
-    static String hashSHA256(byte[] content) throws Exception {
+    private static final ThreadLocal<Mac> HMAC_SHA256 = ThreadLocal.withInitial(() -> {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            return Helper.bytes2Hex(md.digest(content));
-        } catch (Exception e) {
-            throw new Exception(
-                    "Unable to compute hash while signing request: "
-                            + e.getMessage(), e);
+            return Mac.getInstance("HmacSHA256");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
         }
+    });
+
+    static String hashSHA256(byte[] content) throws Exception {
+        MessageDigest md = SHA256_DIGEST.get();
+        if (md == null) {
+            throw new Exception("Unable to compute hash while signing request: SHA-256 not supported");
+        }
+        md.reset();
+        return Helper.bytes2Hex(md.digest(content));
     }
 
     static byte[] hmacSHA256(byte[] key, String content) throws Exception {
+        return hmacSHA256(new SecretKeySpec(key, "HmacSHA256"), content);
+    }
+
+    static byte[] hmacSHA256(Key key, String content) throws Exception {
+        Mac mac = HMAC_SHA256.get();
+        if (mac == null) {
+            throw new Exception("Unable to calculate a request signature: HmacSHA256 not supported");
+        }
         try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(new SecretKeySpec(key, "HmacSHA256"));
-            return mac.doFinal(content.getBytes());
+            mac.init(key);
+            return mac.doFinal(content.getBytes(StandardCharsets.UTF_8));
         } catch (Exception e) {
             throw new Exception(
                     "Unable to calculate a request signature: "
@@ -0,0 +1,179 @@
+package byteplus.sdk.core.volcAuth;
+
+import byteplus.sdk.core.Helper;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+// Sign requests for one Credential.
+// The signing key derived from secret key only changes once a day,
+// so it's cached instead of being derived through four hmac for each request.
+public class VolcSigner {
+    private static final String ALGORITHM = "HMAC-SHA256";
+
+    private static final DateTimeFormatter TIME_FORMATTER_V4 =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private static final Set<String> H_INCLUDE = new HashSet<>();
+
+    static {
+        H_INCLUDE.add("Content-Type");
+        H_INCLUDE.add("Content-Md5");
+        H_INCLUDE.add("Host");
+    }
+
+    private final Credential credential;
+
+    private volatile SigningKey signingKey;
+
+    public VolcSigner(Credential credential) {
+        this.credential = credential;
+    }
+
+    public Headers sign(Request request, byte[] reqBytes) throws Exception {
+        return signWithBodyHash(request, VolcAuthHelper.hashSHA256(reqBytes));
+    }
+
+    // bodyHash is the hex encoded SHA-256 of request body
+    public Headers signWithBodyHash(Request request, String bodyHash) throws Exception {
+        Headers.Builder headerBuilder = request.headers().newBuilder();
+
+        String formatDate = TIME_FORMATTER_V4.format(Instant.now());
+        headerBuilder.set("X-Date", formatDate);
+        // step 1 hash request body
+        headerBuilder.set("X-Content-Sha256", bodyHash);
+
+        // step 2 generate signature
+        SigningKey key = getSigningKey(formatDate.substring(0, 8));
+        List<String> signedHeaders = signedHeaders(request);
+        String signedHeadersStr = String.join(";", signedHeaders);
+        String stringToSign = ALGORITHM + '\n' +
+                formatDate + '\n' +
+                key.credentialScope + '\n' +
+                hashCanonicalRequest(request, bodyHash, signedHeaders, signedHeadersStr);
+
+        // step 3 hash signature
+        String signature = Helper.bytes2Hex(VolcAuthHelper.hmacSHA256(key.keySpec, stringToSign));
+        String authorization = ALGORITHM + " Credential=" + credential.getAccessKeyID() + "/" + key.credentialScope +
+                ", SignedHeaders=" + signedHeadersStr + ", Signature=" + signature;
+        headerBuilder.set("Authorization", authorization);
+        return headerBuilder.build();
+    }
+
+    private SigningKey getSigningKey(String date) throws Exception {
+        SigningKey key = this.signingKey;
+        if (Objects.nonNull(key) && key.isValid(date, credential)) {
+            return key;
+        }
+        // Concurrent requests may derive the key at the same time when date changes,
+        // they get the same result, so no lock is needed
+        key = new SigningKey(date, credential);
+        this.signingKey = key;
+        return key;
+    }
+
+    private static List<String> signedHeaders(Request request) {
+        List<String> signedHeaders = new ArrayList<>();
+        for (String headerName : request.headers().names()) {
+            if (H_INCLUDE.contains(headerName) || headerName.startsWith("X-")) {
+                signedHeaders.add(headerName.toLowerCase());
+            }
+        }
+        Collections.sort(signedHeaders);
+        return signedHeaders;
+    }
+
+    private static String hashCanonicalRequest(Request request,
+                                               String bodyHash,
+                                               List<String> signedHeaders,
+                                               String signedHeadersStr) throws Exception {
+        StringBuilder canonicalRequest = new StringBuilder(256)
+                .append(request.method()).append('\n')
+                .append(normUri(request.url().encodedPath())).append('\n')
+                .append(normQuery(request.url())).append('\n');
+        for (String header : signedHeaders) {
+            String value = Objects.requireNonNull(request.header(header)).trim();
+            if (header.equals("host")) {
+                if (value.contains(":")) {
+                    String[] split = value.split(":");
+                    String port = split[1];
+                    if (port.equals("80") || port.equals("443")) {
+                        value = split[0];
+                    }
+                }
+            }
+            canonicalRequest.append(header).append(':').append(value).append('\n');
+        }
+        canonicalRequest.append('\n')
+                .append(signedHeadersStr).append('\n')
+                .append(bodyHash);
+        return VolcAuthHelper.hashSHA256(canonicalRequest.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String normUri(String encodedPath) {
+        return encodedPath.replace("%2F", "/").replace("+", "%20");
+    }
+
+    private static String normQuery(HttpUrl url) {
+        if (url.querySize() == 0) {
+            return "";
+        }
+        final HttpUrl.Builder urlBuilder = url.newBuilder();
+        url.queryParameterNames()
+                .stream()
+                .sorted()
+                .forEach(queryName -> urlBuilder.setQueryParameter(queryName, url.queryParameter(queryName)));
+        String sortedQuery = urlBuilder.build().encodedQuery();
+        if (Objects.nonNull(sortedQuery)) {
+            return sortedQuery.replace("+", "%20");
+        }
+        return "";
+    }
+
+    private static class SigningKey {
+        private final String date;
+
+        private final String secretKey;
+
+        private final String region;
+
+        private final String service;
+
+        private final String credentialScope;
+
+        private final SecretKeySpec keySpec;
+
+        private SigningKey(String date, Credential credential) throws Exception {
+            this.date = date;
+            this.secretKey = credential.getSecretAccessKey();
+            this.region = credential.getRegion();
+            this.service = credential.getService();
+            this.credentialScope = date + "/" + region + "/" + service + "/request";
+            byte[] kDate = VolcAuthHelper.hmacSHA256(secretKey.getBytes(StandardCharsets.UTF_8), date);
+            byte[] kRegion = VolcAuthHelper.hmacSHA256(kDate, region);
+            byte[] kService = VolcAuthHelper.hmacSHA256(kRegion, service);
+            byte[] kSigning = VolcAuthHelper.hmacSHA256(kService, "request");
+            this.keySpec = new SecretKeySpec(kSigning, "HmacSHA256");
+        }
+
+        // Credential is mutable, so the key is checked with all the fields it's derived from
+        private boolean isValid(String date, Credential credential) {
+            return this.date.equals(date) &&
+                    Objects.equals(this.secretKey, credential.getSecretAccessKey()) &&
+                    Objects.equals(this.region, credential.getRegion()) &&
+                    Objects.equals(this.service, credential.getService());
+        }
+    }
+}
@@ -5,12 +5,14 @@ import byteplus.sdk.common.protocol.ByteplusCommon.OperationResponse;
 import byteplus.sdk.core.BizException;
 import byteplus.sdk.core.NetException;
 import byteplus.sdk.core.Option;
+import byteplus.sdk.core.Tenant;
 import byteplus.sdk.general.protocol.ByteplusGeneral.*;
 
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface GeneralClient extends CommonClient {
     // Write
@@ -21,6 +23,13 @@ public interface GeneralClient extends CommonClient {
     WriteResponse writeData(List<Map<String, Object>> dataList, String topic,
                             Option... opts) throws NetException, BizException;
 
+    // WriteDataAsync
+    //
+    // The async version of `writeData`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<WriteResponse> writeDataAsync(
+            List<Map<String, Object>> dataList, String topic, Option... opts);
+
     // Predict
     //
     // Gets the list of products (ranked).
@@ -31,6 +40,12 @@ public interface GeneralClient extends CommonClient {
     PredictResponse predict(PredictRequest request, String scene,
                             Option... opts) throws NetException, BizException;
 
+    // PredictAsync
+    //
+    // The async version of `predict`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<PredictResponse> predictAsync(PredictRequest request, String scene, Option... opts);
+
     // Callback
     //
     // Sends back the actual product list shown to the users based on the
@@ -49,4 +64,18 @@ public interface GeneralClient extends CommonClient {
     CallbackResponse callback(CallbackRequest request,
                               Option... opts) throws NetException, BizException;
 
+    // CallbackAsync
+    //
+    // The async version of `callback`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<CallbackResponse> callbackAsync(CallbackRequest request, Option... opts);
+
+    // ForTenant
+    //
+    // Returns a client of another tenant, which shares the http client, host
+    // availabler and hedging of this client, so a tenant view costs little
+    // memory and no threads. The view can be kept or created for each call,
+    // it needn't be released, and can't be used after this client is released.
+    // The write spool is not enabled for the view.
+    GeneralClient forTenant(Tenant tenant);
 }
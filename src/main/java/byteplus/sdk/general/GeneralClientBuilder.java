@@ -1,8 +1,14 @@
 package byteplus.sdk.general;
 
 import byteplus.sdk.core.Context;
+import byteplus.sdk.core.AdaptiveRateLimiter;
+import byteplus.sdk.core.CircuitBreaker;
+import byteplus.sdk.core.CompressionPolicy;
+import byteplus.sdk.core.HTTPCaller;
 import byteplus.sdk.core.HostAvailabler;
+import byteplus.sdk.core.PredictCache;
 import byteplus.sdk.core.Region;
+import byteplus.sdk.core.RetryPolicy;
 import byteplus.sdk.core.metrics.MetricsCollector;
 
 import java.util.List;
@@ -60,6 +66,41 @@ public class GeneralClientBuilder {
         return this;
     }
 
+    public GeneralClientBuilder httpCallerConfig(HTTPCaller.Config config) {
+        this.param.setHttpCallerConfig(config);
+        return this;
+    }
+
+    public GeneralClientBuilder compressionPolicy(CompressionPolicy policy) {
+        this.param.setCompressionPolicy(policy);
+        return this;
+    }
+
+    public GeneralClientBuilder endpointCompressionPolicies(Map<String, CompressionPolicy> policies) {
+        this.param.setEndpointCompressionPolicies(policies);
+        return this;
+    }
+
+    public GeneralClientBuilder rateLimiterConfig(AdaptiveRateLimiter.Config config) {
+        this.param.setRateLimiterConfig(config);
+        return this;
+    }
+
+    public GeneralClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+        this.param.setRetryPolicy(retryPolicy);
+        return this;
+    }
+
+    public GeneralClientBuilder circuitBreakerConfig(CircuitBreaker.Config config) {
+        this.param.setCircuitBreakerConfig(config);
+        return this;
+    }
+
+    public GeneralClientBuilder predictCacheConfig(PredictCache.Config config) {
+        this.param.setPredictCacheConfig(config);
+        return this;
+    }
+
     public GeneralClient build() {
         // Except for air, all other environments default to airAuth
         this.param.setUseAirAuth(true);
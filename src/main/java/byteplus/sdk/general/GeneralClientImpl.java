@@ -5,8 +5,12 @@ import byteplus.sdk.common.protocol.ByteplusCommon.OperationResponse;
 import byteplus.sdk.common.protocol.ByteplusCommon.DoneResponse;
 import byteplus.sdk.core.BizException;
 import byteplus.sdk.core.Context;
+import byteplus.sdk.core.Helper;
+import byteplus.sdk.core.HostURL;
 import byteplus.sdk.core.NetException;
 import byteplus.sdk.core.Option;
+import byteplus.sdk.core.PredictCache;
+import byteplus.sdk.core.Tenant;
 import byteplus.sdk.general.protocol.ByteplusGeneral.CallbackRequest;
 import byteplus.sdk.general.protocol.ByteplusGeneral.CallbackResponse;
 import byteplus.sdk.general.protocol.ByteplusGeneral.PredictRequest;
@@ -22,9 +26,11 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import static byteplus.sdk.core.Constant.MAX_IMPORT_ITEM_COUNT;
 import static byteplus.sdk.core.Constant.MAX_WRITE_ITEM_COUNT;
+import static byteplus.sdk.core.Constant.STATUS_CODE_SUCCESS;
 
 @Slf4j
 public class GeneralClientImpl extends CommonClientImpl implements GeneralClient {
@@ -34,14 +40,25 @@ public class GeneralClientImpl extends CommonClientImpl implements GeneralClient
 
     private final GeneralURL generalURL;
 
+    // null if the predict cache is not configured, shared by the tenant views
+    private final PredictCache predictCache;
+
     GeneralClientImpl(Context.Param param) {
         super(param);
         this.generalURL = new GeneralURL(context);
+        this.predictCache = PredictCache.create(context.getPredictCacheConfig());
+    }
+
+    private GeneralClientImpl(GeneralClientImpl client, Tenant tenant) {
+        super(client, tenant);
+        this.generalURL = new GeneralURL(context);
+        this.predictCache = client.predictCache;
     }
 
+
     @Override
-    public void doRefresh(String host) {
-        this.generalURL.refresh(host);
+    public GeneralClient forTenant(Tenant tenant) {
+        return new GeneralClientImpl(this, tenant);
     }
 
     @Override
@@ -51,30 +68,84 @@ public class GeneralClientImpl extends CommonClientImpl implements GeneralClient
             throw new BizException(ERR_MSG_TOO_MANY_ITEMS);
         }
         Parser<WriteResponse> parser = WriteResponse.parser();
-        String urlFormat = generalURL.getWriteDataUrlFormat();
-        String url = urlFormat.replace("{}", topic);
+        HostURL url = generalURL.writeDataUrl(topic);
         WriteResponse response = httpCaller.doJSONRequest(url, dataList, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][WriteData] rsp:\n{}", response);
         return response;
     }
 
+    @Override
+    public CompletableFuture<WriteResponse> writeDataAsync(
+            List<Map<String, Object>> dataList, String topic, Option... opts) {
+        if (Objects.nonNull(dataList) && dataList.size() > MAX_IMPORT_ITEM_COUNT) {
+            return Helper.failedFuture(new BizException(ERR_MSG_TOO_MANY_ITEMS));
+        }
+        Parser<WriteResponse> parser = WriteResponse.parser();
+        HostURL url = generalURL.writeDataUrl(topic);
+        return httpCaller.doJSONRequestAsync(url, dataList, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][WriteData] rsp:\n{}", response);
+                    return response;
+                });
+    }
+
     @Override
     public PredictResponse predict(PredictRequest request, String scene,
                                    Option... opts) throws NetException, BizException {
-        String url = generalURL.getPredictUrlFormat().replace("{}", scene);
+        HostURL url = generalURL.predictUrl(scene);
         Parser<PredictResponse> parser = PredictResponse.parser();
-        PredictResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
+        PredictResponse response;
+        if (Objects.isNull(predictCache)) {
+            response = hedgedCaller.doPBRequest(url, request, parser, opts);
+        } else {
+            response = predictCache.load(context.getTenant(), scene, request, GeneralClientImpl::isCacheable,
+                    () -> hedgedCaller.doPBRequest(url, request, parser, opts));
+        }
         log.debug("[ByteplusSDK][Predict] rsp:\n{}", response);
         return response;
     }
 
+    @Override
+    public CompletableFuture<PredictResponse> predictAsync(
+            PredictRequest request, String scene, Option... opts) {
+        HostURL url = generalURL.predictUrl(scene);
+        Parser<PredictResponse> parser = PredictResponse.parser();
+        CompletableFuture<PredictResponse> future;
+        if (Objects.isNull(predictCache)) {
+            future = hedgedCaller.doPBRequestAsync(url, request, parser, opts);
+        } else {
+            future = predictCache.loadAsync(context.getTenant(), scene, request, GeneralClientImpl::isCacheable,
+                    () -> hedgedCaller.doPBRequestAsync(url, request, parser, opts));
+        }
+        return future.thenApply(response -> {
+            log.debug("[ByteplusSDK][Predict] rsp:\n{}", response);
+            return response;
+        });
+    }
+
+    // Only the successful predict responses are cached
+    private static boolean isCacheable(PredictResponse rsp) {
+        return rsp.getCode() == STATUS_CODE_SUCCESS;
+    }
+
     @Override
     public CallbackResponse callback(CallbackRequest request,
                                      Option... opts) throws NetException, BizException {
         Parser<CallbackResponse> parser = CallbackResponse.parser();
-        String url = generalURL.getCallbackUrl();
+        HostURL url = generalURL.callbackUrl();
         CallbackResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][Callback] rsp:\n{}", response);
         return response;
     }
+
+    @Override
+    public CompletableFuture<CallbackResponse> callbackAsync(CallbackRequest request, Option... opts) {
+        Parser<CallbackResponse> parser = CallbackResponse.parser();
+        HostURL url = generalURL.callbackUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][Callback] rsp:\n{}", response);
+                    return response;
+                });
+    }
 }
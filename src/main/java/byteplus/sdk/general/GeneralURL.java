@@ -2,59 +2,82 @@ package byteplus.sdk.general;
 
 import byteplus.sdk.common.CommonURL;
 import byteplus.sdk.core.Context;
-import byteplus.sdk.core.URLCenter;
-import lombok.Getter;
+import byteplus.sdk.core.HostURL;
 
-@Getter
-public class GeneralURL extends CommonURL implements URLCenter {
-    // The URL template of "predict" request, which need fill with "scene" info when use
+public class GeneralURL extends CommonURL {
+    // The path template of "predict" request, which need fill with "scene" info when use
     // Example: https://tob.sgsnssdk.com/predict/api/general_demo/home
-    private final static String PREDICT_URL_FORMAT = "%s://%s/predict/api/%s/{}";
+    private final static String PREDICT_PATH_FORMAT = "/predict/api/%s/{}";
 
-    // The URL format of reporting the real exposure list
+    // The path format of reporting the real exposure list
     // Example: https://tob.sgsnssdk.com/predict/api/general_demo/callback
-    private final static String CALLBACK_URL_FORMAT = "%s://%s/predict/api/%s/callback";
+    private final static String CALLBACK_PATH_FORMAT = "/predict/api/%s/callback";
 
-    // The URL format of data uploading
+    // The path format of data uploading
     // Example: https://tob.sgsnssdk.com/data/api/general_demo/user?method=write
-    private final static String UPLOAD_URL_FORMAT = "%s://%s/data/api/%s/{}?method=%s";
-
-    // The URL format of marking a whole day data has been imported completely
-    // Example: https://tob.sgsnssdk.com/predict/api/general_demo/done?topic=user
-    private final static String DONE_URL_FORMAT = "%s://%s/data/api/%s/done?topic={}";
-
-    // The URL template of "predict" request, which need fill with "scene" info when use
-    // Example: https://tob.sgsnssdk.com/predict/api/general_demo/home
-    private volatile String predictUrlFormat;
+    private final static String UPLOAD_PATH_FORMAT = "/data/api/%s/{}?method=%s";
 
     // The URL of reporting the real exposure list
     // Example: https://tob.sgsnssdk.com/predict/api/general_demo/callback
-    private volatile String callbackUrl;
+    private final HostURL callbackUrl;
 
-    // The URL of uploading real-time user data
-    // Example: https://tob.sgsnssdk.com/data/api/general_demo/user?method=write
-    private volatile String writeDataUrlFormat;
+    // The path of "predict" request, which need fill with "scene" info when use
+    private final String predictPathFormat;
 
-    // The URL of importing daily offline user data
-    // Example: https://tob.sgsnssdk.com/data/api/general_demo/user?method=import
-    private volatile String importDataUrlFormat;
+    // The paths of data uploading, which need fill with "topic" info when use
+    private final String writeDataPathFormat;
 
-    // The URL format of marking a whole day data has been imported completely
-    // Example: https://tob.sgsnssdk.com/predict/api/general_demo/done?topic=user
-    private volatile String doneUrlFormat;
+    private final String importDataPathFormat;
 
     public GeneralURL(Context context) {
         super(context);
-        refresh(context.getHosts().get(0));
+        predictPathFormat = String.format(PREDICT_PATH_FORMAT, tenant);
+        writeDataPathFormat = String.format(UPLOAD_PATH_FORMAT, tenant, "write");
+        importDataPathFormat = String.format(UPLOAD_PATH_FORMAT, tenant, "import");
+        callbackUrl = HostURL.of(schema, String.format(CALLBACK_PATH_FORMAT, tenant));
+    }
+
+    // The URL of "predict" request of the scene
+    // Example: https://tob.sgsnssdk.com/predict/api/general_demo/home
+    public HostURL predictUrl(String scene) {
+        return HostURL.of(schema, predictPathFormat.replace("{}", scene));
+    }
+
+    // The URL of uploading real-time data of the topic
+    // Example: https://tob.sgsnssdk.com/data/api/general_demo/user?method=write
+    public HostURL writeDataUrl(String topic) {
+        return HostURL.of(schema, writeDataPathFormat.replace("{}", topic));
+    }
+
+    // The URL of importing daily offline data of the topic
+    // Example: https://tob.sgsnssdk.com/data/api/general_demo/user?method=import
+    public HostURL importDataUrl(String topic) {
+        return HostURL.of(schema, importDataPathFormat.replace("{}", topic));
+    }
+
+    public HostURL callbackUrl() {
+        return callbackUrl;
+    }
+
+    // The string urls below are built for the refreshed host, use the HostURLs instead
+
+    @Deprecated
+    public String getCallbackUrl() {
+        return callbackUrl.build(host);
+    }
+
+    @Deprecated
+    public String getPredictUrlFormat() {
+        return HostURL.of(schema, predictPathFormat).build(host);
+    }
+
+    @Deprecated
+    public String getWriteDataUrlFormat() {
+        return HostURL.of(schema, writeDataPathFormat).build(host);
     }
 
-    @Override
-    public void refresh(String host) {
-        super.refresh(host);
-        predictUrlFormat = String.format(PREDICT_URL_FORMAT, schema, host, tenant);
-        callbackUrl = String.format(CALLBACK_URL_FORMAT, schema, host, tenant);
-        writeDataUrlFormat = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "write");
-        importDataUrlFormat = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "import");
-        doneUrlFormat = String.format(DONE_URL_FORMAT, schema, host, tenant);
+    @Deprecated
+    public String getImportDataUrlFormat() {
+        return HostURL.of(schema, importDataPathFormat).build(host);
     }
 }
@@ -2,8 +2,10 @@ package byteplus.sdk.media;
 
 import byteplus.sdk.common.CommonClient;
 import byteplus.sdk.core.BizException;
+import byteplus.sdk.core.BulkWriteResult;
 import byteplus.sdk.core.NetException;
 import byteplus.sdk.core.Option;
+import byteplus.sdk.core.Tenant;
 import byteplus.sdk.media.protocol.ByteplusMedia.WriteUsersRequest;
 import byteplus.sdk.media.protocol.ByteplusMedia.WriteUsersResponse;
 import byteplus.sdk.media.protocol.ByteplusMedia.WriteContentsRequest;
@@ -14,6 +16,14 @@ import byteplus.sdk.media.protocol.ByteplusMedia.PredictRequest;
 import byteplus.sdk.media.protocol.ByteplusMedia.PredictResponse;
 import byteplus.sdk.media.protocol.ByteplusMedia.AckServerImpressionsRequest;
 import byteplus.sdk.media.protocol.ByteplusMedia.AckServerImpressionsResponse;
+import byteplus.sdk.media.protocol.ByteplusMedia.User;
+import byteplus.sdk.media.protocol.ByteplusMedia.UserError;
+import byteplus.sdk.media.protocol.ByteplusMedia.Content;
+import byteplus.sdk.media.protocol.ByteplusMedia.ContentError;
+import byteplus.sdk.media.protocol.ByteplusMedia.UserEvent;
+import byteplus.sdk.media.protocol.ByteplusMedia.UserEventError;
+
+import java.util.concurrent.CompletableFuture;
 
 public interface MediaClient extends CommonClient {
     // WriteUsers
@@ -24,6 +34,20 @@ public interface MediaClient extends CommonClient {
     WriteUsersResponse writeUsers(
             WriteUsersRequest request, Option... opts) throws BizException, NetException;
 
+    // WriteUsersAsync
+    //
+    // The async version of `writeUsers`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<WriteUsersResponse> writeUsersAsync(WriteUsersRequest request, Option... opts);
+
+    // BulkWriteUsers
+    //
+    // Writes any number of users, the users are split into chunks of at most
+    // 2000 items, which are written concurrently, and the errors of all chunks
+    // are merged into the result. The chunk size, byte budget and parallelism
+    // can be configured by `Option.withBulkWriteConfig`.
+    BulkWriteResult<UserError> bulkWriteUsers(Iterable<User> users, Option... opts) throws BizException;
+
     // WriteProducts
     //
     // Writes at most 2000 contents at a time. Exceeding 2000 in a request results
@@ -35,6 +59,20 @@ public interface MediaClient extends CommonClient {
     WriteContentsResponse writeContents(
             WriteContentsRequest request, Option... opts) throws NetException, BizException;
 
+    // WriteContentsAsync
+    //
+    // The async version of `writeContents`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<WriteContentsResponse> writeContentsAsync(WriteContentsRequest request, Option... opts);
+
+    // BulkWriteContents
+    //
+    // Writes any number of contents, the contents are split into chunks of at most
+    // 2000 items, which are written concurrently, and the errors of all chunks
+    // are merged into the result. The chunk size, byte budget and parallelism
+    // can be configured by `Option.withBulkWriteConfig`.
+    BulkWriteResult<ContentError> bulkWriteContents(Iterable<Content> contents, Option... opts) throws BizException;
+
     // WriteUserEvents
     //
     // Writes at most 2000 UserEvents at a time. Exceeding 2000 in a request
@@ -42,9 +80,28 @@ public interface MediaClient extends CommonClient {
     // UserEvents.  Note: This is processing realtime data, so we won't dedupe
     // the requests.
     // Please make sure the requests are deduplicated before sending over.
+    // If the write spool is configured, the request failed with NetException is
+    // replayed in background with the same Request-Id, and SpooledException is
+    // thrown instead of the NetException, so don't send it again.
     WriteUserEventsResponse writeUserEvents(
             WriteUserEventsRequest request, Option... opts) throws NetException, BizException;
 
+    // WriteUserEventsAsync
+    //
+    // The async version of `writeUserEvents`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<WriteUserEventsResponse> writeUserEventsAsync(
+            WriteUserEventsRequest request, Option... opts);
+
+    // BulkWriteUserEvents
+    //
+    // Writes any number of user events, the user events are split into chunks of at most
+    // 2000 items, which are written concurrently, and the errors of all chunks
+    // are merged into the result. The chunk size, byte budget and parallelism
+    // can be configured by `Option.withBulkWriteConfig`.
+    BulkWriteResult<UserEventError> bulkWriteUserEvents(
+            Iterable<UserEvent> userEvents, Option... opts) throws BizException;
+
     // Predict
     //
     // Gets the list of contents (ranked).
@@ -55,6 +112,12 @@ public interface MediaClient extends CommonClient {
     PredictResponse predict(
             PredictRequest request, String scene, Option... opts) throws NetException, BizException;
 
+    // PredictAsync
+    //
+    // The async version of `predict`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<PredictResponse> predictAsync(PredictRequest request, String scene, Option... opts);
+
     // AckServerImpressions
     //
     // Sends back the actual content list shown to the users based on the
@@ -75,4 +138,21 @@ public interface MediaClient extends CommonClient {
     // ].
     AckServerImpressionsResponse ackServerImpressions(
             AckServerImpressionsRequest request, Option... opts) throws NetException, BizException;
+
+    // AckServerImpressionsAsync
+    //
+    // The async version of `ackServerImpressions`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<AckServerImpressionsResponse> ackServerImpressionsAsync(
+            AckServerImpressionsRequest request, Option... opts);
+
+    // ForTenant
+    //
+    // Returns a client of another tenant, which shares the http client, host
+    // availabler and hedging of this client, so a tenant view costs little
+    // memory and no threads. The view can be kept or created for each call,
+    // it needn't be released, and can't be used after this client is released.
+    // The write spool is not enabled for the view, if this client spools writeUserEvents,
+    // the writeUserEvents of the view fail rather than being sent without spool.
+    MediaClient forTenant(Tenant tenant);
 }
@@ -1,8 +1,15 @@
 package byteplus.sdk.media;
 
 import byteplus.sdk.core.Context;
+import byteplus.sdk.core.AdaptiveRateLimiter;
+import byteplus.sdk.core.CircuitBreaker;
+import byteplus.sdk.core.CompressionPolicy;
+import byteplus.sdk.core.HTTPCaller;
 import byteplus.sdk.core.HostAvailabler;
+import byteplus.sdk.core.PredictCache;
 import byteplus.sdk.core.Region;
+import byteplus.sdk.core.RetryPolicy;
+import byteplus.sdk.core.WriteSpool;
 import byteplus.sdk.core.metrics.MetricsCollector;
 
 import java.util.List;
@@ -60,6 +67,46 @@ public class MediaClientBuilder {
         return this;
     }
 
+    public MediaClientBuilder httpCallerConfig(HTTPCaller.Config config) {
+        this.param.setHttpCallerConfig(config);
+        return this;
+    }
+
+    public MediaClientBuilder compressionPolicy(CompressionPolicy policy) {
+        this.param.setCompressionPolicy(policy);
+        return this;
+    }
+
+    public MediaClientBuilder endpointCompressionPolicies(Map<String, CompressionPolicy> policies) {
+        this.param.setEndpointCompressionPolicies(policies);
+        return this;
+    }
+
+    public MediaClientBuilder rateLimiterConfig(AdaptiveRateLimiter.Config config) {
+        this.param.setRateLimiterConfig(config);
+        return this;
+    }
+
+    public MediaClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+        this.param.setRetryPolicy(retryPolicy);
+        return this;
+    }
+
+    public MediaClientBuilder circuitBreakerConfig(CircuitBreaker.Config config) {
+        this.param.setCircuitBreakerConfig(config);
+        return this;
+    }
+
+    public MediaClientBuilder predictCacheConfig(PredictCache.Config config) {
+        this.param.setPredictCacheConfig(config);
+        return this;
+    }
+
+    public MediaClientBuilder writeSpoolConfig(WriteSpool.Config config) {
+        this.param.setWriteSpoolConfig(config);
+        return this;
+    }
+
     public MediaClient build() {
         // Except for air, all other environments default to airAuth
         this.param.setUseAirAuth(true);
@@ -2,9 +2,17 @@ package byteplus.sdk.media;
 
 import byteplus.sdk.common.CommonClientImpl;
 import byteplus.sdk.core.BizException;
+import byteplus.sdk.core.BulkWriteResult;
+import byteplus.sdk.core.BulkWriter;
 import byteplus.sdk.core.Context;
+import byteplus.sdk.core.Helper;
+import byteplus.sdk.core.HostURL;
 import byteplus.sdk.core.NetException;
 import byteplus.sdk.core.Option;
+import byteplus.sdk.core.PartialRetrier;
+import byteplus.sdk.core.PredictCache;
+import byteplus.sdk.core.Tenant;
+import byteplus.sdk.core.WriteSpool;
 import byteplus.sdk.media.protocol.ByteplusMedia.WriteUsersRequest;
 import byteplus.sdk.media.protocol.ByteplusMedia.WriteUsersResponse;
 import byteplus.sdk.media.protocol.ByteplusMedia.WriteContentsRequest;
@@ -15,10 +23,21 @@ import byteplus.sdk.media.protocol.ByteplusMedia.PredictRequest;
 import byteplus.sdk.media.protocol.ByteplusMedia.PredictResponse;
 import byteplus.sdk.media.protocol.ByteplusMedia.AckServerImpressionsRequest;
 import byteplus.sdk.media.protocol.ByteplusMedia.AckServerImpressionsResponse;
+import byteplus.sdk.media.protocol.ByteplusMedia.User;
+import byteplus.sdk.media.protocol.ByteplusMedia.UserError;
+import byteplus.sdk.media.protocol.ByteplusMedia.Content;
+import byteplus.sdk.media.protocol.ByteplusMedia.ContentError;
+import byteplus.sdk.media.protocol.ByteplusMedia.UserEvent;
+import byteplus.sdk.media.protocol.ByteplusMedia.UserEventError;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Parser;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
 import static byteplus.sdk.core.Constant.MAX_WRITE_ITEM_COUNT;
+import static byteplus.sdk.core.Constant.STATUS_CODE_SUCCESS;
 
 @Slf4j
 public class MediaClientImpl extends CommonClientImpl implements MediaClient{
@@ -27,14 +46,30 @@ public class MediaClientImpl extends CommonClientImpl implements MediaClient{
 
     private final MediaURL mediaURL;
 
+    // null if the predict cache is not configured, shared by the tenant views
+    private final PredictCache predictCache;
+
+    // Spool of writeUserEvents requests, null if it's not configured or this is a tenant view
+    private final WriteSpool userEventSpool;
+
     MediaClientImpl(Context.Param param) {
         super(param);
         this.mediaURL = new MediaURL(context);
+        this.predictCache = PredictCache.create(context.getPredictCacheConfig());
+        this.userEventSpool = openWriteSpool(this::replayUserEvents);
+    }
+
+    private MediaClientImpl(MediaClientImpl client, Tenant tenant) {
+        super(client, tenant);
+        this.mediaURL = new MediaURL(context);
+        this.predictCache = client.predictCache;
+        this.userEventSpool = null;
     }
 
+
     @Override
-    public void doRefresh(String host) {
-        this.mediaURL.refresh(host);
+    public MediaClient forTenant(Tenant tenant) {
+        return new MediaClientImpl(this, tenant);
     }
 
     @Override
@@ -43,58 +78,326 @@ public class MediaClientImpl extends CommonClientImpl implements MediaClient{
         if (request.getUsersCount() > MAX_WRITE_ITEM_COUNT) {
             throw new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS);
         }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newUsersRetrier(retryConfig).write(request.getUsersList(), opts,
+                    (users, attemptOpts) -> doWriteUsers(
+                            request.toBuilder().clearUsers().addAllUsers(users).build(), attemptOpts));
+        }
+        return doWriteUsers(request, opts);
+    }
+
+    private WriteUsersResponse doWriteUsers(
+            WriteUsersRequest request, Option... opts) throws BizException, NetException {
         Parser<WriteUsersResponse> parser = WriteUsersResponse.parser();
-        String url = mediaURL.getWriteUsersUrl();
+        HostURL url = mediaURL.writeUsersUrl();
         WriteUsersResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][WriteUsers] rsp:\n{}", response);
         return response;
     }
 
+    @Override
+    public CompletableFuture<WriteUsersResponse> writeUsersAsync(WriteUsersRequest request, Option... opts) {
+        if (request.getUsersCount() > MAX_WRITE_ITEM_COUNT) {
+            return Helper.failedFuture(new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS));
+        }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newUsersRetrier(retryConfig).writeAsync(request.getUsersList(), opts,
+                    (users, attemptOpts) -> doWriteUsersAsync(
+                            request.toBuilder().clearUsers().addAllUsers(users).build(), attemptOpts));
+        }
+        return doWriteUsersAsync(request, opts);
+    }
+
+    private CompletableFuture<WriteUsersResponse> doWriteUsersAsync(
+            WriteUsersRequest request, Option... opts) {
+        Parser<WriteUsersResponse> parser = WriteUsersResponse.parser();
+        HostURL url = mediaURL.writeUsersUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][WriteUsers] rsp:\n{}", response);
+                    return response;
+                });
+    }
+
+    private PartialRetrier<User, WriteUsersResponse, UserError> newUsersRetrier(
+            PartialRetrier.Config config) {
+        return new PartialRetrier<>(config,
+                response -> response.getStatus().getCode(),
+                WriteUsersResponse::getErrorsList,
+                UserError::getUser,
+                UserError::getMessage,
+                (response, code, errors) -> response.toBuilder()
+                        .setStatus(response.getStatus().toBuilder().setCode(code))
+                        .clearErrors().addAllErrors(errors).build());
+    }
+
+    @Override
+    public BulkWriteResult<UserError> bulkWriteUsers(Iterable<User> users, Option... opts) throws BizException {
+        Option[] chunkOpts = BulkWriter.chunkOptions(opts);
+        BulkWriter<User, WriteUsersResponse, UserError> writer = new BulkWriter<>(
+                Option.conv2Options(opts).getBulkWriteConfig(),
+                chunk -> writeUsersAsync(WriteUsersRequest.newBuilder().addAllUsers(chunk).build(), chunkOpts),
+                response -> response.getStatus().getCode(),
+                response -> response.getStatus().getMessage(),
+                WriteUsersResponse::getErrorsList,
+                UserError::getUser,
+                (user, message) -> UserError.newBuilder().setUser(user).setMessage(message).build());
+        return writer.write(users);
+    }
+
     @Override
     public WriteContentsResponse writeContents(
             WriteContentsRequest request, Option... opts) throws NetException, BizException {
         if (request.getContentsCount() > MAX_WRITE_ITEM_COUNT) {
             throw new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS);
         }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newContentsRetrier(retryConfig).write(request.getContentsList(), opts,
+                    (contents, attemptOpts) -> doWriteContents(
+                            request.toBuilder().clearContents().addAllContents(contents).build(), attemptOpts));
+        }
+        return doWriteContents(request, opts);
+    }
+
+    private WriteContentsResponse doWriteContents(
+            WriteContentsRequest request, Option... opts) throws NetException, BizException {
         Parser<WriteContentsResponse> parser = WriteContentsResponse.parser();
-        String url = mediaURL.getWriteContentsUrl();
+        HostURL url = mediaURL.writeContentsUrl();
         WriteContentsResponse response =
                 httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][WriteContents] rsp:\n{}", response);
         return response;
     }
 
+    @Override
+    public CompletableFuture<WriteContentsResponse> writeContentsAsync(
+            WriteContentsRequest request, Option... opts) {
+        if (request.getContentsCount() > MAX_WRITE_ITEM_COUNT) {
+            return Helper.failedFuture(new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS));
+        }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newContentsRetrier(retryConfig).writeAsync(request.getContentsList(), opts,
+                    (contents, attemptOpts) -> doWriteContentsAsync(
+                            request.toBuilder().clearContents().addAllContents(contents).build(), attemptOpts));
+        }
+        return doWriteContentsAsync(request, opts);
+    }
+
+    private CompletableFuture<WriteContentsResponse> doWriteContentsAsync(
+            WriteContentsRequest request, Option... opts) {
+        Parser<WriteContentsResponse> parser = WriteContentsResponse.parser();
+        HostURL url = mediaURL.writeContentsUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][WriteContents] rsp:\n{}", response);
+                    return response;
+                });
+    }
+
+    private PartialRetrier<Content, WriteContentsResponse, ContentError> newContentsRetrier(
+            PartialRetrier.Config config) {
+        return new PartialRetrier<>(config,
+                response -> response.getStatus().getCode(),
+                WriteContentsResponse::getErrorsList,
+                ContentError::getContent,
+                ContentError::getMessage,
+                (response, code, errors) -> response.toBuilder()
+                        .setStatus(response.getStatus().toBuilder().setCode(code))
+                        .clearErrors().addAllErrors(errors).build());
+    }
+
+    @Override
+    public BulkWriteResult<ContentError> bulkWriteContents(
+            Iterable<Content> contents, Option... opts) throws BizException {
+        Option[] chunkOpts = BulkWriter.chunkOptions(opts);
+        BulkWriter<Content, WriteContentsResponse, ContentError> writer = new BulkWriter<>(
+                Option.conv2Options(opts).getBulkWriteConfig(),
+                chunk -> writeContentsAsync(WriteContentsRequest.newBuilder().addAllContents(chunk).build(), chunkOpts),
+                response -> response.getStatus().getCode(),
+                response -> response.getStatus().getMessage(),
+                WriteContentsResponse::getErrorsList,
+                ContentError::getContent,
+                (content, message) -> ContentError.newBuilder().setContent(content).setMessage(message).build());
+        return writer.write(contents);
+    }
+
     @Override
     public WriteUserEventsResponse writeUserEvents(
             WriteUserEventsRequest request, Option... opts) throws NetException, BizException {
         if (request.getUserEventsCount() > MAX_WRITE_ITEM_COUNT) {
             throw new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS);
         }
+        if (isViewOfSpooledClient()) {
+            throw new BizException(ERR_MSG_VIEW_SPOOL);
+        }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newUserEventsRetrier(retryConfig).write(request.getUserEventsList(), opts,
+                    (userEvents, attemptOpts) -> spoolWriteUserEvents(
+                            request.toBuilder().clearUserEvents().addAllUserEvents(userEvents).build(), attemptOpts));
+        }
+        return spoolWriteUserEvents(request, opts);
+    }
+
+    private WriteUserEventsResponse spoolWriteUserEvents(
+            WriteUserEventsRequest request, Option... opts) throws NetException, BizException {
+        if (Objects.nonNull(userEventSpool)) {
+            return userEventSpool.write(request, opts, spoolOpts -> doWriteUserEvents(request, spoolOpts));
+        }
+        return doWriteUserEvents(request, opts);
+    }
+
+    private WriteUserEventsResponse doWriteUserEvents(
+            WriteUserEventsRequest request, Option... opts) throws NetException, BizException {
         Parser<WriteUserEventsResponse> parser = WriteUserEventsResponse.parser();
-        String url = mediaURL.getWriteUserEventsUrl();
+        HostURL url = mediaURL.writeUserEventsUrl();
         WriteUserEventsResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][WriteUserEvents] rsp:\n{}", response);
         return response;
     }
 
+    @Override
+    public CompletableFuture<WriteUserEventsResponse> writeUserEventsAsync(
+            WriteUserEventsRequest request, Option... opts) {
+        if (request.getUserEventsCount() > MAX_WRITE_ITEM_COUNT) {
+            return Helper.failedFuture(new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS));
+        }
+        if (isViewOfSpooledClient()) {
+            return Helper.failedFuture(new BizException(ERR_MSG_VIEW_SPOOL));
+        }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newUserEventsRetrier(retryConfig).writeAsync(request.getUserEventsList(), opts,
+                    (userEvents, attemptOpts) -> spoolWriteUserEventsAsync(
+                            request.toBuilder().clearUserEvents().addAllUserEvents(userEvents).build(), attemptOpts));
+        }
+        return spoolWriteUserEventsAsync(request, opts);
+    }
+
+    private CompletableFuture<WriteUserEventsResponse> spoolWriteUserEventsAsync(
+            WriteUserEventsRequest request, Option... opts) {
+        if (Objects.nonNull(userEventSpool)) {
+            return userEventSpool.writeAsync(request, opts, spoolOpts -> doWriteUserEventsAsync(request, spoolOpts));
+        }
+        return doWriteUserEventsAsync(request, opts);
+    }
+
+    private CompletableFuture<WriteUserEventsResponse> doWriteUserEventsAsync(
+            WriteUserEventsRequest request, Option... opts) {
+        Parser<WriteUserEventsResponse> parser = WriteUserEventsResponse.parser();
+        HostURL url = mediaURL.writeUserEventsUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][WriteUserEvents] rsp:\n{}", response);
+                    return response;
+                });
+    }
+
+    private PartialRetrier<UserEvent, WriteUserEventsResponse, UserEventError> newUserEventsRetrier(
+            PartialRetrier.Config config) {
+        return new PartialRetrier<>(config,
+                response -> response.getStatus().getCode(),
+                WriteUserEventsResponse::getErrorsList,
+                UserEventError::getUserEvent,
+                UserEventError::getMessage,
+                (response, code, errors) -> response.toBuilder()
+                        .setStatus(response.getStatus().toBuilder().setCode(code))
+                        .clearErrors().addAllErrors(errors).build());
+    }
+
+    // Replay the spooled request with the Request-Id of original request, the other options are not kept
+    private void replayUserEvents(byte[] bytes, Option[] opts) throws NetException, BizException {
+        WriteUserEventsRequest request;
+        try {
+            request = WriteUserEventsRequest.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new BizException("parse spooled request fail, " + e.getMessage());
+        }
+        WriteUserEventsResponse response = doWriteUserEvents(request, opts);
+        if (response.getStatus().getCode() != STATUS_CODE_SUCCESS) {
+            log.warn("[ByteplusSDK][WriteUserEvents] replay request not success, rsp:{}", response.getStatus());
+        }
+    }
+
+    @Override
+    public BulkWriteResult<UserEventError> bulkWriteUserEvents(
+            Iterable<UserEvent> userEvents, Option... opts) throws BizException {
+        Option[] chunkOpts = BulkWriter.chunkOptions(opts);
+        BulkWriter<UserEvent, WriteUserEventsResponse, UserEventError> writer = new BulkWriter<>(
+                Option.conv2Options(opts).getBulkWriteConfig(),
+                chunk -> writeUserEventsAsync(
+                        WriteUserEventsRequest.newBuilder().addAllUserEvents(chunk).build(), chunkOpts),
+                response -> response.getStatus().getCode(),
+                response -> response.getStatus().getMessage(),
+                WriteUserEventsResponse::getErrorsList,
+                UserEventError::getUserEvent,
+                (userEvent, message) ->
+                        UserEventError.newBuilder().setUserEvent(userEvent).setMessage(message).build());
+        return writer.write(userEvents);
+    }
+
     @Override
     public PredictResponse predict(
             PredictRequest request, String scene, Option... opts) throws NetException, BizException {
-        String urlFormat = mediaURL.getPredictUrlFormat();
-        String url = urlFormat.replace("{}", scene);
+        HostURL url = mediaURL.predictUrl(scene);
         Parser<PredictResponse> parser = PredictResponse.parser();
-        PredictResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
+        PredictResponse response;
+        if (Objects.isNull(predictCache)) {
+            response = hedgedCaller.doPBRequest(url, request, parser, opts);
+        } else {
+            response = predictCache.load(context.getTenant(), scene, request, MediaClientImpl::isCacheable,
+                    () -> hedgedCaller.doPBRequest(url, request, parser, opts));
+        }
         log.debug("[ByteplusSDK][Predict] rsp:\n{}", response);
         return response;
     }
 
+    @Override
+    public CompletableFuture<PredictResponse> predictAsync(
+            PredictRequest request, String scene, Option... opts) {
+        HostURL url = mediaURL.predictUrl(scene);
+        Parser<PredictResponse> parser = PredictResponse.parser();
+        CompletableFuture<PredictResponse> future;
+        if (Objects.isNull(predictCache)) {
+            future = hedgedCaller.doPBRequestAsync(url, request, parser, opts);
+        } else {
+            future = predictCache.loadAsync(context.getTenant(), scene, request, MediaClientImpl::isCacheable,
+                    () -> hedgedCaller.doPBRequestAsync(url, request, parser, opts));
+        }
+        return future.thenApply(response -> {
+            log.debug("[ByteplusSDK][Predict] rsp:\n{}", response);
+            return response;
+        });
+    }
+
+    // Only the successful predict responses are cached
+    private static boolean isCacheable(PredictResponse rsp) {
+        return rsp.getStatus().getCode() == STATUS_CODE_SUCCESS;
+    }
+
     @Override
     public AckServerImpressionsResponse ackServerImpressions(
             AckServerImpressionsRequest request, Option... opts) throws NetException, BizException {
         Parser<AckServerImpressionsResponse> parser = AckServerImpressionsResponse.parser();
-        String url = mediaURL.getAckImpressionUrl();
+        HostURL url = mediaURL.ackImpressionUrl();
         AckServerImpressionsResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][AckImpressions] rsp:\n{}", response);
         return response;
     }
+
+    @Override
+    public CompletableFuture<AckServerImpressionsResponse> ackServerImpressionsAsync(
+            AckServerImpressionsRequest request, Option... opts) {
+        Parser<AckServerImpressionsResponse> parser = AckServerImpressionsResponse.parser();
+        HostURL url = mediaURL.ackImpressionUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][AckImpressions] rsp:\n{}", response);
+                    return response;
+                });
+    }
 }
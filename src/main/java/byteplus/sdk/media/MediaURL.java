@@ -2,57 +2,101 @@ package byteplus.sdk.media;
 
 import byteplus.sdk.common.CommonURL;
 import byteplus.sdk.core.Context;
-import byteplus.sdk.core.URLCenter;
-import lombok.Getter;
+import byteplus.sdk.core.HostURL;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-@Getter
-public final class MediaURL extends CommonURL implements URLCenter {
-    // The URL format of data uploading
+public final class MediaURL extends CommonURL {
+    // The path format of data uploading
     // Example: https://tob.sgsnssdk.com/data/api/media/media_demo/user?method=write
-    private final static String UPLOAD_URL_FORMAT = "%s://%s/data/api/media/%s/%s?method=%s";
+    private final static String UPLOAD_PATH_FORMAT = "/data/api/media/%s/%s?method=%s";
 
-    // The URL template of "predict" request, which need fill with "scene" info when use
+    // The path template of "predict" request, which need fill with "scene" info when use
     // Example: https://tob.sgsnssdk.com/predict/api/media/media_demo/home
-    private final static String PREDICT_URL_FORMAT = "%s://%s/predict/api/media/%s/{}";
+    private final static String PREDICT_PATH_FORMAT = "/predict/api/media/%s/{}";
 
-    // The URL format of reporting the real exposure list
+    // The path format of reporting the real exposure list
     // Example: https://tob.sgsnssdk.com/predict/api/media/media_demo/ack_server_impressions
-    private final static String ACK_IMPRESSION_URL_FORMAT = "%s://%s/predict/api/media/%s/ack_server_impressions";
+    private final static String ACK_IMPRESSION_PATH_FORMAT = "/predict/api/media/%s/ack_server_impressions";
 
     // The URL of uploading real-time user data
     // Example: https://tob.sgsnssdk.com/data/api/media/media_demo/user?method=write
-    private volatile String writeUsersUrl;
+    private final HostURL writeUsersUrl;
 
     // The URL of uploading real-time content data
     // Example: https://tob.sgsnssdk.com/data/api/media/media_demo/content?method=write
-    private volatile String writeContentsUrl;
+    private final HostURL writeContentsUrl;
 
     // The URL of uploading real-time user event data
     // Example: https://tob.sgsnssdk.com/data/api/media/media_demo/user_event?method=write
-    private volatile String writeUserEventsUrl;
-
-    // The URL template of "predict" request, which need fill with "scene" info when use
-    // Example: https://tob.sgsnssdk.com/predict/api/media/media_demo/home
-    private volatile String predictUrlFormat;
+    private final HostURL writeUserEventsUrl;
 
     // The URL of reporting the real exposure list
     // Example: https://tob.sgsnssdk.com/predict/api/media/media_demo/ack_server_impression
-    private volatile String ackImpressionUrl;
+    private final HostURL ackImpressionUrl;
+
+    // The path of "predict" request, which need fill with "scene" info when use
+    private final String predictPathFormat;
 
     public MediaURL(Context context) {
         super(context);
-        refresh(context.getHosts().get(0));
+        predictPathFormat = String.format(PREDICT_PATH_FORMAT, tenant);
+        writeUsersUrl = uploadUrl("user", "write");
+        writeContentsUrl = uploadUrl("content", "write");
+        writeUserEventsUrl = uploadUrl("user_event", "write");
+        ackImpressionUrl = HostURL.of(schema, String.format(ACK_IMPRESSION_PATH_FORMAT, tenant));
+    }
+
+    private HostURL uploadUrl(String topic, String method) {
+        return HostURL.of(schema, String.format(UPLOAD_PATH_FORMAT, tenant, topic, method));
+    }
+
+    // The URL of "predict" request of the scene
+    // Example: https://tob.sgsnssdk.com/predict/api/media/media_demo/home
+    public HostURL predictUrl(String scene) {
+        return HostURL.of(schema, predictPathFormat.replace("{}", scene));
+    }
+
+    public HostURL writeUsersUrl() {
+        return writeUsersUrl;
+    }
+
+    public HostURL writeContentsUrl() {
+        return writeContentsUrl;
+    }
+
+    public HostURL writeUserEventsUrl() {
+        return writeUserEventsUrl;
+    }
+
+    public HostURL ackImpressionUrl() {
+        return ackImpressionUrl;
+    }
+
+    // The string urls below are built for the refreshed host, use the HostURLs instead
+
+    @Deprecated
+    public String getWriteUsersUrl() {
+        return writeUsersUrl.build(host);
+    }
+
+    @Deprecated
+    public String getWriteContentsUrl() {
+        return writeContentsUrl.build(host);
+    }
+
+    @Deprecated
+    public String getWriteUserEventsUrl() {
+        return writeUserEventsUrl.build(host);
+    }
+
+    @Deprecated
+    public String getAckImpressionUrl() {
+        return ackImpressionUrl.build(host);
     }
 
-    @Override
-    public void refresh(String host) {
-        super.refresh(host);
-        writeUsersUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "user", "write");
-        writeContentsUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "content", "write");
-        writeUserEventsUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "user_event", "write");
-        predictUrlFormat = String.format(PREDICT_URL_FORMAT, schema, host, tenant);
-        ackImpressionUrl = String.format(ACK_IMPRESSION_URL_FORMAT, schema, host, tenant);
+    @Deprecated
+    public String getPredictUrlFormat() {
+        return HostURL.of(schema, predictPathFormat).build(host);
     }
 }
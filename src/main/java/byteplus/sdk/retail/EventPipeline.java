@@ -0,0 +1,40 @@
+package byteplus.sdk.retail;
+
+import byteplus.sdk.core.BatchPipeline;
+import byteplus.sdk.core.BulkWriteResult;
+import byteplus.sdk.core.Option;
+import byteplus.sdk.retail.protocol.ByteplusRetail.UserEvent;
+import byteplus.sdk.retail.protocol.ByteplusRetail.UserEventError;
+
+import java.util.function.Consumer;
+
+// Write the realtime user events in batches.
+// The user events are added one by one, and written by `writeUserEvents` in background
+// when `batchSize` events are buffered or the oldest one has waited for `linger`.
+// Call `close` to write the buffered events before exiting, otherwise they are lost.
+//
+// Example:
+//   EventPipeline pipeline = new EventPipeline(client, BatchPipeline.Config.builder()
+//           .linger(Duration.ofMillis(500))
+//           .backpressureMode(BatchPipeline.BackpressureMode.DROP_OLDEST)
+//           .build());
+//   pipeline.offer(userEvent);
+//   ...
+//   pipeline.close();
+public class EventPipeline extends BatchPipeline<UserEvent, UserEventError> {
+    public EventPipeline(RetailClient client, BatchPipeline.Config config, Option... opts) {
+        this(client, config, null, opts);
+    }
+
+    /**
+     * @param resultHandler handle the write result of each batch, it's called in the
+     *                      worker threads of pipeline, the errors are only logged if null
+     * @param opts          options of each writeUserEvents request
+     */
+    public EventPipeline(RetailClient client,
+                         BatchPipeline.Config config,
+                         Consumer<BulkWriteResult<UserEventError>> resultHandler,
+                         Option... opts) {
+        super(config, batch -> client.bulkWriteUserEvents(batch, opts), resultHandler);
+    }
+}
@@ -3,8 +3,12 @@ package byteplus.sdk.retail;
 import byteplus.sdk.common.CommonClient;
 import byteplus.sdk.common.protocol.ByteplusCommon.OperationResponse;
 import byteplus.sdk.core.BizException;
+import byteplus.sdk.core.BulkWriteResult;
 import byteplus.sdk.core.NetException;
 import byteplus.sdk.core.Option;
+import byteplus.sdk.core.Tenant;
+
+import java.util.concurrent.CompletableFuture;
 
 import static byteplus.sdk.retail.protocol.ByteplusRetail.AckServerImpressionsRequest;
 import static byteplus.sdk.retail.protocol.ByteplusRetail.AckServerImpressionsResponse;
@@ -19,6 +23,12 @@ import static byteplus.sdk.retail.protocol.ByteplusRetail.WriteUserEventsRequest
 import static byteplus.sdk.retail.protocol.ByteplusRetail.WriteUserEventsResponse;
 import static byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersRequest;
 import static byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersResponse;
+import static byteplus.sdk.retail.protocol.ByteplusRetail.User;
+import static byteplus.sdk.retail.protocol.ByteplusRetail.UserError;
+import static byteplus.sdk.retail.protocol.ByteplusRetail.Product;
+import static byteplus.sdk.retail.protocol.ByteplusRetail.ProductError;
+import static byteplus.sdk.retail.protocol.ByteplusRetail.UserEvent;
+import static byteplus.sdk.retail.protocol.ByteplusRetail.UserEventError;
 
 public interface RetailClient extends CommonClient {
     // WriteUsers
@@ -29,6 +39,20 @@ public interface RetailClient extends CommonClient {
     WriteUsersResponse writeUsers(
             WriteUsersRequest request, Option... opts) throws BizException, NetException;
 
+    // WriteUsersAsync
+    //
+    // The async version of `writeUsers`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<WriteUsersResponse> writeUsersAsync(WriteUsersRequest request, Option... opts);
+
+    // BulkWriteUsers
+    //
+    // Writes any number of users, the users are split into chunks of at most
+    // 2000 items, which are written concurrently, and the errors of all chunks
+    // are merged into the result. The chunk size, byte budget and parallelism
+    // can be configured by `Option.withBulkWriteConfig`.
+    BulkWriteResult<UserError> bulkWriteUsers(Iterable<User> users, Option... opts) throws BizException;
+
     // ImportUsers
     //
     // Bulk import of Users.
@@ -45,6 +69,12 @@ public interface RetailClient extends CommonClient {
     OperationResponse importUsers(
             ImportUsersRequest request, Option... opts) throws NetException, BizException;
 
+    // ImportUsersAsync
+    //
+    // The async version of `importUsers`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<OperationResponse> importUsersAsync(ImportUsersRequest request, Option... opts);
+
     // WriteProducts
     //
     // Writes at most 2000 products at a time. Exceeding 2000 in a request results
@@ -56,6 +86,20 @@ public interface RetailClient extends CommonClient {
     WriteProductsResponse writeProducts(
             WriteProductsRequest request, Option... opts) throws NetException, BizException;
 
+    // WriteProductsAsync
+    //
+    // The async version of `writeProducts`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<WriteProductsResponse> writeProductsAsync(WriteProductsRequest request, Option... opts);
+
+    // BulkWriteProducts
+    //
+    // Writes any number of products, the products are split into chunks of at most
+    // 2000 items, which are written concurrently, and the errors of all chunks
+    // are merged into the result. The chunk size, byte budget and parallelism
+    // can be configured by `Option.withBulkWriteConfig`.
+    BulkWriteResult<ProductError> bulkWriteProducts(Iterable<Product> products, Option... opts) throws BizException;
+
     // ImportProducts
     //
     // Bulk import of Products.
@@ -72,6 +116,12 @@ public interface RetailClient extends CommonClient {
     OperationResponse importProducts(
             ImportProductsRequest request, Option... opts) throws NetException, BizException;
 
+    // ImportProductsAsync
+    //
+    // The async version of `importProducts`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<OperationResponse> importProductsAsync(ImportProductsRequest request, Option... opts);
+
     // WriteUserEvents
     //
     // Writes at most 2000 UserEvents at a time. Exceeding 2000 in a request
@@ -79,9 +129,28 @@ public interface RetailClient extends CommonClient {
     // UserEvents.  Note: This is processing realtime data, so we won't dedupe
     // the requests.
     // Please make sure the requests are deduplicated before sending over.
+    // If the write spool is configured, the request failed with NetException is
+    // replayed in background with the same Request-Id, and SpooledException is
+    // thrown instead of the NetException, so don't send it again.
     WriteUserEventsResponse writeUserEvents(
             WriteUserEventsRequest request, Option... opts) throws NetException, BizException;
 
+    // WriteUserEventsAsync
+    //
+    // The async version of `writeUserEvents`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<WriteUserEventsResponse> writeUserEventsAsync(
+            WriteUserEventsRequest request, Option... opts);
+
+    // BulkWriteUserEvents
+    //
+    // Writes any number of user events, the user events are split into chunks of at most
+    // 2000 items, which are written concurrently, and the errors of all chunks
+    // are merged into the result. The chunk size, byte budget and parallelism
+    // can be configured by `Option.withBulkWriteConfig`.
+    BulkWriteResult<UserEventError> bulkWriteUserEvents(
+            Iterable<UserEvent> userEvents, Option... opts) throws BizException;
+
     //ImportUserEvents
     //
     // Bulk import of User events.
@@ -97,6 +166,12 @@ public interface RetailClient extends CommonClient {
     OperationResponse importUserEvents(
             ImportUserEventsRequest request, Option... opts) throws NetException, BizException;
 
+    // ImportUserEventsAsync
+    //
+    // The async version of `importUserEvents`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<OperationResponse> importUserEventsAsync(ImportUserEventsRequest request, Option... opts);
+
     // Predict
     //
     // Gets the list of products (ranked).
@@ -107,6 +182,12 @@ public interface RetailClient extends CommonClient {
     PredictResponse predict(
             PredictRequest request, String scene, Option... opts) throws NetException, BizException;
 
+    // PredictAsync
+    //
+    // The async version of `predict`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<PredictResponse> predictAsync(PredictRequest request, String scene, Option... opts);
+
     // AckServerImpressions
     //
     // Sends back the actual product list shown to the users based on the
@@ -124,4 +205,21 @@ public interface RetailClient extends CommonClient {
     // ].
     AckServerImpressionsResponse ackServerImpressions(
             AckServerImpressionsRequest request, Option... opts) throws NetException, BizException;
+
+    // AckServerImpressionsAsync
+    //
+    // The async version of `ackServerImpressions`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<AckServerImpressionsResponse> ackServerImpressionsAsync(
+            AckServerImpressionsRequest request, Option... opts);
+
+    // ForTenant
+    //
+    // Returns a client of another tenant, which shares the http client, host
+    // availabler and hedging of this client, so a tenant view costs little
+    // memory and no threads. The view can be kept or created for each call,
+    // it needn't be released, and can't be used after this client is released.
+    // The write spool is not enabled for the view, if this client spools writeUserEvents,
+    // the writeUserEvents of the view fail rather than being sent without spool.
+    RetailClient forTenant(Tenant tenant);
 }
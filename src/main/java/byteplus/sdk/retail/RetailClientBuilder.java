@@ -1,7 +1,14 @@
 package byteplus.sdk.retail;
 
+import byteplus.sdk.core.AdaptiveRateLimiter;
+import byteplus.sdk.core.CircuitBreaker;
+import byteplus.sdk.core.CompressionPolicy;
+import byteplus.sdk.core.HTTPCaller;
 import byteplus.sdk.core.HostAvailabler;
+import byteplus.sdk.core.PredictCache;
 import byteplus.sdk.core.Region;
+import byteplus.sdk.core.RetryPolicy;
+import byteplus.sdk.core.WriteSpool;
 import byteplus.sdk.core.Context.Param;
 import byteplus.sdk.core.metrics.MetricsCollector;
 
@@ -60,6 +67,46 @@ public final class RetailClientBuilder {
         return this;
     }
 
+    public RetailClientBuilder httpCallerConfig(HTTPCaller.Config config) {
+        this.param.setHttpCallerConfig(config);
+        return this;
+    }
+
+    public RetailClientBuilder compressionPolicy(CompressionPolicy policy) {
+        this.param.setCompressionPolicy(policy);
+        return this;
+    }
+
+    public RetailClientBuilder endpointCompressionPolicies(Map<String, CompressionPolicy> policies) {
+        this.param.setEndpointCompressionPolicies(policies);
+        return this;
+    }
+
+    public RetailClientBuilder rateLimiterConfig(AdaptiveRateLimiter.Config config) {
+        this.param.setRateLimiterConfig(config);
+        return this;
+    }
+
+    public RetailClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+        this.param.setRetryPolicy(retryPolicy);
+        return this;
+    }
+
+    public RetailClientBuilder circuitBreakerConfig(CircuitBreaker.Config config) {
+        this.param.setCircuitBreakerConfig(config);
+        return this;
+    }
+
+    public RetailClientBuilder predictCacheConfig(PredictCache.Config config) {
+        this.param.setPredictCacheConfig(config);
+        return this;
+    }
+
+    public RetailClientBuilder writeSpoolConfig(WriteSpool.Config config) {
+        this.param.setWriteSpoolConfig(config);
+        return this;
+    }
+
     public RetailClient build() {
         // Except for air, all other environments default to airAuth
         this.param.setUseAirAuth(true);
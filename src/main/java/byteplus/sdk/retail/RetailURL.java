@@ -2,69 +2,140 @@ package byteplus.sdk.retail;
 
 import byteplus.sdk.common.CommonURL;
 import byteplus.sdk.core.Context;
-import byteplus.sdk.core.URLCenter;
-import lombok.Getter;
+import byteplus.sdk.core.HostURL;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-@Getter
-public final class RetailURL extends CommonURL implements URLCenter {
-    // The URL template of "predict" request, which need fill with "scene" info when use
+public final class RetailURL extends CommonURL {
+    // The path template of "predict" request, which need fill with "scene" info when use
     // Example: https://tob.sgsnssdk.com/predict/api/retail/demo/home
-    private final static String PREDICT_URL_FORMAT = "%s://%s/predict/api/retail/%s/{}";
+    private final static String PREDICT_PATH_FORMAT = "/predict/api/retail/%s/{}";
 
-    // The URL format of reporting the real exposure list
+    // The path format of reporting the real exposure list
     // Example: https://tob.sgsnssdk.com/predict/api/retail/demo/ack_server_impressions
-    private final static String ACK_IMPRESSION_URL_FORMAT = "%s://%s/predict/api/retail/%s/ack_server_impressions";
+    private final static String ACK_IMPRESSION_PATH_FORMAT = "/predict/api/retail/%s/ack_server_impressions";
 
-    // The URL format of data uploading
+    // The path format of data uploading
     // Example: https://tob.sgsnssdk.com/data/api/retail/retail_demo/user?method=write
-    private final static String UPLOAD_URL_FORMAT = "%s://%s/data/api/retail/%s/%s?method=%s";
-
-    // The URL template of "predict" request, which need fill with "scene" info when use
-    // Example: https://tob.sgsnssdk.com/predict/api/retail/demo/home
-    private volatile String predictUrlFormat;
+    private final static String UPLOAD_PATH_FORMAT = "/data/api/retail/%s/%s?method=%s";
 
     // The URL of reporting the real exposure list
     // Example: https://tob.sgsnssdk.com/predict/api/retail/demo/ack_server_impression
-    private volatile String ackImpressionUrl;
+    private final HostURL ackImpressionUrl;
 
     // The URL of uploading real-time user data
     // Example: https://tob.sgsnssdk.com/data/api/retail/retail_demo/user?method=write
-    private volatile String writeUsersUrl;
+    private final HostURL writeUsersUrl;
     // The URL of importing daily offline user data
     // Example: https://tob.sgsnssdk.com/data/api/retail/retail_demo/user?method=import
-    private volatile String importUsersUrl;
+    private final HostURL importUsersUrl;
 
     // The URL of uploading real-time product data
     // Example: https://tob.sgsnssdk.com/data/api/retail/retail_demo/product?method=write
-    private volatile String writeProductsUrl;
+    private final HostURL writeProductsUrl;
     // The URL of importing daily offline product data
     // Example: https://tob.sgsnssdk.com/data/api/retail/retail_demo/product?method=import
-    private volatile String importProductsUrl;
+    private final HostURL importProductsUrl;
 
     // The URL of uploading real-time user event data
     // Example: https://tob.sgsnssdk.com/data/api/retail/retail_demo/user_event?method=write
-    private volatile String writeUserEventsUrl;
+    private final HostURL writeUserEventsUrl;
     // The URL of importing daily offline product data
     // Example: https://tob.sgsnssdk.com/data/api/retail/retail_demo/user_event?method=import
-    private volatile String importUserEventsUrl;
+    private final HostURL importUserEventsUrl;
+
+    // The path of "predict" request, which need fill with "scene" info when use
+    private final String predictPathFormat;
 
     public RetailURL(Context context) {
         super(context);
-        refresh(context.getHosts().get(0));
-    }
-
-    @Override
-    public void refresh(String host) {
-        super.refresh(host);
-        predictUrlFormat = String.format(PREDICT_URL_FORMAT, schema, host, tenant);
-        ackImpressionUrl = String.format(ACK_IMPRESSION_URL_FORMAT, schema, host, tenant);
-        writeUsersUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "user", "write");
-        importUsersUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "user", "import");
-        writeProductsUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "product", "write");
-        importProductsUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "product", "import");
-        writeUserEventsUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "user_event", "write");
-        importUserEventsUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "user_event", "import");
+        predictPathFormat = String.format(PREDICT_PATH_FORMAT, tenant);
+        ackImpressionUrl = HostURL.of(schema, String.format(ACK_IMPRESSION_PATH_FORMAT, tenant));
+        writeUsersUrl = uploadUrl("user", "write");
+        importUsersUrl = uploadUrl("user", "import");
+        writeProductsUrl = uploadUrl("product", "write");
+        importProductsUrl = uploadUrl("product", "import");
+        writeUserEventsUrl = uploadUrl("user_event", "write");
+        importUserEventsUrl = uploadUrl("user_event", "import");
+    }
+
+    private HostURL uploadUrl(String topic, String method) {
+        return HostURL.of(schema, String.format(UPLOAD_PATH_FORMAT, tenant, topic, method));
+    }
+
+    // The URL of "predict" request of the scene
+    // Example: https://tob.sgsnssdk.com/predict/api/retail/demo/home
+    public HostURL predictUrl(String scene) {
+        return HostURL.of(schema, predictPathFormat.replace("{}", scene));
+    }
+
+    public HostURL ackImpressionUrl() {
+        return ackImpressionUrl;
+    }
+
+    public HostURL writeUsersUrl() {
+        return writeUsersUrl;
+    }
+
+    public HostURL importUsersUrl() {
+        return importUsersUrl;
+    }
+
+    public HostURL writeProductsUrl() {
+        return writeProductsUrl;
+    }
+
+    public HostURL importProductsUrl() {
+        return importProductsUrl;
+    }
+
+    public HostURL writeUserEventsUrl() {
+        return writeUserEventsUrl;
+    }
+
+    public HostURL importUserEventsUrl() {
+        return importUserEventsUrl;
+    }
+
+    // The string urls below are built for the refreshed host, use the HostURLs instead
+
+    @Deprecated
+    public String getAckImpressionUrl() {
+        return ackImpressionUrl.build(host);
+    }
+
+    @Deprecated
+    public String getWriteUsersUrl() {
+        return writeUsersUrl.build(host);
+    }
+
+    @Deprecated
+    public String getImportUsersUrl() {
+        return importUsersUrl.build(host);
+    }
+
+    @Deprecated
+    public String getWriteProductsUrl() {
+        return writeProductsUrl.build(host);
+    }
+
+    @Deprecated
+    public String getImportProductsUrl() {
+        return importProductsUrl.build(host);
+    }
+
+    @Deprecated
+    public String getWriteUserEventsUrl() {
+        return writeUserEventsUrl.build(host);
+    }
+
+    @Deprecated
+    public String getImportUserEventsUrl() {
+        return importUserEventsUrl.build(host);
+    }
+
+    @Deprecated
+    public String getPredictUrlFormat() {
+        return HostURL.of(schema, predictPathFormat).build(host);
     }
 }
@@ -2,12 +2,15 @@ package byteplus.sdk.retailv2;
 
 import byteplus.sdk.common.CommonClient;
 import byteplus.sdk.core.BizException;
+import byteplus.sdk.core.BulkWriteResult;
 import byteplus.sdk.core.NetException;
 import byteplus.sdk.core.Option;
+import byteplus.sdk.core.Tenant;
 
 import java.sql.Time;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.AckServerImpressionsRequest;
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.AckServerImpressionsResponse;
@@ -19,6 +22,12 @@ import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.WriteUserEventsReq
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.WriteUserEventsResponse;
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.WriteUsersRequest;
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.WriteUsersResponse;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.User;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.UserError;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.Product;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.ProductError;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.UserEvent;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.UserEventError;
 
 public interface RetailClient extends CommonClient {
     // WriteUsers
@@ -29,6 +38,20 @@ public interface RetailClient extends CommonClient {
     WriteUsersResponse writeUsers(
             WriteUsersRequest request, Option... opts) throws BizException, NetException;
 
+    // WriteUsersAsync
+    //
+    // The async version of `writeUsers`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<WriteUsersResponse> writeUsersAsync(WriteUsersRequest request, Option... opts);
+
+    // BulkWriteUsers
+    //
+    // Writes any number of users, the users are split into chunks of at most
+    // 2000 items, which are written concurrently, and the errors of all chunks
+    // are merged into the result. The chunk size, byte budget and parallelism
+    // can be configured by `Option.withBulkWriteConfig`.
+    BulkWriteResult<UserError> bulkWriteUsers(Iterable<User> users, Option... opts) throws BizException;
+
     // WriteProducts
     //
     // Writes at most 2000 products at a time. Exceeding 2000 in a request results
@@ -40,6 +63,20 @@ public interface RetailClient extends CommonClient {
     WriteProductsResponse writeProducts(
             WriteProductsRequest request, Option... opts) throws NetException, BizException;
 
+    // WriteProductsAsync
+    //
+    // The async version of `writeProducts`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<WriteProductsResponse> writeProductsAsync(WriteProductsRequest request, Option... opts);
+
+    // BulkWriteProducts
+    //
+    // Writes any number of products, the products are split into chunks of at most
+    // 2000 items, which are written concurrently, and the errors of all chunks
+    // are merged into the result. The chunk size, byte budget and parallelism
+    // can be configured by `Option.withBulkWriteConfig`.
+    BulkWriteResult<ProductError> bulkWriteProducts(Iterable<Product> products, Option... opts) throws BizException;
+
     // WriteUserEvents
     //
     // Writes at most 2000 UserEvents at a time. Exceeding 2000 in a request
@@ -47,9 +84,28 @@ public interface RetailClient extends CommonClient {
     // UserEvents.  Note: This is processing realtime data, so we won't dedupe
     // the requests.
     // Please make sure the requests are deduplicated before sending over.
+    // If the write spool is configured, the request failed with NetException is
+    // replayed in background with the same Request-Id, and SpooledException is
+    // thrown instead of the NetException, so don't send it again.
     WriteUserEventsResponse writeUserEvents(
             WriteUserEventsRequest request, Option... opts) throws NetException, BizException;
 
+    // WriteUserEventsAsync
+    //
+    // The async version of `writeUserEvents`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<WriteUserEventsResponse> writeUserEventsAsync(
+            WriteUserEventsRequest request, Option... opts);
+
+    // BulkWriteUserEvents
+    //
+    // Writes any number of user events, the user events are split into chunks of at most
+    // 2000 items, which are written concurrently, and the errors of all chunks
+    // are merged into the result. The chunk size, byte budget and parallelism
+    // can be configured by `Option.withBulkWriteConfig`.
+    BulkWriteResult<UserEventError> bulkWriteUserEvents(
+            Iterable<UserEvent> userEvents, Option... opts) throws BizException;
+
     // Predict
     //
     // Gets the list of products (ranked).
@@ -60,6 +116,12 @@ public interface RetailClient extends CommonClient {
     PredictResponse predict(
             PredictRequest request, String scene, Option... opts) throws NetException, BizException;
 
+    // PredictAsync
+    //
+    // The async version of `predict`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<PredictResponse> predictAsync(PredictRequest request, String scene, Option... opts);
+
     // AckServerImpressions
     //
     // Sends back the actual product list shown to the users based on the
@@ -77,4 +139,21 @@ public interface RetailClient extends CommonClient {
     // ].
     AckServerImpressionsResponse ackServerImpressions(
             AckServerImpressionsRequest request, Option... opts) throws NetException, BizException;
+
+    // AckServerImpressionsAsync
+    //
+    // The async version of `ackServerImpressions`, the returned future will be
+    // completed exceptionally with NetException or BizException when fail.
+    CompletableFuture<AckServerImpressionsResponse> ackServerImpressionsAsync(
+            AckServerImpressionsRequest request, Option... opts);
+
+    // ForTenant
+    //
+    // Returns a client of another tenant, which shares the http client, host
+    // availabler and hedging of this client, so a tenant view costs little
+    // memory and no threads. The view can be kept or created for each call,
+    // it needn't be released, and can't be used after this client is released.
+    // The write spool is not enabled for the view, if this client spools writeUserEvents,
+    // the writeUserEvents of the view fail rather than being sent without spool.
+    RetailClient forTenant(Tenant tenant);
 }
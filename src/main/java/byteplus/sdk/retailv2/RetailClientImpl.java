@@ -2,9 +2,17 @@ package byteplus.sdk.retailv2;
 
 import byteplus.sdk.common.CommonClientImpl;
 import byteplus.sdk.core.BizException;
+import byteplus.sdk.core.BulkWriteResult;
+import byteplus.sdk.core.BulkWriter;
 import byteplus.sdk.core.Context;
+import byteplus.sdk.core.Helper;
+import byteplus.sdk.core.HostURL;
 import byteplus.sdk.core.NetException;
 import byteplus.sdk.core.Option;
+import byteplus.sdk.core.PartialRetrier;
+import byteplus.sdk.core.PredictCache;
+import byteplus.sdk.core.Tenant;
+import byteplus.sdk.core.WriteSpool;
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.AckServerImpressionsRequest;
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.AckServerImpressionsResponse;
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.PredictRequest;
@@ -15,10 +23,21 @@ import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.WriteUserEventsReq
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.WriteUserEventsResponse;
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.WriteUsersRequest;
 import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.WriteUsersResponse;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.User;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.UserError;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.Product;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.ProductError;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.UserEvent;
+import static byteplus.sdk.retailv2.protocol.ByteplusRetailv2.UserEventError;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Parser;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
 import static byteplus.sdk.core.Constant.MAX_WRITE_ITEM_COUNT;
+import static byteplus.sdk.core.Constant.STATUS_CODE_SUCCESS;
 
 
 @Slf4j
@@ -28,14 +47,30 @@ class RetailClientImpl extends CommonClientImpl implements RetailClient {
 
     private final RetailURL retailUrl;
 
+    // null if the predict cache is not configured, shared by the tenant views
+    private final PredictCache predictCache;
+
+    // Spool of writeUserEvents requests, null if it's not configured or this is a tenant view
+    private final WriteSpool userEventSpool;
+
     RetailClientImpl(Context.Param param) {
         super(param);
         this.retailUrl = new RetailURL(context);
+        this.predictCache = PredictCache.create(context.getPredictCacheConfig());
+        this.userEventSpool = openWriteSpool(this::replayUserEvents);
+    }
+
+    private RetailClientImpl(RetailClientImpl client, Tenant tenant) {
+        super(client, tenant);
+        this.retailUrl = new RetailURL(context);
+        this.predictCache = client.predictCache;
+        this.userEventSpool = null;
     }
 
+
     @Override
-    public void doRefresh(String host) {
-        this.retailUrl.refresh(host);
+    public RetailClient forTenant(Tenant tenant) {
+        return new RetailClientImpl(this, tenant);
     }
 
     @Override
@@ -44,58 +79,326 @@ class RetailClientImpl extends CommonClientImpl implements RetailClient {
         if (request.getUsersCount() > MAX_WRITE_ITEM_COUNT) {
             throw new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS);
         }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newUsersRetrier(retryConfig).write(request.getUsersList(), opts,
+                    (users, attemptOpts) -> doWriteUsers(
+                            request.toBuilder().clearUsers().addAllUsers(users).build(), attemptOpts));
+        }
+        return doWriteUsers(request, opts);
+    }
+
+    private WriteUsersResponse doWriteUsers(
+            WriteUsersRequest request, Option... opts) throws NetException, BizException {
         Parser<WriteUsersResponse> parser = WriteUsersResponse.parser();
-        String url = retailUrl.getWriteUsersUrl();
+        HostURL url = retailUrl.writeUsersUrl();
         WriteUsersResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][WriteUsers] rsp:\n{}", response);
         return response;
     }
 
+    @Override
+    public CompletableFuture<WriteUsersResponse> writeUsersAsync(WriteUsersRequest request, Option... opts) {
+        if (request.getUsersCount() > MAX_WRITE_ITEM_COUNT) {
+            return Helper.failedFuture(new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS));
+        }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newUsersRetrier(retryConfig).writeAsync(request.getUsersList(), opts,
+                    (users, attemptOpts) -> doWriteUsersAsync(
+                            request.toBuilder().clearUsers().addAllUsers(users).build(), attemptOpts));
+        }
+        return doWriteUsersAsync(request, opts);
+    }
+
+    private CompletableFuture<WriteUsersResponse> doWriteUsersAsync(
+            WriteUsersRequest request, Option... opts) {
+        Parser<WriteUsersResponse> parser = WriteUsersResponse.parser();
+        HostURL url = retailUrl.writeUsersUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][WriteUsers] rsp:\n{}", response);
+                    return response;
+                });
+    }
+
+    private PartialRetrier<User, WriteUsersResponse, UserError> newUsersRetrier(
+            PartialRetrier.Config config) {
+        return new PartialRetrier<>(config,
+                response -> response.getStatus().getCode(),
+                WriteUsersResponse::getErrorsList,
+                UserError::getUser,
+                UserError::getMessage,
+                (response, code, errors) -> response.toBuilder()
+                        .setStatus(response.getStatus().toBuilder().setCode(code))
+                        .clearErrors().addAllErrors(errors).build());
+    }
+
+    @Override
+    public BulkWriteResult<UserError> bulkWriteUsers(Iterable<User> users, Option... opts) throws BizException {
+        Option[] chunkOpts = BulkWriter.chunkOptions(opts);
+        BulkWriter<User, WriteUsersResponse, UserError> writer = new BulkWriter<>(
+                Option.conv2Options(opts).getBulkWriteConfig(),
+                chunk -> writeUsersAsync(WriteUsersRequest.newBuilder().addAllUsers(chunk).build(), chunkOpts),
+                response -> response.getStatus().getCode(),
+                response -> response.getStatus().getMessage(),
+                WriteUsersResponse::getErrorsList,
+                UserError::getUser,
+                (user, message) -> UserError.newBuilder().setUser(user).setMessage(message).build());
+        return writer.write(users);
+    }
+
     @Override
     public WriteProductsResponse writeProducts(
             WriteProductsRequest request, Option... opts) throws NetException, BizException {
         if (request.getProductsCount() > MAX_WRITE_ITEM_COUNT) {
             throw new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS);
         }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newProductsRetrier(retryConfig).write(request.getProductsList(), opts,
+                    (products, attemptOpts) -> doWriteProducts(
+                            request.toBuilder().clearProducts().addAllProducts(products).build(), attemptOpts));
+        }
+        return doWriteProducts(request, opts);
+    }
+
+    private WriteProductsResponse doWriteProducts(
+            WriteProductsRequest request, Option... opts) throws NetException, BizException {
         Parser<WriteProductsResponse> parser = WriteProductsResponse.parser();
-        String url = retailUrl.getWriteProductsUrl();
+        HostURL url = retailUrl.writeProductsUrl();
         WriteProductsResponse response =
                 httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][WriteProducts] rsp:\n{}", response);
         return response;
     }
 
+    @Override
+    public CompletableFuture<WriteProductsResponse> writeProductsAsync(
+            WriteProductsRequest request, Option... opts) {
+        if (request.getProductsCount() > MAX_WRITE_ITEM_COUNT) {
+            return Helper.failedFuture(new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS));
+        }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newProductsRetrier(retryConfig).writeAsync(request.getProductsList(), opts,
+                    (products, attemptOpts) -> doWriteProductsAsync(
+                            request.toBuilder().clearProducts().addAllProducts(products).build(), attemptOpts));
+        }
+        return doWriteProductsAsync(request, opts);
+    }
+
+    private CompletableFuture<WriteProductsResponse> doWriteProductsAsync(
+            WriteProductsRequest request, Option... opts) {
+        Parser<WriteProductsResponse> parser = WriteProductsResponse.parser();
+        HostURL url = retailUrl.writeProductsUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][WriteProducts] rsp:\n{}", response);
+                    return response;
+                });
+    }
+
+    private PartialRetrier<Product, WriteProductsResponse, ProductError> newProductsRetrier(
+            PartialRetrier.Config config) {
+        return new PartialRetrier<>(config,
+                response -> response.getStatus().getCode(),
+                WriteProductsResponse::getErrorsList,
+                ProductError::getProduct,
+                ProductError::getMessage,
+                (response, code, errors) -> response.toBuilder()
+                        .setStatus(response.getStatus().toBuilder().setCode(code))
+                        .clearErrors().addAllErrors(errors).build());
+    }
+
+    @Override
+    public BulkWriteResult<ProductError> bulkWriteProducts(
+            Iterable<Product> products, Option... opts) throws BizException {
+        Option[] chunkOpts = BulkWriter.chunkOptions(opts);
+        BulkWriter<Product, WriteProductsResponse, ProductError> writer = new BulkWriter<>(
+                Option.conv2Options(opts).getBulkWriteConfig(),
+                chunk -> writeProductsAsync(WriteProductsRequest.newBuilder().addAllProducts(chunk).build(), chunkOpts),
+                response -> response.getStatus().getCode(),
+                response -> response.getStatus().getMessage(),
+                WriteProductsResponse::getErrorsList,
+                ProductError::getProduct,
+                (product, message) -> ProductError.newBuilder().setProduct(product).setMessage(message).build());
+        return writer.write(products);
+    }
+
     @Override
     public WriteUserEventsResponse writeUserEvents(
             WriteUserEventsRequest request, Option... opts) throws NetException, BizException {
         if (request.getUserEventsCount() > MAX_WRITE_ITEM_COUNT) {
             throw new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS);
         }
+        if (isViewOfSpooledClient()) {
+            throw new BizException(ERR_MSG_VIEW_SPOOL);
+        }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newUserEventsRetrier(retryConfig).write(request.getUserEventsList(), opts,
+                    (userEvents, attemptOpts) -> spoolWriteUserEvents(
+                            request.toBuilder().clearUserEvents().addAllUserEvents(userEvents).build(), attemptOpts));
+        }
+        return spoolWriteUserEvents(request, opts);
+    }
+
+    private WriteUserEventsResponse spoolWriteUserEvents(
+            WriteUserEventsRequest request, Option... opts) throws NetException, BizException {
+        if (Objects.nonNull(userEventSpool)) {
+            return userEventSpool.write(request, opts, spoolOpts -> doWriteUserEvents(request, spoolOpts));
+        }
+        return doWriteUserEvents(request, opts);
+    }
+
+    private WriteUserEventsResponse doWriteUserEvents(
+            WriteUserEventsRequest request, Option... opts) throws NetException, BizException {
         Parser<WriteUserEventsResponse> parser = WriteUserEventsResponse.parser();
-        String url = retailUrl.getWriteUserEventsUrl();
+        HostURL url = retailUrl.writeUserEventsUrl();
         WriteUserEventsResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][WriteUserEvents] rsp:\n{}", response);
         return response;
     }
 
+    @Override
+    public CompletableFuture<WriteUserEventsResponse> writeUserEventsAsync(
+            WriteUserEventsRequest request, Option... opts) {
+        if (request.getUserEventsCount() > MAX_WRITE_ITEM_COUNT) {
+            return Helper.failedFuture(new BizException(ERR_MSG_TOO_MANY_WRITE_ITEMS));
+        }
+        if (isViewOfSpooledClient()) {
+            return Helper.failedFuture(new BizException(ERR_MSG_VIEW_SPOOL));
+        }
+        PartialRetrier.Config retryConfig = Option.conv2Options(opts).getPartialRetryConfig();
+        if (Objects.nonNull(retryConfig)) {
+            return newUserEventsRetrier(retryConfig).writeAsync(request.getUserEventsList(), opts,
+                    (userEvents, attemptOpts) -> spoolWriteUserEventsAsync(
+                            request.toBuilder().clearUserEvents().addAllUserEvents(userEvents).build(), attemptOpts));
+        }
+        return spoolWriteUserEventsAsync(request, opts);
+    }
+
+    private CompletableFuture<WriteUserEventsResponse> spoolWriteUserEventsAsync(
+            WriteUserEventsRequest request, Option... opts) {
+        if (Objects.nonNull(userEventSpool)) {
+            return userEventSpool.writeAsync(request, opts, spoolOpts -> doWriteUserEventsAsync(request, spoolOpts));
+        }
+        return doWriteUserEventsAsync(request, opts);
+    }
+
+    private CompletableFuture<WriteUserEventsResponse> doWriteUserEventsAsync(
+            WriteUserEventsRequest request, Option... opts) {
+        Parser<WriteUserEventsResponse> parser = WriteUserEventsResponse.parser();
+        HostURL url = retailUrl.writeUserEventsUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][WriteUserEvents] rsp:\n{}", response);
+                    return response;
+                });
+    }
+
+    private PartialRetrier<UserEvent, WriteUserEventsResponse, UserEventError> newUserEventsRetrier(
+            PartialRetrier.Config config) {
+        return new PartialRetrier<>(config,
+                response -> response.getStatus().getCode(),
+                WriteUserEventsResponse::getErrorsList,
+                UserEventError::getUserEvent,
+                UserEventError::getMessage,
+                (response, code, errors) -> response.toBuilder()
+                        .setStatus(response.getStatus().toBuilder().setCode(code))
+                        .clearErrors().addAllErrors(errors).build());
+    }
+
+    // Replay the spooled request with the Request-Id of original request, the other options are not kept
+    private void replayUserEvents(byte[] bytes, Option[] opts) throws NetException, BizException {
+        WriteUserEventsRequest request;
+        try {
+            request = WriteUserEventsRequest.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new BizException("parse spooled request fail, " + e.getMessage());
+        }
+        WriteUserEventsResponse response = doWriteUserEvents(request, opts);
+        if (response.getStatus().getCode() != STATUS_CODE_SUCCESS) {
+            log.warn("[ByteplusSDK][WriteUserEvents] replay request not success, rsp:{}", response.getStatus());
+        }
+    }
+
+    @Override
+    public BulkWriteResult<UserEventError> bulkWriteUserEvents(
+            Iterable<UserEvent> userEvents, Option... opts) throws BizException {
+        Option[] chunkOpts = BulkWriter.chunkOptions(opts);
+        BulkWriter<UserEvent, WriteUserEventsResponse, UserEventError> writer = new BulkWriter<>(
+                Option.conv2Options(opts).getBulkWriteConfig(),
+                chunk -> writeUserEventsAsync(
+                        WriteUserEventsRequest.newBuilder().addAllUserEvents(chunk).build(), chunkOpts),
+                response -> response.getStatus().getCode(),
+                response -> response.getStatus().getMessage(),
+                WriteUserEventsResponse::getErrorsList,
+                UserEventError::getUserEvent,
+                (userEvent, message) ->
+                        UserEventError.newBuilder().setUserEvent(userEvent).setMessage(message).build());
+        return writer.write(userEvents);
+    }
+
     @Override
     public PredictResponse predict(
             PredictRequest request, String scene, Option... opts) throws NetException, BizException {
-        String urlFormat = retailUrl.getPredictUrlFormat();
-        String url = urlFormat.replace("{}", scene);
+        HostURL url = retailUrl.predictUrl(scene);
         Parser<PredictResponse> parser = PredictResponse.parser();
-        PredictResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
+        PredictResponse response;
+        if (Objects.isNull(predictCache)) {
+            response = hedgedCaller.doPBRequest(url, request, parser, opts);
+        } else {
+            response = predictCache.load(context.getTenant(), scene, request, RetailClientImpl::isCacheable,
+                    () -> hedgedCaller.doPBRequest(url, request, parser, opts));
+        }
         log.debug("[ByteplusSDK][Predict] rsp:\n{}", response);
         return response;
     }
 
+    @Override
+    public CompletableFuture<PredictResponse> predictAsync(
+            PredictRequest request, String scene, Option... opts) {
+        HostURL url = retailUrl.predictUrl(scene);
+        Parser<PredictResponse> parser = PredictResponse.parser();
+        CompletableFuture<PredictResponse> future;
+        if (Objects.isNull(predictCache)) {
+            future = hedgedCaller.doPBRequestAsync(url, request, parser, opts);
+        } else {
+            future = predictCache.loadAsync(context.getTenant(), scene, request, RetailClientImpl::isCacheable,
+                    () -> hedgedCaller.doPBRequestAsync(url, request, parser, opts));
+        }
+        return future.thenApply(response -> {
+            log.debug("[ByteplusSDK][Predict] rsp:\n{}", response);
+            return response;
+        });
+    }
+
+    // Only the successful predict responses are cached
+    private static boolean isCacheable(PredictResponse rsp) {
+        return rsp.getStatus().getCode() == STATUS_CODE_SUCCESS;
+    }
+
     @Override
     public AckServerImpressionsResponse ackServerImpressions(
             AckServerImpressionsRequest request, Option... opts) throws NetException, BizException {
         Parser<AckServerImpressionsResponse> parser = AckServerImpressionsResponse.parser();
-        String url = retailUrl.getAckImpressionUrl();
+        HostURL url = retailUrl.ackImpressionUrl();
         AckServerImpressionsResponse response = httpCaller.doPBRequest(url, request, parser, Option.conv2Options(opts));
         log.debug("[ByteplusSDK][AckImpressions] rsp:\n{}", response);
         return response;
     }
+
+    @Override
+    public CompletableFuture<AckServerImpressionsResponse> ackServerImpressionsAsync(
+            AckServerImpressionsRequest request, Option... opts) {
+        Parser<AckServerImpressionsResponse> parser = AckServerImpressionsResponse.parser();
+        HostURL url = retailUrl.ackImpressionUrl();
+        return httpCaller.doPBRequestAsync(url, request, parser, Option.conv2Options(opts))
+                .thenApply(response -> {
+                    log.debug("[ByteplusSDK][AckImpressions] rsp:\n{}", response);
+                    return response;
+                });
+    }
 }
\ No newline at end of file
@@ -2,57 +2,101 @@ package byteplus.sdk.retailv2;
 
 import byteplus.sdk.common.CommonURL;
 import byteplus.sdk.core.Context;
-import byteplus.sdk.core.URLCenter;
-import lombok.Getter;
+import byteplus.sdk.core.HostURL;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-@Getter
-public final class RetailURL extends CommonURL implements URLCenter {
-    // The URL template of "predict" request, which need fill with "scene" info when use
+public final class RetailURL extends CommonURL {
+    // The path template of "predict" request, which need fill with "scene" info when use
     // Example: https://tob.sgsnssdk.com/predict/api/retail/demo/home
-    private final static String PREDICT_URL_FORMAT = "%s://%s/predict/api/retail/%s/{}";
+    private final static String PREDICT_PATH_FORMAT = "/predict/api/retail/%s/{}";
 
-    // The URL format of reporting the real exposure list
+    // The path format of reporting the real exposure list
     // Example: https://tob.sgsnssdk.com/predict/api/retail/demo/ack_server_impressions
-    private final static String ACK_IMPRESSION_URL_FORMAT = "%s://%s/predict/api/retail/%s/ack_server_impressions";
+    private final static String ACK_IMPRESSION_PATH_FORMAT = "/predict/api/retail/%s/ack_server_impressions";
 
-    // The URL format of data uploading
+    // The path format of data uploading
     // Example: https://tob.sgsnssdk.com/data/api/retail/v2/retail_demo/user?method=write
-    private final static String UPLOAD_URL_FORMAT = "%s://%s/data/api/retail/v2/%s/%s?method=%s";
-
-    // The URL template of "predict" request, which need fill with "scene" info when use
-    // Example: https://tob.sgsnssdk.com/predict/api/retail/demo/home
-    private volatile String predictUrlFormat;
+    private final static String UPLOAD_PATH_FORMAT = "/data/api/retail/v2/%s/%s?method=%s";
 
     // The URL of reporting the real exposure list
     // Example: https://tob.sgsnssdk.com/predict/api/retail/demo/ack_server_impression
-    private volatile String ackImpressionUrl;
+    private final HostURL ackImpressionUrl;
 
     // The URL of uploading real-time user data
     // Example: https://tob.sgsnssdk.com/data/api/retail/v2/retail_demo/user?method=write
-    private volatile String writeUsersUrl;
+    private final HostURL writeUsersUrl;
 
     // The URL of uploading real-time product data
     // Example: https://tob.sgsnssdk.com/data/api/retail/v2/retail_demo/product?method=write
-    private volatile String writeProductsUrl;
+    private final HostURL writeProductsUrl;
 
     // The URL of uploading real-time user event data
     // Example: https://tob.sgsnssdk.com/data/api/retail/v2/retail_demo/user_event?method=write
-    private volatile String writeUserEventsUrl;
+    private final HostURL writeUserEventsUrl;
+
+    // The path of "predict" request, which need fill with "scene" info when use
+    private final String predictPathFormat;
 
     public RetailURL(Context context) {
         super(context);
-        refresh(context.getHosts().get(0));
+        predictPathFormat = String.format(PREDICT_PATH_FORMAT, tenant);
+        ackImpressionUrl = HostURL.of(schema, String.format(ACK_IMPRESSION_PATH_FORMAT, tenant));
+        writeUsersUrl = uploadUrl("user", "write");
+        writeProductsUrl = uploadUrl("product", "write");
+        writeUserEventsUrl = uploadUrl("user_event", "write");
+    }
+
+    private HostURL uploadUrl(String topic, String method) {
+        return HostURL.of(schema, String.format(UPLOAD_PATH_FORMAT, tenant, topic, method));
+    }
+
+    // The URL of "predict" request of the scene
+    // Example: https://tob.sgsnssdk.com/predict/api/retail/demo/home
+    public HostURL predictUrl(String scene) {
+        return HostURL.of(schema, predictPathFormat.replace("{}", scene));
+    }
+
+    public HostURL ackImpressionUrl() {
+        return ackImpressionUrl;
+    }
+
+    public HostURL writeUsersUrl() {
+        return writeUsersUrl;
+    }
+
+    public HostURL writeProductsUrl() {
+        return writeProductsUrl;
+    }
+
+    public HostURL writeUserEventsUrl() {
+        return writeUserEventsUrl;
+    }
+
+    // The string urls below are built for the refreshed host, use the HostURLs instead
+
+    @Deprecated
+    public String getAckImpressionUrl() {
+        return ackImpressionUrl.build(host);
+    }
+
+    @Deprecated
+    public String getWriteUsersUrl() {
+        return writeUsersUrl.build(host);
+    }
+
+    @Deprecated
+    public String getWriteProductsUrl() {
+        return writeProductsUrl.build(host);
+    }
+
+    @Deprecated
+    public String getWriteUserEventsUrl() {
+        return writeUserEventsUrl.build(host);
     }
 
-    @Override
-    public void refresh(String host) {
-        super.refresh(host);
-        predictUrlFormat = String.format(PREDICT_URL_FORMAT, schema, host, tenant);
-        ackImpressionUrl = String.format(ACK_IMPRESSION_URL_FORMAT, schema, host, tenant);
-        writeUsersUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "user", "write");
-        writeProductsUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "product", "write");
-        writeUserEventsUrl = String.format(UPLOAD_URL_FORMAT, schema, host, tenant, "user_event", "write");
+    @Deprecated
+    public String getPredictUrlFormat() {
+        return HostURL.of(schema, predictPathFormat).build(host);
     }
 }
@@ -0,0 +1,112 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictResponse;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdaptiveRateLimiterTest {
+    private static final PredictRequest REQUEST = PredictRequest.newBuilder().setUserId("user_id").build();
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        // throttle the first request only
+        AtomicBoolean throttled = new AtomicBoolean();
+        server = MockServers.start(request -> {
+            if (throttled.compareAndSet(false, true)) {
+                return new MockResponse().setResponseCode(429);
+            }
+            return MockServers.pbResponse(PredictResponse.getDefaultInstance());
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static AdaptiveRateLimiter.Config.ConfigBuilder config() {
+        return AdaptiveRateLimiter.Config.builder().minRate(1).maxWait(Duration.ZERO);
+    }
+
+    private HTTPCaller newCaller(String tenant, AdaptiveRateLimiter.Config config) {
+        Context.Param param = MockServers.param(server).setTenant(tenant).setRateLimiterConfig(config);
+        return new HTTPCaller(new Context(param));
+    }
+
+    // Send requests until one is rejected by the limiter, return the number of requests sent
+    private int sendUntilRejected(HTTPCaller caller, int maxRequests) {
+        HostURL url = HostURL.of("http", "/predict/api/retail/test_tenant/home");
+        for (int i = 0; i < maxRequests; i++) {
+            try {
+                caller.doPBRequest(url, REQUEST, PredictResponse.parser(), new Options());
+            } catch (BizException e) {
+                if (e.getMessage().contains("rate limiter")) {
+                    return i;
+                }
+            } catch (NetException e) {
+                fail(e.getMessage());
+            }
+        }
+        return maxRequests;
+    }
+
+    @Test
+    public void testSharedByTenantViews() {
+        Context.Param param = MockServers.param(server).setRateLimiterConfig(config().build());
+        Context context = new Context(param);
+        HTTPCaller caller = new HTTPCaller(context);
+        Tenant tenant = Tenant.builder().tenant("test_tenant").tenantId("test_tenant_id").token("test_token").build();
+        HTTPCaller view = caller.forTenant(context.forTenant(tenant));
+        HTTPCaller anotherView = caller.forTenant(context.forTenant(tenant.toBuilder().tenant("another_tenant").build()));
+
+        sendUntilRejected(caller, 20);
+
+        // the view of the same tenant is limited by the limiter of the client
+        assertEquals(0, sendUntilRejected(view, 20));
+        assertEquals(20, sendUntilRejected(anotherView, 20));
+    }
+
+    @Test
+    public void testThrottleLimitsRate() {
+        AdaptiveRateLimiter limiter = AdaptiveRateLimiter.create(config().build(), "throttle_tenant", "data-api");
+        assertEquals(0, limiter.acquire());
+        assertEquals(0, limiter.getRate(), 0);
+
+        limiter.onThrottled();
+
+        assertEquals(1, limiter.getRate(), 0);
+        assertEquals(0, limiter.acquire());
+        // the next permit is 1s later, which is longer than maxWait
+        assertEquals(-1, limiter.acquire());
+    }
+
+    @Test
+    public void testNotLimitedWithoutConfig() {
+        HTTPCaller caller = newCaller("no_limiter_tenant", null);
+
+        assertEquals(20, sendUntilRejected(caller, 20));
+    }
+
+    @Test
+    public void testLimitedAfterHttp429() {
+        HTTPCaller caller = newCaller("limiter_tenant", config().build());
+
+        int sent = sendUntilRejected(caller, 20);
+
+        // the throttled request, and the one permit of 1/s
+        assertTrue("sent:" + sent, sent >= 1 && sent <= 3);
+    }
+}
@@ -0,0 +1,182 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.retail.protocol.ByteplusRetail.UserEvent;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchPipelineTest {
+    private final List<List<UserEvent>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private static UserEvent event(String userId) {
+        return UserEvent.newBuilder().setUserId(userId).build();
+    }
+
+    private BatchPipeline<UserEvent, Object> newPipeline(BatchPipeline.Config config) {
+        return new BatchPipeline<>(config, batch -> {
+            batches.add(batch);
+            return new BulkWriteResult<>(batch.size(), batch.size(), 1, Collections.emptyList());
+        }, null);
+    }
+
+    private List<UserEvent> written() {
+        List<UserEvent> events = new ArrayList<>();
+        synchronized (batches) {
+            batches.forEach(events::addAll);
+        }
+        return events;
+    }
+
+    @Test
+    public void testWriteWhenBatchIsFull() throws Exception {
+        BatchPipeline<UserEvent, Object> pipeline = newPipeline(BatchPipeline.Config.builder()
+                .batchSize(3).linger(Duration.ofMinutes(1)).build());
+        for (int i = 0; i < 6; i++) {
+            assertTrue(pipeline.offer(event("user_" + i)));
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (batches.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, batches.size());
+        assertEquals(3, batches.get(0).size());
+        pipeline.close();
+    }
+
+    @Test
+    public void testWriteWhenLingerExpires() throws Exception {
+        BatchPipeline<UserEvent, Object> pipeline = newPipeline(BatchPipeline.Config.builder()
+                .linger(Duration.ofMillis(50)).build());
+        pipeline.offer(event("user"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (batches.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(Collections.singletonList(event("user")), written());
+        pipeline.close();
+    }
+
+    @Test
+    public void testFlushWaitsForItsOwnItems() throws Exception {
+        UserEvent slow = event("slow");
+        UserEvent fast = event("fast");
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch slowRelease = new CountDownLatch(1);
+        CountDownLatch fastWritten = new CountDownLatch(1);
+        BatchPipeline<UserEvent, Object> pipeline = new BatchPipeline<>(BatchPipeline.Config.builder()
+                .batchSize(1).workers(2).build(), batch -> {
+            if (batch.contains(slow)) {
+                slowStarted.countDown();
+                try {
+                    slowRelease.await();
+                } catch (InterruptedException e) {
+                    throw new BizException("interrupted");
+                }
+            } else {
+                fastWritten.countDown();
+            }
+            return new BulkWriteResult<>(batch.size(), batch.size(), 1, Collections.emptyList());
+        }, null);
+
+        pipeline.offer(slow);
+        assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> flushed = CompletableFuture.runAsync(() -> {
+            try {
+                pipeline.flush();
+            } catch (BizException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        // let the flush take its target before the fast item is accepted
+        Thread.sleep(50);
+        pipeline.offer(fast);
+        assertTrue(fastWritten.await(5, TimeUnit.SECONDS));
+
+        // the item written after flush doesn't finish the flush of the slow one
+        try {
+            flushed.get(200, TimeUnit.MILLISECONDS);
+            fail("flush returns before the slow item is written");
+        } catch (TimeoutException expected) {
+        }
+        slowRelease.countDown();
+        flushed.get(5, TimeUnit.SECONDS);
+        pipeline.close();
+    }
+
+    @Test
+    public void testCloseWritesAllAcceptedItems() throws Exception {
+        BatchPipeline<UserEvent, Object> pipeline = newPipeline(BatchPipeline.Config.builder()
+                .batchSize(7).linger(Duration.ofMinutes(1)).build());
+        AtomicLong accepted = new AtomicLong();
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread producer = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    if (pipeline.offer(event("user_" + j))) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+
+        Thread.sleep(5);
+        pipeline.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertEquals(accepted.get(), written().size());
+        assertEquals(40000 - accepted.get(), pipeline.getRejectedCount());
+        assertFalse(pipeline.offer(event("user")));
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        BatchPipeline<UserEvent, Object> pipeline = newPipeline(BatchPipeline.Config.builder()
+                .queueCapacity(2).linger(Duration.ofMinutes(1))
+                .backpressureMode(BatchPipeline.BackpressureMode.DROP_OLDEST).build());
+
+        assertTrue(pipeline.offer(event("a")));
+        assertTrue(pipeline.offer(event("b")));
+        assertTrue(pipeline.offer(event("c")));
+        pipeline.close();
+
+        assertEquals(Arrays.asList(event("b"), event("c")), written());
+        assertEquals(1, pipeline.getDroppedCount());
+    }
+
+    @Test
+    public void testReject() throws Exception {
+        BatchPipeline<UserEvent, Object> pipeline = newPipeline(BatchPipeline.Config.builder()
+                .queueCapacity(2).linger(Duration.ofMinutes(1))
+                .backpressureMode(BatchPipeline.BackpressureMode.REJECT).build());
+
+        assertTrue(pipeline.offer(event("a")));
+        assertTrue(pipeline.offer(event("b")));
+        assertFalse(pipeline.offer(event("c")));
+        pipeline.close();
+
+        assertEquals(Arrays.asList(event("a"), event("b")), written());
+        assertEquals(1, pipeline.getRejectedCount());
+    }
+}
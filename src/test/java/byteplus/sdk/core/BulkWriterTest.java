@@ -0,0 +1,150 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.common.protocol.ByteplusCommon.Status;
+import byteplus.sdk.retail.protocol.ByteplusRetail.User;
+import byteplus.sdk.retail.protocol.ByteplusRetail.UserError;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersResponse;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static byteplus.sdk.core.Constant.STATUS_CODE_PARTIAL_FAILURE;
+import static byteplus.sdk.core.Constant.STATUS_CODE_SUCCESS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BulkWriterTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(User.newBuilder().setUserId("user_" + i).build());
+        }
+        return users;
+    }
+
+    private static WriteUsersResponse response(int code, User... failedUsers) {
+        WriteUsersResponse.Builder builder = WriteUsersResponse.newBuilder()
+                .setStatus(Status.newBuilder().setCode(code).setMessage("message"));
+        for (User user : failedUsers) {
+            builder.addErrors(UserError.newBuilder().setUser(user).setMessage("invalid"));
+        }
+        return builder.build();
+    }
+
+    private static BulkWriter<User, WriteUsersResponse, UserError> newWriter(
+            BulkWriter.Config config, Function<List<User>, CompletableFuture<WriteUsersResponse>> chunkWriter) {
+        return new BulkWriter<>(config, chunkWriter,
+                response -> response.getStatus().getCode(),
+                response -> response.getStatus().getMessage(),
+                WriteUsersResponse::getErrorsList,
+                UserError::getUser,
+                (user, message) -> UserError.newBuilder().setUser(user).setMessage(message).build());
+    }
+
+    @Test
+    public void testChunkByItemCount() throws Exception {
+        List<List<User>> chunks = Collections.synchronizedList(new ArrayList<>());
+        BulkWriter.Config config = BulkWriter.Config.builder().maxChunkItems(2).build();
+
+        BulkWriteResult<UserError> result = newWriter(config, chunk -> {
+            chunks.add(chunk);
+            return CompletableFuture.completedFuture(response(STATUS_CODE_SUCCESS));
+        }).write(users(5));
+
+        assertEquals(3, chunks.size());
+        assertEquals(3, result.getChunkCount());
+        assertEquals(5, result.getTotalCount());
+        assertEquals(5, result.getSuccessCount());
+        assertTrue(result.isSuccess());
+    }
+
+    @Test
+    public void testChunkByBytes() throws Exception {
+        List<User> users = users(10);
+        long itemBytes = users.get(0).getSerializedSize();
+        BulkWriter.Config config = BulkWriter.Config.builder().maxChunkBytes(itemBytes * 3).build();
+
+        BulkWriteResult<UserError> result = newWriter(config,
+                chunk -> CompletableFuture.completedFuture(response(STATUS_CODE_SUCCESS))).write(users);
+
+        assertEquals(4, result.getChunkCount());
+    }
+
+    @Test
+    public void testPartialFailureIsClassifiedByErrors() throws Exception {
+        List<User> users = users(4);
+        User failed = users.get(1);
+
+        // the errors are returned with code 0, and the failed item has two errors
+        BulkWriteResult<UserError> result = newWriter(null, chunk -> CompletableFuture.completedFuture(
+                response(STATUS_CODE_SUCCESS, failed, failed))).write(users);
+
+        assertEquals(3, result.getSuccessCount());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(failed, result.getErrors().get(0).getUser());
+
+        result = newWriter(null, chunk -> CompletableFuture.completedFuture(
+                response(STATUS_CODE_PARTIAL_FAILURE, failed))).write(users);
+
+        assertEquals(3, result.getSuccessCount());
+    }
+
+    @Test
+    public void testFailedChunkReportsAllItems() throws Exception {
+        BulkWriter.Config config = BulkWriter.Config.builder().maxChunkItems(2).build();
+        AtomicInteger chunkIndex = new AtomicInteger();
+
+        BulkWriteResult<UserError> result = newWriter(config, chunk -> {
+            switch (chunkIndex.getAndIncrement()) {
+                case 0:
+                    return CompletableFuture.completedFuture(response(STATUS_CODE_SUCCESS));
+                case 1:
+                    return CompletableFuture.completedFuture(response(400));
+                default:
+                    return Helper.failedFuture(new NetException("timeout"));
+            }
+        }).write(users(6));
+
+        assertEquals(2, result.getSuccessCount());
+        assertEquals(4, result.getErrors().size());
+        assertEquals("code:400, message:message", result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    public void testParallelismIsLimited() throws Exception {
+        BulkWriter.Config config = BulkWriter.Config.builder().maxChunkItems(1).parallelism(2).build();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        BulkWriteResult<UserError> result = newWriter(config, chunk -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                return response(STATUS_CODE_SUCCESS);
+            }, executor);
+        }).write(users(20));
+
+        assertEquals(20, result.getSuccessCount());
+        assertTrue(maxInFlight.get() <= 2);
+    }
+}
@@ -0,0 +1,225 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.common.protocol.ByteplusCommon.Status;
+import byteplus.sdk.retail.protocol.ByteplusRetail.User;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersResponse;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakerTest {
+    private static final WriteUsersRequest REQUEST = WriteUsersRequest.newBuilder()
+            .addUsers(User.newBuilder().setUserId("user_id"))
+            .build();
+
+    private static final WriteUsersResponse SUCCESS = WriteUsersResponse.newBuilder()
+            .setStatus(Status.newBuilder().setCode(Constant.STATUS_CODE_SUCCESS).setMessage("success"))
+            .build();
+
+    private final ConcurrentLinkedQueue<MockResponse> responses = new ConcurrentLinkedQueue<>();
+
+    private MockWebServer server;
+
+    private Context context;
+
+    private HTTPCaller caller;
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private void start(CircuitBreaker.Config config, MockResponse... rsps) throws Exception {
+        Collections.addAll(responses, rsps);
+        server = MockServers.start(request -> {
+            MockResponse rsp = responses.poll();
+            return rsp == null ? MockServers.pbResponse(SUCCESS) : rsp;
+        });
+        context = new Context(MockServers.param(server).setCircuitBreakerConfig(config));
+        caller = new HTTPCaller(context);
+    }
+
+    private static CircuitBreaker.Config config(int minRequests, double failureRateThreshold, Duration openDuration) {
+        return CircuitBreaker.Config.builder()
+                .minRequests(minRequests)
+                .windowSize(minRequests)
+                .failureRateThreshold(failureRateThreshold)
+                .openDuration(openDuration)
+                .halfOpenRequests(2)
+                .build();
+    }
+
+    private static HostURL url() {
+        return HostURL.of("http", "/data/api/retail/test_tenant/user?method=write");
+    }
+
+    private WriteUsersResponse send() throws Exception {
+        return caller.doPBRequest(url(), REQUEST, WriteUsersResponse.parser(), Option.conv2Options(null));
+    }
+
+    private WriteUsersResponse sendAsync() throws Exception {
+        try {
+            return caller.doPBRequestAsync(url(), REQUEST, WriteUsersResponse.parser(), Option.conv2Options(null))
+                    .get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    private void sendFailure() throws Exception {
+        try {
+            send();
+            fail("request should fail");
+        } catch (CircuitOpenException e) {
+            throw e;
+        } catch (NetException | BizException e) {
+            // expected
+        }
+    }
+
+    private boolean rejected() throws Exception {
+        try {
+            send();
+            return false;
+        } catch (CircuitOpenException e) {
+            return true;
+        }
+    }
+
+    // The body is cut off after the response code, so the request fails while the body is read
+    private static MockResponse disconnectDuringBody() {
+        return MockServers.pbResponse(SUCCESS).setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+    }
+
+    private static MockResponse serverError() {
+        return new MockResponse().setResponseCode(503);
+    }
+
+    @Test
+    public void testOpenRejectsWithoutSending() throws Exception {
+        start(config(4, 0.5, Duration.ofMinutes(1)),
+                MockServers.pbResponse(SUCCESS), MockServers.pbResponse(SUCCESS), serverError(), serverError());
+
+        assertEquals(SUCCESS, send());
+        assertEquals(SUCCESS, send());
+        sendFailure();
+        sendFailure();
+
+        assertTrue(rejected());
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void testClientErrorIsNotFailure() throws Exception {
+        start(config(2, 0.5, Duration.ofMinutes(1)),
+                new MockResponse().setResponseCode(400), new MockResponse().setResponseCode(400));
+
+        sendFailure();
+        sendFailure();
+
+        assertFalse(rejected());
+    }
+
+    @Test
+    public void testHalfOpenClosesAfterTrialsSucceed() throws Exception {
+        start(config(2, 0.5, Duration.ofMillis(100)), serverError(), serverError());
+        sendFailure();
+        sendFailure();
+        assertTrue(rejected());
+
+        Thread.sleep(150);
+        assertEquals(SUCCESS, send());
+        assertEquals(SUCCESS, send());
+
+        // only 2 trials are allowed in half-open state, so the 3rd one passes only if it's closed
+        assertEquals(SUCCESS, send());
+        assertEquals(5, server.getRequestCount());
+    }
+
+    @Test
+    public void testHalfOpenFailureOpensAgain() throws Exception {
+        start(config(2, 0.5, Duration.ofMillis(100)), serverError(), serverError(), serverError());
+        sendFailure();
+        sendFailure();
+
+        Thread.sleep(150);
+        sendFailure();
+
+        assertTrue(rejected());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testTenantViewsShareBreakers() throws Exception {
+        start(config(2, 0.5, Duration.ofMinutes(1)), serverError(), serverError());
+        Tenant tenant = Tenant.builder().tenant("another_tenant").tenantId("another_id").token("token").build();
+        HTTPCaller view = caller.forTenant(context.forTenant(tenant));
+        HostURL viewUrl = HostURL.of("http", "/data/api/retail/another_tenant/user?method=write");
+
+        sendFailure();
+        try {
+            view.doPBRequest(viewUrl, REQUEST, WriteUsersResponse.parser(), Option.conv2Options(null));
+            fail("request should fail");
+        } catch (HTTPCaller.HttpCodeException e) {
+            // expected, the view sends the second failure to the same host
+        }
+
+        // the failures of both the client and the view open the shared breaker
+        assertTrue(rejected());
+        try {
+            view.doPBRequest(viewUrl, REQUEST, WriteUsersResponse.parser(), Option.conv2Options(null));
+            fail("request should be rejected");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    // Each attempt is reported once, a response whose body fails to be read is only a failure,
+    // so 2 such requests open the breaker whose threshold is 100%
+    @Test
+    public void testBodyFailureIsReportedOnce() throws Exception {
+        start(config(2, 1, Duration.ofMinutes(1)), disconnectDuringBody(), disconnectDuringBody());
+
+        sendFailure();
+        sendFailure();
+
+        assertTrue(rejected());
+    }
+
+    @Test
+    public void testAsyncBodyFailureIsReportedOnce() throws Exception {
+        start(config(2, 1, Duration.ofMinutes(1)), disconnectDuringBody(), disconnectDuringBody());
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                sendAsync();
+                fail("request should fail");
+            } catch (NetException | BizException e) {
+                assertFalse(e instanceof CircuitOpenException);
+            }
+        }
+
+        try {
+            sendAsync();
+            fail("request should be rejected");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+}
@@ -0,0 +1,103 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CompressionPolicyTest {
+    private static final PredictRequest REQUEST = PredictRequest.newBuilder().setUserId("user_id").build();
+
+    private MockWebServer server;
+
+    private HTTPCaller caller;
+
+    @Before
+    public void setUp() throws Exception {
+        server = MockServers.start(request -> MockServers.pbResponse(PredictResponse.getDefaultInstance()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private void newCaller(CompressionPolicy policy, Map<String, CompressionPolicy> endpointPolicies) {
+        Context.Param param = MockServers.param(server)
+                .setCompressionPolicy(policy)
+                .setEndpointCompressionPolicies(endpointPolicies);
+        caller = new HTTPCaller(new Context(param));
+    }
+
+    private RecordedRequest send(String path, Option... opts) throws Exception {
+        HostURL url = HostURL.of("http", path);
+        caller.doPBRequest(url, REQUEST, PredictResponse.parser(), Option.conv2Options(opts));
+        return MockServers.takeApiRequest(server);
+    }
+
+    private static CompressionPolicy codec(String codec) {
+        return CompressionPolicy.builder().codec(codec).build();
+    }
+
+    @Test
+    public void testDefaultPolicyIsGzip() throws Exception {
+        newCaller(null, null);
+
+        RecordedRequest request = send("/predict/api/retail/test_tenant/home");
+
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void testEndpointPolicyOverwritesClientPolicy() throws Exception {
+        Map<String, CompressionPolicy> endpointPolicies = new HashMap<>();
+        endpointPolicies.put(Constant.ENDPOINT_PREDICT, codec(CompressionPolicy.CODEC_NONE));
+        endpointPolicies.put(Constant.ENDPOINT_IMPORT, codec(CompressionPolicy.CODEC_DEFLATE));
+        newCaller(codec(CompressionPolicy.CODEC_GZIP), endpointPolicies);
+
+        RecordedRequest predict = send("/predict/api/retail/test_tenant/home");
+        assertNull(predict.getHeader("Content-Encoding"));
+        assertEquals(REQUEST, PredictRequest.parseFrom(predict.getBody().readByteArray()));
+
+        RecordedRequest importRequest = send("/data/api/retail/test_tenant/user?method=import");
+        assertEquals("deflate", importRequest.getHeader("Content-Encoding"));
+
+        // the endpoints without policy use the policy of client
+        RecordedRequest write = send("/data/api/retail/test_tenant/user?method=write");
+        assertEquals("gzip", write.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void testOptionOverwritesEndpointPolicy() throws Exception {
+        newCaller(null, Collections.singletonMap(Constant.ENDPOINT_PREDICT, codec(CompressionPolicy.CODEC_NONE)));
+
+        RecordedRequest request = send("/predict/api/retail/test_tenant/home",
+                Option.withCompression(codec(CompressionPolicy.CODEC_DEFLATE)));
+
+        assertEquals("deflate", request.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void testSmallBodyIsNotCompressed() throws Exception {
+        newCaller(CompressionPolicy.builder().codec(CompressionPolicy.CODEC_GZIP).minSize(1024).build(), null);
+
+        RecordedRequest request = send("/predict/api/retail/test_tenant/home");
+
+        assertNull(request.getHeader("Content-Encoding"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testUnknownEndpointCodecIsRejected() {
+        newCaller(null, Collections.singletonMap(Constant.ENDPOINT_WRITE, codec("unknown")));
+    }
+}
@@ -0,0 +1,75 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictRequest;
+import okio.Buffer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class EncodedRequestBodyTest {
+    private static final PredictRequest REQUEST = PredictRequest.newBuilder()
+            .setUserId("user_id")
+            .setSize(20)
+            .build();
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] bodyBytes(EncodedRequestBody body) throws IOException {
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        return sink.readByteArray();
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws Exception {
+        EncodedRequestBody body = EncodedRequestBody.encode(REQUEST::writeTo, CompressionCodecs.GZIP,
+                CompressionPolicy.DEFAULT_LEVEL, 0, MessageDigest.getInstance("SHA-256"));
+
+        byte[] compressed = bodyBytes(body);
+
+        assertEquals("gzip", body.contentEncoding());
+        assertEquals(compressed.length, body.contentLength());
+        byte[] decompressed = readAll(new GZIPInputStream(new Buffer().write(compressed).inputStream()));
+        assertEquals(REQUEST, PredictRequest.parseFrom(decompressed));
+    }
+
+    @Test
+    public void testDigestCoversPrefixAndCompressedBody() throws Exception {
+        byte[] prefix = "token".getBytes(StandardCharsets.UTF_8);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(prefix);
+        EncodedRequestBody body = EncodedRequestBody.encode(REQUEST::writeTo, CompressionCodecs.GZIP,
+                CompressionPolicy.DEFAULT_LEVEL, 0, digest);
+
+        MessageDigest expected = MessageDigest.getInstance("SHA-256");
+        expected.update(prefix);
+        expected.update(bodyBytes(body));
+        assertArrayEquals(expected.digest(), body.digest().digest());
+        // the digest returned is a copy, so it can be finished for each attempt
+        assertArrayEquals(body.digest().digest(), body.digest().digest());
+    }
+
+    @Test
+    public void testBodyCanBeWrittenAgain() throws Exception {
+        EncodedRequestBody body = EncodedRequestBody.encode(REQUEST::writeTo, CompressionCodecs.GZIP,
+                CompressionPolicy.DEFAULT_LEVEL, 0, MessageDigest.getInstance("SHA-256"));
+
+        assertArrayEquals(bodyBytes(body), bodyBytes(body));
+    }
+}
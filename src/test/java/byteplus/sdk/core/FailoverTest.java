@@ -0,0 +1,95 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class FailoverTest {
+    private static final PredictRequest REQUEST = PredictRequest.newBuilder().setUserId("user_id").build();
+
+    private static final HostURL URL = HostURL.of("http", "/predict/api/retail/test_tenant/home");
+
+    private MockWebServer server;
+
+    private String deadHost;
+
+    private HostAvailabler availabler;
+
+    private HTTPCaller caller;
+
+    @Before
+    public void setUp() throws Exception {
+        // nothing listens on the port of the stopped server, so connecting to it fails
+        MockWebServer stopped = new MockWebServer();
+        stopped.start();
+        deadHost = MockServers.hostOf(stopped);
+        stopped.shutdown();
+        server = MockServers.start(request -> MockServers.pbResponse(
+                PredictResponse.newBuilder().setRequestId("live").build()));
+        Context context = new Context(MockServers.param(server)
+                .setHosts(Arrays.asList(deadHost, MockServers.hostOf(server))));
+        availabler = new HostAvailabler(context);
+        caller = new HTTPCaller(context);
+        caller.setHostAvailabler(availabler);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        availabler.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void testFailoverToNextHost() throws Exception {
+        PredictResponse response = caller.doPBRequest(URL, REQUEST, PredictResponse.parser(),
+                Option.conv2Options(new Option[]{Option.withRequestId("request_id")}));
+
+        assertEquals("live", response.getRequestId());
+        RecordedRequest request = MockServers.takeApiRequest(server);
+        assertNotNull(request);
+        assertEquals("request_id", request.getHeader("Request-Id"));
+        assertEquals("/predict/api/retail/test_tenant/home", request.getPath());
+    }
+
+    @Test
+    public void testAsyncFailoverToNextHost() throws Exception {
+        PredictResponse response = caller.doPBRequestAsync(URL, REQUEST, PredictResponse.parser(), new Options())
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals("live", response.getRequestId());
+    }
+
+    // the deprecated string url is sent as its HostURL, so it fails over too
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testStringUrlFailsOver() throws Exception {
+        PredictResponse response = caller.doPBRequest(URL.build(deadHost) + "?debug=1", REQUEST,
+                PredictResponse.parser(), new Options());
+
+        assertEquals("live", response.getRequestId());
+        RecordedRequest request = MockServers.takeApiRequest(server);
+        assertNotNull(request);
+        assertEquals("/predict/api/retail/test_tenant/home?debug=1", request.getPath());
+    }
+
+    // the connect failure is not converted to NetException, it's thrown as BizException
+    @Test(expected = BizException.class)
+    public void testNoFailoverWithoutOtherHost() throws Exception {
+        Context context = new Context(MockServers.param(server).setHosts(Arrays.asList(deadHost)));
+        HostAvailabler singleHost = new HostAvailabler(context);
+        HTTPCaller single = new HTTPCaller(context);
+        single.setHostAvailabler(singleHost);
+
+        single.doPBRequest(URL, REQUEST, PredictResponse.parser(), new Options());
+    }
+}
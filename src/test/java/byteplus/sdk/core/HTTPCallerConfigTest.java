@@ -0,0 +1,98 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.common.protocol.ByteplusCommon.Status;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictResponse;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HTTPCallerConfigTest {
+    private static final PredictResponse RESPONSE = PredictResponse.newBuilder()
+            .setStatus(Status.newBuilder().setCode(Constant.STATUS_CODE_SUCCESS))
+            .build();
+
+    private MockWebServer server;
+
+    private HTTPCaller caller;
+
+    @After
+    public void tearDown() throws Exception {
+        if (caller != null) {
+            caller.shutdown();
+        }
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    private static HostURL url() {
+        return HostURL.of("http", "/predict/api/retail/test_tenant/home");
+    }
+
+    @Test
+    public void testMaxRequestsPerHostLimitsConcurrency() throws Exception {
+        List<Long> arrivals = new CopyOnWriteArrayList<>();
+        server = MockServers.start(request -> {
+            arrivals.add(System.nanoTime());
+            return MockServers.pbResponse(RESPONSE).setHeadersDelay(300, TimeUnit.MILLISECONDS);
+        });
+        Context.Param param = MockServers.param(server).setHttpCallerConfig(HTTPCaller.Config.builder()
+                .maxRequests(1)
+                .maxRequestsPerHost(1)
+                .build());
+        caller = new HTTPCaller(new Context(param));
+
+        CompletableFuture<PredictResponse> first = caller.doPBRequestAsync(
+                url(), PredictRequest.getDefaultInstance(), PredictResponse.parser(), new Options());
+        CompletableFuture<PredictResponse> second = caller.doPBRequestAsync(
+                url(), PredictRequest.getDefaultInstance(), PredictResponse.parser(), new Options());
+
+        assertEquals(RESPONSE, first.get(5, TimeUnit.SECONDS));
+        assertEquals(RESPONSE, second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, arrivals.size());
+        // the second request is dispatched after the first one is finished
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(arrivals.get(1) - arrivals.get(0)) >= 250);
+    }
+
+    @Test
+    public void testReadTimeoutIsApplied() throws Exception {
+        server = MockServers.start(request ->
+                MockServers.pbResponse(RESPONSE).setHeadersDelay(2, TimeUnit.SECONDS));
+        Context.Param param = MockServers.param(server).setHttpCallerConfig(HTTPCaller.Config.builder()
+                .readTimeout(Duration.ofMillis(200))
+                .build());
+        caller = new HTTPCaller(new Context(param));
+
+        long start = System.nanoTime();
+        try {
+            caller.doPBRequest(url(), PredictRequest.getDefaultInstance(), PredictResponse.parser(), new Options());
+            fail("request should time out");
+        } catch (NetException | BizException e) {
+            // failed by the read timeout rather than the 2s delay
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1500);
+        }
+    }
+
+    @Test
+    public void testWithoutConfig() throws Exception {
+        server = MockServers.start(request -> MockServers.pbResponse(RESPONSE));
+        caller = new HTTPCaller(new Context(MockServers.param(server)));
+
+        PredictResponse response = caller.doPBRequest(
+                url(), PredictRequest.getDefaultInstance(), PredictResponse.parser(), new Options());
+
+        assertEquals(RESPONSE, response);
+    }
+}
@@ -0,0 +1,183 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictResponse;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class HedgedCallerTest {
+    private static final PredictRequest REQUEST = PredictRequest.newBuilder().setUserId("user_id").build();
+
+    private static final HedgedCaller.Config HEDGE_CONFIG = HedgedCaller.Config.builder()
+            .initialDelay(Duration.ofMillis(20))
+            .maxHedges(3)
+            .build();
+
+    private final List<MockWebServer> servers = new ArrayList<>();
+
+    private final List<HostAvailabler> availablers = new ArrayList<>();
+
+    @After
+    public void tearDown() throws Exception {
+        for (HostAvailabler availabler : availablers) {
+            availabler.shutdown();
+        }
+        for (MockWebServer server : servers) {
+            server.shutdown();
+        }
+    }
+
+    // The server answers after the delay, with its name as the request_id
+    private MockWebServer startServer(String name, long delayMillis) throws Exception {
+        MockWebServer server = MockServers.start(request -> MockServers
+                .pbResponse(PredictResponse.newBuilder().setRequestId(name).build())
+                .setBodyDelay(delayMillis, TimeUnit.MILLISECONDS));
+        servers.add(server);
+        return server;
+    }
+
+    private Context context() {
+        List<String> hosts = new ArrayList<>();
+        for (MockWebServer server : servers) {
+            hosts.add(MockServers.hostOf(server));
+        }
+        return new Context(MockServers.param(servers.get(0)).setHosts(hosts));
+    }
+
+    private HedgedCaller newCaller(Context context, HTTPCaller httpCaller) {
+        HostAvailabler availabler = new HostAvailabler(context);
+        availablers.add(availabler);
+        return new HedgedCaller(context, httpCaller, availabler);
+    }
+
+    private static HostURL url() {
+        return HostURL.of("http", "/predict/api/retail/test_tenant/home");
+    }
+
+    private static Option[] hedging() {
+        return new Option[]{Option.withHedging(HEDGE_CONFIG), Option.withRequestId("request_id")};
+    }
+
+    @Test
+    public void testDuplicateIsSentToAnotherHost() throws Exception {
+        MockWebServer slow = startServer("slow", 2000);
+        MockWebServer fast = startServer("fast", 0);
+        Context context = context();
+        HedgedCaller caller = newCaller(context, new HTTPCaller(context));
+
+        PredictResponse response = caller.doPBRequest(url(), REQUEST, PredictResponse.parser(), hedging());
+
+        assertEquals("fast", response.getRequestId());
+        RecordedRequest original = MockServers.takeApiRequest(slow);
+        RecordedRequest duplicate = MockServers.takeApiRequest(fast);
+        assertEquals("request_id", original.getHeader("Request-Id"));
+        assertNotEquals(original.getHeader("Request-Id"), duplicate.getHeader("Request-Id"));
+    }
+
+    @Test
+    public void testNoHedgeWithSingleHost() throws Exception {
+        MockWebServer server = startServer("only", 200);
+        Context context = context();
+        HedgedCaller caller = newCaller(context, new HTTPCaller(context));
+
+        PredictResponse response = caller.doPBRequest(url(), REQUEST, PredictResponse.parser(), hedging());
+
+        assertEquals("only", response.getRequestId());
+        assertEquals("request_id", MockServers.takeApiRequest(server).getHeader("Request-Id"));
+        // the duplicate would be sent to the same host, so it's skipped
+        assertNull(server.takeRequest(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testNoHedgeWithoutAvailableHosts() throws Exception {
+        startServer("only", 0);
+        Context context = context();
+        HostAvailabler availabler = new HostAvailabler(context) {
+            @Override
+            public List<String> getAvailableHosts() {
+                return Collections.emptyList();
+            }
+        };
+        availablers.add(availabler);
+        HedgedCaller caller = new HedgedCaller(context, new HTTPCaller(context), availabler);
+
+        PredictResponse response = caller.doPBRequest(url(), REQUEST, PredictResponse.parser(), hedging());
+
+        assertEquals("only", response.getRequestId());
+    }
+
+    @Test
+    public void testAttemptThrowingCompletesResult() throws Exception {
+        startServer("first", 0);
+        startServer("second", 0);
+        Context context = context();
+        RuntimeException thrown = new IllegalStateException("send fail");
+        HTTPCaller httpCaller = new HTTPCaller(context) {
+            @Override
+            public <Rsp extends Message, Req extends Message> CompletableFuture<Rsp> doPBRequestAsync(
+                    HostURL url, Req request, Parser<Rsp> rspParser, Options options) {
+                throw thrown;
+            }
+
+            @Override
+            <Rsp extends Message, Req extends Message> CompletableFuture<Rsp> doPBRequestAsync(
+                    HostURL url, String host, Req request, Parser<Rsp> rspParser, Options options) {
+                throw thrown;
+            }
+        };
+        HedgedCaller caller = newCaller(context, httpCaller);
+
+        CompletableFuture<PredictResponse> future =
+                caller.doPBRequestAsync(url(), REQUEST, PredictResponse.parser(), hedging());
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("all the attempts throw");
+        } catch (ExecutionException e) {
+            assertSame(thrown, e.getCause());
+        }
+    }
+
+    @Test
+    public void testWithoutHedgingIsSentDirectly() throws Exception {
+        MockWebServer first = startServer("first", 0);
+        MockWebServer second = startServer("second", 0);
+        Context context = context();
+        HedgedCaller caller = newCaller(context, new HTTPCaller(context));
+
+        PredictResponse response = caller.doPBRequest(url(), REQUEST, PredictResponse.parser(), new Option[0]);
+
+        assertEquals("first", response.getRequestId());
+        assertEquals(Arrays.asList(1, 0), Arrays.asList(apiRequests(first), apiRequests(second)));
+    }
+
+    private static int apiRequests(MockWebServer server) throws InterruptedException {
+        int count = 0;
+        RecordedRequest request;
+        while ((request = server.takeRequest(200, TimeUnit.MILLISECONDS)) != null) {
+            if (!request.getPath().endsWith("/ping")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
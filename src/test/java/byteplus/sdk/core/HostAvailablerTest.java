@@ -0,0 +1,212 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictResponse;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HostAvailablerTest {
+    private static final HostAvailabler.Config CONFIG = HostAvailabler.Config.builder()
+            .pingInterval(Duration.ofMillis(20))
+            .pingTimeout(Duration.ofMillis(500))
+            .windowSize(20)
+            .minSwitchInterval(Duration.ZERO)
+            .build();
+
+    private final List<MockWebServer> servers = new ArrayList<>();
+
+    private HostAvailabler availabler;
+
+    @After
+    public void tearDown() throws Exception {
+        if (availabler != null) {
+            availabler.shutdown();
+        }
+        for (MockWebServer server : servers) {
+            server.shutdown();
+        }
+    }
+
+    // The server whose pings are answered after the delay
+    private String startServer(long pingDelayMillis) throws Exception {
+        return startServer(pingDelayMillis, new AtomicInteger(), 200);
+    }
+
+    // The server which counts its pings, and answers the api requests with the code
+    private String startServer(long pingDelayMillis, AtomicInteger pings, int apiCode) throws Exception {
+        MockWebServer server = MockServers.start(() -> {
+            pings.incrementAndGet();
+            return new MockResponse().setHeadersDelay(pingDelayMillis, TimeUnit.MILLISECONDS);
+        }, request -> new MockResponse().setResponseCode(apiCode));
+        servers.add(server);
+        return MockServers.hostOf(server);
+    }
+
+    private void newAvailabler(HostAvailabler.Config config, String... hosts) {
+        Context.Param param = MockServers.param(servers.get(0))
+                .setHosts(Arrays.asList(hosts))
+                .setHostAvailablerConfig(config);
+        availabler = new HostAvailabler(new Context(param));
+    }
+
+    private static boolean waitUntil(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return condition.getAsBoolean();
+    }
+
+    @Test
+    public void testSwitchToFasterHost() throws Exception {
+        String slow = startServer(40);
+        String fast = startServer(0);
+        newAvailabler(CONFIG, slow, fast);
+        assertEquals(slow, availabler.getHost());
+
+        assertTrue(waitUntil(() -> fast.equals(availabler.getHost()), 5000));
+        assertEquals(Arrays.asList(fast, slow), availabler.getAvailableHosts());
+    }
+
+    @Test
+    public void testNotSwitchForSmallLatencyGain() throws Exception {
+        String first = startServer(20);
+        String second = startServer(0);
+        // the second one is faster, but not by 50ms
+        newAvailabler(CONFIG.toBuilder().minLatencyGain(Duration.ofMillis(50)).build(), first, second);
+
+        Thread.sleep(1500);
+
+        assertEquals(first, availabler.getHost());
+    }
+
+    @Test
+    public void testIgnoreLatency() throws Exception {
+        String slow = startServer(40);
+        String fast = startServer(0);
+        newAvailabler(CONFIG.toBuilder().ignoreLatency(true).build(), slow, fast);
+
+        Thread.sleep(1500);
+
+        assertEquals(slow, availabler.getHost());
+    }
+
+    @Test
+    public void testEjectHostAfterConsecutiveFailures() throws Exception {
+        String first = startServer(0);
+        String second = startServer(0);
+        newAvailabler(CONFIG.toBuilder().consecutiveFailures(3).build(), first, second);
+        HttpUrl url = HttpUrl.get("http://" + first + "/predict/api/retail/test_tenant/home");
+
+        availabler.recordRequestResult(url, false, 0);
+        availabler.recordRequestResult(url, false, 0);
+        assertEquals(first, availabler.getHost());
+        availabler.recordRequestResult(url, false, 0);
+
+        // the host is ejected by the failures without waiting for pings
+        assertTrue(waitUntil(() -> second.equals(availabler.getHost()), 1000));
+        assertEquals(Arrays.asList(second), availabler.getAvailableHosts());
+    }
+
+    @Test
+    public void testSuccessResetsConsecutiveFailures() throws Exception {
+        String first = startServer(0);
+        String second = startServer(0);
+        // the 6 failures fail at most 6 rounds, which is lower than the threshold of the window
+        newAvailabler(CONFIG.toBuilder().consecutiveFailures(3).windowSize(100).build(), first, second);
+        HttpUrl url = HttpUrl.get("http://" + first + "/predict/api/retail/test_tenant/home");
+
+        // 2 failures follow every 20 successes, they are never consecutive enough to eject
+        for (int i = 0; i < 66; i++) {
+            availabler.recordRequestResult(url, i % 22 < 20, 1);
+        }
+        Thread.sleep(200);
+
+        assertTrue(availabler.getAvailableHosts().contains(first));
+    }
+
+    @Test
+    public void testHTTPCallerReportsRequestOutcomes() throws Exception {
+        String failing = startServer(0, new AtomicInteger(), 503);
+        String second = startServer(0);
+        newAvailabler(CONFIG.toBuilder().consecutiveFailures(3).build(), failing, second);
+        HTTPCaller caller = new HTTPCaller(new Context(MockServers.param(servers.get(0))));
+        caller.setHostAvailabler(availabler);
+        // the requests are sent to the current host, which is the failing one
+        HostURL url = HostURL.of("http", "/predict/api/retail/test_tenant/home");
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                caller.doPBRequest(url, PredictRequest.getDefaultInstance(), PredictResponse.parser(), new Options());
+            } catch (BizException | NetException e) {
+                // expected, the server answers 503
+            }
+        }
+
+        assertTrue(waitUntil(() -> second.equals(availabler.getHost()), 1000));
+    }
+
+    @Test
+    public void testLiveTrafficBacksOffPings() throws Exception {
+        AtomicInteger pings = new AtomicInteger();
+        String first = startServer(0, pings, 200);
+        String second = startServer(0);
+        newAvailabler(CONFIG.toBuilder().passivePingInterval(Duration.ofSeconds(10)).build(), first, second);
+        HttpUrl url = HttpUrl.get("http://" + first + "/predict/api/retail/test_tenant/home");
+
+        // the live traffic lasts for 25 ping intervals
+        long end = System.currentTimeMillis() + 500;
+        while (System.currentTimeMillis() < end) {
+            availabler.recordRequestResult(url, true, 1);
+            Thread.sleep(2);
+        }
+
+        // only the first round is pinged, the others use the outcomes of requests
+        assertTrue("pings: " + pings.get(), pings.get() <= 2);
+    }
+
+    @Test
+    public void testSlowPingDoesNotDelayOtherHosts() throws Exception {
+        AtomicInteger fastPings = new AtomicInteger();
+        String slow1 = startServer(2000);
+        String slow2 = startServer(2000);
+        String slow3 = startServer(2000);
+        String fast = startServer(0, fastPings, 200);
+        newAvailabler(CONFIG.toBuilder().pingTimeout(Duration.ofMillis(100)).build(), slow1, slow2, slow3, fast);
+
+        Thread.sleep(1000);
+
+        // the slow hosts are pinged concurrently and fail at the deadline of round, so each
+        // round lasts about 100ms rather than 300ms, and the fast host is pinged in each of them
+        assertTrue("pings: " + fastPings.get(), fastPings.get() >= 5);
+        assertEquals(fast, availabler.getHost());
+    }
+
+    @Test
+    public void testTimeoutPingFailsHost() throws Exception {
+        String hanging = startServer(5000);
+        String second = startServer(0);
+        newAvailabler(CONFIG.toBuilder().pingTimeout(Duration.ofMillis(50)).ignoreLatency(true).build(),
+                hanging, second);
+
+        // the host is unavailable after the timeout pings reach the failure rate threshold
+        assertTrue(waitUntil(() -> Arrays.asList(second).equals(availabler.getAvailableHosts()), 3000));
+    }
+}
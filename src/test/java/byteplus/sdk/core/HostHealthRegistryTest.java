@@ -0,0 +1,115 @@
+package byteplus.sdk.core;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HostHealthRegistryTest {
+    private static final HostAvailabler.Config CONFIG = HostAvailabler.Config.builder()
+            .pingURLFormat("{}://%s/predict/api/ping")
+            .pingInterval(Duration.ofMillis(20))
+            .pingTimeout(Duration.ofMillis(100))
+            .windowSize(20)
+            .passivePingInterval(Duration.ofSeconds(10))
+            .build();
+
+    private final List<MockWebServer> servers = new ArrayList<>();
+
+    private final List<HostHealthRegistry.Probe> probes = new ArrayList<>();
+
+    @After
+    public void tearDown() throws Exception {
+        probes.forEach(HostHealthRegistry::release);
+        for (MockWebServer server : servers) {
+            server.shutdown();
+        }
+    }
+
+    // The server which counts its pings, and answers them after the delay
+    private String startServer(long pingDelayMillis, AtomicInteger pings) throws Exception {
+        MockWebServer server = MockServers.start(() -> {
+            pings.incrementAndGet();
+            return new MockResponse().setHeadersDelay(pingDelayMillis, TimeUnit.MILLISECONDS);
+        }, request -> new MockResponse());
+        servers.add(server);
+        return MockServers.hostOf(server);
+    }
+
+    private HostHealthRegistry.Probe acquire(Context.Param param, HostAvailabler.Config config, String host) {
+        HostHealthRegistry.Probe probe = HostHealthRegistry.acquire(new Context(param), config, host);
+        probes.add(probe);
+        return probe;
+    }
+
+    @Test
+    public void testProbeIsSharedBySameSettings() throws Exception {
+        String host = startServer(0, new AtomicInteger());
+        Context.Param param = MockServers.param(servers.get(0));
+
+        HostHealthRegistry.Probe probe = acquire(param, CONFIG, host);
+
+        // the tenant doesn't matter, the pings are the same for all the tenants
+        assertSame(probe, acquire(MockServers.param(servers.get(0)).setTenant("another_tenant"), CONFIG, host));
+        assertNotSame(probe, acquire(param, CONFIG.toBuilder().pingTimeout(Duration.ofMillis(200)).build(), host));
+        assertNotSame(probe, acquire(param, CONFIG.toBuilder().windowSize(10).build(), host));
+        assertNotSame(probe, acquire(MockServers.param(servers.get(0))
+                .setHeaders(Collections.singletonMap("X-Custom", "value")), CONFIG, host));
+    }
+
+    @Test
+    public void testSubscribersAreNotifiedOnSelectThread() throws Exception {
+        AtomicInteger pings = new AtomicInteger();
+        String first = startServer(0, pings);
+        String second = startServer(0, new AtomicInteger());
+        Context.Param param = MockServers.param(servers.get(0));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger notified = new AtomicInteger();
+        Runnable subscriber = () -> {
+            threads.add(Thread.currentThread().getName());
+            notified.incrementAndGet();
+        };
+
+        acquire(param, CONFIG, first).subscribe(subscriber);
+        acquire(param, CONFIG, second).subscribe(subscriber);
+        Thread.sleep(500);
+
+        assertEquals(Collections.singleton("byteplus-host-select"), threads);
+        // the subscriber of both hosts is notified once a round, in which both hosts are pinged
+        assertTrue("pings: " + pings.get() + " notified: " + notified.get(),
+                notified.get() > 0 && notified.get() <= pings.get());
+    }
+
+    @Test
+    public void testRoundFinishesAtDeadline() throws Exception {
+        AtomicInteger fastPings = new AtomicInteger();
+        AtomicInteger slowPings = new AtomicInteger();
+        String fast = startServer(0, fastPings);
+        Context.Param param = MockServers.param(servers.get(0));
+        acquire(param, CONFIG, fast);
+        for (int i = 0; i < 3; i++) {
+            acquire(param, CONFIG, startServer(2000, slowPings));
+        }
+
+        Thread.sleep(1000);
+
+        // a round lasts about pingTimeout however many hosts hang, the hosts are pinged
+        // once a round, so the fast host is pinged as many times as each slow host
+        assertTrue("pings: " + fastPings.get(), fastPings.get() >= 5 && fastPings.get() <= 12);
+        assertTrue("pings: " + slowPings.get(), slowPings.get() >= 3 * (fastPings.get() - 1));
+    }
+}
@@ -0,0 +1,74 @@
+package byteplus.sdk.core;
+
+import com.google.protobuf.Message;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Helpers of tests which send requests to MockWebServer
+public final class MockServers {
+    private MockServers() {
+    }
+
+    // Start a server which answers the pings with 200, and the other requests by handler
+    public static MockWebServer start(Function<RecordedRequest, MockResponse> handler) throws IOException {
+        return start(MockResponse::new, handler);
+    }
+
+    // Start a server which answers the pings by pingHandler, and the other requests by handler
+    public static MockWebServer start(Supplier<MockResponse> pingHandler,
+                                      Function<RecordedRequest, MockResponse> handler) throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().endsWith("/ping")) {
+                    return pingHandler.get();
+                }
+                return handler.apply(request);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    // Take the next request which is not a ping, null if there is none in 5 seconds
+    public static RecordedRequest takeApiRequest(MockWebServer server) throws InterruptedException {
+        while (true) {
+            RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+            if (request == null || !request.getPath().endsWith("/ping")) {
+                return request;
+            }
+        }
+    }
+
+    public static MockResponse pbResponse(Message message) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/x-protobuf")
+                .setBody(new Buffer().write(message.toByteArray()));
+    }
+
+    public static String hostOf(MockWebServer server) {
+        return server.getHostName() + ":" + server.getPort();
+    }
+
+    // The param of a client which sends the requests to server
+    public static Context.Param param(MockWebServer server) {
+        return new Context.Param()
+                .setTenant("test_tenant")
+                .setTenantId("test_tenant_id")
+                .setToken("test_token")
+                .setSchema("http")
+                .setRegion(Region.SG)
+                .setUseAirAuth(true)
+                .setHosts(Collections.singletonList(hostOf(server)));
+    }
+}
@@ -0,0 +1,144 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.common.protocol.ByteplusCommon.Status;
+import byteplus.sdk.retail.protocol.ByteplusRetail.User;
+import byteplus.sdk.retail.protocol.ByteplusRetail.UserError;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersResponse;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static byteplus.sdk.core.Constant.STATUS_CODE_PARTIAL_FAILURE;
+import static byteplus.sdk.core.Constant.STATUS_CODE_SUCCESS;
+import static byteplus.sdk.core.Constant.STATUS_CODE_TOO_MANY_REQUEST;
+import static org.junit.Assert.assertEquals;
+
+public class PartialRetrierTest {
+    private static final Option[] NO_OPTS = new Option[0];
+
+    private static User user(String id) {
+        return User.newBuilder().setUserId(id).build();
+    }
+
+    private static WriteUsersResponse response(int code, User... failedUsers) {
+        WriteUsersResponse.Builder builder = WriteUsersResponse.newBuilder()
+                .setStatus(Status.newBuilder().setCode(code));
+        for (User user : failedUsers) {
+            builder.addErrors(UserError.newBuilder().setUser(user).setMessage("failed " + user.getUserId()));
+        }
+        return builder.build();
+    }
+
+    private static PartialRetrier<User, WriteUsersResponse, UserError> newRetrier(PartialRetrier.Config config) {
+        return new PartialRetrier<>(config,
+                response -> response.getStatus().getCode(),
+                WriteUsersResponse::getErrorsList,
+                UserError::getUser,
+                UserError::getMessage,
+                (response, code, errors) -> response.toBuilder()
+                        .setStatus(response.getStatus().toBuilder().setCode(code))
+                        .clearErrors().addAllErrors(errors).build());
+    }
+
+    private static PartialRetrier.Config.ConfigBuilder fastConfig() {
+        return PartialRetrier.Config.builder().initialBackoff(Duration.ofMillis(1));
+    }
+
+    // Answer each attempt by the next responder, and record the items of each attempt
+    private static PartialRetrier.Writer<User, WriteUsersResponse> writer(
+            List<List<User>> attempts, List<Function<List<User>, WriteUsersResponse>> responders) {
+        return (users, opts) -> {
+            attempts.add(users);
+            return responders.get(attempts.size() - 1).apply(users);
+        };
+    }
+
+    @Test
+    public void testRetryItemErrorsWithoutPartialFailureCode() throws Exception {
+        User a = user("a"), b = user("b"), c = user("c");
+        List<List<User>> attempts = new ArrayList<>();
+
+        // the item errors are retried even if the server responds with code 0
+        WriteUsersResponse response = newRetrier(fastConfig().build()).write(Arrays.asList(a, b, c), NO_OPTS,
+                writer(attempts, Arrays.asList(
+                        users -> response(STATUS_CODE_SUCCESS, b),
+                        users -> response(STATUS_CODE_SUCCESS))));
+
+        assertEquals(Arrays.asList(Arrays.asList(a, b, c), Collections.singletonList(b)), attempts);
+        assertEquals(STATUS_CODE_SUCCESS, response.getStatus().getCode());
+        assertEquals(0, response.getErrorsCount());
+    }
+
+    @Test
+    public void testNotRetryableErrorsAreReturned() throws Exception {
+        User a = user("a"), b = user("b");
+        List<List<User>> attempts = new ArrayList<>();
+        PartialRetrier.Config config = fastConfig()
+                .retryableErrorPredicate(message -> message.endsWith("a"))
+                .build();
+
+        WriteUsersResponse response = newRetrier(config).write(Arrays.asList(a, b), NO_OPTS,
+                writer(attempts, Arrays.asList(
+                        users -> response(STATUS_CODE_PARTIAL_FAILURE, a, b),
+                        users -> response(STATUS_CODE_SUCCESS))));
+
+        assertEquals(Collections.singletonList(a), attempts.get(1));
+        assertEquals(STATUS_CODE_PARTIAL_FAILURE, response.getStatus().getCode());
+        assertEquals(1, response.getErrorsCount());
+        assertEquals(b, response.getErrors(0).getUser());
+    }
+
+    @Test
+    public void testThrottledRequestRetriesAllItems() throws Exception {
+        User a = user("a"), b = user("b");
+        List<List<User>> attempts = new ArrayList<>();
+
+        WriteUsersResponse response = newRetrier(fastConfig().build()).write(Arrays.asList(a, b), NO_OPTS,
+                writer(attempts, Arrays.asList(
+                        users -> response(STATUS_CODE_TOO_MANY_REQUEST),
+                        users -> response(STATUS_CODE_SUCCESS))));
+
+        assertEquals(Arrays.asList(a, b), attempts.get(1));
+        assertEquals(STATUS_CODE_SUCCESS, response.getStatus().getCode());
+    }
+
+    @Test
+    public void testErrorsAreReturnedWhenAttemptsExhausted() throws Exception {
+        User a = user("a");
+        List<List<User>> attempts = new ArrayList<>();
+
+        WriteUsersResponse response = newRetrier(fastConfig().maxAttempts(2).build())
+                .write(Collections.singletonList(a), NO_OPTS, writer(attempts, Arrays.asList(
+                        users -> response(STATUS_CODE_PARTIAL_FAILURE, a),
+                        users -> response(STATUS_CODE_PARTIAL_FAILURE, a))));
+
+        assertEquals(2, attempts.size());
+        assertEquals(STATUS_CODE_PARTIAL_FAILURE, response.getStatus().getCode());
+        assertEquals(1, response.getErrorsCount());
+    }
+
+    @Test
+    public void testAsyncRetry() throws Exception {
+        User a = user("a"), b = user("b");
+        List<List<User>> attempts = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<WriteUsersResponse> future = newRetrier(fastConfig().build())
+                .writeAsync(Arrays.asList(a, b), NO_OPTS, (users, opts) -> {
+                    attempts.add(users);
+                    WriteUsersResponse response = attempts.size() == 1 ?
+                            response(STATUS_CODE_SUCCESS, a) : response(STATUS_CODE_SUCCESS);
+                    return CompletableFuture.completedFuture(response);
+                });
+
+        WriteUsersResponse response = future.get(5, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList(a), attempts.get(1));
+        assertEquals(0, response.getErrorsCount());
+    }
+}
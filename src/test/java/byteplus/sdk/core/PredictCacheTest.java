@@ -0,0 +1,212 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.common.protocol.ByteplusCommon.Status;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictResponse;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PredictCacheTest {
+    private static final PredictRequest REQUEST = PredictRequest.newBuilder().setUserId("user_id").setSize(10).build();
+
+    private static final PredictResponse RESPONSE = PredictResponse.newBuilder()
+            .setStatus(Status.newBuilder().setCode(Constant.STATUS_CODE_SUCCESS))
+            .setRequestId("request_id")
+            .build();
+
+    private static final PredictResponse SHARED_RESPONSE = RESPONSE.toBuilder().clearRequestId().build();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private static PredictCache newCache() {
+        return PredictCache.create(PredictCache.Config.builder().ttl(Duration.ofMinutes(1)).build());
+    }
+
+    private static boolean isCacheable(PredictResponse rsp) {
+        return rsp.getStatus().getCode() == Constant.STATUS_CODE_SUCCESS;
+    }
+
+    private PredictResponse load(PredictCache cache, PredictRequest request) throws Exception {
+        return cache.load("test_tenant", "home", request, PredictCacheTest::isCacheable, () -> {
+            loads.incrementAndGet();
+            return RESPONSE;
+        });
+    }
+
+    @Test
+    public void testHitHasNoRequestId() throws Exception {
+        PredictCache cache = newCache();
+
+        assertEquals(RESPONSE, load(cache, REQUEST));
+        // the request_id belongs to the request which loaded the response
+        assertEquals(SHARED_RESPONSE, load(cache, REQUEST));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testKeyFieldsSelectRequests() throws Exception {
+        PredictCache cache = PredictCache.create(PredictCache.Config.builder()
+                .ttl(Duration.ofMinutes(1))
+                .keyFields(Arrays.asList("user_id", "context.root_product"))
+                .build());
+
+        load(cache, REQUEST);
+        // the size is not a key field
+        load(cache, REQUEST.toBuilder().setSize(20).build());
+        assertEquals(1, loads.get());
+
+        load(cache, REQUEST.toBuilder().setUserId("another_user").build());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testUserIdIsAlwaysKeyField() throws Exception {
+        PredictCache cache = PredictCache.create(PredictCache.Config.builder()
+                .ttl(Duration.ofMinutes(1))
+                .keyFields(Collections.singletonList("context.root_product"))
+                .build());
+
+        load(cache, REQUEST);
+        load(cache, REQUEST.toBuilder().setUserId("another_user").build());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testSharedSceneIgnoresUserId() throws Exception {
+        PredictCache cache = PredictCache.create(PredictCache.Config.builder()
+                .ttl(Duration.ofMinutes(1))
+                .keyFields(Collections.singletonList("context.root_product"))
+                .sharedScenes(Collections.singleton("hot"))
+                .build());
+        PredictRequest anotherUser = REQUEST.toBuilder().setUserId("another_user").build();
+
+        for (PredictRequest request : Arrays.asList(REQUEST, anotherUser)) {
+            cache.load("test_tenant", "hot", request, PredictCacheTest::isCacheable, () -> {
+                loads.incrementAndGet();
+                return RESPONSE;
+            });
+        }
+        assertEquals(1, loads.get());
+
+        // the other scenes are still personalized
+        load(cache, REQUEST);
+        load(cache, anotherUser);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testFailureIsNotCached() throws Exception {
+        PredictCache cache = newCache();
+        PredictResponse failure = PredictResponse.newBuilder()
+                .setStatus(Status.newBuilder().setCode(500))
+                .build();
+
+        for (int i = 0; i < 2; i++) {
+            cache.load("test_tenant", "home", REQUEST, PredictCacheTest::isCacheable, () -> {
+                loads.incrementAndGet();
+                return failure;
+            });
+        }
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        PredictCache cache = newCache();
+        CountDownLatch loading = new CountDownLatch(1);
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<PredictResponse>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.load("test_tenant", "home", REQUEST,
+                    PredictCacheTest::isCacheable, () -> {
+                        loads.incrementAndGet();
+                        loading.countDown();
+                        release.join();
+                        return RESPONSE;
+                    })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> load(cache, REQUEST)));
+            }
+            // the misses wait for the loading response rather than load it again
+            Thread.sleep(100);
+            release.complete(null);
+
+            assertEquals(RESPONSE, results.get(0).get(5, TimeUnit.SECONDS));
+            for (int i = 1; i < results.size(); i++) {
+                assertEquals(SHARED_RESPONSE, results.get(i).get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentAsyncMissesLoadOnce() throws Exception {
+        PredictCache cache = newCache();
+        CompletableFuture<PredictResponse> loading = new CompletableFuture<>();
+
+        List<CompletableFuture<PredictResponse>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(cache.loadAsync("test_tenant", "home", REQUEST, PredictCacheTest::isCacheable, () -> {
+                loads.incrementAndGet();
+                return loading;
+            }));
+        }
+        loading.complete(RESPONSE);
+
+        assertEquals(RESPONSE, results.get(0).get(5, TimeUnit.SECONDS));
+        assertEquals(SHARED_RESPONSE, results.get(1).get(5, TimeUnit.SECONDS));
+        assertEquals(SHARED_RESPONSE, results.get(2).get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testFailedLoadIsSharedAndNotKept() throws Exception {
+        PredictCache cache = newCache();
+        CompletableFuture<PredictResponse> loading = new CompletableFuture<>();
+        CompletableFuture<PredictResponse> first = cache.loadAsync("test_tenant", "home", REQUEST,
+                PredictCacheTest::isCacheable, () -> loading);
+        CompletableFuture<PredictResponse> second = cache.loadAsync("test_tenant", "home", REQUEST,
+                PredictCacheTest::isCacheable, () -> {
+                    loads.incrementAndGet();
+                    return CompletableFuture.completedFuture(RESPONSE);
+                });
+
+        loading.completeExceptionally(new NetException("timeout"));
+
+        for (CompletableFuture<PredictResponse> result : Arrays.asList(first, second)) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("load should fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof NetException);
+            }
+        }
+        assertEquals(0, loads.get());
+
+        // the next miss loads again
+        assertEquals(RESPONSE, load(cache, REQUEST));
+        assertEquals(1, loads.get());
+    }
+}
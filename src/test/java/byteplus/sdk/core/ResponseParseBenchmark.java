@@ -0,0 +1,91 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictResponse;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictResult;
+import com.google.protobuf.CodedInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Compare parsing a gzip predict response from the body stream(as HTTPCaller does)
+// with reading the whole body, decompressing it into an array and then parsing it.
+// Run with `-prof gc` to see the allocation per response, e.g.
+// mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+// java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main ResponseParseBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParseBenchmark {
+    private static final int GZIP_BUFFER_SIZE = 4096;
+
+    // products in the predict response
+    @Param({"20", "200"})
+    public int size;
+
+    private byte[] gzipBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        PredictResult.Builder result = PredictResult.newBuilder();
+        for (int i = 0; i < size; i++) {
+            result.addResponseProducts(PredictResult.ResponseProduct.newBuilder()
+                    .setProductId("product_" + i)
+                    .setRank(i)
+                    .setPctr(0.01 * i)
+                    .setRecInfo("rec_info_of_product_" + i));
+        }
+        PredictResponse response = PredictResponse.newBuilder()
+                .setRequestId("request_id")
+                .setValue(result)
+                .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            response.writeTo(gzipOut);
+        }
+        gzipBody = out.toByteArray();
+    }
+
+    @Benchmark
+    public PredictResponse streamed() throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipBody), GZIP_BUFFER_SIZE)) {
+            return PredictResponse.parser().parseFrom(CodedInputStream.newInstance(in));
+        }
+    }
+
+    // The way before: body bytes -> decompressed by a 256 bytes buffer -> parsed from the array
+    @Benchmark
+    public PredictResponse buffered() throws IOException {
+        byte[] body = readAll(new ByteArrayInputStream(gzipBody), 8192);
+        byte[] decompressed = readAll(new GZIPInputStream(new ByteArrayInputStream(body)), 256);
+        return PredictResponse.parser().parseFrom(decompressed);
+    }
+
+    private static byte[] readAll(InputStream in, int bufferSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[bufferSize];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.common.protocol.ByteplusCommon.Status;
+import byteplus.sdk.retail.protocol.ByteplusRetail.User;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersResponse;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryPolicyTest {
+    private static final WriteUsersRequest REQUEST = WriteUsersRequest.newBuilder()
+            .addUsers(User.newBuilder().setUserId("user_id"))
+            .build();
+
+    private static final RetryPolicy POLICY = RetryPolicy.builder()
+            .maxAttempts(3)
+            .initialBackoff(Duration.ofMillis(1))
+            .build();
+
+    private final ConcurrentLinkedQueue<MockResponse> responses = new ConcurrentLinkedQueue<>();
+
+    private MockWebServer server;
+
+    private HTTPCaller caller;
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private void start(MockResponse... rsps) throws Exception {
+        Collections.addAll(responses, rsps);
+        server = MockServers.start(request -> responses.poll());
+        caller = new HTTPCaller(new Context(MockServers.param(server)));
+    }
+
+    private static HostURL url() {
+        return HostURL.of("http", "/data/api/retail/test_tenant/user?method=write");
+    }
+
+    private WriteUsersResponse send() throws Exception {
+        return caller.doPBRequest(url(), REQUEST, WriteUsersResponse.parser(),
+                Option.conv2Options(new Option[]{Option.withRetryPolicy(POLICY)}));
+    }
+
+    private List<String> requestIds(int count) throws Exception {
+        List<String> requestIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            RecordedRequest request = MockServers.takeApiRequest(server);
+            requestIds.add(request.getHeader("Request-Id"));
+        }
+        return requestIds;
+    }
+
+    private static WriteUsersResponse response(int code) {
+        return WriteUsersResponse.newBuilder().setStatus(Status.newBuilder().setCode(code)).build();
+    }
+
+    @Test
+    public void testRetryReusesRequestId() throws Exception {
+        start(new MockResponse().setResponseCode(503),
+                MockServers.pbResponse(response(Constant.STATUS_CODE_SUCCESS)));
+
+        assertEquals(Constant.STATUS_CODE_SUCCESS, send().getStatus().getCode());
+
+        List<String> requestIds = requestIds(2);
+        assertEquals(requestIds.get(0), requestIds.get(1));
+    }
+
+    @Test
+    public void testRejectedRetryIsDuplicate() throws Exception {
+        start(new MockResponse().setResponseCode(503),
+                new MockResponse().setResponseCode(Constant.STATUS_CODE_IDEMPOTENT));
+
+        try {
+            send();
+            fail("the rejected retry should not be a success");
+        } catch (DuplicateRequestException e) {
+            assertEquals(requestIds(2).get(0), e.getRequestId());
+        }
+    }
+
+    @Test
+    public void testRejectedRetryResponseIsNotRewritten() throws Exception {
+        start(new MockResponse().setResponseCode(503),
+                MockServers.pbResponse(response(Constant.STATUS_CODE_IDEMPOTENT)));
+
+        // the status code of the duplicate is kept, it's not made up as a success
+        assertEquals(Constant.STATUS_CODE_IDEMPOTENT, send().getStatus().getCode());
+    }
+
+    @Test
+    public void testFirstAttemptConflictIsNotDuplicate() throws Exception {
+        start(new MockResponse().setResponseCode(Constant.STATUS_CODE_IDEMPOTENT));
+
+        try {
+            send();
+            fail("409 of the first attempt should fail");
+        } catch (BizException e) {
+            // the Request-Id is used by another call, it's not a duplicate of this one
+            assertFalse(e instanceof DuplicateRequestException);
+        }
+    }
+
+    @Test
+    public void testAsyncRejectedRetryIsDuplicate() throws Exception {
+        start(new MockResponse().setResponseCode(503),
+                new MockResponse().setResponseCode(Constant.STATUS_CODE_IDEMPOTENT));
+
+        try {
+            caller.doPBRequestAsync(url(), REQUEST, WriteUsersResponse.parser(),
+                    Option.conv2Options(new Option[]{Option.withRetryPolicy(POLICY)})).get(5, TimeUnit.SECONDS);
+            fail("the rejected retry should not be a success");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DuplicateRequestException);
+        }
+    }
+}
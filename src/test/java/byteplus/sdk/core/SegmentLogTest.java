@@ -0,0 +1,102 @@
+package byteplus.sdk.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SegmentLogTest {
+    private static final int SEGMENT_SIZE = 64;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private SegmentLog open(int maxSegments) throws IOException {
+        return new SegmentLog(folder.getRoot(), SEGMENT_SIZE, maxSegments, false);
+    }
+
+    private int segmentFiles() {
+        File[] files = folder.getRoot().listFiles((dir, name) -> name.endsWith(".seg"));
+        return files == null ? 0 : files.length;
+    }
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+        try (SegmentLog log = open(4)) {
+            long first = log.append(bytes("first"));
+            long second = log.append(bytes("second"));
+
+            assertArrayEquals(bytes("first"), log.read(first));
+            assertArrayEquals(bytes("second"), log.read(second));
+            assertEquals(second + 8 + 6, log.endPosition());
+        }
+    }
+
+    @Test
+    public void testRecoverUnconsumedRecords() throws Exception {
+        long first, second, third;
+        try (SegmentLog log = open(4)) {
+            first = log.append(bytes("first"));
+            second = log.append(bytes("second"));
+            third = log.append(bytes("third"));
+            log.markConsumed(second);
+        }
+
+        try (SegmentLog log = open(4)) {
+            List<Long> recovered = log.recoveredPositions();
+
+            assertEquals(Arrays.asList(first, third), recovered);
+            assertArrayEquals(bytes("third"), log.read(third));
+            // new records are appended to a new segment after the recovered ones
+            assertEquals(SEGMENT_SIZE, log.append(bytes("fourth")));
+        }
+    }
+
+    @Test
+    public void testCheckpointDeletesConsumedSegments() throws Exception {
+        long last;
+        try (SegmentLog log = open(4)) {
+            // each record takes 8 + 40 bytes, so every record is in its own segment
+            byte[] data = new byte[40];
+            log.append(data);
+            log.append(data);
+            last = log.append(data);
+            assertEquals(3, segmentFiles());
+
+            log.checkpoint(last);
+
+            assertEquals(1, segmentFiles());
+        }
+
+        try (SegmentLog log = open(4)) {
+            assertEquals(Collections.singletonList(last), log.recoveredPositions());
+        }
+    }
+
+    @Test
+    public void testFullLogRejectsAppend() throws Exception {
+        try (SegmentLog log = open(2)) {
+            byte[] data = new byte[40];
+
+            assertEquals(0, log.append(data));
+            assertEquals(SEGMENT_SIZE, log.append(data));
+            assertEquals(-1, log.append(data));
+            // larger than a segment
+            assertEquals(-1, log.append(new byte[SEGMENT_SIZE]));
+            assertEquals(2L * SEGMENT_SIZE, log.diskUsage());
+        }
+    }
+}
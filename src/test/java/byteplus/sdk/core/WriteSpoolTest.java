@@ -0,0 +1,160 @@
+package byteplus.sdk.core;
+
+import byteplus.sdk.retail.protocol.ByteplusRetail.UserEvent;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUserEventsRequest;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WriteSpoolTest {
+    private static final WriteUserEventsRequest REQUEST = WriteUserEventsRequest.newBuilder()
+            .addUserEvents(UserEvent.newBuilder().setUserId("user_id").setEventType("purchase"))
+            .build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> replayedRequestIds = new CopyOnWriteArrayList<>();
+
+    private final List<WriteUserEventsRequest> replayedRequests = new CopyOnWriteArrayList<>();
+
+    private WriteSpool spool;
+
+    @After
+    public void tearDown() {
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    private WriteSpool open(boolean replaySucceeds) throws Exception {
+        WriteSpool.Config config = WriteSpool.Config.builder()
+                .directory(folder.getRoot().getPath())
+                .segmentBytes(4096)
+                .build();
+        return new WriteSpool(config, (request, opts) -> {
+            if (!replaySucceeds) {
+                throw new NetException("timeout");
+            }
+            replayedRequestIds.add(Option.conv2Options(opts).getRequestId());
+            try {
+                replayedRequests.add(WriteUserEventsRequest.parseFrom(request));
+            } catch (InvalidProtocolBufferException e) {
+                throw new BizException(e.getMessage());
+            }
+        });
+    }
+
+    private void awaitReplayed(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (replayedRequests.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(count, replayedRequests.size());
+    }
+
+    @Test
+    public void testDeliveredRequestIsAcked() throws Exception {
+        spool = open(true);
+        List<String> sentRequestIds = new CopyOnWriteArrayList<>();
+
+        String response = spool.write(REQUEST, new Option[0], opts -> {
+            sentRequestIds.add(Option.conv2Options(opts).getRequestId());
+            return "ok";
+        });
+
+        assertEquals("ok", response);
+        assertEquals(0, spool.getUndeliveredCount());
+        // the generated request id is given to sender
+        assertEquals(1, sentRequestIds.size());
+        assertFalse(sentRequestIds.get(0).isEmpty());
+    }
+
+    @Test
+    public void testFailedRequestIsSpooledAndReplayedWithRequestId() throws Exception {
+        spool = open(true);
+
+        try {
+            spool.write(REQUEST, new Option[]{Option.withRequestId("request_id")}, opts -> {
+                throw new NetException("timeout");
+            });
+            fail("SpooledException is expected");
+        } catch (SpooledException e) {
+            assertEquals("request_id", e.getRequestId());
+        }
+
+        awaitReplayed(1);
+        assertEquals(REQUEST, replayedRequests.get(0));
+        assertEquals("request_id", replayedRequestIds.get(0));
+        assertEquals(0, spool.getUndeliveredCount());
+    }
+
+    @Test
+    public void testBizExceptionIsNotReplayed() throws Exception {
+        spool = open(true);
+
+        try {
+            spool.write(REQUEST, new Option[0], opts -> {
+                throw new BizException("invalid request");
+            });
+            fail("BizException is expected");
+        } catch (SpooledException e) {
+            fail("BizException should not be spooled");
+        } catch (BizException e) {
+            assertEquals("invalid request", e.getMessage());
+        }
+
+        assertEquals(0, spool.getUndeliveredCount());
+    }
+
+    @Test
+    public void testUndeliveredRequestIsReplayedAfterReopen() throws Exception {
+        spool = open(false);
+        CompletableFuture<String> future = spool.writeAsync(REQUEST,
+                new Option[]{Option.withRequestId("request_id")},
+                opts -> Helper.failedFuture(new NetException("timeout")));
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("SpooledException is expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SpooledException);
+        }
+        assertEquals(1, spool.getUndeliveredCount());
+        spool.close();
+
+        spool = open(true);
+
+        awaitReplayed(1);
+        assertEquals("request_id", replayedRequestIds.get(0));
+    }
+
+    @Test
+    public void testSynchronousThrowOfAsyncSenderIsAcked() throws Exception {
+        spool = open(true);
+
+        CompletableFuture<String> future = spool.writeAsync(REQUEST, new Option[0], opts -> {
+            throw new IllegalStateException("client is released");
+        });
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("IllegalStateException is expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(0, spool.getUndeliveredCount());
+    }
+}
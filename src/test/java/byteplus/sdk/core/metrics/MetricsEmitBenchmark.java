@@ -0,0 +1,74 @@
+package byteplus.sdk.core.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static byteplus.sdk.core.metrics.Constant.METRICS_TYPE_TIMER;
+
+// Measure the latency of emitting metrics and metrics logs on the request threads,
+// with a report thread flushing continuously(`reporting`) and without it(`idle`).
+// The emit latency should be the same in both groups, the emitters never wait for the flush.
+// mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+// java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main MetricsEmitBenchmark
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsEmitBenchmark {
+    private MetricsRegistry registry;
+
+    @Setup
+    public void setUp() {
+        // the report thread of MetricsCollector is not expected to run during the benchmark,
+        // the flush is done by the benchmark threads
+        MetricsCollector.Init(MetricsOption.enableMetricsLog(),
+                MetricsOption.withReportInterval(Duration.ofHours(1)));
+        registry = new MetricsRegistry("bench", Constant.MAX_METRICS_SIZE, false);
+    }
+
+    private void emit() {
+        registry.record(METRICS_TYPE_TIMER, "request.cost", 10, "url:predict", "code:0");
+        MetricsLog.info("log_id", "request finished, cost:%d", 10);
+    }
+
+    private void flush() {
+        registry.flush();
+        MetricsCollector.drainMetricsLogs();
+    }
+
+    @Benchmark
+    @Group("idle")
+    @GroupThreads(3)
+    public void idleEmit() {
+        emit();
+    }
+
+    @Benchmark
+    @Group("reporting")
+    @GroupThreads(3)
+    public void reportingEmit() {
+        emit();
+    }
+
+    @Benchmark
+    @Group("reporting")
+    @GroupThreads(1)
+    public void reportingFlush() {
+        flush();
+    }
+}
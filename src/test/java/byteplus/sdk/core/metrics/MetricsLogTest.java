@@ -0,0 +1,50 @@
+package byteplus.sdk.core.metrics;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class MetricsLogTest {
+    @BeforeClass
+    public static void setUp() {
+        // neither metrics nor metrics log is enabled
+        MetricsCollector.Init();
+    }
+
+    @Test
+    public void testDisabledSkipsFormatting() {
+        AtomicInteger formatted = new AtomicInteger();
+        Object arg = new Object() {
+            @Override
+            public String toString() {
+                formatted.incrementAndGet();
+                return "arg";
+            }
+        };
+
+        assertFalse(MetricsLog.isEnabled());
+        MetricsLog.info("log_id", "message %s", arg);
+        MetricsLog.error("log_id", "message %s", arg);
+
+        assertEquals(0, formatted.get());
+    }
+
+    @Test
+    public void testDisabledSkipsSupplier() {
+        AtomicInteger built = new AtomicInteger();
+
+        MetricsLog.trace("log_id", () -> "message " + built.incrementAndGet());
+        MetricsLog.debug("log_id", () -> "message " + built.incrementAndGet());
+        MetricsLog.info("log_id", () -> "message " + built.incrementAndGet());
+        MetricsLog.notice("log_id", () -> "message " + built.incrementAndGet());
+        MetricsLog.warn("log_id", () -> "message " + built.incrementAndGet());
+        MetricsLog.error("log_id", () -> "message " + built.incrementAndGet());
+        MetricsLog.fatal("log_id", () -> "message " + built.incrementAndGet());
+
+        assertEquals(0, built.get());
+    }
+}
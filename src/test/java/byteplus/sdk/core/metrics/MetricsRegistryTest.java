@@ -0,0 +1,180 @@
+package byteplus.sdk.core.metrics;
+
+import byteplus.sdk.core.metrics.protocol.SdkMetrics.Metric;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static byteplus.sdk.core.metrics.Constant.METRICS_TYPE_COUNTER;
+import static byteplus.sdk.core.metrics.Constant.METRICS_TYPE_STORE;
+import static byteplus.sdk.core.metrics.Constant.METRICS_TYPE_TIMER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRegistryTest {
+    private static List<String> names(List<Metric> metrics) {
+        return metrics.stream().map(Metric::getName).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRawTimerReportsEachValue() {
+        MetricsRegistry registry = new MetricsRegistry("prefix", 100, true);
+
+        registry.record(METRICS_TYPE_TIMER, "latency", 10, "url:a", "code:0");
+        registry.record(METRICS_TYPE_TIMER, "latency", 30, "code:0", "url:a");
+        List<Metric> metrics = registry.flush();
+
+        assertEquals(2, metrics.size());
+        for (Metric metric : metrics) {
+            assertEquals(METRICS_TYPE_TIMER, metric.getType());
+            assertEquals("prefix.latency", metric.getName());
+            assertEquals("a", metric.getTagsMap().get("url"));
+        }
+        assertEquals(10, metrics.get(0).getValue(), 0);
+        assertEquals(30, metrics.get(1).getValue(), 0);
+        assertTrue(registry.flush().isEmpty());
+    }
+
+    @Test
+    public void testRawTimerValuesBeyondLimitAreAggregated() {
+        MetricsRegistry registry = new MetricsRegistry("prefix", 3, true);
+
+        for (int i = 1; i <= 5; i++) {
+            registry.record(METRICS_TYPE_TIMER, "latency", i);
+        }
+        List<Metric> metrics = registry.flush();
+
+        // 3 values are reported as they are, the other 2 as the aggregated series
+        assertEquals(names(metrics).toString(), 3 + 6, metrics.size());
+        Metric count = metrics.stream().filter(m -> m.getName().equals("prefix.latency.count")).findFirst().get();
+        assertEquals(2, count.getValue(), 0);
+        // the limit is released by flush
+        registry.record(METRICS_TYPE_TIMER, "latency", 1);
+        assertEquals(1, registry.flush().size());
+    }
+
+    @Test
+    public void testTimerIsAggregatedByDefault() {
+        MetricsRegistry registry = new MetricsRegistry("prefix", 100, false);
+
+        for (int i = 1; i <= 100; i++) {
+            registry.record(METRICS_TYPE_TIMER, "latency", i);
+        }
+        List<Metric> metrics = registry.flush();
+
+        assertEquals(names(metrics).toString(), 6, metrics.size());
+        Metric count = metrics.stream().filter(m -> m.getName().equals("prefix.latency.count")).findFirst().get();
+        assertEquals(METRICS_TYPE_COUNTER, count.getType());
+        assertEquals(100, count.getValue(), 0);
+        Metric max = metrics.stream().filter(m -> m.getName().equals("prefix.latency.max")).findFirst().get();
+        assertEquals(METRICS_TYPE_STORE, max.getType());
+        assertEquals(100, max.getValue(), 0);
+    }
+
+    @Test
+    public void testCounterReportsDeltaAndStoreReportsLast() {
+        MetricsRegistry registry = new MetricsRegistry("", 100, false);
+
+        registry.record(METRICS_TYPE_COUNTER, "qps", 1);
+        registry.record(METRICS_TYPE_COUNTER, "qps", 2);
+        registry.record(METRICS_TYPE_STORE, "size", 5);
+        registry.record(METRICS_TYPE_STORE, "size", 7);
+        List<Metric> metrics = registry.flush();
+
+        assertEquals(2, metrics.size());
+        for (Metric metric : metrics) {
+            double expected = metric.getName().equals("qps") ? 3 : 7;
+            assertEquals(expected, metric.getValue(), 0);
+        }
+
+        registry.record(METRICS_TYPE_COUNTER, "qps", 4);
+        metrics = registry.flush();
+        assertEquals(1, metrics.size());
+        assertEquals(4, metrics.get(0).getValue(), 0);
+    }
+
+    @Test
+    public void testIdleSeriesAreEvicted() {
+        MetricsRegistry registry = new MetricsRegistry("", 2, false);
+        registry.record(METRICS_TYPE_COUNTER, "qps", 1, "host:a");
+        registry.record(METRICS_TYPE_COUNTER, "qps", 1, "host:b");
+
+        // the limit is reached, the new series is rejected
+        registry.record(METRICS_TYPE_COUNTER, "qps", 1, "host:c");
+        assertEquals(2, registry.flush().size());
+
+        // host:a keeps being recorded, host:b is idle and evicted
+        for (int i = 0; i < 3; i++) {
+            registry.record(METRICS_TYPE_COUNTER, "qps", 1, "host:a");
+            registry.flush();
+        }
+        registry.record(METRICS_TYPE_COUNTER, "qps", 2, "host:c");
+        List<Metric> metrics = registry.flush();
+
+        assertEquals(1, metrics.size());
+        assertEquals("c", metrics.get(0).getTagsMap().get("host"));
+        assertEquals(2, metrics.get(0).getValue(), 0);
+        assertEquals(2, registry.snapshot().size());
+    }
+
+    @Test
+    public void testEvictedSeriesIsRegisteredAgain() {
+        MetricsRegistry registry = new MetricsRegistry("", 100, false);
+        registry.record(METRICS_TYPE_COUNTER, "qps", 1);
+        for (int i = 0; i < 4; i++) {
+            registry.flush();
+        }
+        assertTrue(registry.snapshot().isEmpty());
+
+        registry.record(METRICS_TYPE_COUNTER, "qps", 2);
+        List<Metric> metrics = registry.flush();
+
+        assertEquals(1, metrics.size());
+        assertEquals(2, metrics.get(0).getValue(), 0);
+    }
+
+    @Test
+    public void testRecordDuringEvictionIsNotLost() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry("", 100, false);
+        int writers = 4;
+        int records = 5000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Metric> flushed = new ArrayList<>();
+        Thread flusher = new Thread(() -> {
+            while (writing.get()) {
+                flushed.addAll(registry.flush());
+            }
+        });
+        flusher.start();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            Thread writer = new Thread(() -> {
+                for (int j = 0; j < records; j++) {
+                    registry.record(METRICS_TYPE_COUNTER, "qps", 1, "host:a");
+                    // idle for a while, so the series is evicted while the others register it
+                    if (j % 100 == 0) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    }
+                }
+            });
+            threads.add(writer);
+            writer.start();
+        }
+        for (Thread writer : threads) {
+            writer.join();
+        }
+        writing.set(false);
+        flusher.join();
+        // the evicted series are flushed once more by the next flush
+        flushed.addAll(registry.flush());
+        flushed.addAll(registry.flush());
+
+        double total = flushed.stream().mapToDouble(Metric::getValue).sum();
+        assertEquals(writers * records, total, 0);
+    }
+}
@@ -0,0 +1,112 @@
+package byteplus.sdk.core.metrics;
+
+import byteplus.sdk.core.MockServers;
+import byteplus.sdk.core.metrics.protocol.SdkMetrics.Metric;
+import byteplus.sdk.core.metrics.protocol.SdkMetrics.MetricLog;
+import byteplus.sdk.core.metrics.protocol.SdkMetrics.MetricLogMessage;
+import byteplus.sdk.core.metrics.protocol.SdkMetrics.MetricMessage;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static byteplus.sdk.core.metrics.Constant.METRICS_TYPE_TIMER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsReportTest {
+    private static final String LOG_PATH = "/predict/api/monitor/metrics/log";
+
+    private static final String METRICS_PATH = "/predict/api/monitor/metrics";
+
+    private static MockWebServer server;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        // the first log report is slow, the logs are emitted while it's in flight
+        AtomicBoolean slowReported = new AtomicBoolean();
+        server = MockServers.start(request -> {
+            if (request.getPath().equals(LOG_PATH) && slowReported.compareAndSet(false, true)) {
+                return new MockResponse().setHeadersDelay(1500, TimeUnit.MILLISECONDS);
+            }
+            return new MockResponse();
+        });
+        MetricsCollector.Init(MetricsOption.enableMetrics(),
+                MetricsOption.enableMetricsLog(),
+                MetricsOption.withMetricsDomain(MockServers.hostOf(server)),
+                MetricsOption.withMetricsHttpSchema("http"),
+                MetricsOption.withMetricsPrefix("test"),
+                MetricsOption.withReportInterval(Duration.ofMillis(1100)));
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static RecordedRequest takeRequest(String path) throws InterruptedException {
+        while (true) {
+            RecordedRequest request = MockServers.takeApiRequest(server);
+            if (request == null || request.getPath().equals(path)) {
+                return request;
+            }
+        }
+    }
+
+    private static Set<String> logIds(RecordedRequest request) throws Exception {
+        Set<String> ids = new HashSet<>();
+        for (MetricLog metricLog : MetricLogMessage.parseFrom(request.getBody().readByteArray()).getMetricLogsList()) {
+            ids.add(metricLog.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testEmitDuringReport() throws Exception {
+        MetricsCollector.emitMetric(METRICS_TYPE_TIMER, "request.cost", 10, "url:predict");
+        for (int i = 0; i < 100; i++) {
+            MetricsLog.info("first_" + i, "message");
+        }
+
+        RecordedRequest metricsRequest = takeRequest(METRICS_PATH);
+        assertNotNull(metricsRequest);
+        // the timer is reported as the aggregated series
+        Map<String, Double> values = new HashMap<>();
+        for (Metric metric : MetricMessage.parseFrom(metricsRequest.getBody().readByteArray()).getMetricsList()) {
+            values.put(metric.getName(), metric.getValue());
+        }
+        assertEquals(1, values.get("test.request.cost.count"), 0);
+        assertEquals(10, values.get("test.request.cost.max"), 0);
+
+        RecordedRequest firstLogRequest = takeRequest(LOG_PATH);
+        assertNotNull(firstLogRequest);
+        Set<String> reported = logIds(firstLogRequest);
+        // the report thread is waiting for the response now, emitting is not blocked by it
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            MetricsLog.info("second_" + i, "message");
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+
+        while (reported.size() < 200) {
+            RecordedRequest logRequest = takeRequest(LOG_PATH);
+            assertNotNull("logs are lost, reported:" + reported.size(), logRequest);
+            reported.addAll(logIds(logRequest));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(reported.contains("first_" + i));
+            assertTrue(reported.contains("second_" + i));
+        }
+    }
+}
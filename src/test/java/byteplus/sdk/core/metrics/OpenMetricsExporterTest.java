@@ -0,0 +1,112 @@
+package byteplus.sdk.core.metrics;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+
+import static byteplus.sdk.core.metrics.Constant.METRICS_TYPE_COUNTER;
+import static byteplus.sdk.core.metrics.Constant.METRICS_TYPE_STORE;
+import static byteplus.sdk.core.metrics.Constant.METRICS_TYPE_TIMER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OpenMetricsExporterTest {
+    private MetricsRegistry registry;
+
+    private OpenMetricsExporter exporter;
+
+    @Before
+    public void setUp() {
+        registry = new MetricsRegistry("byteplus.rec.sdk", 100, false);
+    }
+
+    @After
+    public void tearDown() {
+        if (exporter != null) {
+            exporter.close();
+        }
+    }
+
+    private String write() throws Exception {
+        StringWriter writer = new StringWriter();
+        exporter.write(writer);
+        return writer.toString();
+    }
+
+    @Test
+    public void testTimerIsExposedAsHistogram() throws Exception {
+        exporter = new OpenMetricsExporter();
+        exporter.start(registry::snapshot);
+        registry.record(METRICS_TYPE_TIMER, "request.cost", 3, "url:predict");
+        registry.record(METRICS_TYPE_TIMER, "request.cost", 150, "url:predict");
+        registry.record(METRICS_TYPE_TIMER, "request.cost", 20000, "url:predict");
+
+        String text = write();
+
+        assertTrue(text, text.contains("# TYPE byteplus_rec_sdk_request_cost_seconds histogram\n"));
+        assertTrue(text, text.contains("# UNIT byteplus_rec_sdk_request_cost_seconds seconds\n"));
+        assertTrue(text, text.contains("byteplus_rec_sdk_request_cost_seconds_bucket{url=\"predict\",le=\"0.002\"} 0\n"));
+        assertTrue(text, text.contains("byteplus_rec_sdk_request_cost_seconds_bucket{url=\"predict\",le=\"0.005\"} 1\n"));
+        assertTrue(text, text.contains("byteplus_rec_sdk_request_cost_seconds_bucket{url=\"predict\",le=\"0.2\"} 2\n"));
+        assertTrue(text, text.contains("byteplus_rec_sdk_request_cost_seconds_bucket{url=\"predict\",le=\"+Inf\"} 3\n"));
+        assertTrue(text, text.contains("byteplus_rec_sdk_request_cost_seconds_count{url=\"predict\"} 3\n"));
+        assertTrue(text, text.contains("byteplus_rec_sdk_request_cost_seconds_sum{url=\"predict\"} 20.153\n"));
+        assertTrue(text, text.endsWith("# EOF\n"));
+    }
+
+    @Test
+    public void testCounterAndGauge() throws Exception {
+        exporter = new OpenMetricsExporter();
+        exporter.start(registry::snapshot);
+        registry.record(METRICS_TYPE_COUNTER, "request.qps", 1, "code:0");
+        registry.record(METRICS_TYPE_COUNTER, "request.qps", 2, "code:0");
+        registry.record(METRICS_TYPE_STORE, "queue.size", 5);
+        // flushing to byteplus server doesn't reset the exposed values
+        registry.flush();
+        registry.record(METRICS_TYPE_STORE, "queue.size", 7);
+
+        String text = write();
+
+        assertTrue(text, text.contains("# TYPE byteplus_rec_sdk_request_qps counter\n"));
+        assertTrue(text, text.contains("byteplus_rec_sdk_request_qps_total{code=\"0\"} 3\n"));
+        assertTrue(text, text.contains("# TYPE byteplus_rec_sdk_queue_size gauge\n"));
+        assertTrue(text, text.contains("byteplus_rec_sdk_queue_size 7\n"));
+    }
+
+    @Test
+    public void testNamesAndLabelsAreEscaped() throws Exception {
+        exporter = new OpenMetricsExporter();
+        exporter.start(registry::snapshot);
+        registry.record(METRICS_TYPE_COUNTER, "request.err-count", 1, "9tag:a\"b\\c");
+
+        String text = write();
+
+        assertTrue(text, text.contains("byteplus_rec_sdk_request_err_count_total{_9tag=\"a\\\"b\\\\c\"} 1\n"));
+    }
+
+    @Test
+    public void testServeOverHttp() throws Exception {
+        exporter = new OpenMetricsExporter(new InetSocketAddress("127.0.0.1", 0));
+        exporter.start(registry::snapshot);
+        registry.record(METRICS_TYPE_COUNTER, "request.qps", 1);
+
+        OkHttpClient client = new OkHttpClient();
+        Request request = new Request.Builder()
+                .url("http://127.0.0.1:" + exporter.getPort() + "/metrics")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code());
+            assertEquals(OpenMetricsExporter.CONTENT_TYPE, response.header("Content-Type"));
+            assertTrue(response.body().string().contains("byteplus_rec_sdk_request_qps_total 1\n"));
+        }
+
+        exporter.close();
+        assertEquals(-1, exporter.getPort());
+    }
+}
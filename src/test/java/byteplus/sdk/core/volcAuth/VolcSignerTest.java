@@ -0,0 +1,120 @@
+package byteplus.sdk.core.volcAuth;
+
+import byteplus.sdk.core.Helper;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertEquals;
+
+public class VolcSignerTest {
+    private static final byte[] BODY = "{\"user_id\":\"u1\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static Request newRequest() {
+        return new Request.Builder()
+                .url("https://rec.volcengineapi.com/data/api/retail/demo/user?method=write&a=b+c")
+                .header("Content-Type", "application/json")
+                .header("Host", "rec.volcengineapi.com:443")
+                .header("X-Custom", " value ")
+                .header("Accept", "application/x-protobuf")
+                .post(RequestBody.create(BODY, MediaType.get("application/json")))
+                .build();
+    }
+
+    @Test
+    public void testSignatureMatchesV4Algorithm() throws Exception {
+        Credential credential = new Credential("ak", "sk", "air", "cn-north-1");
+
+        Headers headers = new VolcSigner(credential).sign(newRequest(), BODY);
+
+        assertEquals(expectedAuthorization(headers, credential), headers.get("Authorization"));
+        assertEquals(hex(sha256(BODY)), headers.get("X-Content-Sha256"));
+    }
+
+    @Test
+    public void testCachedKeyFollowsCredentialChange() throws Exception {
+        Credential credential = new Credential("ak", "sk", "air", "cn-north-1");
+        VolcSigner signer = new VolcSigner(credential);
+        signer.sign(newRequest(), BODY);
+
+        credential.setSecretAccessKey("another_sk");
+        credential.setRegion("ap-singapore-1");
+        Headers headers = signer.sign(newRequest(), BODY);
+
+        assertEquals(expectedAuthorization(headers, credential), headers.get("Authorization"));
+    }
+
+    @Test
+    public void testStaticFacadeSignsTheSame() throws Exception {
+        Credential credential = new Credential("ak", "sk", "air", "cn-north-1");
+
+        Headers headers = VoclAuth.sign(newRequest(), BODY, credential);
+
+        assertEquals(expectedAuthorization(headers, credential), headers.get("Authorization"));
+    }
+
+    @Test
+    public void testBytes2Hex() {
+        byte[] bytes = new byte[256];
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+            expected.append(String.format("%02x", i));
+        }
+        assertEquals(expected.toString(), Helper.bytes2Hex(bytes));
+    }
+
+    // The signature computed step by step as the volc V4 signing document describes,
+    // with the X-Date chosen by the signer
+    private static String expectedAuthorization(Headers signed, Credential credential) throws Exception {
+        String xDate = signed.get("X-Date");
+        String date = xDate.substring(0, 8);
+        String bodyHash = hex(sha256(BODY));
+        // X-Date and X-Content-Sha256 are added by the signer, they are not signed
+        String signedHeaders = "content-type;host;x-custom";
+        String canonicalRequest = "POST\n" +
+                "/data/api/retail/demo/user\n" +
+                "a=b%20c&method=write\n" +
+                "content-type:application/json\n" +
+                "host:rec.volcengineapi.com\n" +
+                "x-custom:value\n" +
+                "\n" +
+                signedHeaders + "\n" +
+                bodyHash;
+        String scope = date + "/" + credential.getRegion() + "/" + credential.getService() + "/request";
+        String stringToSign = "HMAC-SHA256\n" + xDate + "\n" + scope + "\n" +
+                hex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+        byte[] key = hmac(credential.getSecretAccessKey().getBytes(StandardCharsets.UTF_8), date);
+        key = hmac(key, credential.getRegion());
+        key = hmac(key, credential.getService());
+        key = hmac(key, "request");
+        String signature = hex(hmac(key, stringToSign));
+        return "HMAC-SHA256 Credential=" + credential.getAccessKeyID() + "/" + scope +
+                ", SignedHeaders=" + signedHeaders + ", Signature=" + signature;
+    }
+
+    private static byte[] sha256(byte[] content) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(content);
+    }
+
+    private static byte[] hmac(byte[] key, String content) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b & 0xff));
+        }
+        return builder.toString();
+    }
+}
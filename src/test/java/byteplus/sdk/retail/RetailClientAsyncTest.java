@@ -0,0 +1,121 @@
+package byteplus.sdk.retail;
+
+import byteplus.sdk.common.protocol.ByteplusCommon.Status;
+import byteplus.sdk.core.BizException;
+import byteplus.sdk.core.Constant;
+import byteplus.sdk.core.MockServers;
+import byteplus.sdk.core.Region;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.PredictResponse;
+import byteplus.sdk.retail.protocol.ByteplusRetail.User;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersResponse;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetailClientAsyncTest {
+    private MockWebServer server;
+
+    private RetailClient client;
+
+    private void start(MockResponse response) throws IOException {
+        server = MockServers.start(request -> response);
+        client = newClient();
+    }
+
+    private RetailClient newClient() {
+        return new RetailClientBuilder()
+                .tenant("test_tenant")
+                .tenantId("test_tenant_id")
+                .token("test_token")
+                .schema("http")
+                .region(Region.SG)
+                .hosts(Collections.singletonList(MockServers.hostOf(server)))
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.release();
+        }
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testPredictAsync() throws Exception {
+        PredictResponse expected = PredictResponse.newBuilder()
+                .setStatus(Status.newBuilder().setCode(Constant.STATUS_CODE_SUCCESS))
+                .setRequestId("rsp_id")
+                .build();
+        start(MockServers.pbResponse(expected));
+
+        PredictRequest request = PredictRequest.newBuilder().setUserId("u1").setSize(10).build();
+        PredictResponse response = client.predictAsync(request, "home").get(5, TimeUnit.SECONDS);
+
+        assertEquals(expected, response);
+        assertEquals("/predict/api/retail/test_tenant/home", MockServers.takeApiRequest(server).getPath());
+    }
+
+    @Test
+    public void testAsyncDoesNotBlockCaller() throws Exception {
+        PredictResponse expected = PredictResponse.newBuilder().setRequestId("rsp_id").build();
+        start(MockServers.pbResponse(expected).setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+        long start = System.nanoTime();
+        CompletableFuture<PredictResponse> future =
+                client.predictAsync(PredictRequest.getDefaultInstance(), "home");
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+        assertFalse(future.isDone());
+        assertEquals(expected, future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAsyncFailsWithBizExceptionOnHttpError() throws Exception {
+        start(new MockResponse().setResponseCode(400));
+
+        CompletableFuture<WriteUsersResponse> future = client.writeUsersAsync(WriteUsersRequest.newBuilder()
+                .addUsers(User.newBuilder().setUserId("u1")).build());
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("http error should fail the future");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof BizException);
+        }
+    }
+
+    @Test
+    public void testAsyncRejectsTooManyItemsWithoutSending() throws Exception {
+        AtomicInteger sent = new AtomicInteger();
+        server = MockServers.start(request -> {
+            sent.incrementAndGet();
+            return new MockResponse();
+        });
+        client = newClient();
+        WriteUsersRequest.Builder request = WriteUsersRequest.newBuilder();
+        for (int i = 0; i <= Constant.MAX_WRITE_ITEM_COUNT; i++) {
+            request.addUsers(User.newBuilder().setUserId("u" + i));
+        }
+
+        CompletableFuture<WriteUsersResponse> future = client.writeUsersAsync(request.build());
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, sent.get());
+    }
+}
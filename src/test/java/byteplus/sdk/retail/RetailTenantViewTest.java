@@ -0,0 +1,133 @@
+package byteplus.sdk.retail;
+
+import byteplus.sdk.core.BizException;
+import byteplus.sdk.core.Context;
+import byteplus.sdk.core.MockServers;
+import byteplus.sdk.core.Region;
+import byteplus.sdk.core.Tenant;
+import byteplus.sdk.core.WriteSpool;
+import byteplus.sdk.core.volcAuth.Credential;
+import byteplus.sdk.retail.protocol.ByteplusRetail.UserEvent;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUserEventsRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersRequest;
+import byteplus.sdk.retail.protocol.ByteplusRetail.WriteUsersResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetailTenantViewTest {
+    private static final Tenant TENANT = Tenant.builder()
+            .tenant("view_tenant")
+            .tenantId("view_tenant_id")
+            .token("view_token")
+            .headers(Collections.singletonMap("X-Tenant-Header", "view"))
+            .build();
+
+    private static final WriteUserEventsRequest USER_EVENTS = WriteUserEventsRequest.newBuilder()
+            .addUserEvents(UserEvent.newBuilder().setUserId("user_id").setEventType("purchase"))
+            .build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    private RetailClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = MockServers.start(request -> MockServers.pbResponse(WriteUsersResponse.getDefaultInstance()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.release();
+        }
+        server.shutdown();
+    }
+
+    private RetailClientBuilder builder() {
+        return new RetailClientBuilder()
+                .tenant("test_tenant")
+                .tenantId("test_tenant_id")
+                .token("test_token")
+                .schema("http")
+                .region(Region.SG)
+                .headers(Collections.singletonMap("X-Client-Header", "client"))
+                .hosts(Collections.singletonList(MockServers.hostOf(server)));
+    }
+
+    @Test
+    public void testTenantHeadersAreOnlySentByView() throws Exception {
+        client = builder().build();
+
+        client.writeUsers(WriteUsersRequest.getDefaultInstance());
+        RecordedRequest request = MockServers.takeApiRequest(server);
+        assertNull(request.getHeader("X-Client-Header"));
+
+        client.forTenant(TENANT).writeUsers(WriteUsersRequest.getDefaultInstance());
+        request = MockServers.takeApiRequest(server);
+        assertEquals("/data/api/retail/view_tenant/user?method=write", request.getPath());
+        assertEquals("view_tenant_id", request.getHeader("Tenant-Id"));
+        assertEquals("view", request.getHeader("X-Tenant-Header"));
+        assertNull(request.getHeader("X-Client-Header"));
+    }
+
+    @Test
+    public void testViewOfSpooledClientRejectsUserEvents() throws Exception {
+        client = builder()
+                .writeSpoolConfig(WriteSpool.Config.builder().directory(folder.getRoot().getPath()).build())
+                .build();
+        RetailClient view = client.forTenant(TENANT);
+
+        try {
+            view.writeUserEvents(USER_EVENTS);
+            fail("the write of the view should be rejected");
+        } catch (BizException e) {
+            assertTrue(e.getMessage().contains("spool"));
+        }
+        try {
+            view.writeUserEventsAsync(USER_EVENTS).get(5, TimeUnit.SECONDS);
+            fail("the write of the view should be rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof BizException);
+        }
+        // the other writes of the view aren't spooled by the client, they are sent
+        view.writeUsers(WriteUsersRequest.getDefaultInstance());
+        assertEquals("/data/api/retail/view_tenant/user?method=write", MockServers.takeApiRequest(server).getPath());
+    }
+
+    @Test
+    public void testViewUsesAuthOfClient() throws Exception {
+        Context context = new Context(MockServers.param(server)
+                .setUseAirAuth(false)
+                .setAk("ak")
+                .setSk("sk"));
+        try {
+            context.forTenant(TENANT);
+            fail("the view of volc auth should require the credential");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("volc credential"));
+        }
+
+        Credential credential = new Credential("view_ak", "view_sk", "air", "ap-singapore-1");
+        Context view = context.forTenant(TENANT.toBuilder().token(null).volcCredential(credential).build());
+        assertFalse(view.isUseAirAuth());
+        assertEquals(credential, view.getVolcCredential());
+    }
+}